@@ -16,10 +16,12 @@
 
 package com.android.settings;
 
+import android.app.Activity;
 import android.app.Application;
 import android.content.Context;
 import android.database.ContentObserver;
 import android.net.Uri;
+import android.os.Bundle;
 import android.provider.Settings;
 import android.util.FeatureFlagUtils;
 
@@ -29,6 +31,7 @@ import androidx.annotation.Nullable;
 import com.android.settings.activityembedding.ActivityEmbeddingRulesController;
 import com.android.settings.activityembedding.ActivityEmbeddingUtils;
 import com.android.settings.biometrics.fingerprint2.BiometricsEnvironment;
+import com.android.settings.core.InitializationScheduler;
 import com.android.settings.core.instrumentation.ElapsedTimeUtils;
 import com.android.settings.development.DeveloperOptionsActivityLifecycle;
 import com.android.settings.fuelgauge.BatterySettingsStorage;
@@ -48,6 +51,16 @@ import java.lang.ref.WeakReference;
 /** Settings application which sets up activity embedding rules for the large screen device. */
 public class SettingsApplication extends Application {
 
+    /** Initialization task registering the backup and restore storages. */
+    public static final String INIT_BACKUP_STORAGES = "backup_storages";
+    /** Initialization task setting the Spa environment. */
+    public static final String INIT_SPA_ENVIRONMENT = "spa_environment";
+    /** Initialization task creating the {@link BiometricsEnvironment}. */
+    public static final String INIT_BIOMETRICS = "biometrics";
+    /** Initialization task setting up the activity embedding rules. */
+    public static final String INIT_ACTIVITY_EMBEDDING = "activity_embedding";
+
+    private final InitializationScheduler mInitializationScheduler = new InitializationScheduler();
     private WeakReference<SettingsHomepageActivity> mHomeActivity = new WeakReference<>(null);
     private BiometricsEnvironment mBiometricsEnvironment;
 
@@ -55,37 +68,44 @@ public class SettingsApplication extends Application {
     protected void attachBaseContext(Context base) {
         super.attachBaseContext(base);
         FeatureFactory.setFactory(this, getFeatureFactory());
+
+        // The process is also started for providers and receivers, which need none of the
+        // following, so it is only done on first use, or once an activity is created. Added here
+        // rather than in onCreate() since content providers are created before onCreate().
+        mInitializationScheduler.add(INIT_BACKUP_STORAGES, () ->
+                BackupRestoreStorageManager.getInstance(this)
+                        .add(
+                                new BatterySettingsStorage(this),
+                                LocaleNotificationDataManager.getSharedPreferencesStorage(this)));
+        mInitializationScheduler.add(INIT_SPA_ENVIRONMENT, this::setSpaEnvironment);
+        mInitializationScheduler.add(INIT_BIOMETRICS, () ->
+                mBiometricsEnvironment = new BiometricsEnvironment(this));
+        mInitializationScheduler.add(INIT_ACTIVITY_EMBEDDING, this::initActivityEmbedding);
     }
 
     @Override
     public void onCreate() {
         super.onCreate();
 
-        BackupRestoreStorageManager.getInstance(this)
-                .add(
-                        new BatterySettingsStorage(this),
-                        LocaleNotificationDataManager.getSharedPreferencesStorage(this));
-
         // Add null checking to avoid test case failed.
         if (getApplicationContext() != null) {
             ElapsedTimeUtils.assignSuwFinishedTimeStamp(getApplicationContext());
         }
 
-        // Set Spa environment.
-        setSpaEnvironment();
-        mBiometricsEnvironment = new BiometricsEnvironment(this);
+        registerActivityLifecycleCallbacks(new DeveloperOptionsActivityLifecycle());
+        registerActivityLifecycleCallbacks(new InitializationActivityLifecycle());
+    }
 
-        if (ActivityEmbeddingUtils.isSettingsSplitEnabled(this)
-                && FeatureFlagUtils.isEnabled(this,
-                        FeatureFlagUtils.SETTINGS_SUPPORT_LARGE_SCREEN)) {
-            if (WizardManagerHelper.isUserSetupComplete(this)) {
-                new ActivityEmbeddingRulesController(this).initRules();
-            } else {
-                new DeviceProvisionedObserver().registerContentObserver();
-            }
+    /**
+     * Runs the initialization task {@code name} of the application if it has not run yet, e.g.
+     * {@link #INIT_BACKUP_STORAGES}. Does nothing if the application is not a
+     * {@link SettingsApplication}.
+     */
+    public static void ensureInitialized(@NonNull Context context, @NonNull String name) {
+        final Context appContext = context.getApplicationContext();
+        if (appContext instanceof SettingsApplication) {
+            ((SettingsApplication) appContext).mInitializationScheduler.ensureInitialized(name);
         }
-
-        registerActivityLifecycleCallbacks(new DeveloperOptionsActivityLifecycle());
     }
 
     @Override
@@ -117,6 +137,7 @@ public class SettingsApplication extends Application {
 
     @Nullable
     public BiometricsEnvironment getBiometricEnvironment() {
+        mInitializationScheduler.ensureInitialized(INIT_BIOMETRICS);
         return mBiometricsEnvironment;
     }
 
@@ -126,6 +147,55 @@ public class SettingsApplication extends Application {
         AppIconCacheManager.getInstance().trimMemory(level);
     }
 
+    private void initActivityEmbedding() {
+        if (ActivityEmbeddingUtils.isSettingsSplitEnabled(this)
+                && FeatureFlagUtils.isEnabled(this,
+                        FeatureFlagUtils.SETTINGS_SUPPORT_LARGE_SCREEN)) {
+            if (WizardManagerHelper.isUserSetupComplete(this)) {
+                new ActivityEmbeddingRulesController(this).initRules();
+            } else {
+                new DeviceProvisionedObserver().registerContentObserver();
+            }
+        }
+    }
+
+    /**
+     * Sets up what activities need before the first activity is created, then runs the other
+     * initialization tasks when the main thread is idle.
+     */
+    private class InitializationActivityLifecycle implements ActivityLifecycleCallbacks {
+        @Override
+        public void onActivityPreCreated(@NonNull Activity activity,
+                @Nullable Bundle savedInstanceState) {
+            mInitializationScheduler.ensureInitialized(INIT_ACTIVITY_EMBEDDING);
+            mInitializationScheduler.ensureInitialized(INIT_SPA_ENVIRONMENT);
+            mInitializationScheduler.scheduleOnIdle();
+        }
+
+        @Override
+        public void onActivityCreated(@NonNull Activity activity,
+                @Nullable Bundle savedInstanceState) {}
+
+        @Override
+        public void onActivityStarted(@NonNull Activity activity) {}
+
+        @Override
+        public void onActivityResumed(@NonNull Activity activity) {}
+
+        @Override
+        public void onActivityPaused(@NonNull Activity activity) {}
+
+        @Override
+        public void onActivityStopped(@NonNull Activity activity) {}
+
+        @Override
+        public void onActivitySaveInstanceState(@NonNull Activity activity,
+                @NonNull Bundle outState) {}
+
+        @Override
+        public void onActivityDestroyed(@NonNull Activity activity) {}
+    }
+
     private class DeviceProvisionedObserver extends ContentObserver {
         private final Uri mDeviceProvisionedUri = Settings.Secure.getUriFor(
                 Settings.Secure.USER_SETUP_COMPLETE);
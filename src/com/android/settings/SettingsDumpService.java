@@ -37,6 +37,7 @@ import android.util.Log;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.applications.ProcStatsData;
+import com.android.settings.core.instrumentation.PreferenceControllerTracer;
 import com.android.settings.datausage.lib.DataUsageLib;
 import com.android.settings.network.MobileNetworkRepository;
 import com.android.settingslib.net.DataUsageController;
@@ -67,6 +68,8 @@ public class SettingsDumpService extends Service {
     @VisibleForTesting
     static final String KEY_ANOMALY_DETECTION = "anomaly_detection";
     @VisibleForTesting
+    static final String KEY_PREFERENCE_CONTROLLERS = "preference_controllers";
+    @VisibleForTesting
     static final Intent BROWSER_INTENT =
             new Intent("android.intent.action.VIEW", Uri.parse("http://"));
 
@@ -94,6 +97,7 @@ public class SettingsDumpService extends Service {
             pw.increaseIndent();
             try {
                 dump.put(KEY_SERVICE, "Settings State");
+                dump.put(KEY_PREFERENCE_CONTROLLERS, PreferenceControllerTracer.dump());
                 dump.put(KEY_STORAGE, dumpStorage());
                 dump.put(KEY_DATAUSAGE, dumpDataUsage());
                 dump.put(KEY_MEMORY, dumpMemory());
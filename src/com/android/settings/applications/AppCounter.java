@@ -19,7 +19,6 @@ import android.content.pm.ApplicationInfo;
 import android.content.pm.FeatureFlags;
 import android.content.pm.FeatureFlagsImpl;
 import android.content.pm.PackageManager;
-import android.content.pm.PackageManager.ApplicationInfoFlags;
 import android.content.pm.UserInfo;
 import android.os.AsyncTask;
 import android.os.SystemProperties;
@@ -27,6 +26,7 @@ import android.os.UserHandle;
 import android.os.UserManager;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.flags.Flags;
@@ -38,6 +38,7 @@ public abstract class AppCounter extends AsyncTask<Void, Void, Integer> {
     protected final PackageManager mPm;
     protected final UserManager mUm;
     protected final FeatureFlags mFf;
+    private final InstalledAppsSnapshot mSnapshot;
 
     @VisibleForTesting
     AppCounter(@NonNull Context context, @NonNull PackageManager packageManager,
@@ -45,6 +46,7 @@ public abstract class AppCounter extends AsyncTask<Void, Void, Integer> {
         mPm = packageManager;
         mUm = context.getSystemService(UserManager.class);
         mFf = featureFlags;
+        mSnapshot = InstalledAppsSnapshot.getInstance(context);
     }
 
     public AppCounter(@NonNull Context context, @NonNull PackageManager packageManager) {
@@ -53,21 +55,31 @@ public abstract class AppCounter extends AsyncTask<Void, Void, Integer> {
 
     @Override
     protected Integer doInBackground(Void... params) {
+        final String countKey = getCountCacheKey();
+        final String cacheKey = countKey != null ? countKey + "/" + isArchivingEnabled() : null;
+        if (cacheKey != null) {
+            final Integer cachedCount = mSnapshot.getCount(cacheKey);
+            if (cachedCount != null) {
+                return cachedCount;
+            }
+        }
+        final int generation = mSnapshot.getGeneration();
         int count = 0;
         for (UserInfo user : mUm.getProfiles(UserHandle.myUserId())) {
             long flags = PackageManager.GET_DISABLED_COMPONENTS
                     | PackageManager.GET_DISABLED_UNTIL_USED_COMPONENTS
                     | (isArchivingEnabled() ? PackageManager.MATCH_ARCHIVED_PACKAGES : 0)
                     | (user.isAdmin() ? PackageManager.MATCH_ANY_USER : 0);
-            ApplicationInfoFlags infoFlags = ApplicationInfoFlags.of(flags);
-            final List<ApplicationInfo> list =
-                    mPm.getInstalledApplicationsAsUser(infoFlags, user.id);
+            final List<ApplicationInfo> list = mSnapshot.getInstalledApplications(user.id, flags);
             for (ApplicationInfo info : list) {
                 if (includeInCount(info)) {
                     count++;
                 }
             }
         }
+        if (cacheKey != null) {
+            mSnapshot.putCount(cacheKey, count, generation);
+        }
         return count;
     }
 
@@ -87,4 +99,14 @@ public abstract class AppCounter extends AsyncTask<Void, Void, Integer> {
     protected abstract void onCountComplete(int num);
 
     protected abstract boolean includeInCount(ApplicationInfo info);
+
+    /**
+     * Returns a key identifying what {@link #includeInCount} counts, under which the result can
+     * be kept until the next package change, or {@code null} if it must always be recomputed
+     * because it depends on state that package broadcasts do not cover.
+     */
+    @Nullable
+    protected String getCountCacheKey() {
+        return null;
+    }
 }
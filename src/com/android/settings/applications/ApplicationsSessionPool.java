@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.app.Application;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.os.UserHandle;
+import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.applications.ApplicationsState;
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+import com.android.settingslib.applications.ApplicationsState.AppFilter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Process-wide pool of the last sorted and filtered app lists produced by
+ * {@link ApplicationsState.Session#rebuild}.
+ *
+ * <p>App list pages publish their rebuild result under a {@link ResultKey} and look it up again
+ * on re-entry, so the list can be shown before the session has reloaded. Package broadcasts are
+ * applied to every pooled result incrementally, by removing or re-inserting the single affected
+ * entry, instead of discarding the whole list. Results expire after {@link #RESULT_TTL_MS}.
+ */
+public class ApplicationsSessionPool {
+
+    private static final String TAG = "AppsSessionPool";
+
+    @VisibleForTesting
+    static final long RESULT_TTL_MS = 30_000L;
+
+    private static ApplicationsSessionPool sInstance;
+
+    private final Context mContext;
+    private final ApplicationsState mApplicationsState;
+    private final Map<ResultKey, PooledResult> mResults = new ArrayMap<>();
+    private boolean mReceiverRegistered;
+
+    @VisibleForTesting
+    final BroadcastReceiver mPackageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final Uri data = intent.getData();
+            final String packageName = data != null ? data.getSchemeSpecificPart() : null;
+            if (TextUtils.isEmpty(packageName)) {
+                return;
+            }
+            final int userId = intent.getIntExtra(Intent.EXTRA_USER_HANDLE,
+                    getSendingUserId());
+            final String action = intent.getAction();
+            if (Intent.ACTION_PACKAGE_REMOVED.equals(action)
+                    && intent.getBooleanExtra(Intent.EXTRA_REPLACING, false)) {
+                // The matching ACTION_PACKAGE_ADDED will refresh the entry.
+                return;
+            }
+            if (Intent.ACTION_PACKAGE_REMOVED.equals(action)) {
+                onPackageRemoved(packageName, userId);
+            } else {
+                onPackageUpdated(packageName, userId);
+            }
+        }
+    };
+
+    /** Returns the process-wide pool. */
+    public static synchronized ApplicationsSessionPool getInstance(Context context) {
+        if (sInstance == null) {
+            final Application app = (Application) context.getApplicationContext();
+            sInstance = new ApplicationsSessionPool(app, ApplicationsState.getInstance(app));
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    ApplicationsSessionPool(Context context, ApplicationsState applicationsState) {
+        mContext = context;
+        mApplicationsState = applicationsState;
+    }
+
+    /**
+     * Returns a copy of the pooled result for {@code key}, or {@code null} if there is none or it
+     * has expired.
+     */
+    @Nullable
+    public synchronized ArrayList<AppEntry> getResult(@NonNull ResultKey key) {
+        final PooledResult result = mResults.get(key);
+        if (result == null) {
+            return null;
+        }
+        if (SystemClock.elapsedRealtime() - result.mTimestamp > RESULT_TTL_MS) {
+            mResults.remove(key);
+            return null;
+        }
+        return new ArrayList<>(result.mEntries);
+    }
+
+    /**
+     * Stores the result of a session rebuild. {@code filter} must already be initialized, which
+     * is the case for any filter that has just been passed to {@code Session#rebuild}.
+     */
+    public void putResult(@NonNull ResultKey key, @NonNull AppFilter filter,
+            @NonNull Comparator<AppEntry> comparator, @NonNull ArrayList<AppEntry> entries) {
+        putResult(key, filter, comparator, entries, false /* oneEntryPerPackage */);
+    }
+
+    /**
+     * Stores the result of a session rebuild.
+     *
+     * @param oneEntryPerPackage whether {@code entries} keep a single entry for the same package
+     *                           installed for several users, deltas then keep it that way.
+     */
+    public synchronized void putResult(@NonNull ResultKey key, @NonNull AppFilter filter,
+            @NonNull Comparator<AppEntry> comparator, @NonNull ArrayList<AppEntry> entries,
+            boolean oneEntryPerPackage) {
+        ensureReceiverRegisteredLocked();
+        mResults.put(key, new PooledResult(filter, comparator, new ArrayList<>(entries),
+                SystemClock.elapsedRealtime(), oneEntryPerPackage));
+    }
+
+    /** Drops the pooled result for {@code key}. */
+    public synchronized void invalidate(@NonNull ResultKey key) {
+        mResults.remove(key);
+    }
+
+    /** Drops every pooled result. */
+    public synchronized void invalidateAll() {
+        mResults.clear();
+    }
+
+    @VisibleForTesting
+    synchronized void onPackageRemoved(String packageName, int userId) {
+        final Iterator<Map.Entry<ResultKey, PooledResult>> it = mResults.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<ResultKey, PooledResult> pooled = it.next();
+            if (!pooled.getKey().matchesUser(userId)) {
+                continue;
+            }
+            final PooledResult result = pooled.getValue();
+            if (result.mOneEntryPerPackage && result.contains(packageName)) {
+                // The entry of another user may have to take the place of the removed one, which
+                // only a full rebuild knows.
+                it.remove();
+                continue;
+            }
+            result.remove(packageName, userId);
+        }
+    }
+
+    @VisibleForTesting
+    synchronized void onPackageUpdated(String packageName, int userId) {
+        final AppEntry entry = mApplicationsState.getEntry(packageName, userId);
+        final Iterator<Map.Entry<ResultKey, PooledResult>> it = mResults.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<ResultKey, PooledResult> pooled = it.next();
+            if (!pooled.getKey().matchesUser(userId)) {
+                continue;
+            }
+            final PooledResult result = pooled.getValue();
+            result.remove(packageName, userId);
+            if (entry == null) {
+                continue;
+            }
+            try {
+                result.insert(mContext, entry);
+            } catch (RuntimeException e) {
+                // A filter that cannot evaluate a single entry out of context falls back to a
+                // full rebuild on next entry.
+                Log.w(TAG, "Unable to apply package delta, dropping pooled result", e);
+                it.remove();
+            }
+        }
+    }
+
+    private void ensureReceiverRegisteredLocked() {
+        if (mReceiverRegistered) {
+            return;
+        }
+        final IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addDataScheme("package");
+        // Deltas are applied on the ApplicationsState background thread, so that looking up a new
+        // entry never happens on the main thread.
+        mContext.registerReceiverAsUser(mPackageReceiver, UserHandle.ALL, filter,
+                null /* broadcastPermission */,
+                new Handler(mApplicationsState.getBackgroundLooper()));
+        mReceiverRegistered = true;
+    }
+
+    /**
+     * Identifies one pooled result. {@code filterKey} must describe everything that affects the
+     * filter, such as the list type, filter type, storage volume and whether system apps are
+     * shown.
+     */
+    public static final class ResultKey {
+        private final String mFilterKey;
+        private final int mSortMode;
+        private final int mUserId;
+
+        public ResultKey(@NonNull String filterKey, int sortMode, int userId) {
+            mFilterKey = filterKey;
+            mSortMode = sortMode;
+            mUserId = userId;
+        }
+
+        boolean matchesUser(int userId) {
+            return mUserId == UserHandle.USER_ALL || mUserId == userId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ResultKey)) {
+                return false;
+            }
+            final ResultKey other = (ResultKey) o;
+            return mSortMode == other.mSortMode
+                    && mUserId == other.mUserId
+                    && mFilterKey.equals(other.mFilterKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mFilterKey, mSortMode, mUserId);
+        }
+
+        @Override
+        public String toString() {
+            return mFilterKey + "/" + mSortMode + "/u" + mUserId;
+        }
+    }
+
+    private static final class PooledResult {
+        private final AppFilter mFilter;
+        private final Comparator<AppEntry> mComparator;
+        private final ArrayList<AppEntry> mEntries;
+        private final long mTimestamp;
+        private final boolean mOneEntryPerPackage;
+
+        PooledResult(AppFilter filter, Comparator<AppEntry> comparator,
+                ArrayList<AppEntry> entries, long timestamp, boolean oneEntryPerPackage) {
+            mFilter = filter;
+            mComparator = comparator;
+            mEntries = entries;
+            mTimestamp = timestamp;
+            mOneEntryPerPackage = oneEntryPerPackage;
+        }
+
+        boolean contains(String packageName) {
+            for (AppEntry entry : mEntries) {
+                if (entry.info != null && TextUtils.equals(entry.info.packageName, packageName)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void remove(String packageName, int userId) {
+            for (int i = mEntries.size() - 1; i >= 0; i--) {
+                final AppEntry entry = mEntries.get(i);
+                if (entry.info != null
+                        && UserHandle.getUserId(entry.info.uid) == userId
+                        && TextUtils.equals(entry.info.packageName, packageName)) {
+                    mEntries.remove(i);
+                }
+            }
+        }
+
+        void insert(Context context, AppEntry entry) {
+            if (!mFilter.filterApp(entry)) {
+                return;
+            }
+            if (mOneEntryPerPackage && contains(entry.info.packageName)) {
+                return;
+            }
+            entry.ensureLabel(context);
+            final int index = Collections.binarySearch(mEntries, entry, mComparator);
+            mEntries.add(index < 0 ? -index - 1 : index, entry);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.PackageManager.ApplicationInfoFlags;
+import android.os.UserHandle;
+import android.util.ArrayMap;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide snapshot of the applications installed for each user, shared by every
+ * {@link AppCounter}.
+ *
+ * <p>Pages that run several counters at once only query the package manager once per user, and
+ * counts computed from the snapshot are kept so that summaries are served from memory on
+ * re-entry. Everything is dropped on any package or profile broadcast.
+ */
+public class InstalledAppsSnapshot {
+
+    private static InstalledAppsSnapshot sInstance;
+
+    private final PackageManager mPm;
+    private final SparseArray<UserApps> mUserApps = new SparseArray<>();
+    private final Map<String, Integer> mCounts = new ArrayMap<>();
+    private int mGeneration;
+
+    @VisibleForTesting
+    final BroadcastReceiver mInvalidationReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            invalidate();
+        }
+    };
+
+    /** Returns the process-wide snapshot, which queries the application's package manager. */
+    public static synchronized InstalledAppsSnapshot getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            final Context appContext = context.getApplicationContext();
+            sInstance = new InstalledAppsSnapshot(appContext, appContext.getPackageManager());
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    static synchronized void setInstance(@Nullable InstalledAppsSnapshot snapshot) {
+        sInstance = snapshot;
+    }
+
+    @VisibleForTesting
+    InstalledAppsSnapshot(@NonNull Context context, @NonNull PackageManager pm) {
+        mPm = pm;
+        final IntentFilter packageFilter = new IntentFilter();
+        packageFilter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        packageFilter.addDataScheme("package");
+        context.registerReceiverAsUser(mInvalidationReceiver, UserHandle.ALL, packageFilter,
+                null /* broadcastPermission */, null /* scheduler */);
+
+        final IntentFilter profileFilter = new IntentFilter();
+        profileFilter.addAction(Intent.ACTION_MANAGED_PROFILE_ADDED);
+        profileFilter.addAction(Intent.ACTION_MANAGED_PROFILE_REMOVED);
+        context.registerReceiver(mInvalidationReceiver, profileFilter);
+    }
+
+    /**
+     * Returns the applications installed for {@code userId}, querying the package manager only
+     * if the snapshot holds no list for the same user and flags.
+     */
+    public List<ApplicationInfo> getInstalledApplications(int userId, long flags) {
+        final int generation;
+        synchronized (this) {
+            final UserApps cached = mUserApps.get(userId);
+            if (cached != null && cached.mFlags == flags) {
+                return cached.mApps;
+            }
+            generation = mGeneration;
+        }
+        final List<ApplicationInfo> apps = Collections.unmodifiableList(
+                mPm.getInstalledApplicationsAsUser(ApplicationInfoFlags.of(flags), userId));
+        synchronized (this) {
+            if (generation == mGeneration) {
+                mUserApps.put(userId, new UserApps(flags, apps));
+            }
+        }
+        return apps;
+    }
+
+    /** Returns the generation to pass to {@link #putCount} for a count about to be computed. */
+    public synchronized int getGeneration() {
+        return mGeneration;
+    }
+
+    /** Returns the count last stored under {@code key}, or {@code null} if there is none. */
+    @Nullable
+    public synchronized Integer getCount(@NonNull String key) {
+        return mCounts.get(key);
+    }
+
+    /**
+     * Stores a count, unless the snapshot was invalidated since {@code generation} was read, in
+     * which case the count may be stale.
+     */
+    public synchronized void putCount(@NonNull String key, int count, int generation) {
+        if (generation != mGeneration) {
+            return;
+        }
+        mCounts.put(key, count);
+    }
+
+    /** Drops every cached list and count. */
+    public synchronized void invalidate() {
+        mGeneration++;
+        mUserApps.clear();
+        mCounts.clear();
+    }
+
+    private static final class UserApps {
+        final long mFlags;
+        final List<ApplicationInfo> mApps;
+
+        UserApps(long flags, List<ApplicationInfo> apps) {
+            mFlags = flags;
+            mApps = apps;
+        }
+    }
+}
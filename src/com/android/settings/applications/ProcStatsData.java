@@ -19,16 +19,18 @@ package com.android.settings.applications;
 import android.app.ActivityManager;
 import android.content.Context;
 import android.content.pm.PackageManager;
+import android.os.CancellationSignal;
 import android.os.ParcelFileDescriptor;
 import android.os.RemoteException;
 import android.os.ServiceManager;
 import android.os.SystemClock;
 import android.text.format.Formatter;
-import android.util.ArrayMap;
 import android.util.Log;
 import android.util.LongSparseArray;
 import android.util.SparseArray;
 
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 
 import com.android.internal.app.ProcessMap;
@@ -47,6 +49,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 
 public class ProcStatsData {
@@ -55,8 +58,17 @@ public class ProcStatsData {
 
     private static final boolean DEBUG = ProcessStatsUi.DEBUG;
 
+    // How long a parsed stats dump is reused for other pages asking for the same duration.
+    @VisibleForTesting
+    static final long STATS_CACHE_TTL_MS = 60 * 1000;
+
     private static ProcessStats sStatsXfer;
 
+    // Parsed stats dumps keyed by duration, shared by every instance in the process. Expired
+    // dumps are evicted on every access, so they are not kept once the memory pages are left.
+    @VisibleForTesting
+    static final LongSparseArray<CachedStats> sStatsCache = new LongSparseArray<>();
+
     private PackageManager mPm;
     private Context mContext;
     private long memTotalTime;
@@ -130,9 +142,23 @@ public class ProcStatsData {
      */
     @WorkerThread
     public void refreshStats(boolean forceLoad) {
+        refreshStats(forceLoad, null /* cancellationSignal */);
+    }
+
+    /**
+     * Refreshes the stats, giving up as soon as {@code cancellationSignal} is canceled.
+     *
+     * <p>Unless {@code forceLoad} is set, a dump loaded for the same duration within the last
+     * {@link #STATS_CACHE_TTL_MS} is reused instead of pulling a new one from the service.
+     *
+     * @throws android.os.OperationCanceledException if the refresh was canceled.
+     */
+    @WorkerThread
+    public void refreshStats(boolean forceLoad, @Nullable CancellationSignal cancellationSignal) {
         if (mStats == null || forceLoad) {
-            load();
+            load(!forceLoad /* useCache */);
         }
+        throwIfCanceled(cancellationSignal);
 
         pkgEntries = new ArrayList<>();
 
@@ -152,7 +178,10 @@ public class ProcStatsData {
         ProcessDataCollection runTotals = new ProcessDataCollection(
                 ProcessStats.ALL_SCREEN_ADJ, mMemStates, ProcessStats.NON_CACHED_PROC_STATES);
 
-        createPkgMap(getProcs(bgTotals, runTotals), bgTotals, runTotals);
+        final ArrayList<ProcStatsEntry> procEntries =
+                getProcs(bgTotals, runTotals, cancellationSignal);
+        throwIfCanceled(cancellationSignal);
+        createPkgMap(procEntries, bgTotals, runTotals);
         if (totalMem.sysMemZRamWeight > 0 && !totalMem.hasSwappedOutPss) {
             distributeZRam(totalMem.sysMemZRamWeight);
         }
@@ -164,8 +193,9 @@ public class ProcStatsData {
 
     private void createPkgMap(ArrayList<ProcStatsEntry> procEntries, ProcessDataCollection bgTotals,
             ProcessDataCollection runTotals) {
-        // Combine processes into packages.
-        ArrayMap<String, ProcStatsPackageEntry> pkgMap = new ArrayMap<>();
+        // Combine processes into packages. There is one lookup per process, so use a hashed map
+        // rather than a binary searched one.
+        HashMap<String, ProcStatsPackageEntry> pkgMap = new HashMap<>(procEntries.size());
         for (int i = procEntries.size() - 1; i >= 0; i--) {
             ProcStatsEntry proc = procEntries.get(i);
             proc.evaluateTargetPackage(mPm, mStats, bgTotals, runTotals, sEntryCompare, mUseUss);
@@ -257,12 +287,13 @@ public class ProcStatsData {
     }
 
     private ArrayList<ProcStatsEntry> getProcs(ProcessDataCollection bgTotals,
-            ProcessDataCollection runTotals) {
+            ProcessDataCollection runTotals, CancellationSignal cancellationSignal) {
         final ArrayList<ProcStatsEntry> procEntries = new ArrayList<>();
         if (DEBUG) Log.d(TAG, "-------------------- PULLING PROCESSES");
 
         final ProcessMap<ProcStatsEntry> entriesMap = new ProcessMap<ProcStatsEntry>();
         for (int ipkg = 0, N = mStats.mPackages.getMap().size(); ipkg < N; ipkg++) {
+            throwIfCanceled(cancellationSignal);
             final SparseArray<LongSparseArray<ProcessStats.PackageState>> pkgUids = mStats.mPackages
                     .getMap().valueAt(ipkg);
             for (int iu = 0; iu < pkgUids.size(); iu++) {
@@ -333,7 +364,13 @@ public class ProcStatsData {
         return procEntries;
     }
 
-    private void load() {
+    private void load(boolean useCache) {
+        final long now = SystemClock.elapsedRealtime();
+        final ProcessStats cached = getCachedStats(mDuration, now);
+        if (useCache && cached != null) {
+            mStats = cached;
+            return;
+        }
         try {
             ParcelFileDescriptor pfd = mProcessStats.getStatsOverTime(mDuration);
             mStats = new ProcessStats(false);
@@ -345,12 +382,58 @@ public class ProcStatsData {
             }
             if (mStats.mReadError != null) {
                 Log.w(TAG, "Failure reading process stats: " + mStats.mReadError);
+                return;
             }
+            cacheStats(mDuration, mStats, now);
         } catch (RemoteException e) {
             Log.e(TAG, "RemoteException:", e);
         }
     }
 
+    /** Returns the dump of {@code duration} loaded less than the TTL before {@code now}. */
+    @VisibleForTesting
+    @Nullable
+    static ProcessStats getCachedStats(long duration, long now) {
+        synchronized (sStatsCache) {
+            evictExpiredStatsLocked(now);
+            final CachedStats cached = sStatsCache.get(duration);
+            return cached != null ? cached.mStats : null;
+        }
+    }
+
+    @VisibleForTesting
+    static void cacheStats(long duration, ProcessStats stats, long now) {
+        synchronized (sStatsCache) {
+            evictExpiredStatsLocked(now);
+            sStatsCache.put(duration, new CachedStats(stats, now));
+        }
+    }
+
+    private static void evictExpiredStatsLocked(long now) {
+        for (int i = sStatsCache.size() - 1; i >= 0; i--) {
+            if (now - sStatsCache.valueAt(i).mLoadTime >= STATS_CACHE_TTL_MS) {
+                sStatsCache.removeAt(i);
+            }
+        }
+    }
+
+    private static void throwIfCanceled(CancellationSignal cancellationSignal) {
+        if (cancellationSignal != null) {
+            cancellationSignal.throwIfCanceled();
+        }
+    }
+
+    @VisibleForTesting
+    static class CachedStats {
+        final ProcessStats mStats;
+        final long mLoadTime;
+
+        CachedStats(ProcessStats stats, long loadTime) {
+            mStats = stats;
+            mLoadTime = loadTime;
+        }
+    }
+
     public static class MemInfo {
         public double realUsedRam;
         public double realFreeRam;
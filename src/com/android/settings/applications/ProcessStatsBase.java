@@ -16,6 +16,8 @@
 package com.android.settings.applications;
 
 import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.AdapterView;
@@ -23,6 +25,8 @@ import android.widget.AdapterView.OnItemSelectedListener;
 import android.widget.ArrayAdapter;
 import android.widget.Spinner;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.android.internal.app.procstats.ProcessStats;
 import com.android.settings.R;
 import com.android.settings.SettingsActivity;
@@ -30,6 +34,7 @@ import com.android.settings.SettingsPreferenceFragment;
 import com.android.settings.applications.ProcStatsData.MemInfo;
 import com.android.settings.core.SubSettingLauncher;
 import com.android.settingslib.core.instrumentation.Instrumentable;
+import com.android.settingslib.utils.ThreadUtils;
 import com.android.settingslib.widget.SettingsSpinnerAdapter;
 
 public abstract class ProcessStatsBase extends SettingsPreferenceFragment
@@ -60,16 +65,26 @@ public abstract class ProcessStatsBase extends SettingsPreferenceFragment
     private Spinner mFilterSpinner;
     private ArrayAdapter<String> mFilterAdapter;
 
+    // The stats shown on screen. Loads fill a separate instance that replaces this one on the
+    // main thread once complete, so this is never modified while the UI reads it.
     protected ProcStatsData mStatsManager;
     protected int mDurationIndex;
 
+    // Whether the first load should start from the stats transferred by the previous page.
+    private boolean mTransferStats;
+
+    // The load in flight, if any, and the duration it is loading.
+    private CancellationSignal mLoadSignal;
+    private long mLoadingDuration;
+
     @Override
     public void onCreate(Bundle icicle) {
         super.onCreate(icicle);
 
         Bundle args = getArguments();
-        mStatsManager = new ProcStatsData(getActivity(), icicle != null
-                || (args != null && args.getBoolean(ARG_TRANSFER_STATS, false)));
+        mTransferStats = icicle != null
+                || (args != null && args.getBoolean(ARG_TRANSFER_STATS, false));
+        mStatsManager = createStatsData(false /* useXfer */);
 
         mDurationIndex = icicle != null
                 ? icicle.getInt(ARG_DURATION_INDEX)
@@ -81,20 +96,27 @@ public abstract class ProcessStatsBase extends SettingsPreferenceFragment
     @Override
     public void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
-        outState.putLong(DURATION, mStatsManager.getDuration());
+        outState.putLong(DURATION,
+                mLoadSignal != null ? mLoadingDuration : mStatsManager.getDuration());
         outState.putInt(ARG_DURATION_INDEX, mDurationIndex);
     }
 
     @Override
     public void onResume() {
         super.onResume();
-        mStatsManager.refreshStats(false);
-        refreshUi();
+        if (hasStats()) {
+            refreshUi();
+        } else if (mLoadSignal == null) {
+            final ProcStatsData statsData = createStatsData(mTransferStats);
+            statsData.setDuration(mStatsManager.getDuration());
+            loadStats(statsData);
+        }
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
+        cancelLoad();
         if (getActivity().isChangingConfigurations()) {
             mStatsManager.xferStats();
         }
@@ -118,8 +140,14 @@ public abstract class ProcessStatsBase extends SettingsPreferenceFragment
     @Override
     public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
         mDurationIndex = position;
-        mStatsManager.setDuration(sDurations[position]);
-        refreshUi();
+        final long duration = sDurations[position];
+        if (mLoadSignal != null ? duration == mLoadingDuration
+                : duration == mStatsManager.getDuration()) {
+            return;
+        }
+        final ProcStatsData statsData = createStatsData(false /* useXfer */);
+        statsData.setDuration(duration);
+        loadStats(statsData);
     }
 
     @Override
@@ -128,8 +156,62 @@ public abstract class ProcessStatsBase extends SettingsPreferenceFragment
         mFilterSpinner.setSelection(0);
     }
 
+    /** Shows the current stats. Implementations return early while {@link #hasStats()} is false. */
     public abstract void refreshUi();
 
+    /** Returns true once the first load completed and {@link #mStatsManager} holds its stats. */
+    protected boolean hasStats() {
+        return mStatsManager.getEntries() != null;
+    }
+
+    @VisibleForTesting
+    ProcStatsData createStatsData(boolean useXfer) {
+        return new ProcStatsData(getActivity(), useXfer);
+    }
+
+    /**
+     * Refreshes {@code statsData} in the background and makes it the current stats once done.
+     * Any load still in flight is canceled, so switching durations quickly only ever finishes
+     * the last one.
+     */
+    @VisibleForTesting
+    void loadStats(ProcStatsData statsData) {
+        cancelLoad();
+        final CancellationSignal signal = new CancellationSignal();
+        mLoadSignal = signal;
+        mLoadingDuration = statsData.getDuration();
+        ThreadUtils.postOnBackgroundThread(() -> {
+            try {
+                statsData.refreshStats(false, signal);
+            } catch (OperationCanceledException e) {
+                return;
+            }
+            ThreadUtils.postOnMainThread(() -> {
+                if (isAdded()) {
+                    onStatsLoaded(statsData, signal);
+                }
+            });
+        });
+    }
+
+    /** Makes {@code statsData} the current stats, unless its load was canceled meanwhile. */
+    @VisibleForTesting
+    void onStatsLoaded(ProcStatsData statsData, CancellationSignal signal) {
+        if (signal.isCanceled()) {
+            return;
+        }
+        mLoadSignal = null;
+        mStatsManager = statsData;
+        refreshUi();
+    }
+
+    private void cancelLoad() {
+        if (mLoadSignal != null) {
+            mLoadSignal.cancel();
+            mLoadSignal = null;
+        }
+    }
+
     public static void launchMemoryDetail(SettingsActivity activity, MemInfo memInfo,
             ProcStatsPackageEntry entry, boolean includeAppInfo) {
         Bundle args = new Bundle();
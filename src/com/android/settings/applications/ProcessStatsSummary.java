@@ -110,6 +110,9 @@ public class ProcessStatsSummary extends ProcessStatsBase implements OnPreferenc
         if (Flags.removeAppProfilerPssCollection() && !isPssProfilingForceEnabled(context)) {
             return;
         }
+        if (!hasStats()) {
+            return;
+        }
 
         MemInfo memInfo = mStatsManager.getMemInfo();
 
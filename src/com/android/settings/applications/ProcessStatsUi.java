@@ -78,6 +78,10 @@ public class ProcessStatsUi extends ProcessStatsBase {
         switch (item.getItemId()) {
             case MENU_SHOW_AVG:
             case MENU_SHOW_MAX:
+                if (!hasStats()) {
+                    // Nothing to sort yet.
+                    return true;
+                }
                 mShowMax = !mShowMax;
                 refreshUi();
                 updateMenu();
@@ -145,6 +149,9 @@ public class ProcessStatsUi extends ProcessStatsBase {
 
     @Override
     public void refreshUi() {
+        if (!hasStats()) {
+            return;
+        }
         mAppListGroup.removeAll();
         mAppListGroup.setOrderingAsAdded(false);
         mAppListGroup.setTitle(mShowMax ? R.string.maximum_memory_use
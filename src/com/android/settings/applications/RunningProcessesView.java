@@ -511,10 +511,33 @@ public class RunningProcessesView extends FrameLayout
                 refreshUi(false);
                 updateTimes();
                 break;
+            case REFRESH_ITEMS:
+                rebindVisibleItems();
+                refreshUi(false);
+                updateTimes();
+                break;
             case REFRESH_STRUCTURE:
                 refreshUi(true);
                 updateTimes();
                 break;
         }
     }
+
+    /**
+     * Rebinds the rows currently on screen in place, for updates that did not add, remove or
+     * reorder any item.
+     */
+    private void rebindVisibleItems() {
+        final int headerCount = mListView.getHeaderViewsCount();
+        for (int i = 0; i < mListView.getChildCount(); i++) {
+            final View child = mListView.getChildAt(i);
+            if (!(child.getTag() instanceof ViewHolder)) {
+                continue;
+            }
+            final int position = mListView.getPositionForView(child) - headerCount;
+            if (position >= 0 && position < mAdapter.getCount()) {
+                mAdapter.bindView(child, position);
+            }
+        }
+    }
 }
@@ -648,6 +648,7 @@ public class RunningServiceDetails extends InstrumentedFragment
                 refreshUi(false);
                 updateTimes();
                 break;
+            case REFRESH_ITEMS:
             case REFRESH_STRUCTURE:
                 refreshUi(true);
                 updateTimes();
@@ -43,6 +43,8 @@ import android.text.format.Formatter;
 import android.util.Log;
 import android.util.SparseArray;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.android.settings.R;
 import com.android.settingslib.Utils;
 import com.android.settingslib.applications.InterestingConfigChanges;
@@ -245,7 +247,7 @@ public class RunningState {
                         }
                     }
                     Message cmd = mHandler.obtainMessage(MSG_REFRESH_UI);
-                    cmd.arg1 = update(mApplicationContext, mAm) ? 1 : 0;
+                    cmd.arg1 = update(mApplicationContext, mAm);
                     mHandler.sendMessage(cmd);
                     removeMessages(MSG_UPDATE_CONTENTS);
                     msg = obtainMessage(MSG_UPDATE_CONTENTS);
@@ -264,9 +266,7 @@ public class RunningState {
         public void handleMessage(Message msg) {
             switch (msg.what) {
                 case MSG_REFRESH_UI:
-                    mNextUpdate = msg.arg1 != 0
-                            ? OnRefreshUiListener.REFRESH_STRUCTURE
-                            : OnRefreshUiListener.REFRESH_DATA;
+                    mNextUpdate = Math.max(mNextUpdate, msg.arg1);
                     break;
                 case MSG_UPDATE_TIME:
                     synchronized (mLock) {
@@ -328,9 +328,12 @@ public class RunningState {
     // ----- DATA STRUCTURES -----
 
     static interface OnRefreshUiListener {
+        // Ordered by increasing amount of UI work; a pending refresh is never downgraded.
         public static final int REFRESH_TIME = 0;
         public static final int REFRESH_DATA = 1;
-        public static final int REFRESH_STRUCTURE = 2;
+        // The items changed, but the list still holds the same items in the same order.
+        public static final int REFRESH_ITEMS = 2;
+        public static final int REFRESH_STRUCTURE = 3;
 
         public void onRefreshUi(int what);
     }
@@ -899,12 +902,19 @@ public class RunningState {
         userItem.mChildren.add(newItem);
     }
 
-    private boolean update(Context context, ActivityManager am) {
+    /**
+     * Applies the current ActivityManager state to the model, reusing the items of processes and
+     * services that are still running.
+     *
+     * @return the {@link OnRefreshUiListener} refresh level the UI needs.
+     */
+    private int update(Context context, ActivityManager am) {
         final PackageManager pm = context.getPackageManager();
 
         mSequence++;
 
         boolean changed = false;
+        boolean structureChanged = false;
 
         // Retrieve list of services, filtering out anything that definitely
         // won't be shown in the UI.
@@ -1205,38 +1215,14 @@ public class RunningState {
                 }
 
                 // Now add the services running in it.
-                MergedItem mergedItem = null;
-                boolean haveAllMerged = false;
                 boolean needDivider = false;
                 for (ServiceItem si : pi.mServices.values()) {
                     si.mNeedDivider = needDivider;
                     needDivider = true;
                     newItems.add(si);
-                    if (si.mMergedItem != null) {
-                        if (mergedItem != null && mergedItem != si.mMergedItem) {
-                            haveAllMerged = false;
-                        }
-                        mergedItem = si.mMergedItem;
-                    } else {
-                        haveAllMerged = false;
-                    }
-                }
-
-                if (!haveAllMerged || mergedItem == null
-                        || mergedItem.mServices.size() != pi.mServices.size()) {
-                    // Whoops, we need to build a new MergedItem!
-                    mergedItem = new MergedItem(pi.mUserId);
-                    for (ServiceItem si : pi.mServices.values()) {
-                        mergedItem.mServices.add(si);
-                        si.mMergedItem = mergedItem;
-                    }
-                    mergedItem.mProcess = pi;
-                    mergedItem.mOtherProcesses.clear();
-                    for (int mpi = firstProc; mpi < (mProcessItems.size() - 1); mpi++) {
-                        mergedItem.mOtherProcesses.add(mProcessItems.get(mpi));
-                    }
                 }
 
+                MergedItem mergedItem = obtainServiceMergedItem(pi, mProcessItems, firstProc);
                 mergedItem.update(context, false);
                 if (mergedItem.mUserId != mMyUserId) {
                     addOtherUserItem(context, newMergedItems, mOtherUserMergedItems, mergedItem);
@@ -1278,7 +1264,12 @@ public class RunningState {
 
             synchronized (mLock) {
                 mItems = newItems;
-                mMergedItems = newMergedItems;
+                // Keep the current list when it holds the same items in the same order, so that
+                // the UI only has to rebind them.
+                if (!isSameItems(mMergedItems, newMergedItems)) {
+                    mMergedItems = newMergedItems;
+                    structureChanged = true;
+                }
             }
         }
 
@@ -1337,8 +1328,7 @@ public class RunningState {
                     backgroundProcessMemory += proc.mSize;
                     MergedItem mergedItem;
                     if (newBackgroundItems != null) {
-                        mergedItem = proc.mMergedItem = new MergedItem(proc.mUserId);
-                        proc.mMergedItem.mProcess = proc;
+                        mergedItem = obtainBackgroundItem(proc);
                         diffUsers |= mergedItem.mUserId != mMyUserId;
                         newBackgroundItems.add(mergedItem);
                     } else {
@@ -1350,8 +1340,7 @@ public class RunningState {
                                 diffUsers |= mergedItem.mUserId != mMyUserId;
                                 newBackgroundItems.add(mergedItem);
                             }
-                            mergedItem = proc.mMergedItem = new MergedItem(proc.mUserId);
-                            proc.mMergedItem.mProcess = proc;
+                            mergedItem = obtainBackgroundItem(proc);
                             diffUsers |= mergedItem.mUserId != mMyUserId;
                             newBackgroundItems.add(mergedItem);
                         } else {
@@ -1381,6 +1370,11 @@ public class RunningState {
             }
         }
 
+        if (newBackgroundItems != null && isSameItems(mBackgroundItems, newBackgroundItems)) {
+            // Same items, by identity, in the same order: nothing changed.
+            newBackgroundItems = null;
+        }
+
         if (newBackgroundItems != null) {
             // The background items have changed; we need to re-build the
             // per-user items.
@@ -1430,6 +1424,7 @@ public class RunningState {
                 mUserBackgroundItems = newUserBackgroundItems;
                 if (mWatchingBackgroundItems) {
                     changed = true;
+                    structureChanged = true;
                 }
             }
             if (!mHaveData) {
@@ -1438,7 +1433,78 @@ public class RunningState {
             }
         }
 
-        return changed;
+        if (structureChanged) {
+            return OnRefreshUiListener.REFRESH_STRUCTURE;
+        }
+        return changed ? OnRefreshUiListener.REFRESH_ITEMS : OnRefreshUiListener.REFRESH_DATA;
+    }
+
+    /**
+     * Returns the merged item of a process running services, reusing the one built on a previous
+     * update when all of its services still share it.
+     *
+     * @param processItems the processes added so far in this update
+     * @param firstProc the index in {@code processItems} of the first process {@code pi} depends
+     *                  on
+     */
+    @VisibleForTesting
+    static MergedItem obtainServiceMergedItem(ProcessItem pi, ArrayList<ProcessItem> processItems,
+            int firstProc) {
+        MergedItem mergedItem = null;
+        boolean haveAllMerged = true;
+        for (ServiceItem si : pi.mServices.values()) {
+            if (si.mMergedItem != null) {
+                if (mergedItem != null && mergedItem != si.mMergedItem) {
+                    haveAllMerged = false;
+                }
+                mergedItem = si.mMergedItem;
+            } else {
+                haveAllMerged = false;
+            }
+        }
+
+        if (!haveAllMerged || mergedItem == null || mergedItem.mProcess != pi
+                || mergedItem.mServices.size() != pi.mServices.size()) {
+            // Whoops, we need to build a new MergedItem!
+            mergedItem = new MergedItem(pi.mUserId);
+            for (ServiceItem si : pi.mServices.values()) {
+                mergedItem.mServices.add(si);
+                si.mMergedItem = mergedItem;
+            }
+            mergedItem.mProcess = pi;
+        }
+        // The processes it depends on may change while its services stay the same.
+        mergedItem.mOtherProcesses.clear();
+        for (int mpi = firstProc; mpi < (processItems.size() - 1); mpi++) {
+            mergedItem.mOtherProcesses.add(processItems.get(mpi));
+        }
+        return mergedItem;
+    }
+
+    /**
+     * Returns the merged item of a background process, reusing the one built for it on a
+     * previous update so that its resolved label and size string are kept.
+     */
+    private MergedItem obtainBackgroundItem(ProcessItem proc) {
+        MergedItem mergedItem = proc.mMergedItem;
+        if (mergedItem == null || mergedItem.mProcess != proc || mergedItem.mUser != null) {
+            mergedItem = proc.mMergedItem = new MergedItem(proc.mUserId);
+            mergedItem.mProcess = proc;
+        }
+        return mergedItem;
+    }
+
+    private static boolean isSameItems(ArrayList<MergedItem> current,
+            ArrayList<MergedItem> updated) {
+        if (current == null || current.size() != updated.size()) {
+            return false;
+        }
+        for (int i = 0; i < current.size(); i++) {
+            if (current.get(i) != updated.get(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     void setWatchingBackgroundItems(boolean watching) {
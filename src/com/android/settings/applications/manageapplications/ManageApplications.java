@@ -132,6 +132,7 @@ import com.android.settings.applications.AppStateUsageBridge;
 import com.android.settings.applications.AppStateUsageBridge.UsageState;
 import com.android.settings.applications.AppStateWriteSettingsBridge;
 import com.android.settings.applications.AppStorageSettings;
+import com.android.settings.applications.ApplicationsSessionPool;
 import com.android.settings.applications.UsageAccessDetails;
 import com.android.settings.applications.appinfo.AlarmsAndRemindersDetails;
 import com.android.settings.applications.appinfo.AppInfoDashboardFragment;
@@ -1224,6 +1225,7 @@ public class ManageApplications extends InstrumentedFragment
 
         private final ApplicationsState mState;
         private final ApplicationsState.Session mSession;
+        private final ApplicationsSessionPool mSessionPool;
         private final ManageApplications mManageApplications;
         private final Context mContext;
         private final AppStateBaseBridge mExtraInfoBridge;
@@ -1241,6 +1243,12 @@ public class ManageApplications extends InstrumentedFragment
         private boolean mHasReceivedBridgeCallback;
         private SearchFilter mSearchFilter;
         private PowerAllowlistBackend mBackend;
+        // Last rebuild request and the number of requests made since the last completed rebuild.
+        // The session coalesces requests and does not tell which one a result belongs to, so a
+        // result is only published to the session pool when a single request was pending.
+        private PendingRebuild mPendingRebuild;
+        private int mPendingRebuildCount;
+        private boolean mShowingPooledResult;
 
         // This is to remember and restore the last scroll position when this
         // fragment is paused. We need this special handling because app entries are added gradually
@@ -1258,6 +1266,7 @@ public class ManageApplications extends InstrumentedFragment
             mState = state;
             mSession = state.newSession(this);
             mManageApplications = manageApplications;
+            mSessionPool = ApplicationsSessionPool.getInstance(manageApplications.getContext());
             mLoadingViewController = new LoadingViewController(
                     mManageApplications.mLoadingContainer,
                     mManageApplications.mRecyclerView,
@@ -1369,6 +1378,7 @@ public class ManageApplications extends InstrumentedFragment
                 if (mExtraInfoBridge != null) {
                     mExtraInfoBridge.resume(false /* forceLoadAllApps */);
                 }
+                showPooledResult();
                 rebuild();
             } else {
                 rebuild(sort, false);
@@ -1500,11 +1510,63 @@ public class ManageApplications extends InstrumentedFragment
 
             final AppFilter finalFilterObj = new CompoundFilter(filterObj,
                     ApplicationsState.FILTER_NOT_HIDE);
+            mPendingRebuild = new PendingRebuild(buildResultKey(), finalFilterObj, comparatorObj);
+            mPendingRebuildCount++;
             ThreadUtils.postOnBackgroundThread(() -> {
                 mSession.rebuild(finalFilterObj, comparatorObj, false);
             });
         }
 
+        /**
+         * Shows the list pooled by a previous visit to the same page, if it is still fresh, while
+         * the session reloads. The next completed rebuild replaces it.
+         */
+        private void showPooledResult() {
+            if (mEntries != null) {
+                return;
+            }
+            final ArrayList<AppEntry> pooled = mSessionPool.getResult(buildResultKey());
+            if (pooled == null) {
+                return;
+            }
+            if (DEBUG) {
+                Log.d(TAG, "Showing pooled result size=" + pooled.size());
+            }
+            mShowingPooledResult = true;
+            onRebuildComplete(pooled);
+            mShowingPooledResult = false;
+        }
+
+        @VisibleForTesting
+        ApplicationsSessionPool.ResultKey buildResultKey() {
+            final ManageApplications fragment = mManageApplications;
+            final String filterKey = fragment.mListType
+                    + ":" + mAppFilter.getFilterType()
+                    + ":" + fragment.mShowSystem
+                    + ":" + fragment.mStorageType
+                    + ":" + fragment.mVolumeUuid
+                    + ":" + (fragment.mIsPersonalOnly ? "personal"
+                            : fragment.mIsWorkOnly ? "work"
+                            : fragment.mIsPrivateProfileOnly ? "private" : "all");
+            final int userId = fragment.mIsWorkOnly ? fragment.mWorkUserId
+                    : fragment.mIsPersonalOnly ? UserHandle.myUserId() : UserHandle.USER_ALL;
+            return new ApplicationsSessionPool.ResultKey(filterKey, mLastSortMode, userId);
+        }
+
+        /** Key, filter and comparator of one rebuild request. */
+        private static final class PendingRebuild {
+            final ApplicationsSessionPool.ResultKey mKey;
+            final AppFilter mFilter;
+            final Comparator<AppEntry> mComparator;
+
+            PendingRebuild(ApplicationsSessionPool.ResultKey key, AppFilter filter,
+                    Comparator<AppEntry> comparator) {
+                mKey = key;
+                mFilter = filter;
+                mComparator = comparator;
+            }
+        }
+
         private void logAppBatteryUsage(int filterType) {
             switch (filterType) {
                 case FILTER_APPS_BATTERY_UNRESTRICTED:
@@ -1573,16 +1635,27 @@ public class ManageApplications extends InstrumentedFragment
             if (DEBUG) {
                 Log.d(TAG, "onRebuildComplete size=" + entries.size());
             }
+            PendingRebuild completedRebuild = null;
+            if (!mShowingPooledResult) {
+                completedRebuild = mPendingRebuildCount == 1 ? mPendingRebuild : null;
+                mPendingRebuild = null;
+                mPendingRebuildCount = 0;
+            }
 
             // Preload top visible icons of app list.
             AppUtils.preloadTopIcons(mContext, entries,
                     mContext.getResources().getInteger(R.integer.config_num_visible_app_icons));
 
             final int filterType = mAppFilter.getFilterType();
-            if (filterType == FILTER_APPS_POWER_ALLOWLIST
-                    || filterType == FILTER_APPS_POWER_ALLOWLIST_ALL) {
+            final boolean oneEntryPerPackage = filterType == FILTER_APPS_POWER_ALLOWLIST
+                    || filterType == FILTER_APPS_POWER_ALLOWLIST_ALL;
+            if (oneEntryPerPackage) {
                 entries = removeDuplicateIgnoringUser(entries);
             }
+            if (completedRebuild != null) {
+                mSessionPool.putResult(completedRebuild.mKey, completedRebuild.mFilter,
+                        completedRebuild.mComparator, entries, oneEntryPerPackage);
+            }
             mEntries = entries;
             mOriginalEntries = entries;
             notifyDataSetChanged();
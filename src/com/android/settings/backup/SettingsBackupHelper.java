@@ -19,6 +19,7 @@ package com.android.settings.backup;
 
 import android.app.backup.BackupAgentHelper;
 
+import com.android.settings.SettingsApplication;
 import com.android.settings.flags.Flags;
 import com.android.settings.onboarding.OnboardingFeatureProvider;
 import com.android.settings.overlay.FeatureFactory;
@@ -32,6 +33,7 @@ public class SettingsBackupHelper extends BackupAgentHelper {
     @Override
     public void onCreate() {
         super.onCreate();
+        SettingsApplication.ensureInitialized(this, SettingsApplication.INIT_BACKUP_STORAGES);
         BackupRestoreStorageManager.getInstance(this).addBackupAgentHelpers(this);
         if (Flags.enableSoundBackup()) {
             OnboardingFeatureProvider onboardingFeatureProvider =
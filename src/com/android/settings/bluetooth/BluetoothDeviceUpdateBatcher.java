@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.bluetooth;
+
+import android.bluetooth.BluetoothDevice;
+import android.util.Log;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.bluetooth.CachedBluetoothDevice;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects the connection state changes reported to every registered
+ * {@link BluetoothDeviceUpdater} and applies them once per frame.
+ *
+ * <p>Connecting a headset reports a burst of ACL and profile connection changes for the same
+ * device, each of which used to add or remove its preference right away. Here the state shared by
+ * every updater, such as the bond and connection state, is read once per device and frame and
+ * handed to each updater that was notified about the device, so the lists never show the
+ * intermediate states. Must only be used from the main thread.
+ */
+public class BluetoothDeviceUpdateBatcher {
+
+    private static final String TAG = "BtDeviceUpdateBatcher";
+
+    private static BluetoothDeviceUpdateBatcher sInstance;
+
+    private final Choreographer mChoreographer;
+    private final Set<BluetoothDeviceUpdater> mUpdaters = new LinkedHashSet<>();
+    private final Map<CachedBluetoothDevice, Set<BluetoothDeviceUpdater>> mPendingDevices =
+            new LinkedHashMap<>();
+    private boolean mFrameScheduled;
+
+    @VisibleForTesting
+    final Choreographer.FrameCallback mFrameCallback = frameTimeNanos -> flush();
+
+    /** Returns the batcher shared by every updater. Must be called on the main thread. */
+    public static BluetoothDeviceUpdateBatcher getInstance() {
+        if (sInstance == null) {
+            sInstance = new BluetoothDeviceUpdateBatcher(Choreographer.getInstance());
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    BluetoothDeviceUpdateBatcher(Choreographer choreographer) {
+        mChoreographer = choreographer;
+    }
+
+    /** Starts batching the updates of {@code updater}. */
+    public void register(@NonNull BluetoothDeviceUpdater updater) {
+        mUpdaters.add(updater);
+    }
+
+    /** Stops batching the updates of {@code updater} and drops the ones still pending. */
+    public void unregister(@NonNull BluetoothDeviceUpdater updater) {
+        mUpdaters.remove(updater);
+        mPendingDevices.values().removeIf(updaters -> {
+            updaters.remove(updater);
+            return updaters.isEmpty();
+        });
+        if (mPendingDevices.isEmpty()) {
+            cancelFrame();
+        }
+    }
+
+    /** Returns whether the updates of {@code updater} are batched. */
+    public boolean isRegistered(@NonNull BluetoothDeviceUpdater updater) {
+        return mUpdaters.contains(updater);
+    }
+
+    /** Schedules {@code updater} to re-evaluate {@code cachedDevice} on the next frame. */
+    public void enqueue(@NonNull BluetoothDeviceUpdater updater,
+            @NonNull CachedBluetoothDevice cachedDevice) {
+        mPendingDevices.computeIfAbsent(cachedDevice, device -> new LinkedHashSet<>())
+                .add(updater);
+        if (!mFrameScheduled) {
+            mFrameScheduled = true;
+            mChoreographer.postFrameCallback(mFrameCallback);
+        }
+    }
+
+    /** Drops the pending updates of a device that is no longer known. */
+    public void cancel(@NonNull CachedBluetoothDevice cachedDevice) {
+        mPendingDevices.remove(cachedDevice);
+        if (mPendingDevices.isEmpty()) {
+            cancelFrame();
+        }
+    }
+
+    /** Applies every pending update right away. */
+    @VisibleForTesting
+    void flush() {
+        mFrameScheduled = false;
+        if (mPendingDevices.isEmpty()) {
+            return;
+        }
+        final Map<CachedBluetoothDevice, Set<BluetoothDeviceUpdater>> pending =
+                new LinkedHashMap<>(mPendingDevices);
+        mPendingDevices.clear();
+        Log.d(TAG, "flush() devices: " + pending.size());
+        Collection<CachedBluetoothDevice> cachedDevices = null;
+        for (Map.Entry<CachedBluetoothDevice, Set<BluetoothDeviceUpdater>> entry
+                : pending.entrySet()) {
+            DeviceState state = null;
+            for (BluetoothDeviceUpdater updater : entry.getValue()) {
+                // An earlier update may have led to the updater being unregistered.
+                if (!mUpdaters.contains(updater)) {
+                    continue;
+                }
+                if (state == null) {
+                    if (cachedDevices == null) {
+                        cachedDevices = updater.getCachedDevicesCopy();
+                    }
+                    state = DeviceState.of(entry.getKey(), cachedDevices);
+                }
+                updater.update(entry.getKey(), state);
+            }
+        }
+    }
+
+    private void cancelFrame() {
+        if (mFrameScheduled) {
+            mFrameScheduled = false;
+            mChoreographer.removeFrameCallback(mFrameCallback);
+        }
+    }
+
+    /** The state of a device shared by every updater, read once per flush. */
+    static final class DeviceState {
+        final CachedBluetoothDevice mCachedDevice;
+        final boolean mBonded;
+        final boolean mConnected;
+        final boolean mInCachedDevicesList;
+
+        @VisibleForTesting
+        DeviceState(CachedBluetoothDevice cachedDevice, boolean bonded, boolean connected,
+                boolean inCachedDevicesList) {
+            mCachedDevice = cachedDevice;
+            mBonded = bonded;
+            mConnected = connected;
+            mInCachedDevicesList = inCachedDevicesList;
+        }
+
+        static DeviceState of(CachedBluetoothDevice cachedDevice,
+                Collection<CachedBluetoothDevice> cachedDevices) {
+            final BluetoothDevice device = cachedDevice.getDevice();
+            return new DeviceState(cachedDevice,
+                    device != null && device.getBondState() == BluetoothDevice.BOND_BONDED,
+                    device != null && device.isConnected(),
+                    cachedDevices != null && cachedDevices.contains(cachedDevice));
+        }
+    }
+}
@@ -59,6 +59,9 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
     @VisibleForTesting
     protected LocalBluetoothManager mLocalManager;
     protected int mMetricsCategory;
+    private BluetoothDeviceUpdateBatcher mUpdateBatcher;
+    // The shared state of the device being updated by the batcher, if any.
+    private BluetoothDeviceUpdateBatcher.DeviceState mBatchedDeviceState;
 
     protected static final String TAG = "BluetoothDeviceUpdater";
     private static final boolean DBG = Log.isLoggable(TAG, Log.DEBUG);
@@ -96,6 +99,10 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
         mLocalManager.setForegroundActivity(mContext);
         mLocalManager.getEventManager().registerCallback(this);
         mLocalManager.getProfileManager().addServiceListener(this);
+        if (mUpdateBatcher == null) {
+            mUpdateBatcher = BluetoothDeviceUpdateBatcher.getInstance();
+        }
+        mUpdateBatcher.register(this);
         forceUpdate();
     }
 
@@ -110,6 +117,9 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
         mLocalManager.setForegroundActivity(null);
         mLocalManager.getEventManager().unregisterCallback(this);
         mLocalManager.getProfileManager().removeServiceListener(this);
+        if (mUpdateBatcher != null) {
+            mUpdateBatcher.unregister(this);
+        }
     }
 
     /**
@@ -163,6 +173,9 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
         // Used to combine the hearing aid entries just after pairing. Once both the hearing aids
         // get connected and their hiSyncId gets populated, this gets called for one of the
         // 2 hearing aids so that only one entry in the connected devices list will be seen.
+        if (mUpdateBatcher != null) {
+            mUpdateBatcher.cancel(cachedDevice);
+        }
         removePreference(cachedDevice);
     }
 
@@ -178,14 +191,14 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
             Log.d(getLogTag(), "onProfileConnectionStateChanged() device: " + cachedDevice.getName()
                     + ", state: " + state + ", bluetoothProfile: " + bluetoothProfile);
         }
-        update(cachedDevice);
+        scheduleUpdate(cachedDevice);
     }
 
     @Override
     public void onAclConnectionStateChanged(CachedBluetoothDevice cachedDevice, int state) {
         Log.d(getLogTag(), "onAclConnectionStateChanged() device: " + cachedDevice.getName()
                 + ", state: " + state);
-        update(cachedDevice);
+        scheduleUpdate(cachedDevice);
     }
 
     @Override
@@ -229,6 +242,32 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
         }
     }
 
+    /**
+     * Update {@link CachedBluetoothDevice} using the {@code state} the batcher already read for
+     * every updater.
+     */
+    void update(CachedBluetoothDevice cachedBluetoothDevice,
+            BluetoothDeviceUpdateBatcher.DeviceState state) {
+        mBatchedDeviceState = state;
+        try {
+            update(cachedBluetoothDevice);
+        } finally {
+            mBatchedDeviceState = null;
+        }
+    }
+
+    /**
+     * Update {@link CachedBluetoothDevice} on the next frame, together with the other connection
+     * changes reported until then, or right away if the callback is not registered.
+     */
+    protected void scheduleUpdate(CachedBluetoothDevice cachedBluetoothDevice) {
+        if (mUpdateBatcher != null && mUpdateBatcher.isRegistered(this)) {
+            mUpdateBatcher.enqueue(this, cachedBluetoothDevice);
+        } else {
+            update(cachedBluetoothDevice);
+        }
+    }
+
     /**
      * Add the {@link Preference} that represents the {@code cachedDevice}
      */
@@ -314,6 +353,10 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
         if (cachedDevice == null) {
             return false;
         }
+        final BluetoothDeviceUpdateBatcher.DeviceState state = getBatchedDeviceState(cachedDevice);
+        if (state != null) {
+            return state.mBonded && state.mConnected;
+        }
         final BluetoothDevice device = cachedDevice.getDevice();
         if (DBG) {
             Log.d(getLogTag(), "isDeviceConnected() device name : " + cachedDevice.getName()
@@ -323,6 +366,28 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
         return device.getBondState() == BluetoothDevice.BOND_BONDED && device.isConnected();
     }
 
+    /**
+     * @return {@code true} if {@code cachedDevice} is bonded.
+     */
+    protected boolean isDeviceBonded(CachedBluetoothDevice cachedDevice) {
+        final BluetoothDeviceUpdateBatcher.DeviceState state = getBatchedDeviceState(cachedDevice);
+        if (state != null) {
+            return state.mBonded;
+        }
+        return cachedDevice.getDevice().getBondState() == BluetoothDevice.BOND_BONDED;
+    }
+
+    /**
+     * @return {@code true} if {@code cachedDevice} has an ACL connection.
+     */
+    protected boolean isDeviceAclConnected(CachedBluetoothDevice cachedDevice) {
+        final BluetoothDeviceUpdateBatcher.DeviceState state = getBatchedDeviceState(cachedDevice);
+        if (state != null) {
+            return state.mConnected;
+        }
+        return cachedDevice.getDevice().isConnected();
+    }
+
     /**
      * Update the attributes of {@link Preference}.
      */
@@ -345,9 +410,23 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
     }
 
     protected boolean isDeviceInCachedDevicesList(CachedBluetoothDevice cachedDevice) {
+        final BluetoothDeviceUpdateBatcher.DeviceState state = getBatchedDeviceState(cachedDevice);
+        if (state != null) {
+            return state.mInCachedDevicesList;
+        }
         return mLocalManager.getCachedDeviceManager().getCachedDevicesCopy().contains(cachedDevice);
     }
 
+    Collection<CachedBluetoothDevice> getCachedDevicesCopy() {
+        return mLocalManager.getCachedDeviceManager().getCachedDevicesCopy();
+    }
+
+    private BluetoothDeviceUpdateBatcher.DeviceState getBatchedDeviceState(
+            CachedBluetoothDevice cachedDevice) {
+        final BluetoothDeviceUpdateBatcher.DeviceState state = mBatchedDeviceState;
+        return state != null && state.mCachedDevice == cachedDevice ? state : null;
+    }
+
     private boolean isDeviceOfMapInCachedDevicesList(BluetoothDevice inputBluetoothDevice) {
         Collection<CachedBluetoothDevice> cachedDevices =
                 mLocalManager.getCachedDeviceManager().getCachedDevicesCopy();
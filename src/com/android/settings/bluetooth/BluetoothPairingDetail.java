@@ -24,20 +24,26 @@ import android.bluetooth.BluetoothAdapter;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.View;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.android.settings.R;
 import com.android.settings.network.SatelliteRepository;
 import com.android.settings.network.SatelliteWarningDialogActivity;
+import com.android.settings.utils.AdaptiveScanScheduler;
 import com.android.settingslib.bluetooth.BluetoothDeviceFilter;
 import com.android.settingslib.search.Indexable;
 import com.android.settingslib.widget.FooterPreference;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -54,6 +60,9 @@ public class BluetoothPairingDetail extends BluetoothDevicePairingDetailBase imp
     static final String KEY_AVAIL_DEVICES = "available_devices";
     @VisibleForTesting
     static final String KEY_FOOTER_PREF = "footer_preference";
+    // Shortest and longest pause between two discoveries
+    private static final long MIN_SCAN_INTERVAL_MILLIS = 2_000;
+    private static final long MAX_SCAN_INTERVAL_MILLIS = 30_000;
 
     @VisibleForTesting
     FooterPreference mFooterPreference;
@@ -100,6 +109,27 @@ public class BluetoothPairingDetail extends BluetoothDevicePairingDetailBase imp
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
         mAlwaysDiscoverable = new AlwaysDiscoverable(getContext());
+        // Created once per fragment, as a running scheduler holds a screen state receiver.
+        if (mScanScheduler == null) {
+            mScanScheduler = new AdaptiveScanScheduler(TAG, getContext(),
+                    new Handler(Looper.getMainLooper()), MIN_SCAN_INTERVAL_MILLIS,
+                    MAX_SCAN_INTERVAL_MILLIS, () -> {
+                        startScanning();
+                        return true;
+                    });
+        }
+        final RecyclerView listView = getListView();
+        if (listView != null) {
+            listView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+                @Override
+                public void onScrollStateChanged(@NonNull RecyclerView recyclerView,
+                        int newState) {
+                    if (newState == RecyclerView.SCROLL_STATE_DRAGGING) {
+                        mScanScheduler.onUserInteraction();
+                    }
+                }
+            });
+        }
     }
 
     @Override
@@ -153,6 +183,15 @@ public class BluetoothPairingDetail extends BluetoothDevicePairingDetailBase imp
         mAvailableDevicesCategory.setProgress(started);
     }
 
+    @Override
+    public void dump(@NonNull String prefix, @Nullable FileDescriptor fd,
+            @NonNull PrintWriter writer, @Nullable String[] args) {
+        super.dump(prefix, fd, writer, args);
+        if (mScanScheduler != null) {
+            mScanScheduler.dump(prefix, writer);
+        }
+    }
+
     @Override
     public int getHelpResource() {
         return R.string.help_url_bluetooth;
@@ -34,6 +34,7 @@ import androidx.preference.PreferenceCategory
 import androidx.preference.PreferenceGroup
 import com.android.settings.R
 import com.android.settings.dashboard.RestrictedDashboardFragment
+import com.android.settings.utils.AdaptiveScanScheduler
 import com.android.settingslib.bluetooth.BluetoothCallback
 import com.android.settingslib.bluetooth.BluetoothDeviceFilter
 import com.android.settingslib.bluetooth.BluetoothUtils
@@ -69,6 +70,13 @@ abstract class DeviceListPreferenceFragment(restrictedKey: String?) :
     @VisibleForTesting
     var mScanEnabled = false
 
+    /**
+     * Schedules the classic discoveries while scanning is enabled. Without it, a new discovery
+     * starts as soon as the previous one finishes.
+     */
+    @JvmField
+    protected var mScanScheduler: AdaptiveScanScheduler? = null
+
     @JvmField
     var mSelectedDevice: BluetoothDevice? = null
 
@@ -272,6 +280,7 @@ abstract class DeviceListPreferenceFragment(restrictedKey: String?) :
         if (!mScanEnabled) {
             startScanning()
             mScanEnabled = true
+            mScanScheduler?.start()
         }
     }
 
@@ -280,10 +289,23 @@ abstract class DeviceListPreferenceFragment(restrictedKey: String?) :
         if (mScanEnabled) {
             stopScanning()
             mScanEnabled = false
+            mScanScheduler?.stop()
         }
     }
 
     override fun onScanningStateChanged(started: Boolean) {
+        val scheduler = mScanScheduler
+        if (scheduler != null && scanType == ScanType.CLASSIC) {
+            if (mScanEnabled) {
+                if (started) {
+                    scheduler.onScanStarted()
+                } else {
+                    scheduler.onScanResults(
+                        devicePreferenceMap.keys.mapTo(HashSet()) { it.address })
+                }
+            }
+            return
+        }
         if (!started && mScanEnabled) {
             startScanning()
         }
@@ -100,21 +100,21 @@ public class SavedBluetoothDeviceUpdater extends BluetoothDeviceUpdater
 
     @Override
     public boolean isFilterMatched(CachedBluetoothDevice cachedDevice) {
-        final BluetoothDevice device = cachedDevice.getDevice();
+        final boolean isConnected = isDeviceAclConnected(cachedDevice);
         boolean isExclusivelyManaged = BluetoothUtils.isExclusivelyManagedBluetoothDevice(mContext,
                 cachedDevice.getDevice());
         Log.d(TAG, "isFilterMatched() device name : " + cachedDevice.getName()
-                + ", is connected : " + device.isConnected() + ", is profile connected : "
+                + ", is connected : " + isConnected + ", is profile connected : "
                 + cachedDevice.isConnected() + ", is exclusively managed : "
                 + isExclusivelyManaged);
         if (Flags.enableHideExclusivelyManagedBluetoothDevice()) {
-            return device.getBondState() == BluetoothDevice.BOND_BONDED
-                    && (mShowConnectedDevice || (!device.isConnected()
+            return isDeviceBonded(cachedDevice)
+                    && (mShowConnectedDevice || (!isConnected
                     && isDeviceInCachedDevicesList(cachedDevice)))
                     && !isExclusivelyManaged;
         } else {
-            return device.getBondState() == BluetoothDevice.BOND_BONDED
-                    && (mShowConnectedDevice || (!device.isConnected()
+            return isDeviceBonded(cachedDevice)
+                    && (mShowConnectedDevice || (!isConnected
                     && isDeviceInCachedDevicesList(cachedDevice)));
         }
     }
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs named initialization tasks lazily, instead of all of them when the process starts.
+ *
+ * <p>A task runs the first time it is needed, see {@link #ensureInitialized(String)}, or when the
+ * main thread is idle after {@link #scheduleOnIdle()}, whichever comes first. The dependencies of a
+ * task always run before it. The time each task took is logged, and traced as a section named
+ * after the task.
+ */
+public class InitializationScheduler {
+
+    private static final String TAG = "InitializationScheduler";
+
+    private static class Task {
+        final String mName;
+        final Runnable mRunnable;
+        final List<String> mDependencies;
+        boolean mRunning;
+        boolean mDone;
+
+        Task(String name, Runnable runnable, List<String> dependencies) {
+            mName = name;
+            mRunnable = runnable;
+            mDependencies = dependencies;
+        }
+    }
+
+    // Keeps the order the tasks are added in, which is the order they run in when idle.
+    private final Map<String, Task> mTasks = new LinkedHashMap<>();
+    private boolean mIdleScheduled;
+
+    /** Adds the task {@code name}, which runs after the tasks named {@code dependencies}. */
+    public synchronized void add(@NonNull String name, @NonNull Runnable runnable,
+            @NonNull String... dependencies) {
+        if (mTasks.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate initialization task " + name);
+        }
+        mTasks.put(name, new Task(name, runnable, Arrays.asList(dependencies)));
+    }
+
+    /** Runs the task {@code name} and its dependencies on the calling thread, if not done yet. */
+    public synchronized void ensureInitialized(@NonNull String name) {
+        run(getTask(name), "first use");
+    }
+
+    /** Returns whether the task {@code name} has run. */
+    public synchronized boolean isInitialized(@NonNull String name) {
+        return getTask(name).mDone;
+    }
+
+    /** Runs the pending tasks on the main thread, one each time the main thread is idle. */
+    public synchronized void scheduleOnIdle() {
+        if (mIdleScheduled) {
+            return;
+        }
+        mIdleScheduled = true;
+        Looper.getMainLooper().getQueue().addIdleHandler(this::runNextPendingTask);
+    }
+
+    /** Runs the first pending task, returns whether there are tasks still pending. */
+    @VisibleForTesting
+    synchronized boolean runNextPendingTask() {
+        boolean hasPendingTask = false;
+        for (Task task : mTasks.values()) {
+            if (task.mDone) {
+                continue;
+            }
+            if (hasPendingTask) {
+                return true;
+            }
+            run(task, "idle");
+            hasPendingTask = true;
+        }
+        mIdleScheduled = false;
+        return false;
+    }
+
+    private Task getTask(String name) {
+        final Task task = mTasks.get(name);
+        if (task == null) {
+            throw new IllegalArgumentException("Unknown initialization task " + name);
+        }
+        return task;
+    }
+
+    private void run(Task task, String trigger) {
+        if (task.mDone) {
+            return;
+        }
+        if (task.mRunning) {
+            throw new IllegalStateException("Dependency cycle at initialization task "
+                    + task.mName);
+        }
+        task.mRunning = true;
+        try {
+            for (String dependency : task.mDependencies) {
+                run(getTask(dependency), trigger);
+            }
+            final long startTime = SystemClock.elapsedRealtime();
+            Trace.beginSection(TAG + "#" + task.mName);
+            try {
+                task.mRunnable.run();
+            } finally {
+                Trace.endSection();
+            }
+            task.mDone = true;
+            Log.i(TAG, task.mName + " initialized on " + trigger + " in "
+                    + (SystemClock.elapsedRealtime() - startTime) + " ms");
+        } finally {
+            task.mRunning = false;
+        }
+    }
+}
@@ -0,0 +1,444 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+import android.util.Pair;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.core.instrumentation.LogWriter;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link LogWriter} that queues the events and writes them to other writers on a background
+ * thread, so that logging costs nothing to the UI thread.
+ *
+ * <p>Events are queued in a fixed size ring buffer of preallocated slots, claimed without locks,
+ * so queueing an event does not allocate. The first event queued wakes up the drainer thread,
+ * which waits {@link #BATCH_DELAY_MS} for more events, then writes all the queued events in order.
+ *
+ * <p>When the buffer is full, the event is dropped or written on the caller thread, depending on
+ * the {@link Policy}. Both are counted, see {@link #getDroppedCount()} and
+ * {@link #getCallerWrittenCount()}.
+ */
+public class AsyncLogWriter implements LogWriter {
+
+    private static final String TAG = "AsyncLogWriter";
+
+    @VisibleForTesting
+    static final long BATCH_DELAY_MS = 50;
+    private static final int DEFAULT_CAPACITY = 256;
+
+    /** What to do with an event when the buffer is full. */
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({POLICY_DROP, POLICY_WRITE_ON_CALLER})
+    public @interface Policy {}
+
+    /** Drops the event. */
+    public static final int POLICY_DROP = 0;
+    /** Writes the event on the caller thread, after the queued events may have been written. */
+    public static final int POLICY_WRITE_ON_CALLER = 1;
+
+    private static final int TYPE_VISIBLE = 0;
+    private static final int TYPE_HIDDEN = 1;
+    private static final int TYPE_CLICKED = 2;
+    private static final int TYPE_CHANGED = 3;
+    private static final int TYPE_ACTION_TAGGED = 4;
+    private static final int TYPE_ACTION_INT = 5;
+    private static final int TYPE_ACTION_BOOLEAN = 6;
+    private static final int TYPE_ACTION_STRING = 7;
+    private static final int TYPE_ACTION = 8;
+
+    /** A slot of the ring buffer, the meaning of the fields depends on the type. */
+    private static class Event {
+        int mType;
+        Context mContext;
+        int mArg1;
+        int mArg2;
+        int mArg3;
+        int mArg4;
+        String mKey;
+        boolean mBooleanValue;
+        Pair<Integer, Object>[] mTaggedData;
+
+        void clear() {
+            mContext = null;
+            mKey = null;
+            mTaggedData = null;
+        }
+    }
+
+    private final LogWriter[] mWriters;
+    @Policy
+    private final int mPolicy;
+    private final boolean mStartDrainer;
+
+    private final Event[] mEvents;
+    private final int mMask;
+    // Sequence + 1 of the event published in each slot, 0 if none yet.
+    private final AtomicLongArray mPublished;
+    // Next sequence to claim, by the callers.
+    private final AtomicLong mTail = new AtomicLong();
+    // Next sequence to write, only updated by the drainer.
+    private volatile long mHead;
+
+    private final AtomicBoolean mDrainRequested = new AtomicBoolean();
+    private final AtomicBoolean mDrainerStarted = new AtomicBoolean();
+    private volatile Thread mDrainer;
+
+    private final AtomicLong mDroppedCount = new AtomicLong();
+    private final AtomicLong mCallerWrittenCount = new AtomicLong();
+    private long mLoggedDroppedCount;
+
+    public AsyncLogWriter(LogWriter... writers) {
+        this(DEFAULT_CAPACITY, POLICY_DROP, true /* startDrainer */, writers);
+    }
+
+    /**
+     * @param capacity the number of events the buffer holds, rounded up to a power of two.
+     * @param startDrainer whether to write the events on a background thread, or only when
+     *                     {@link #drain()} is called.
+     */
+    @VisibleForTesting
+    AsyncLogWriter(int capacity, @Policy int policy, boolean startDrainer, LogWriter... writers) {
+        mWriters = writers;
+        mPolicy = policy;
+        mStartDrainer = startDrainer;
+        final int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        mEvents = new Event[size];
+        for (int i = 0; i < size; i++) {
+            mEvents[i] = new Event();
+        }
+        mMask = size - 1;
+        mPublished = new AtomicLongArray(size);
+    }
+
+    @Override
+    public void visible(Context context, int attribution, int pageId, int latency) {
+        final long sequence = claim();
+        if (sequence < 0) {
+            if (shouldWriteOnCaller()) {
+                for (LogWriter writer : mWriters) {
+                    writer.visible(context, attribution, pageId, latency);
+                }
+            }
+            return;
+        }
+        final Event event = mEvents[(int) sequence & mMask];
+        event.mType = TYPE_VISIBLE;
+        event.mContext = context;
+        event.mArg1 = attribution;
+        event.mArg2 = pageId;
+        event.mArg3 = latency;
+        publish(sequence);
+    }
+
+    @Override
+    public void hidden(Context context, int pageId, int visibleTime) {
+        final long sequence = claim();
+        if (sequence < 0) {
+            if (shouldWriteOnCaller()) {
+                for (LogWriter writer : mWriters) {
+                    writer.hidden(context, pageId, visibleTime);
+                }
+            }
+            return;
+        }
+        final Event event = mEvents[(int) sequence & mMask];
+        event.mType = TYPE_HIDDEN;
+        event.mContext = context;
+        event.mArg1 = pageId;
+        event.mArg2 = visibleTime;
+        publish(sequence);
+    }
+
+    @Override
+    public void clicked(int attribution, String key) {
+        final long sequence = claim();
+        if (sequence < 0) {
+            if (shouldWriteOnCaller()) {
+                for (LogWriter writer : mWriters) {
+                    writer.clicked(attribution, key);
+                }
+            }
+            return;
+        }
+        final Event event = mEvents[(int) sequence & mMask];
+        event.mType = TYPE_CLICKED;
+        event.mArg1 = attribution;
+        event.mKey = key;
+        publish(sequence);
+    }
+
+    @Override
+    public void changed(int category, String key, int value) {
+        final long sequence = claim();
+        if (sequence < 0) {
+            if (shouldWriteOnCaller()) {
+                for (LogWriter writer : mWriters) {
+                    writer.changed(category, key, value);
+                }
+            }
+            return;
+        }
+        final Event event = mEvents[(int) sequence & mMask];
+        event.mType = TYPE_CHANGED;
+        event.mArg1 = category;
+        event.mKey = key;
+        event.mArg2 = value;
+        publish(sequence);
+    }
+
+    @Override
+    public void action(Context context, int action, Pair<Integer, Object>... taggedData) {
+        final long sequence = claim();
+        if (sequence < 0) {
+            if (shouldWriteOnCaller()) {
+                for (LogWriter writer : mWriters) {
+                    writer.action(context, action, taggedData);
+                }
+            }
+            return;
+        }
+        final Event event = mEvents[(int) sequence & mMask];
+        event.mType = TYPE_ACTION_TAGGED;
+        event.mContext = context;
+        event.mArg1 = action;
+        event.mTaggedData = taggedData;
+        publish(sequence);
+    }
+
+    @Override
+    public void action(Context context, int action, int value) {
+        final long sequence = claim();
+        if (sequence < 0) {
+            if (shouldWriteOnCaller()) {
+                for (LogWriter writer : mWriters) {
+                    writer.action(context, action, value);
+                }
+            }
+            return;
+        }
+        final Event event = mEvents[(int) sequence & mMask];
+        event.mType = TYPE_ACTION_INT;
+        event.mContext = context;
+        event.mArg1 = action;
+        event.mArg2 = value;
+        publish(sequence);
+    }
+
+    @Override
+    public void action(Context context, int action, boolean value) {
+        final long sequence = claim();
+        if (sequence < 0) {
+            if (shouldWriteOnCaller()) {
+                for (LogWriter writer : mWriters) {
+                    writer.action(context, action, value);
+                }
+            }
+            return;
+        }
+        final Event event = mEvents[(int) sequence & mMask];
+        event.mType = TYPE_ACTION_BOOLEAN;
+        event.mContext = context;
+        event.mArg1 = action;
+        event.mBooleanValue = value;
+        publish(sequence);
+    }
+
+    @Override
+    public void action(Context context, int action, String pkg) {
+        final long sequence = claim();
+        if (sequence < 0) {
+            if (shouldWriteOnCaller()) {
+                for (LogWriter writer : mWriters) {
+                    writer.action(context, action, pkg);
+                }
+            }
+            return;
+        }
+        final Event event = mEvents[(int) sequence & mMask];
+        event.mType = TYPE_ACTION_STRING;
+        event.mContext = context;
+        event.mArg1 = action;
+        event.mKey = pkg;
+        publish(sequence);
+    }
+
+    @Override
+    public void action(int attribution, int action, int pageId, String key, int value) {
+        final long sequence = claim();
+        if (sequence < 0) {
+            if (shouldWriteOnCaller()) {
+                for (LogWriter writer : mWriters) {
+                    writer.action(attribution, action, pageId, key, value);
+                }
+            }
+            return;
+        }
+        final Event event = mEvents[(int) sequence & mMask];
+        event.mType = TYPE_ACTION;
+        event.mArg1 = attribution;
+        event.mArg2 = action;
+        event.mArg3 = pageId;
+        event.mKey = key;
+        event.mArg4 = value;
+        publish(sequence);
+    }
+
+    /** Returns the number of events dropped because the buffer was full. */
+    public long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    /** Returns the number of events written on the caller thread because the buffer was full. */
+    public long getCallerWrittenCount() {
+        return mCallerWrittenCount.get();
+    }
+
+    /**
+     * Writes the queued events on the calling thread, returns the number of events written. Only
+     * one thread drains at a time: the drainer thread, or the test.
+     */
+    @VisibleForTesting
+    int drain() {
+        int count = 0;
+        long head = mHead;
+        while (mPublished.get((int) head & mMask) == head + 1) {
+            final Event event = mEvents[(int) head & mMask];
+            for (LogWriter writer : mWriters) {
+                try {
+                    write(writer, event);
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Failed to write event of type " + event.mType, e);
+                }
+            }
+            event.clear();
+            head++;
+            // Frees the slot for the callers.
+            mHead = head;
+            count++;
+        }
+        final long droppedCount = mDroppedCount.get();
+        if (droppedCount != mLoggedDroppedCount) {
+            Log.w(TAG, "Buffer full, " + (droppedCount - mLoggedDroppedCount)
+                    + " events dropped, " + droppedCount + " in total");
+            mLoggedDroppedCount = droppedCount;
+        }
+        return count;
+    }
+
+    /** Returns the sequence of the slot claimed, or -1 if the buffer is full. */
+    private long claim() {
+        while (true) {
+            final long tail = mTail.get();
+            if (tail - mHead >= mEvents.length) {
+                return -1;
+            }
+            if (mTail.compareAndSet(tail, tail + 1)) {
+                return tail;
+            }
+        }
+    }
+
+    private void publish(long sequence) {
+        mPublished.set((int) sequence & mMask, sequence + 1);
+        requestDrain();
+    }
+
+    /** Counts the event that could not be queued, returns whether to write it on the caller. */
+    private boolean shouldWriteOnCaller() {
+        if (mPolicy == POLICY_WRITE_ON_CALLER) {
+            mCallerWrittenCount.incrementAndGet();
+            return true;
+        }
+        mDroppedCount.incrementAndGet();
+        return false;
+    }
+
+    private void requestDrain() {
+        if (!mStartDrainer || mDrainRequested.get()
+                || !mDrainRequested.compareAndSet(false, true)) {
+            return;
+        }
+        if (!mDrainerStarted.get() && mDrainerStarted.compareAndSet(false, true)) {
+            final Thread drainer = new Thread(this::runDrainer, TAG);
+            drainer.setDaemon(true);
+            mDrainer = drainer;
+            drainer.start();
+        } else {
+            LockSupport.unpark(mDrainer);
+        }
+    }
+
+    private void runDrainer() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        while (true) {
+            while (!mDrainRequested.get()) {
+                LockSupport.park(this);
+            }
+            // Lets more events come in, to write them in one batch.
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(BATCH_DELAY_MS));
+            // Cleared first, so that the events queued while draining request another drain.
+            mDrainRequested.set(false);
+            drain();
+        }
+    }
+
+    private static void write(LogWriter writer, Event event) {
+        switch (event.mType) {
+            case TYPE_VISIBLE:
+                writer.visible(event.mContext, event.mArg1, event.mArg2, event.mArg3);
+                break;
+            case TYPE_HIDDEN:
+                writer.hidden(event.mContext, event.mArg1, event.mArg2);
+                break;
+            case TYPE_CLICKED:
+                writer.clicked(event.mArg1, event.mKey);
+                break;
+            case TYPE_CHANGED:
+                writer.changed(event.mArg1, event.mKey, event.mArg2);
+                break;
+            case TYPE_ACTION_TAGGED:
+                writer.action(event.mContext, event.mArg1, event.mTaggedData);
+                break;
+            case TYPE_ACTION_INT:
+                writer.action(event.mContext, event.mArg1, event.mArg2);
+                break;
+            case TYPE_ACTION_BOOLEAN:
+                writer.action(event.mContext, event.mArg1, event.mBooleanValue);
+                break;
+            case TYPE_ACTION_STRING:
+                writer.action(event.mContext, event.mArg1, event.mKey);
+                break;
+            case TYPE_ACTION:
+                writer.action(event.mArg1, event.mArg2, event.mArg3, event.mKey, event.mArg4);
+                break;
+        }
+    }
+}
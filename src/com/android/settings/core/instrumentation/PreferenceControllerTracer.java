@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.SystemProperties;
+import android.os.Trace;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.preference.Preference;
+
+import com.android.settings.core.BasePreferenceController;
+import com.android.settingslib.core.AbstractPreferenceController;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Opt-in tracing of the calls made to preference controllers, to find the slow ones.
+ *
+ * <p>When enabled with {@code adb shell setprop debug.settings.trace_controllers true} and a
+ * restart of Settings, each call made through this class is traced as a section named after the
+ * controller class and the method, and its latency is added to a histogram per controller class
+ * and method. The histograms are dumped by {@code SettingsDumpService}, see {@link #dump()}, along
+ * with the controllers whose calls on the main thread took longer than the budget, set with
+ * {@code debug.settings.controller_budget_ms}.
+ *
+ * <p>When disabled, the calls are made directly.
+ */
+public final class PreferenceControllerTracer {
+
+    public static final String METHOD_IS_AVAILABLE = "isAvailable";
+    public static final String METHOD_GET_AVAILABILITY_STATUS = "getAvailabilityStatus";
+    public static final String METHOD_DISPLAY_PREFERENCE = "displayPreference";
+    public static final String METHOD_UPDATE_STATE = "updateState";
+    public static final String METHOD_GET_SUMMARY = "getSummary";
+    public static final String METHOD_UPDATE_NON_INDEXABLE_KEYS = "updateNonIndexableKeys";
+
+    private static final String PROPERTY_ENABLED = "debug.settings.trace_controllers";
+    private static final String PROPERTY_BUDGET_MS = "debug.settings.controller_budget_ms";
+    private static final int DEFAULT_BUDGET_MS = 8;
+    // Trace section names longer than this are rejected.
+    private static final int MAX_SECTION_NAME_LENGTH = 127;
+    // Upper bounds in milliseconds of the histogram buckets, the last bucket has no bound.
+    private static final int[] BUCKET_BOUNDS_MS = {1, 2, 4, 8, 16, 32, 64};
+
+    private static volatile boolean sEnabled = SystemProperties.getBoolean(PROPERTY_ENABLED, false);
+    private static final Map<String, Stats> sStats = new ConcurrentHashMap<>();
+
+    private PreferenceControllerTracer() {}
+
+    /** Latency of the calls to one method of one controller class. */
+    private static class Stats {
+        final String mController;
+        final String mMethod;
+        final int[] mBuckets = new int[BUCKET_BOUNDS_MS.length + 1];
+        int mCount;
+        long mTotalNanos;
+        long mMaxNanos;
+        int mMainThreadCount;
+        long mMainThreadMaxNanos;
+
+        Stats(String controller, String method) {
+            mController = controller;
+            mMethod = method;
+        }
+
+        synchronized void add(long nanos, boolean mainThread) {
+            mCount++;
+            mTotalNanos += nanos;
+            mMaxNanos = Math.max(mMaxNanos, nanos);
+            if (mainThread) {
+                mMainThreadCount++;
+                mMainThreadMaxNanos = Math.max(mMainThreadMaxNanos, nanos);
+            }
+            final long millis = nanos / 1_000_000;
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MS.length && millis >= BUCKET_BOUNDS_MS[bucket]) {
+                bucket++;
+            }
+            mBuckets[bucket]++;
+        }
+
+        synchronized JSONObject toJson(long budgetNanos) throws JSONException {
+            final JSONObject histogram = new JSONObject();
+            for (int i = 0; i < mBuckets.length; i++) {
+                histogram.put(i < BUCKET_BOUNDS_MS.length
+                        ? "<" + BUCKET_BOUNDS_MS[i] + "ms"
+                        : ">=" + BUCKET_BOUNDS_MS[BUCKET_BOUNDS_MS.length - 1] + "ms",
+                        mBuckets[i]);
+            }
+            return new JSONObject()
+                    .put("controller", mController)
+                    .put("method", mMethod)
+                    .put("count", mCount)
+                    .put("totalMs", toMillis(mTotalNanos))
+                    .put("maxMs", toMillis(mMaxNanos))
+                    .put("mainThreadCount", mMainThreadCount)
+                    .put("mainThreadMaxMs", toMillis(mMainThreadMaxNanos))
+                    .put("overBudget", isOverBudget(budgetNanos))
+                    .put("histogram", histogram);
+        }
+
+        synchronized long getTotalNanos() {
+            return mTotalNanos;
+        }
+
+        synchronized boolean isOverBudget(long budgetNanos) {
+            return mMainThreadMaxNanos > budgetNanos;
+        }
+    }
+
+    /** Returns whether the calls are traced. */
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    @VisibleForTesting
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    /** Calls {@link AbstractPreferenceController#isAvailable()}. */
+    public static boolean isAvailable(@NonNull AbstractPreferenceController controller) {
+        if (!sEnabled) {
+            return controller.isAvailable();
+        }
+        final long startTime = begin(controller, METHOD_IS_AVAILABLE);
+        try {
+            return controller.isAvailable();
+        } finally {
+            end(controller, METHOD_IS_AVAILABLE, startTime);
+        }
+    }
+
+    /** Calls {@link BasePreferenceController#getAvailabilityStatus()}. */
+    public static int getAvailabilityStatus(@NonNull BasePreferenceController controller) {
+        if (!sEnabled) {
+            return controller.getAvailabilityStatus();
+        }
+        final long startTime = begin(controller, METHOD_GET_AVAILABILITY_STATUS);
+        try {
+            return controller.getAvailabilityStatus();
+        } finally {
+            end(controller, METHOD_GET_AVAILABILITY_STATUS, startTime);
+        }
+    }
+
+    /** Calls {@link AbstractPreferenceController#updateState(Preference)}. */
+    public static void updateState(@NonNull AbstractPreferenceController controller,
+            @NonNull Preference preference) {
+        if (!sEnabled) {
+            controller.updateState(preference);
+            return;
+        }
+        final long startTime = begin(controller, METHOD_UPDATE_STATE);
+        try {
+            controller.updateState(preference);
+        } finally {
+            end(controller, METHOD_UPDATE_STATE, startTime);
+        }
+    }
+
+    /** Calls {@link AbstractPreferenceController#getSummary()}. */
+    public static CharSequence getSummary(@NonNull AbstractPreferenceController controller) {
+        if (!sEnabled) {
+            return controller.getSummary();
+        }
+        final long startTime = begin(controller, METHOD_GET_SUMMARY);
+        try {
+            return controller.getSummary();
+        } finally {
+            end(controller, METHOD_GET_SUMMARY, startTime);
+        }
+    }
+
+    /**
+     * Starts tracing a call to {@code method} of {@code controller}, for the calls without a
+     * wrapper above.
+     *
+     * @return the start time to pass to {@link #end}, or 0 if tracing is disabled.
+     */
+    public static long begin(@NonNull Object controller, @NonNull String method) {
+        if (!sEnabled) {
+            return 0;
+        }
+        String sectionName = controller.getClass().getSimpleName() + "#" + method;
+        if (sectionName.length() > MAX_SECTION_NAME_LENGTH) {
+            sectionName = sectionName.substring(0, MAX_SECTION_NAME_LENGTH);
+        }
+        Trace.beginSection(sectionName);
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /** Ends tracing a call started with {@link #begin}. */
+    public static void end(@NonNull Object controller, @NonNull String method, long startTime) {
+        if (startTime == 0) {
+            return;
+        }
+        final long nanos = SystemClock.elapsedRealtimeNanos() - startTime;
+        Trace.endSection();
+        final String className = controller.getClass().getName();
+        sStats.computeIfAbsent(className + "#" + method, key -> new Stats(className, method))
+                .add(nanos, Looper.myLooper() == Looper.getMainLooper());
+    }
+
+    /**
+     * Returns the histograms of the traced calls, slowest controllers first, and the controllers
+     * whose calls on the main thread exceeded the budget.
+     */
+    public static JSONObject dump() throws JSONException {
+        final long budgetMs = SystemProperties.getLong(PROPERTY_BUDGET_MS, DEFAULT_BUDGET_MS);
+        final long budgetNanos = budgetMs * 1_000_000;
+        final List<Stats> stats = new ArrayList<>(sStats.values());
+        stats.sort((a, b) -> Long.compare(b.getTotalNanos(), a.getTotalNanos()));
+
+        final JSONArray calls = new JSONArray();
+        final JSONArray slowControllers = new JSONArray();
+        for (Stats stat : stats) {
+            calls.put(stat.toJson(budgetNanos));
+            if (stat.isOverBudget(budgetNanos)) {
+                slowControllers.put(stat.mController + "#" + stat.mMethod);
+            }
+        }
+        return new JSONObject()
+                .put("enabled", sEnabled)
+                .put("mainThreadBudgetMs", budgetMs)
+                .put("slowControllers", slowControllers)
+                .put("calls", calls);
+    }
+
+    @VisibleForTesting
+    public static void reset() {
+        sStats.clear();
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
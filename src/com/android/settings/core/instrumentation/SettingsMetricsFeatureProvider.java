@@ -27,8 +27,8 @@ public class SettingsMetricsFeatureProvider extends MetricsFeatureProvider {
 
     @Override
     protected void installLogWriters() {
-        mLoggerWriters.add(new StatsLogWriter());
-        mLoggerWriters.add(new SettingsEventLogWriter());
+        // The events are written in background, most of them are logged on the main thread.
+        mLoggerWriters.add(new AsyncLogWriter(new StatsLogWriter(), new SettingsEventLogWriter()));
     }
 
     /**
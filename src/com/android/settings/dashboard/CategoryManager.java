@@ -60,6 +60,9 @@ public class CategoryManager {
 
     private List<DashboardCategory> mCategories;
 
+    // Set once the categories are first loaded; read without the lock, see isLoaded().
+    private volatile boolean mLoaded;
+
     public static CategoryManager get(Context context) {
         if (sInstance == null) {
             sInstance = new CategoryManager(context);
@@ -74,6 +77,14 @@ public class CategoryManager {
         mInterestingConfigChanges.applyNewConfig(context.getResources());
     }
 
+    /**
+     * Returns whether the categories have been loaded once. Unlike the other methods, this does
+     * not wait for a load in progress, so it can be checked on the main thread.
+     */
+    public boolean isLoaded() {
+        return mLoaded;
+    }
+
     public synchronized DashboardCategory getTilesByCategory(Context context, String categoryKey) {
         tryInitCategories(context);
 
@@ -165,6 +176,7 @@ public class CategoryManager {
             mergeSecurityPrivacyKeys(context, mTileByComponentCache, mCategoryByKeyMap);
             sortCategories(context, mCategoryByKeyMap);
             filterDuplicateTiles(mCategoryByKeyMap);
+            mLoaded = true;
             if (firstLoading) {
                 logTiles(context);
 
@@ -21,9 +21,11 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Trace;
 import android.preference.PreferenceManager.OnActivityResultListener;
 import android.text.TextUtils;
 import android.util.ArrayMap;
+import android.util.ArraySet;
 import android.util.Log;
 import android.view.View;
 
@@ -43,9 +45,11 @@ import androidx.preference.SwitchPreferenceCompat;
 import com.android.settings.R;
 import com.android.settings.SettingsPreferenceFragment;
 import com.android.settings.core.BasePreferenceController;
+import com.android.settings.core.CategoryMixin;
 import com.android.settings.core.CategoryMixin.CategoryHandler;
 import com.android.settings.core.CategoryMixin.CategoryListener;
 import com.android.settings.core.PreferenceControllerListHelper;
+import com.android.settings.core.instrumentation.PreferenceControllerTracer;
 import com.android.settings.flags.Flags;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.PrimarySwitchPreference;
@@ -97,6 +101,8 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     private DashboardFeatureProvider mDashboardFeatureProvider;
     private DashboardTilePlaceholderPreferenceController mPlaceholderPreferenceController;
     private boolean mListeningToCategoryChange;
+    private boolean mDashboardTilesDeferred;
+    private final Set<String> mDeferredTileKeys = new ArraySet<>();
     private List<String> mSuppressInjectedTileKeys;
 
     @Override
@@ -153,7 +159,7 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         final List<BasePreferenceController> baseControllers = new ArrayList<>();
         controllers.forEach(controller -> {
             if (controller instanceof BasePreferenceController.UiBlocker
-                    && controller.isAvailable()) {
+                    && PreferenceControllerTracer.isAvailable(controller)) {
                 ((BasePreferenceController) controller).setUiBlockListener(this);
                 keys.add(controller.getPreferenceKey());
                 baseControllers.add((BasePreferenceController) controller);
@@ -194,6 +200,28 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     @Override
     public void onCategoriesChanged(Set<String> categories) {
         final String categoryKey = getCategoryKey();
+        if (mDashboardTilesDeferred) {
+            // First load of the deferred tiles, always refresh.
+            mDashboardTilesDeferred = false;
+            Trace.beginSection(getLogTag() + "#refreshDeferredTiles");
+            refreshDashboardTiles(getLogTag());
+            Trace.endSection();
+            // Drop the deferred tile preferences left if there are no tiles for this page.
+            final PreferenceScreen screen = getPreferenceScreen();
+            for (String key : new ArrayList<>(mDeferredTileKeys)) {
+                mDashboardTilePrefKeys.remove(key);
+                if (screen != null) {
+                    screen.removePreferenceRecursively(key);
+                }
+            }
+            mDeferredTileKeys.clear();
+            final Activity activity = getActivity();
+            if (activity != null) {
+                Log.d(getLogTag(), "Deferred tiles added, reporting fully drawn");
+                activity.reportFullyDrawn();
+            }
+            return;
+        }
         final DashboardCategory dashboardCategory =
                 mDashboardFeatureProvider.getTilesForCategory(categoryKey);
         if (dashboardCategory == null) {
@@ -225,6 +253,18 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     @Override
     public void onStart() {
         super.onStart();
+        if (mDashboardTilesDeferred) {
+            // The tiles are loaded in background by CategoryMixin, and added by
+            // onCategoriesChanged().
+            final Activity activity = getActivity();
+            if (activity instanceof CategoryHandler) {
+                mListeningToCategoryChange = true;
+                final CategoryMixin categoryMixin = ((CategoryHandler) activity).getCategoryMixin();
+                categoryMixin.addCategoryListener(this);
+                categoryMixin.updateCategories();
+            }
+            return;
+        }
         final DashboardCategory category =
                 mDashboardFeatureProvider.getTilesForCategory(getCategoryKey());
         if (category == null) {
@@ -385,7 +425,16 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
      */
     protected void displayResourceTilesToScreen(PreferenceScreen screen) {
         mPreferenceControllers.values().stream().flatMap(Collection::stream).forEach(
-                controller -> controller.displayPreference(screen));
+                controller -> {
+                    final long startTime = PreferenceControllerTracer.begin(
+                            controller, PreferenceControllerTracer.METHOD_DISPLAY_PREFERENCE);
+                    try {
+                        controller.displayPreference(screen);
+                    } finally {
+                        PreferenceControllerTracer.end(controller,
+                                PreferenceControllerTracer.METHOD_DISPLAY_PREFERENCE, startTime);
+                    }
+                });
     }
 
     /**
@@ -404,7 +453,7 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                 mPreferenceControllers.values();
         for (List<AbstractPreferenceController> controllerList : controllerLists) {
             for (AbstractPreferenceController controller : controllerList) {
-                if (!controller.isAvailable()) {
+                if (!PreferenceControllerTracer.isAvailable(controller)) {
                     continue;
                 }
 
@@ -421,11 +470,31 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                             key, controller.getClass().getSimpleName()));
                     continue;
                 }
-                controller.updateState(preference);
+                PreferenceControllerTracer.updateState(controller, preference);
             }
         }
     }
 
+    /**
+     * Returns whether the dashboard tiles should be added after the tiles are loaded in background,
+     * instead of loading them on the main thread when the preferences are created. Only checked
+     * once, when the preferences are created; the activity must be a {@link CategoryHandler}.
+     */
+    protected boolean shouldDeferDashboardTiles() {
+        return false;
+    }
+
+    /**
+     * Adds a preference shown in place of the tile with the same key while the tiles are deferred,
+     * see {@link #shouldDeferDashboardTiles()}. Once the tiles are loaded, the preference is bound
+     * to that tile, or removed if the tile is gone.
+     */
+    protected void addDeferredTilePreference(PreferenceGroup group, Preference preference) {
+        group.addPreference(preference);
+        mDashboardTilePrefKeys.put(preference.getKey(), null);
+        mDeferredTileKeys.add(preference.getKey());
+    }
+
     /**
      * Refresh all preference items, including both static prefs from xml, and dynamic items from
      * DashboardCategory.
@@ -439,12 +508,21 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         }
 
         // Add resource based tiles.
+        Trace.beginSection(tag + "#displayResourceTiles");
         displayResourceTiles();
+        Trace.endSection();
 
-        refreshDashboardTiles(tag);
+        mDashboardTilesDeferred = shouldDeferDashboardTiles();
+        if (mDashboardTilesDeferred) {
+            Log.d(tag, "Dashboard tiles deferred");
+        } else {
+            Trace.beginSection(tag + "#refreshDashboardTiles");
+            refreshDashboardTiles(tag);
+            Trace.endSection();
+        }
 
         final Activity activity = getActivity();
-        if (activity != null) {
+        if (activity != null && !mDashboardTilesDeferred) {
             Log.d(tag, "All preferences added, reporting fully drawn");
             activity.reportFullyDrawn();
         }
@@ -467,9 +545,9 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                 if (preference == null) {
                     continue;
                 }
-                final boolean available = controller.isAvailable();
+                final boolean available = PreferenceControllerTracer.isAvailable(controller);
                 if (available) {
-                    controller.updateState(preference);
+                    PreferenceControllerTracer.updateState(controller, preference);
                 }
                 preference.setVisible(available);
             }
@@ -496,9 +574,11 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                 if (controller instanceof BasePreferenceController.UiBlocker) {
                     final boolean prefVisible =
                             ((BasePreferenceController) controller).getSavedPrefVisibility();
-                    preference.setVisible(visible && controller.isAvailable() && prefVisible);
+                    preference.setVisible(visible
+                            && PreferenceControllerTracer.isAvailable(controller) && prefVisible);
                 } else {
-                    preference.setVisible(visible && controller.isAvailable());
+                    preference.setVisible(
+                            visible && PreferenceControllerTracer.isAvailable(controller));
                 }
             }
         }
@@ -547,6 +627,11 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                 observers = mDashboardFeatureProvider.bindPreferenceToTileAndGetObservers(
                         getActivity(), this, forceRoundedIcons, preference, tile, key,
                         mPlaceholderPreferenceController.getOrder());
+                if (mDeferredTileKeys.remove(key)) {
+                    // First bind of a deferred tile preference.
+                    registerDynamicDataObservers(observers);
+                    mDashboardTilePrefKeys.put(key, observers);
+                }
             } else {
                 // Don't have this key, add it.
                 final Preference pref = createPreference(tile);
@@ -595,6 +680,7 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         for (Map.Entry<String, List<DynamicDataObserver>> entry : remove.entrySet()) {
             final String key = entry.getKey();
             mDashboardTilePrefKeys.remove(key);
+            mDeferredTileKeys.remove(key);
             if (Flags.dynamicInjectionCategory()) {
                 screen.removePreferenceRecursively(key);
             } else {
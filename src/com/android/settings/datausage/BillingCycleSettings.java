@@ -45,6 +45,7 @@ import androidx.preference.TwoStatePreference;
 import com.android.settings.R;
 import com.android.settings.core.instrumentation.InstrumentedDialogFragment;
 import com.android.settings.datausage.lib.DataUsageFormatter;
+import com.android.settings.datausage.lib.NetworkStatsCache;
 import com.android.settings.datausage.lib.NetworkTemplates;
 import com.android.settings.network.SubscriptionUtil;
 import com.android.settings.network.telephony.MobileNetworkUtils;
@@ -453,6 +454,8 @@ public class BillingCycleSettings extends DataUsageBaseFragment implements
             final int cycleDay = mCycleDayPicker.getValue();
             final String cycleTimezone = TimeZone.getDefault().getID();
             editor.setPolicyCycleDay(template, cycleDay, cycleTimezone);
+            // The cached stats were queried for the ranges of the previous cycle.
+            NetworkStatsCache.getInstance().invalidate();
             target.updateDataUsage();
         }
     }
@@ -63,6 +63,7 @@ open class DataUsageList : DashboardFragment() {
     private var dataUsageListAppsController: DataUsageListAppsController? = null
     private var chartDataUsagePreferenceController: ChartDataUsagePreferenceController? = null
     private var dataUsageListHeaderController: DataUsageListHeaderController? = null
+    private var resumedOnce = false
 
     private val viewModel: DataUsageListViewModel by viewModels()
 
@@ -134,6 +135,16 @@ open class DataUsageList : DashboardFragment() {
         }
     }
 
+    override fun onResume() {
+        super.onResume()
+        // New usage may have been recorded while the page was in the background. The history was
+        // just queried when the page is first shown.
+        if (resumedOnce) {
+            viewModel.refresh()
+        }
+        resumedOnce = true
+    }
+
     override fun getPreferenceScreenResId() = R.xml.data_usage_list
 
     override fun getLogTag() = TAG
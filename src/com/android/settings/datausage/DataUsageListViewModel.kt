@@ -22,9 +22,8 @@ import androidx.lifecycle.AndroidViewModel
 import androidx.lifecycle.viewModelScope
 import com.android.settings.datausage.lib.NetworkCycleBucketRepository
 import com.android.settings.datausage.lib.NetworkStatsRepository
-import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.Bucket
-import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.filterTime
 import com.android.settings.datausage.lib.NetworkUsageData
+import com.android.settings.datausage.lib.NetworkUsageIndex
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.SharingStarted
@@ -33,39 +32,54 @@ import kotlinx.coroutines.flow.filterNotNull
 import kotlinx.coroutines.flow.flowOn
 import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.flow.stateIn
+import kotlinx.coroutines.flow.update
 import kotlinx.coroutines.plus
 
-data class SelectedBuckets(
-    val selectedCycle: NetworkUsageData,
-    val buckets: List<Bucket>,
-)
-
 class DataUsageListViewModel(application: Application) : AndroidViewModel(application) {
     private val scope = viewModelScope + Dispatchers.Default
 
     val templateFlow = MutableStateFlow<NetworkTemplate?>(null)
 
-    private val bucketsFlow = templateFlow.filterNotNull().map { template ->
-        NetworkStatsRepository(getApplication(), template).queryDetailsForDevice()
-    }.stateIn(scope, SharingStarted.WhileSubscribed(), emptyList())
+    private val refreshFlow = MutableStateFlow(0)
+
+    private data class TemplateUsage(val template: NetworkTemplate, val index: NetworkUsageIndex)
+
+    /**
+     * The last index built, kept for the lifetime of the view model so that the history is only
+     * updated from its tail when [usageFlow] is collected again.
+     */
+    @Volatile
+    private var lastUsage: TemplateUsage? = null
+
+    /**
+     * The index of the device history of the current template, updated from its tail when the
+     * history is queried again by [refresh].
+     */
+    private val usageFlow = combine(templateFlow.filterNotNull(), refreshFlow) { template, _ ->
+        val buckets = NetworkStatsRepository(getApplication(), template).queryDetailsForDevice()
+        val previous = lastUsage
+        val index = if (previous != null && previous.template == template) {
+            previous.index.update(buckets)
+        } else {
+            NetworkUsageIndex.build(buckets)
+        }
+        TemplateUsage(template, index).also { lastUsage = it }
+    }.stateIn(scope, SharingStarted.WhileSubscribed(), null)
 
-    val cyclesFlow = combine(templateFlow.filterNotNull(), bucketsFlow) { template, buckets ->
-        NetworkCycleBucketRepository(application, template, buckets).loadCycles()
+    val cyclesFlow = usageFlow.filterNotNull().map { (template, index) ->
+        NetworkCycleBucketRepository(application, template, index).loadCycles()
     }.flowOn(Dispatchers.Default)
 
     val selectedCycleFlow = MutableStateFlow<NetworkUsageData?>(null)
 
-    private val selectedBucketsFlow =
-        combine(selectedCycleFlow.filterNotNull(), bucketsFlow) { selectedCycle, buckets ->
-            SelectedBuckets(
-                selectedCycle = selectedCycle,
-                buckets = buckets.filterTime(selectedCycle.startTime, selectedCycle.endTime),
-            )
-        }.flowOn(Dispatchers.Default)
-
     val chartDataFlow =
-        combine(templateFlow.filterNotNull(), selectedBucketsFlow) { template, selectedBuckets ->
-            NetworkCycleBucketRepository(application, template, selectedBuckets.buckets)
-                .queryChartData(selectedBuckets.selectedCycle)
+        combine(usageFlow.filterNotNull(), selectedCycleFlow.filterNotNull()) { usage, cycle ->
+            NetworkCycleBucketRepository(application, usage.template, usage.index)
+                .queryChartData(cycle)
         }.flowOn(Dispatchers.Default)
+
+    /** Queries the device history again, e.g. when the page is shown again. */
+    fun refresh() {
+        refreshFlow.update { it + 1 }
+    }
 }
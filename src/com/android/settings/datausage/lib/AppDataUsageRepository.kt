@@ -24,8 +24,8 @@ import android.net.NetworkTemplate
 import android.os.Process
 import android.os.UserHandle
 import android.os.UserManager
-import android.util.SparseArray
 import android.util.SparseBooleanArray
+import android.util.SparseIntArray
 import androidx.annotation.VisibleForTesting
 import androidx.core.util.keyIterator
 import com.android.settings.R
@@ -49,14 +49,12 @@ class AppDataUsageRepository(
 
     @VisibleForTesting
     fun getAppPercent(carrierId: Int?, buckets: List<Bucket>): List<Pair<AppItem, Int>> {
-        val items = ArrayList<AppItem>()
-        val knownItems = SparseArray<AppItem>()
         val profiles = context.userManager.userProfiles
         val userManager : UserManager = context.getSystemService(Context.USER_SERVICE) as UserManager
         val userIdToIsHiddenMap = profiles.associate { profile ->
             profile.identifier to shouldSkipProfile(userManager, profile)
         }
-        bindStats(buckets, userIdToIsHiddenMap, knownItems, items)
+        val aggregator = bindStats(buckets, userIdToIsHiddenMap)
         val restrictedUids = context.getSystemService(NetworkPolicyManager::class.java)!!
             .getUidsWithPolicy(NetworkPolicyManager.POLICY_REJECT_METERED_BACKGROUND)
         for (uid in restrictedUids) {
@@ -64,18 +62,10 @@ class AppDataUsageRepository(
             if (!profiles.contains(UserHandle.getUserHandleForUid(uid))) {
                 continue
             }
-            var item = knownItems[uid]
-            if (item == null) {
-                item = AppItem(uid)
-                item.total = 0
-                item.addUid(uid)
-                items.add(item)
-                knownItems.put(item.key, item)
-            }
-            item.restricted = true
+            aggregator.markRestricted(uid)
         }
 
-        val filteredItems = filterItems(carrierId, items).sorted()
+        val filteredItems = filterItems(carrierId, aggregator.toAppItems()).sorted()
         val largest: Long = filteredItems.maxOfOrNull { it.total } ?: 0
         return filteredItems.map { item ->
             val percentTotal = if (largest > 0) (item.total * 100 / largest).toInt() else 0
@@ -102,64 +92,95 @@ class AppDataUsageRepository(
         }
     }
 
+    /**
+     * Sums the usage of [buckets] per collapse key. How each UID collapses only depends on the
+     * UID, so it is resolved once per distinct UID and the totals are kept in primitive arrays.
+     */
     private fun bindStats(
         buckets: List<Bucket>,
         userIdToIsHiddenMap: Map<Int, Boolean>,
-        knownItems: SparseArray<AppItem>,
-        items: ArrayList<AppItem>,
-    ) {
+    ): UidUsageAggregator {
+        val aggregator = UidUsageAggregator()
+        // Per UID, the index of its item, or NO_ITEM if it is hidden.
+        val uidToIndex = SparseIntArray()
+        // Per UID of a managed user, the index of the item of that user.
+        val uidToUserIndex = SparseIntArray()
+        // Per user that is not a profile, whether the user still exists.
+        val userExists = SparseBooleanArray()
         for (bucket in buckets) {
-            // Decide how to collapse items together
             val uid = bucket.uid
-            val collapseKey: Int
-            val category: Int
-            val userId = UserHandle.getUserId(uid)
-            if(userIdToIsHiddenMap[userId] == true) {
+            var index = uidToIndex.get(uid, UNRESOLVED)
+            if (index == UNRESOLVED) {
+                index = resolveUid(uid, userIdToIsHiddenMap, userExists, aggregator,
+                    uidToUserIndex)
+                uidToIndex.put(uid, index)
+            }
+            if (index == NO_ITEM) {
                 continue
             }
-            if (UserHandle.isApp(uid) || Process.isSdkSandboxUid(uid)) {
-                if (userIdToIsHiddenMap.keys.contains(userId)) {
-                    if (userId != currentUserId) {
-                        // Add to a managed user item.
-                        accumulate(
-                            collapseKey = UidDetailProvider.buildKeyForUser(userId),
-                            knownItems = knownItems,
-                            bucket = bucket,
-                            itemCategory = AppItem.CATEGORY_USER,
-                            items = items,
-                        )
-                    }
-                    collapseKey = getAppUid(uid)
-                    category = AppItem.CATEGORY_APP
-                } else {
-                    // If it is a removed user add it to the removed users' key
-                    if (context.userManager.getUserInfo(userId) == null) {
-                        collapseKey = NetworkStats.Bucket.UID_REMOVED
-                        category = AppItem.CATEGORY_APP
-                    } else {
-                        // Add to other user item.
-                        collapseKey = UidDetailProvider.buildKeyForUser(userId)
-                        category = AppItem.CATEGORY_USER
-                    }
+            val userIndex = uidToUserIndex.get(uid, NO_ITEM)
+            if (userIndex != NO_ITEM) {
+                aggregator.add(userIndex, bucket.bytes)
+            }
+            aggregator.add(index, bucket.bytes)
+        }
+        return aggregator
+    }
+
+    /** Decides how to collapse [uid] and returns the index of its item. */
+    private fun resolveUid(
+        uid: Int,
+        userIdToIsHiddenMap: Map<Int, Boolean>,
+        userExists: SparseBooleanArray,
+        aggregator: UidUsageAggregator,
+        uidToUserIndex: SparseIntArray,
+    ): Int {
+        val collapseKey: Int
+        val category: Int
+        val userId = UserHandle.getUserId(uid)
+        if (userIdToIsHiddenMap[userId] == true) {
+            return NO_ITEM
+        }
+        if (UserHandle.isApp(uid) || Process.isSdkSandboxUid(uid)) {
+            if (userIdToIsHiddenMap.keys.contains(userId)) {
+                if (userId != currentUserId) {
+                    // Add to a managed user item.
+                    uidToUserIndex.put(uid, aggregator.indexFor(
+                        collapseKey = UidDetailProvider.buildKeyForUser(userId),
+                        category = AppItem.CATEGORY_USER,
+                        uid = uid,
+                    ))
                 }
-            } else if (uid == NetworkStats.Bucket.UID_REMOVED ||
-                uid == NetworkStats.Bucket.UID_TETHERING ||
-                uid == Process.OTA_UPDATE_UID
-            ) {
-                collapseKey = uid
+                collapseKey = getAppUid(uid)
                 category = AppItem.CATEGORY_APP
             } else {
-                collapseKey = Process.SYSTEM_UID
-                category = AppItem.CATEGORY_APP
+                val exists = if (userExists.indexOfKey(userId) >= 0) {
+                    userExists[userId]
+                } else {
+                    (context.userManager.getUserInfo(userId) != null)
+                        .also { userExists.put(userId, it) }
+                }
+                // If it is a removed user add it to the removed users' key
+                if (!exists) {
+                    collapseKey = NetworkStats.Bucket.UID_REMOVED
+                    category = AppItem.CATEGORY_APP
+                } else {
+                    // Add to other user item.
+                    collapseKey = UidDetailProvider.buildKeyForUser(userId)
+                    category = AppItem.CATEGORY_USER
+                }
             }
-            accumulate(
-                collapseKey = collapseKey,
-                knownItems = knownItems,
-                bucket = bucket,
-                itemCategory = category,
-                items = items,
-            )
+        } else if (uid == NetworkStats.Bucket.UID_REMOVED ||
+            uid == NetworkStats.Bucket.UID_TETHERING ||
+            uid == Process.OTA_UPDATE_UID
+        ) {
+            collapseKey = uid
+            category = AppItem.CATEGORY_APP
+        } else {
+            collapseKey = Process.SYSTEM_UID
+            category = AppItem.CATEGORY_APP
         }
+        return aggregator.indexFor(collapseKey = collapseKey, category = category, uid = uid)
     }
 
     private fun shouldSkipProfile(userManager : UserManager, userHandle: UserHandle): Boolean {
@@ -174,33 +195,79 @@ class AppDataUsageRepository(
     }
 
     /**
-     * Accumulate data usage of a network stats entry for the item mapped by the collapse key.
-     * Creates the item if needed.
-     *
-     * @param collapseKey  the collapse key used to map the item.
-     * @param knownItems   collection of known (already existing) items.
-     * @param bucket       the network stats bucket to extract data usage from.
-     * @param itemCategory the item is categorized on the list view by this category. Must be
+     * Usage totals per collapse key, kept in primitive arrays indexed in the order the keys are
+     * first seen. [AppItem]s are only created once every bucket has been added.
      */
-    private fun accumulate(
-        collapseKey: Int,
-        knownItems: SparseArray<AppItem>,
-        bucket: Bucket,
-        itemCategory: Int,
-        items: ArrayList<AppItem>,
-    ) {
-        var item = knownItems[collapseKey]
-        if (item == null) {
-            item = AppItem(collapseKey)
-            item.category = itemCategory
-            items.add(item)
-            knownItems.put(item.key, item)
-        }
-        item.addUid(bucket.uid)
-        item.total += bucket.bytes
+    private class UidUsageAggregator {
+        private val keyToIndex = SparseIntArray()
+        private var keys = IntArray(INITIAL_CAPACITY)
+        private var categories = IntArray(INITIAL_CAPACITY)
+        private var totals = LongArray(INITIAL_CAPACITY)
+        private var restricted = BooleanArray(INITIAL_CAPACITY)
+        private val uids = ArrayList<SparseBooleanArray>()
+        private var size = 0
+
+        /** Returns the index of the item of [collapseKey], creating it if needed. */
+        fun indexFor(collapseKey: Int, category: Int, uid: Int): Int {
+            var index = keyToIndex.get(collapseKey, NO_ITEM)
+            if (index == NO_ITEM) {
+                index = append(collapseKey, category)
+            }
+            uids[index].put(uid, true)
+            return index
+        }
+
+        fun add(index: Int, bytes: Long) {
+            totals[index] += bytes
+        }
+
+        /** Marks the item of [uid] as restricted, adding an empty one if it has no usage. */
+        fun markRestricted(uid: Int) {
+            var index = keyToIndex.get(uid, NO_ITEM)
+            if (index == NO_ITEM) {
+                index = append(uid, AppItem.CATEGORY_APP)
+                uids[index].put(uid, true)
+            }
+            restricted[index] = true
+        }
+
+        fun toAppItems(): List<AppItem> = List(size) { index ->
+            AppItem(keys[index]).apply {
+                category = categories[index]
+                total = totals[index]
+                restricted = this@UidUsageAggregator.restricted[index]
+                val itemUids = this@UidUsageAggregator.uids[index]
+                for (i in 0 until itemUids.size()) {
+                    addUid(itemUids.keyAt(i))
+                }
+            }
+        }
+
+        private fun append(collapseKey: Int, category: Int): Int {
+            if (size == keys.size) {
+                val capacity = size * 2
+                keys = keys.copyOf(capacity)
+                categories = categories.copyOf(capacity)
+                totals = totals.copyOf(capacity)
+                restricted = restricted.copyOf(capacity)
+            }
+            val index = size++
+            keys[index] = collapseKey
+            categories[index] = category
+            uids += SparseBooleanArray()
+            keyToIndex.put(collapseKey, index)
+            return index
+        }
+
+        private companion object {
+            const val INITIAL_CAPACITY = 32
+        }
     }
 
     companion object {
+        private const val UNRESOLVED = -2
+        private const val NO_ITEM = -1
+
         @JvmStatic
         fun getAppUidList(uids: SparseBooleanArray) =
             uids.keyIterator().asSequence().map { getAppUid(it) }.distinct().toList()
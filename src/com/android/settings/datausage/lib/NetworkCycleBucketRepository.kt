@@ -22,27 +22,28 @@ import android.util.Range
 import com.android.settings.datausage.lib.NetworkCycleDataRepository.Companion.asFourWeeks
 import com.android.settings.datausage.lib.NetworkCycleDataRepository.Companion.bucketRange
 import com.android.settings.datausage.lib.NetworkCycleDataRepository.Companion.getCycles
-import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.Bucket
-import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.aggregate
-import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.filterTime
 
+/**
+ * Answers the usage of the cycles and of the days of a cycle from the [index] of the device
+ * history, without querying NetworkStatsManager again.
+ */
 class NetworkCycleBucketRepository(
     context: Context,
     networkTemplate: NetworkTemplate,
-    private val buckets: List<Bucket>,
+    private val index: NetworkUsageIndex,
     private val networkCycleDataRepository: NetworkCycleDataRepository =
         NetworkCycleDataRepository(context, networkTemplate)
 ) {
 
     fun loadCycles(): List<NetworkUsageData> =
-        getCycles().map { aggregateUsage(it) }.filter { it.usage > 0 }
+        getCycles().map { index.queryUsage(it) }.filter { it.usage > 0 }
 
     private fun getCycles(): List<Range<Long>> =
         networkCycleDataRepository.getPolicy()?.getCycles().orEmpty()
             .ifEmpty { queryCyclesAsFourWeeks() }
 
     private fun queryCyclesAsFourWeeks(): List<Range<Long>> =
-        buckets.aggregate()?.timeRange.asFourWeeks()
+        index.timeRange.asFourWeeks()
 
     fun queryChartData(usageData: NetworkUsageData) = NetworkCycleChartData(
         total = usageData,
@@ -50,12 +51,6 @@ class NetworkCycleBucketRepository(
             startTime = usageData.startTime,
             endTime = usageData.endTime,
             step = NetworkCycleChartData.BUCKET_DURATION.inWholeMilliseconds,
-        ).map { aggregateUsage(it) },
-    )
-
-    private fun aggregateUsage(range: Range<Long>) = NetworkUsageData(
-        startTime = range.lower,
-        endTime = range.upper,
-        usage = buckets.filterTime(range.lower, range.upper).aggregate()?.usage ?: 0,
+        ).map { index.queryUsage(it) },
     )
 }
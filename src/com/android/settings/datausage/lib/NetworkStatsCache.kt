@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage.lib
+
+import android.net.NetworkTemplate
+import android.os.SystemClock
+import android.util.LruCache
+import androidx.annotation.VisibleForTesting
+import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.Bucket
+
+/**
+ * Process-wide cache of the network stats queried for each [NetworkTemplate].
+ *
+ * The bucketed device history is queried once and then only its tail, from the start of the last
+ * bucket, is queried again once it is older than [MAX_AGE_MILLIS]. Range and per-UID results are
+ * kept for [MAX_AGE_MILLIS], so the repositories and controllers of one data usage page share the
+ * same answers instead of each querying NetworkStatsManager. Ranges ending in the future still
+ * grow, so they are only kept for [OPEN_RANGE_MAX_AGE_MILLIS].
+ *
+ * Only results are kept, never the querying objects, so the cache does not hold on to any Context.
+ * It must be invalidated when the stats or the policies they are queried for are reset.
+ */
+class NetworkStatsCache @VisibleForTesting constructor(
+    private val elapsedRealtime: () -> Long,
+    private val currentTimeMillis: () -> Long,
+) {
+    private class TimedValue(val value: Any?, val time: Long, val maxAge: Long)
+
+    private class Entry {
+        var deviceBuckets: List<Bucket>? = null
+        var deviceBucketsTime = 0L
+        val results = object : LinkedHashMap<Any, TimedValue>(16, 0.75f, true) {
+            override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Any, TimedValue>) =
+                size > MAX_RESULTS_PER_TEMPLATE
+        }
+    }
+
+    private val entries = LruCache<NetworkTemplate, Entry>(MAX_TEMPLATES)
+
+    /**
+     * Returns the whole bucketed device history, using [queryAll] the first time and
+     * [queryFrom] to refresh the tail of the cached history afterwards.
+     */
+    fun getDeviceBuckets(
+        template: NetworkTemplate,
+        queryAll: () -> List<Bucket>,
+        queryFrom: (startTime: Long) -> List<Bucket>,
+    ): List<Bucket> {
+        val entry = getEntry(template)
+        synchronized(entry) {
+            val now = elapsedRealtime()
+            val cached = entry.deviceBuckets
+            val buckets = when {
+                cached != null && now - entry.deviceBucketsTime < MAX_AGE_MILLIS -> return cached
+                cached.isNullOrEmpty() -> queryAll()
+                else -> {
+                    // Only the last bucket may still be growing, so refresh from its start.
+                    val tailStart = cached.maxOf { it.startTimeStamp }
+                    cached.filter { it.startTimeStamp < tailStart } + queryFrom(tailStart)
+                }
+            }
+            entry.deviceBuckets = buckets
+            entry.deviceBucketsTime = now
+            return buckets
+        }
+    }
+
+    /**
+     * Returns the result cached under [key] if it is recent enough, otherwise the result of
+     * [query]. [endTime] is the end of the queried range, in wall clock time. Nothing is cached if
+     * [query] throws.
+     */
+    @Suppress("UNCHECKED_CAST")
+    fun <T> getOrQuery(template: NetworkTemplate, key: Any, endTime: Long, query: () -> T): T {
+        val entry = getEntry(template)
+        synchronized(entry) {
+            val now = elapsedRealtime()
+            val cached = entry.results[key]
+            if (cached != null && now - cached.time < cached.maxAge) {
+                return cached.value as T
+            }
+            val maxAge =
+                if (endTime > currentTimeMillis()) OPEN_RANGE_MAX_AGE_MILLIS else MAX_AGE_MILLIS
+            return query().also { entry.results[key] = TimedValue(it, now, maxAge) }
+        }
+    }
+
+    /** Drops everything, e.g. after the network policies or the usage cycle changed. */
+    fun invalidate() {
+        entries.evictAll()
+    }
+
+    private fun getEntry(template: NetworkTemplate): Entry =
+        synchronized(entries) {
+            entries[template] ?: Entry().also { entries.put(template, it) }
+        }
+
+    companion object {
+        @VisibleForTesting
+        const val MAX_AGE_MILLIS = 30_000L
+
+        @VisibleForTesting
+        const val OPEN_RANGE_MAX_AGE_MILLIS = 2_000L
+
+        private const val MAX_TEMPLATES = 8
+        private const val MAX_RESULTS_PER_TEMPLATE = 256
+
+        @JvmStatic
+        val instance = NetworkStatsCache(SystemClock::elapsedRealtime, System::currentTimeMillis)
+    }
+}
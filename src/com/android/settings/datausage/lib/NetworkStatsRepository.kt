@@ -23,46 +23,71 @@ import android.net.NetworkTemplate
 import android.util.Log
 import android.util.Range
 
-class NetworkStatsRepository(context: Context, private val template: NetworkTemplate) {
-    private val networkStatsManager = context.getSystemService(NetworkStatsManager::class.java)!!
+class NetworkStatsRepository(
+    context: Context,
+    private val template: NetworkTemplate,
+    private val cache: NetworkStatsCache = NetworkStatsCache.instance,
+) {
+    private val networkStatsManager =
+        context.applicationContext.getSystemService(NetworkStatsManager::class.java)!!
 
     fun queryAggregateForUid(
         range: Range<Long>,
         uid: Int,
         state: Int = NetworkStats.Bucket.STATE_ALL,
     ): NetworkUsageData? = try {
-        networkStatsManager.queryDetailsForUidTagState(
-            template, range.lower, range.upper, uid, NetworkStats.Bucket.TAG_NONE, state,
-        ).convertToBuckets().aggregate()
+        cached(UidAggregateKey(range, uid, state), range.upper) {
+            networkStatsManager.queryDetailsForUidTagState(
+                template, range.lower, range.upper, uid, NetworkStats.Bucket.TAG_NONE, state,
+            ).convertToBuckets().aggregate()
+        }
     } catch (e: Exception) {
         Log.e(TAG, "Exception queryDetailsForUidTagState", e)
         null
     }
 
     fun queryDetailsForDevice(): List<Bucket> = try {
-        networkStatsManager.queryDetailsForDevice(template, Long.MIN_VALUE, Long.MAX_VALUE)
-            .convertToBuckets()
+        cache.getDeviceBuckets(
+            template = template,
+            queryAll = { queryDeviceBucketsFrom(Long.MIN_VALUE) },
+            queryFrom = ::queryDeviceBucketsFrom,
+        )
     } catch (e: Exception) {
         Log.e(TAG, "Exception queryDetailsForDevice", e)
         emptyList()
     }
 
+    private fun queryDeviceBucketsFrom(startTime: Long): List<Bucket> =
+        networkStatsManager.queryDetailsForDevice(template, startTime, Long.MAX_VALUE)
+            .convertToBuckets()
+
     fun getTimeRange(): Range<Long>? = queryDetailsForDevice().aggregate()?.timeRange
 
     fun querySummaryForDevice(startTime: Long, endTime: Long): Long = try {
-        networkStatsManager.querySummaryForDevice(template, startTime, endTime).bytes
+        cached(DeviceSummaryKey(startTime, endTime), endTime) {
+            networkStatsManager.querySummaryForDevice(template, startTime, endTime).bytes
+        }
     } catch (e: Exception) {
         Log.e(TAG, "Exception querySummaryForDevice", e)
         0
     }
 
     fun queryBuckets(startTime: Long, endTime: Long): List<Bucket> = try {
-        networkStatsManager.querySummary(template, startTime, endTime).convertToBuckets()
+        cached(UidBucketsKey(startTime, endTime), endTime) {
+            networkStatsManager.querySummary(template, startTime, endTime).convertToBuckets()
+        }
     } catch (e: Exception) {
         Log.e(TAG, "Exception querySummary", e)
         emptyList()
     }
 
+    private fun <T> cached(key: Any, endTime: Long, query: () -> T): T =
+        cache.getOrQuery(template, key, endTime, query)
+
+    private data class UidAggregateKey(val range: Range<Long>, val uid: Int, val state: Int)
+    private data class DeviceSummaryKey(val startTime: Long, val endTime: Long)
+    private data class UidBucketsKey(val startTime: Long, val endTime: Long)
+
     companion object {
         private const val TAG = "NetworkStatsRepository"
 
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage.lib
+
+import android.util.Range
+import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.Bucket
+
+/**
+ * Index of the bucketed device usage history, answering the usage of any time range with two
+ * binary searches over prefix sums instead of a pass over all buckets.
+ *
+ * A range covers the same buckets as [NetworkStatsRepository.filterTime], i.e. those starting at
+ * or after its start and ending at or before its end. Buckets must not overlap, which holds for
+ * the history returned by [NetworkStatsRepository.queryDetailsForDevice].
+ */
+class NetworkUsageIndex private constructor(
+    private val buckets: List<Bucket>,
+    private val startTimes: LongArray,
+    private val endTimes: LongArray,
+    /** Sum of the bytes of the first i buckets at index i, so one entry more than buckets. */
+    private val prefixBytes: LongArray,
+) {
+    val size: Int
+        get() = buckets.size
+
+    /** The time range covered by the history, or null if it is empty. */
+    val timeRange: Range<Long>?
+        get() = if (buckets.isEmpty()) null else Range(startTimes.first(), endTimes.max())
+
+    /** Returns the bytes used by the buckets within [startTime] and [endTime]. */
+    fun queryUsage(startTime: Long, endTime: Long): Long {
+        val from = lowerBound(startTimes, startTime)
+        // Buckets do not overlap, so their end times are sorted as well.
+        val to = upperBound(endTimes, endTime)
+        return if (to > from) prefixBytes[to] - prefixBytes[from] else 0
+    }
+
+    fun queryUsage(range: Range<Long>) = NetworkUsageData(
+        startTime = range.lower,
+        endTime = range.upper,
+        usage = queryUsage(range.lower, range.upper),
+    )
+
+    /**
+     * Returns the index of [newBuckets], the history queried again after new data arrived.
+     *
+     * Only the last bucket may still have grown since this index was built, as assumed by
+     * [NetworkStatsCache.getDeviceBuckets], so the other buckets keep their prefix sums and only
+     * the new tail is sorted and summed. Falls back to a full build if any of the other buckets
+     * changed, e.g. because the history was reset.
+     */
+    fun update(newBuckets: List<Bucket>): NetworkUsageIndex {
+        val kept = size - 1
+        if (kept <= 0 || newBuckets.size < kept ||
+            newBuckets.subList(0, kept) != buckets.subList(0, kept)
+        ) {
+            return build(newBuckets)
+        }
+        val tail = newBuckets.subList(kept, newBuckets.size).sortedBy { it.startTimeStamp }
+        if (tail.isNotEmpty() && tail.first().startTimeStamp < startTimes[kept - 1]) {
+            return build(newBuckets)
+        }
+        return create(buckets.subList(0, kept) + tail, startTimes, endTimes, prefixBytes, kept)
+    }
+
+    companion object {
+        val EMPTY = build(emptyList())
+
+        fun build(buckets: List<Bucket>): NetworkUsageIndex =
+            create(buckets.sortedBy { it.startTimeStamp }, null, null, null, 0)
+
+        /**
+         * Creates the index of the sorted [buckets], copying the arrays of the first [kept] ones
+         * from a previous index.
+         */
+        private fun create(
+            buckets: List<Bucket>,
+            keptStartTimes: LongArray?,
+            keptEndTimes: LongArray?,
+            keptPrefixBytes: LongArray?,
+            kept: Int,
+        ): NetworkUsageIndex {
+            val startTimes = LongArray(buckets.size)
+            val endTimes = LongArray(buckets.size)
+            val prefixBytes = LongArray(buckets.size + 1)
+            if (kept > 0) {
+                System.arraycopy(keptStartTimes!!, 0, startTimes, 0, kept)
+                System.arraycopy(keptEndTimes!!, 0, endTimes, 0, kept)
+                System.arraycopy(keptPrefixBytes!!, 0, prefixBytes, 0, kept + 1)
+            }
+            for (i in kept until buckets.size) {
+                val bucket = buckets[i]
+                startTimes[i] = bucket.startTimeStamp
+                endTimes[i] = bucket.endTimeStamp
+                prefixBytes[i + 1] = prefixBytes[i] + bucket.bytes
+            }
+            return NetworkUsageIndex(buckets, startTimes, endTimes, prefixBytes)
+        }
+
+        /** Returns the index of the first value not less than [key]. */
+        private fun lowerBound(values: LongArray, key: Long): Int {
+            var low = 0
+            var high = values.size
+            while (low < high) {
+                val mid = (low + high) ushr 1
+                if (values[mid] < key) low = mid + 1 else high = mid
+            }
+            return low
+        }
+
+        /** Returns the index of the first value greater than [key]. */
+        private fun upperBound(values: LongArray, key: Long): Int {
+            var low = 0
+            var high = values.size
+            while (low < high) {
+                val mid = (low + high) ushr 1
+                if (values[mid] <= key) low = mid + 1 else high = mid
+            }
+            return low
+        }
+    }
+}
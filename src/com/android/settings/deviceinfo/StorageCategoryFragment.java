@@ -50,6 +50,7 @@ import com.android.settingslib.applications.StorageStatsSource;
 import com.android.settingslib.core.AbstractPreferenceController;
 import com.android.settingslib.deviceinfo.PrivateStorageInfo;
 import com.android.settingslib.deviceinfo.StorageManagerVolumeProvider;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -121,7 +122,7 @@ public class StorageCategoryFragment extends DashboardFragment
             mStorageInfo = null;
             mAppsResult = null;
             if (mStorageCacheHelper.hasCachedSizeInfo()) {
-                mPreferenceController.onLoadFinished(mAppsResult, mUserId);
+                showCachedSizeInfo();
             } else {
                 maybeSetLoading(isQuotaSupported());
                 // To prevent flicker, sets null volume to hide category preferences.
@@ -139,6 +140,31 @@ public class StorageCategoryFragment extends DashboardFragment
         }
     }
 
+    /**
+     * Shows the cached category sizes of the current user, then the complete breakdown of the
+     * last load once the snapshot of the selected volume is read in the background.
+     */
+    private void showCachedSizeInfo() {
+        mPreferenceController.onLoadFinished(null /* result */, mUserId);
+        final StorageEntry storageEntry = mSelectedStorageEntry;
+        final StorageCacheHelper cacheHelper = mStorageCacheHelper;
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final StorageCacheHelper.StorageSnapshot snapshot =
+                    cacheHelper.retrieveSnapshot(storageEntry.getFsUuid());
+            if (snapshot == null || snapshot.results.get(mUserId) == null) {
+                return;
+            }
+            ThreadUtils.postOnMainThread(() -> {
+                // The loader result, when already received, is more recent.
+                if (!isAdded() || mAppsResult != null || mSelectedStorageEntry != storageEntry) {
+                    return;
+                }
+                mPreferenceController.onLoadFinished(snapshot.results, mUserId);
+                updateNonCurrentUserControllers(mNonCurrentUsers, snapshot.results);
+            });
+        });
+    }
+
     @Override
     public void onCreate(Bundle icicle) {
         super.onCreate(icicle);
@@ -281,10 +307,16 @@ public class StorageCategoryFragment extends DashboardFragment
     public Loader<SparseArray<StorageAsyncLoader.StorageResult>> onCreateLoader(int id,
             Bundle args) {
         final Context context = getContext();
-        return new StorageAsyncLoader(context, mUserManager,
+        final StorageAsyncLoader loader = new StorageAsyncLoader(context, mUserManager,
                 mSelectedStorageEntry.getFsUuid(),
                 new StorageStatsSource(context),
-                context.getPackageManager());
+                context.getPackageManager(), mUserId);
+        // Only refine the categories in place when they are already shown from the cache.
+        if (mStorageCacheHelper.hasCachedSizeInfo()) {
+            loader.setPartialResultListener(
+                    (userId, result) -> mPreferenceController.onPartialResult(userId, result));
+        }
+        return loader;
     }
 
     @Override
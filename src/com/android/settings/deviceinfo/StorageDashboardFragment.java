@@ -61,6 +61,7 @@ import com.android.settingslib.core.AbstractPreferenceController;
 import com.android.settingslib.deviceinfo.PrivateStorageInfo;
 import com.android.settingslib.deviceinfo.StorageManagerVolumeProvider;
 import com.android.settingslib.search.SearchIndexable;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -255,8 +256,7 @@ public class StorageDashboardFragment extends DashboardFragment
             mAppsResult = null;
             // Hide the loading spinner if there is cached data.
             if (mStorageCacheHelper.hasCachedSizeInfo()) {
-                //TODO(b/220259287): apply cache mechanism to non-current user
-                mPreferenceController.onLoadFinished(mAppsResult, mUserId);
+                showCachedSizeInfo();
             } else {
                 maybeSetLoading(isQuotaSupported());
                 // To prevent flicker, sets null volume to hide category preferences.
@@ -273,6 +273,31 @@ public class StorageDashboardFragment extends DashboardFragment
         }
     }
 
+    /**
+     * Shows the cached category sizes of the current user, then the complete breakdown of the
+     * last load once the snapshot of the selected volume is read in the background.
+     */
+    private void showCachedSizeInfo() {
+        mPreferenceController.onLoadFinished(null /* result */, mUserId);
+        final StorageEntry storageEntry = mSelectedStorageEntry;
+        final StorageCacheHelper cacheHelper = mStorageCacheHelper;
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final StorageCacheHelper.StorageSnapshot snapshot =
+                    cacheHelper.retrieveSnapshot(storageEntry.getFsUuid());
+            if (snapshot == null || snapshot.results.get(mUserId) == null) {
+                return;
+            }
+            ThreadUtils.postOnMainThread(() -> {
+                // The loader result, when already received, is more recent.
+                if (!isAdded() || mAppsResult != null || mSelectedStorageEntry != storageEntry) {
+                    return;
+                }
+                mPreferenceController.onLoadFinished(snapshot.results, mUserId);
+                updateNonCurrentUserControllers(mNonCurrentUsers, snapshot.results);
+            });
+        });
+    }
+
     @Override
     public void onCreate(Bundle icicle) {
         super.onCreate(icicle);
@@ -478,10 +503,16 @@ public class StorageDashboardFragment extends DashboardFragment
     public Loader<SparseArray<StorageAsyncLoader.StorageResult>> onCreateLoader(int id,
             Bundle args) {
         final Context context = getContext();
-        return new StorageAsyncLoader(context, mUserManager,
+        final StorageAsyncLoader loader = new StorageAsyncLoader(context, mUserManager,
                 mSelectedStorageEntry.getFsUuid(),
                 new StorageStatsSource(context),
-                context.getPackageManager());
+                context.getPackageManager(), mUserId);
+        // Only refine the categories in place when they are already shown from the cache.
+        if (mStorageCacheHelper.hasCachedSizeInfo()) {
+            loader.setPartialResultListener(
+                    (userId, result) -> mPreferenceController.onPartialResult(userId, result));
+        }
+        return loader;
     }
 
     @Override
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.deviceinfo.storage;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.provider.MediaStore.MediaColumns;
+import android.text.TextUtils;
+import android.util.ArrayMap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Map;
+
+/**
+ * Caches the total size of each MediaStore storage category together with the MediaStore
+ * generation it was computed at.
+ *
+ * <p>When the generation has not moved, the cached total is returned without any query. When it
+ * has, only the rows added since are summed, and two cheap counts confirm that no existing row
+ * of the category was modified or deleted. Anything else falls back to the full sum query.
+ */
+class MediaStoreSizeCache {
+
+    private static final String[] SUM_AND_COUNT_PROJECTION =
+            new String[] {"sum(" + MediaColumns.SIZE + ")", "count(*)"};
+    private static final String[] COUNT_PROJECTION = new String[] {"count(*)"};
+
+    private static final MediaStoreSizeCache sInstance = new MediaStoreSizeCache();
+
+    private final Map<String, CategorySize> mSizes = new ArrayMap<>();
+
+    /** Runs an aggregate query and returns the values of its first row. */
+    @VisibleForTesting
+    interface Querier {
+        long[] query(Uri uri, String[] projection, Bundle queryArgs);
+    }
+
+    static MediaStoreSizeCache getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    MediaStoreSizeCache() {
+    }
+
+    /**
+     * Returns the total size of a category.
+     *
+     * @param key identifies the user and category, e.g. {@code "0/images"}.
+     * @param version the MediaStore version of the volume. Generations are only comparable
+     *                within the same version.
+     * @param generation the current MediaStore generation of the volume, or a negative value if
+     *                   unknown, in which case the full query always runs.
+     */
+    long getSize(@NonNull ContentResolver resolver, @NonNull String key, @NonNull Uri uri,
+            @NonNull Bundle queryArgs, String version, long generation) {
+        return getSize(
+                (queryUri, projection, args) -> query(resolver, queryUri, projection, args),
+                key, uri, queryArgs, version, generation);
+    }
+
+    @VisibleForTesting
+    long getSize(Querier querier, String key, Uri uri, Bundle queryArgs, String version,
+            long generation) {
+        final CategorySize cached;
+        synchronized (mSizes) {
+            cached = mSizes.get(key);
+        }
+        if (generation < 0) {
+            return querier.query(uri, SUM_AND_COUNT_PROJECTION, queryArgs)[0];
+        }
+
+        CategorySize updated = null;
+        if (cached != null && TextUtils.equals(cached.mVersion, version)
+                && generation >= cached.mGeneration) {
+            updated = generation == cached.mGeneration
+                    ? cached : queryDelta(querier, cached, uri, queryArgs, generation);
+        }
+        if (updated == null) {
+            final long[] sumAndCount = querier.query(uri, SUM_AND_COUNT_PROJECTION, queryArgs);
+            updated = new CategorySize(version, generation, sumAndCount[0], sumAndCount[1]);
+        }
+        if (updated != cached) {
+            synchronized (mSizes) {
+                mSizes.put(key, updated);
+            }
+        }
+        return updated.mSize;
+    }
+
+    /**
+     * Returns the new total computed from the rows added since {@code cached}, or null if rows
+     * that were already counted have been modified or deleted.
+     */
+    private CategorySize queryDelta(Querier querier, CategorySize cached, Uri uri,
+            Bundle queryArgs, long generation) {
+        final long[] modified = querier.query(uri, COUNT_PROJECTION, withSelection(queryArgs,
+                MediaColumns.GENERATION_MODIFIED + ">" + cached.mGeneration
+                        + " AND " + MediaColumns.GENERATION_ADDED + "<=" + cached.mGeneration));
+        if (modified[0] != 0) {
+            return null;
+        }
+        final long[] added = querier.query(uri, SUM_AND_COUNT_PROJECTION, withSelection(
+                queryArgs, MediaColumns.GENERATION_ADDED + ">" + cached.mGeneration));
+        final long[] count = querier.query(uri, COUNT_PROJECTION, queryArgs);
+        if (count[0] != cached.mCount + added[1]) {
+            // Rows were deleted.
+            return null;
+        }
+        return new CategorySize(cached.mVersion, generation, cached.mSize + added[0], count[0]);
+    }
+
+    private static Bundle withSelection(Bundle queryArgs, String selection) {
+        final Bundle args = new Bundle(queryArgs);
+        final String base = queryArgs.getString(ContentResolver.QUERY_ARG_SQL_SELECTION);
+        args.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
+                TextUtils.isEmpty(base) ? selection : "(" + base + ") AND " + selection);
+        return args;
+    }
+
+    private static long[] query(ContentResolver resolver, Uri uri, String[] projection,
+            Bundle queryArgs) {
+        final long[] values = new long[projection.length];
+        try (Cursor cursor = resolver.query(uri, projection, queryArgs,
+                null /* cancellationSignal */)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = cursor.getLong(i);
+                }
+            }
+        }
+        return values;
+    }
+
+    private static final class CategorySize {
+        final String mVersion;
+        final long mGeneration;
+        final long mSize;
+        final long mCount;
+
+        CategorySize(String version, long generation, long size, long count) {
+            mVersion = version;
+            mGeneration = generation;
+            mSize = size;
+            mCount = count;
+        }
+    }
+}
@@ -24,29 +24,43 @@ import static android.content.pm.ApplicationInfo.CATEGORY_VIDEO;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
+import android.content.pm.ChangedPackages;
 import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
 import android.content.pm.UserInfo;
-import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Environment;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.os.storage.StorageManager;
 import android.provider.MediaStore;
 import android.provider.MediaStore.Files.FileColumns;
 import android.provider.MediaStore.MediaColumns;
+import android.provider.Settings;
 import android.util.ArraySet;
 import android.util.Log;
 import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import com.android.settingslib.applications.StorageStatsSource;
 import com.android.settingslib.utils.AsyncLoaderCompat;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * StorageAsyncLoader is a Loader which loads categorized app information and external stats for all
@@ -56,99 +70,282 @@ public class StorageAsyncLoader
         extends AsyncLoaderCompat<SparseArray<StorageAsyncLoader.StorageResult>> {
     private UserManager mUserManager;
     private static final String TAG = "StorageAsyncLoader";
+    private static final int MAX_SIZING_THREADS = 4;
+    private static final long SIZING_THREAD_KEEP_ALIVE_SECONDS = 30L;
+    // Sizes of app data and caches drift without any package or media change, so an unchanged
+    // snapshot is only trusted for this long.
+    private static final long MAX_SNAPSHOT_AGE_MS = 10 * 60 * 1000L;
+
+    private static ExecutorService sSizingExecutor;
 
     private String mUuid;
     private StorageStatsSource mStatsManager;
     private PackageManager mPackageManager;
+    private int mSnapshotUserId;
     private ArraySet<String> mSeenPackages;
+    private volatile PartialResultListener mPartialResultListener;
 
     public StorageAsyncLoader(Context context, UserManager userManager,
             String uuid, StorageStatsSource source, PackageManager pm) {
+        this(context, userManager, uuid, source, pm, UserHandle.myUserId());
+    }
+
+    /**
+     * @param snapshotUserId the user whose {@link StorageCacheHelper} keeps the snapshot of the
+     *                       loaded sizes, the profile shown by the storage page.
+     */
+    public StorageAsyncLoader(Context context, UserManager userManager,
+            String uuid, StorageStatsSource source, PackageManager pm, int snapshotUserId) {
         super(context);
         mUserManager = userManager;
         mUuid = uuid;
         mStatsManager = source;
         mPackageManager = pm;
+        mSnapshotUserId = snapshotUserId;
     }
 
     @Override
     public SparseArray<StorageResult> loadInBackground() {
-        return getStorageResultsForUsers();
-    }
-
-    private SparseArray<StorageResult> getStorageResultsForUsers() {
-        mSeenPackages = new ArraySet<>();
-        final SparseArray<StorageResult> results = new SparseArray<>();
+        final StorageCacheHelper cacheHelper =
+                new StorageCacheHelper(getContext(), mSnapshotUserId);
         final List<UserInfo> infos = mUserManager.getUsers();
 
         // Sort the users by user id ascending.
         Collections.sort(infos,
                 (userInfo, otherUser) -> Integer.compare(userInfo.id, otherUser.id));
 
+        final int bootCount = getBootCount();
+        StorageCacheHelper.StorageSnapshot snapshot = cacheHelper.retrieveSnapshot(mUuid);
+        if (snapshot != null && (bootCount < 0 || snapshot.bootCount != bootCount)) {
+            // Package sequence numbers restart on boot.
+            snapshot = null;
+        }
+
+        // Read the generations before sizing, so that changes made while loading are picked up by
+        // the next load. Without a snapshot of this boot, this lists the changes since boot once.
+        final SparseIntArray packageSequences = new SparseIntArray(infos.size());
+        boolean packagesChanged = false;
         for (UserInfo info : infos) {
-            final StorageResult result = getAppsAndGamesSize(info.id);
-            final Bundle media = new Bundle();
-            media.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, MediaColumns.VOLUME_NAME
-                    + "= '" + MediaStore.VOLUME_EXTERNAL_PRIMARY + "'");
-            result.imagesSize = getFilesSize(info.id, MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
-                    media /* queryArgs */);
-            result.videosSize = getFilesSize(info.id, MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
-                    media /* queryArgs */);
-            result.audioSize = getFilesSize(info.id, MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
-                    media /* queryArgs */);
-            result.systemSize = getSystemSize();
-
-            final Bundle documentsQueryArgs = new Bundle();
-            documentsQueryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
-                    FileColumns.MEDIA_TYPE + "=" + FileColumns.MEDIA_TYPE_DOCUMENT);
-            result.documentsSize = getFilesSize(info.id,
-                    MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
-                    documentsQueryArgs);
-
-            final Bundle otherQueryArgs = new Bundle();
-            otherQueryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
-                    FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_IMAGE
-                            + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_VIDEO
-                            + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_AUDIO
-                            + " AND " + FileColumns.MEDIA_TYPE + "!="
-                            + FileColumns.MEDIA_TYPE_DOCUMENT
-                            + " AND " + FileColumns.MIME_TYPE + " IS NOT NULL");
-            result.otherSize = getFilesSize(info.id,
-                    MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
-                    otherQueryArgs);
-
-            final Bundle trashQueryArgs = new Bundle();
-            trashQueryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_ONLY);
-            result.trashSize = getFilesSize(info.id,
-                    MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
-                    trashQueryArgs);
-
-            results.put(info.id, result);
+            final int sequence = snapshot != null
+                    ? snapshot.packageSequences.get(info.id, 0 /* valueIfKeyNotFound */) : 0;
+            final ChangedPackages changed =
+                    getPackageManagerForUser(info.id).getChangedPackages(sequence);
+            if (changed != null) {
+                packagesChanged = true;
+                packageSequences.put(info.id, changed.getSequenceNumber());
+            } else {
+                packageSequences.put(info.id, sequence);
+            }
+        }
+        if (snapshot != null && !packagesChanged && isSnapshotCurrent(snapshot, infos)) {
+            Log.d(TAG, "Packages and media unchanged, reusing storage snapshot");
+            return snapshot.results;
+        }
+
+        final SparseArray<StorageResult> results = getStorageResultsForUsers(infos);
+        if (bootCount >= 0) {
+            cacheHelper.cacheSnapshot(mUuid, new StorageCacheHelper.StorageSnapshot(
+                    System.currentTimeMillis(), bootCount, packageSequences, results));
         }
         return results;
     }
 
-    private long getFilesSize(int userId, Uri uri, Bundle queryArgs) {
-        final Context perUserContext;
+    /**
+     * Returns true if {@code snapshot} is recent, the MediaStore generation of every user is the
+     * same and no user was added or removed.
+     */
+    private boolean isSnapshotCurrent(StorageCacheHelper.StorageSnapshot snapshot,
+            List<UserInfo> infos) {
+        final long age = System.currentTimeMillis() - snapshot.timestamp;
+        if (age < 0 || age > MAX_SNAPSHOT_AGE_MS || snapshot.results.size() != infos.size()) {
+            return false;
+        }
+        for (UserInfo info : infos) {
+            final StorageResult result = snapshot.results.get(info.id);
+            if (result == null || result.mediaGeneration < 0
+                    || result.mediaGeneration != getMediaGeneration(info.id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the package manager of {@code userId}, {@link PackageManager#getChangedPackages}
+     * only reports the changes of the calling user.
+     */
+    @VisibleForTesting
+    PackageManager getPackageManagerForUser(int userId) {
+        if (userId == getContext().getUserId()) {
+            return mPackageManager;
+        }
+        return getContext().createContextAsUser(UserHandle.of(userId), 0 /* flags */)
+                .getPackageManager();
+    }
+
+    private int getBootCount() {
+        return Settings.Global.getInt(getContext().getContentResolver(),
+                Settings.Global.BOOT_COUNT, -1);
+    }
+
+    private long getMediaGeneration(int userId) {
+        final Context perUserContext = getUserContext(userId);
+        if (perUserContext == null) {
+            return -1L;
+        }
+        try {
+            return MediaStore.getGeneration(perUserContext, MediaStore.VOLUME_EXTERNAL_PRIMARY);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Unable to read MediaStore generation for user " + userId, e);
+            return -1L;
+        }
+    }
+
+    @Nullable
+    private Context getUserContext(int userId) {
         try {
-            perUserContext = getContext().createPackageContextAsUser(
+            return getContext().createPackageContextAsUser(
                 getContext().getApplicationContext().getPackageName(),
                 0 /* flags= */,
                 UserHandle.of(userId));
         } catch (NameNotFoundException e) {
             Log.e(TAG, "Not able to get Context for user ID " + userId);
-            return 0L;
+            return null;
+        }
+    }
+
+    private SparseArray<StorageResult> getStorageResultsForUsers(List<UserInfo> infos) {
+        final long startTime = SystemClock.elapsedRealtime();
+        mSeenPackages = new ArraySet<>();
+        final SparseArray<StorageResult> results = new SparseArray<>();
+
+        // Queue every user's file queries and app sizing up front so that they run concurrently
+        // on the bounded pool, then merge them in user order. Merging in order keeps the
+        // duplicate code size attribution identical to a sequential load.
+        final ExecutorService executor = getSizingExecutor();
+        final List<Future<StorageResult>> fileSizeFutures = new ArrayList<>(infos.size());
+        final List<List<Future<List<PackageSize>>>> appSizeFutures =
+                new ArrayList<>(infos.size());
+        for (UserInfo info : infos) {
+            final int userId = info.id;
+            fileSizeFutures.add(executor.submit(() -> getFilesSizeForUser(userId)));
+            appSizeFutures.add(submitAppSizing(executor, userId));
+        }
+
+        for (int i = 0; i < infos.size(); i++) {
+            final int userId = infos.get(i).id;
+            StorageResult result = getFuture(fileSizeFutures.get(i));
+            if (result == null) {
+                result = new StorageResult();
+            }
+            for (Future<List<PackageSize>> future : appSizeFutures.get(i)) {
+                final List<PackageSize> sizes = getFuture(future);
+                if (sizes != null) {
+                    addAppSizes(result, sizes);
+                }
+            }
+            results.put(userId, result);
+            dispatchPartialResult(userId, result);
+        }
+
+        final long duration = SystemClock.elapsedRealtime() - startTime;
+        Log.d(TAG, "Loaded storage results for " + infos.size() + " users in " + duration + "ms");
+        return results;
+    }
+
+    /**
+     * Sets a listener which is notified on the main thread each time a user's result is
+     * complete, before the whole load finishes.
+     */
+    public void setPartialResultListener(@Nullable PartialResultListener listener) {
+        mPartialResultListener = listener;
+    }
+
+    private void dispatchPartialResult(int userId, StorageResult result) {
+        final PartialResultListener listener = mPartialResultListener;
+        if (listener == null) {
+            return;
         }
+        final StorageResult snapshot = result.copy();
+        ThreadUtils.postOnMainThread(() -> listener.onPartialResult(userId, snapshot));
+    }
+
+    private StorageResult getFilesSizeForUser(int userId) {
+        final StorageResult result = new StorageResult();
+        result.mediaGeneration = getMediaGeneration(userId);
+        final MediaQuery query = new MediaQuery(userId, result.mediaGeneration);
+        final Bundle media = new Bundle();
+        media.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, MediaColumns.VOLUME_NAME
+                + "= '" + MediaStore.VOLUME_EXTERNAL_PRIMARY + "'");
+        result.imagesSize = query.getFilesSize("images",
+                MediaStore.Images.Media.EXTERNAL_CONTENT_URI, media /* queryArgs */);
+        result.videosSize = query.getFilesSize("videos",
+                MediaStore.Video.Media.EXTERNAL_CONTENT_URI, media /* queryArgs */);
+        result.audioSize = query.getFilesSize("audio",
+                MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, media /* queryArgs */);
+        result.systemSize = getSystemSize();
 
-        try (Cursor cursor = perUserContext.getContentResolver().query(
-                uri,
-                new String[] {"sum(" + MediaColumns.SIZE + ")"},
-                queryArgs,
-                null /* cancellationSignal */)) {
-            if (cursor == null) {
+        final Bundle documentsQueryArgs = new Bundle();
+        documentsQueryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
+                FileColumns.MEDIA_TYPE + "=" + FileColumns.MEDIA_TYPE_DOCUMENT);
+        result.documentsSize = query.getFilesSize("documents",
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                documentsQueryArgs);
+
+        final Bundle otherQueryArgs = new Bundle();
+        otherQueryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
+                FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_IMAGE
+                        + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_VIDEO
+                        + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_AUDIO
+                        + " AND " + FileColumns.MEDIA_TYPE + "!="
+                        + FileColumns.MEDIA_TYPE_DOCUMENT
+                        + " AND " + FileColumns.MIME_TYPE + " IS NOT NULL");
+        result.otherSize = query.getFilesSize("other",
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                otherQueryArgs);
+
+        final Bundle trashQueryArgs = new Bundle();
+        trashQueryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_ONLY);
+        result.trashSize = query.getFilesSize("trash",
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                trashQueryArgs);
+
+        Log.d(TAG, "Loading external stats");
+        try {
+            result.externalStats = mStatsManager.getExternalStorageStats(mUuid,
+                    UserHandle.of(userId));
+        } catch (IOException e) {
+            Log.w(TAG, e);
+        }
+        return result;
+    }
+
+    /**
+     * Answers the category size queries of one user through {@link MediaStoreSizeCache}, so that
+     * categories are only summed again for the rows MediaStore changed since the last load.
+     */
+    private class MediaQuery {
+        private final int mUserId;
+        private final long mGeneration;
+        private final Context mPerUserContext;
+        private final String mVersion;
+
+        MediaQuery(int userId, long generation) {
+            mUserId = userId;
+            mGeneration = generation;
+            mPerUserContext = getUserContext(userId);
+            mVersion = mPerUserContext != null && generation >= 0
+                    ? MediaStore.getVersion(mPerUserContext, MediaStore.VOLUME_EXTERNAL_PRIMARY)
+                    : null;
+        }
+
+        long getFilesSize(String category, Uri uri, Bundle queryArgs) {
+            if (mPerUserContext == null) {
                 return 0L;
             }
-            return cursor.moveToFirst() ? cursor.getLong(0) : 0L;
+            return MediaStoreSizeCache.getInstance().getSize(
+                    mPerUserContext.getContentResolver(), mUserId + "/" + category, uri,
+                    queryArgs, mVersion, mVersion != null ? mGeneration : -1L);
         }
     }
 
@@ -162,15 +359,39 @@ public class StorageAsyncLoader
         }
     }
 
-    private StorageResult getAppsAndGamesSize(int userId) {
+    /**
+     * Submits the app sizing work of a user, one task per UID so that the cache quota of a shared
+     * UID is only queried once.
+     */
+    private List<Future<List<PackageSize>>> submitAppSizing(ExecutorService executor,
+            int userId) {
         Log.d(TAG, "Loading apps");
         final List<ApplicationInfo> applicationInfos =
                 mPackageManager.getInstalledApplicationsAsUser(0, userId);
-        final StorageResult result = new StorageResult();
-        final UserHandle myUser = UserHandle.of(userId);
+        final SparseArray<List<ApplicationInfo>> appsByUid = new SparseArray<>();
         for (int i = 0, size = applicationInfos.size(); i < size; i++) {
             final ApplicationInfo app = applicationInfos.get(i);
+            List<ApplicationInfo> apps = appsByUid.get(app.uid);
+            if (apps == null) {
+                apps = new ArrayList<>(1);
+                appsByUid.put(app.uid, apps);
+            }
+            apps.add(app);
+        }
+        final List<Future<List<PackageSize>>> futures = new ArrayList<>(appsByUid.size());
+        for (int i = 0, size = appsByUid.size(); i < size; i++) {
+            final int uid = appsByUid.keyAt(i);
+            final List<ApplicationInfo> apps = appsByUid.valueAt(i);
+            futures.add(executor.submit(() -> getPackageSizes(userId, uid, apps)));
+        }
+        return futures;
+    }
 
+    private List<PackageSize> getPackageSizes(int userId, int uid, List<ApplicationInfo> apps) {
+        final UserHandle myUser = UserHandle.of(userId);
+        final List<PackageSize> sizes = new ArrayList<>(apps.size());
+        long cacheQuota = -1;
+        for (ApplicationInfo app : apps) {
             StorageStatsSource.AppStorageStats stats;
             try {
                 stats = mStatsManager.getStatsForPackage(mUuid, app.packageName, myUser);
@@ -179,9 +400,11 @@ public class StorageAsyncLoader
                 Log.w(TAG, "App unexpectedly not found", e);
                 continue;
             }
+            if (cacheQuota < 0) {
+                cacheQuota = mStatsManager.getCacheQuotaBytes(mUuid, uid);
+            }
 
             final long dataSize = stats.getDataBytes();
-            final long cacheQuota = mStatsManager.getCacheQuotaBytes(mUuid, app.uid);
             final long cacheBytes = stats.getCacheBytes();
             long blamedSize = dataSize + stats.getCodeBytes();
             // Technically, we could overages as freeable on the storage settings screen.
@@ -191,44 +414,69 @@ public class StorageAsyncLoader
             if (cacheQuota < cacheBytes) {
                 blamedSize = blamedSize - cacheBytes + cacheQuota;
             }
+            sizes.add(new PackageSize(app.packageName, isGame(app), blamedSize,
+                    stats.getCodeBytes()));
+        }
+        return sizes;
+    }
 
+    private void addAppSizes(StorageResult result, List<PackageSize> sizes) {
+        for (int i = 0, size = sizes.size(); i < size; i++) {
+            final PackageSize packageSize = sizes.get(i);
             // Code bytes may share between different profiles. To know all the duplicate code size
             // and we can get a reasonable system size in StorageItemPreferenceController.
-            if (mSeenPackages.contains(app.packageName)) {
-                result.duplicateCodeSize += stats.getCodeBytes();
+            if (mSeenPackages.contains(packageSize.mPackageName)) {
+                result.duplicateCodeSize += packageSize.mCodeBytes;
             } else {
-                mSeenPackages.add(app.packageName);
+                mSeenPackages.add(packageSize.mPackageName);
             }
 
-            switch (app.category) {
-                case CATEGORY_GAME:
-                    result.gamesSize += blamedSize;
-                    break;
-                case CATEGORY_AUDIO:
-                case CATEGORY_VIDEO:
-                case CATEGORY_IMAGE:
-                    result.allAppsExceptGamesSize += blamedSize;
-                    break;
-                default:
-                    // The deprecated game flag does not set the category.
-                    if ((app.flags & ApplicationInfo.FLAG_IS_GAME) != 0) {
-                        result.gamesSize += blamedSize;
-                        break;
-                    }
-                    result.allAppsExceptGamesSize += blamedSize;
-                    break;
+            if (packageSize.mIsGame) {
+                result.gamesSize += packageSize.mBlamedSize;
+            } else {
+                result.allAppsExceptGamesSize += packageSize.mBlamedSize;
             }
         }
+    }
+
+    private static boolean isGame(ApplicationInfo app) {
+        switch (app.category) {
+            case CATEGORY_GAME:
+                return true;
+            case CATEGORY_AUDIO:
+            case CATEGORY_VIDEO:
+            case CATEGORY_IMAGE:
+                return false;
+            default:
+                // The deprecated game flag does not set the category.
+                return (app.flags & ApplicationInfo.FLAG_IS_GAME) != 0;
+        }
+    }
 
-        Log.d(TAG, "Loading external stats");
+    @Nullable
+    private static <T> T getFuture(Future<T> future) {
         try {
-            result.externalStats = mStatsManager.getExternalStorageStats(mUuid,
-                    UserHandle.of(userId));
-        } catch (IOException e) {
-            Log.w(TAG, e);
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.w(TAG, "Interrupted while loading storage sizes", e);
+        } catch (ExecutionException e) {
+            Log.w(TAG, "Failed to load storage sizes", e.getCause());
         }
-        Log.d(TAG, "Obtaining result completed");
-        return result;
+        return null;
+    }
+
+    private static synchronized ExecutorService getSizingExecutor() {
+        if (sSizingExecutor == null) {
+            final int threads = Math.max(1,
+                    Math.min(MAX_SIZING_THREADS, Runtime.getRuntime().availableProcessors()));
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                    SIZING_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>());
+            executor.allowCoreThreadTimeOut(true);
+            sSizingExecutor = executor;
+        }
+        return sSizingExecutor;
     }
 
     @Override
@@ -253,6 +501,49 @@ public class StorageAsyncLoader
         public long cacheSize;
         public long duplicateCodeSize;
         public StorageStatsSource.ExternalStorageStats externalStats;
+
+        // MediaStore generation of the primary external volume the file sizes were read at, or
+        // -1 if unknown.
+        public long mediaGeneration = -1L;
+
+        StorageResult copy() {
+            final StorageResult copy = new StorageResult();
+            copy.gamesSize = gamesSize;
+            copy.allAppsExceptGamesSize = allAppsExceptGamesSize;
+            copy.audioSize = audioSize;
+            copy.imagesSize = imagesSize;
+            copy.videosSize = videosSize;
+            copy.documentsSize = documentsSize;
+            copy.otherSize = otherSize;
+            copy.trashSize = trashSize;
+            copy.systemSize = systemSize;
+            copy.cacheSize = cacheSize;
+            copy.duplicateCodeSize = duplicateCodeSize;
+            copy.externalStats = externalStats;
+            copy.mediaGeneration = mediaGeneration;
+            return copy;
+        }
+    }
+
+    /** Size attributed to one package, before it is merged into a {@link StorageResult}. */
+    private static final class PackageSize {
+        final String mPackageName;
+        final boolean mIsGame;
+        final long mBlamedSize;
+        final long mCodeBytes;
+
+        PackageSize(String packageName, boolean isGame, long blamedSize, long codeBytes) {
+            mPackageName = packageName;
+            mIsGame = isGame;
+            mBlamedSize = blamedSize;
+            mCodeBytes = codeBytes;
+        }
+    }
+
+    /** Receives per-user results while {@link StorageAsyncLoader} is still loading. */
+    public interface PartialResultListener {
+        /** Called on the main thread once all sizes of {@code userId} are known. */
+        void onPartialResult(int userId, StorageResult result);
     }
 
     /**
@@ -18,13 +18,39 @@ package com.android.settings.deviceinfo.storage;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.util.AtomicFile;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.applications.StorageStatsSource;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
 
 /**
  * A utility class to cache and restore the storage size information.
  */
 public class StorageCacheHelper {
 
+    private static final String TAG = "StorageCacheHelper";
     private static final String SHARED_PREFERENCE_NAME = "StorageCache";
+    private static final String SNAPSHOT_DIR_NAME = "storage_cache";
+    private static final String SNAPSHOT_FILE_PREFIX = "snapshot_";
+    private static final String INTERNAL_VOLUME_NAME = "internal";
+    // Bump whenever the record layout written by cacheSnapshot changes. Records of any other
+    // version are ignored.
+    static final int SNAPSHOT_VERSION = 3;
+
     private static final String TOTAL_SIZE_KEY = "total_size_key";
     private static final String TOTAL_USED_SIZE_KEY = "total_used_size_key";
     private static final String IMAGES_SIZE_KEY = "images_size_key";
@@ -40,10 +66,14 @@ public class StorageCacheHelper {
     private static final String USED_SIZE_KEY = "used_size_key";
 
     private final SharedPreferences mSharedPreferences;
+    private final Context mContext;
+    private final int mUserId;
 
     public StorageCacheHelper(Context context, int userId) {
         String sharedPrefName = SHARED_PREFERENCE_NAME + userId;
         mSharedPreferences = context.getSharedPreferences(sharedPrefName, Context.MODE_PRIVATE);
+        mContext = context;
+        mUserId = userId;
     }
 
     /**
@@ -118,6 +148,168 @@ public class StorageCacheHelper {
         return result;
     }
 
+    /**
+     * Persists the complete breakdown of a volume as a compact binary record.
+     *
+     * @param fsUuid the file system UUID of the volume, or null for internal storage.
+     */
+    public void cacheSnapshot(@Nullable String fsUuid, @NonNull StorageSnapshot snapshot) {
+        final AtomicFile file = getSnapshotFile(fsUuid);
+        FileOutputStream fos = null;
+        try {
+            fos = file.startWrite();
+            final DataOutputStream out = new DataOutputStream(fos);
+            snapshot.writeTo(out);
+            out.flush();
+            file.finishWrite(fos);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write storage snapshot", e);
+            file.failWrite(fos);
+        }
+    }
+
+    /**
+     * Returns the breakdown persisted by {@link #cacheSnapshot}, or null if there is none or it
+     * was written with a different {@link #SNAPSHOT_VERSION}.
+     */
+    @Nullable
+    public StorageSnapshot retrieveSnapshot(@Nullable String fsUuid) {
+        final AtomicFile file = getSnapshotFile(fsUuid);
+        try (FileInputStream fis = file.openRead();
+             DataInputStream in = new DataInputStream(fis)) {
+            return StorageSnapshot.readFrom(in);
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable storage snapshot", e);
+            file.delete();
+            return null;
+        }
+    }
+
+    /** Deletes the breakdown persisted by {@link #cacheSnapshot}. */
+    @VisibleForTesting
+    void deleteSnapshot(@Nullable String fsUuid) {
+        getSnapshotFile(fsUuid).delete();
+    }
+
+    private AtomicFile getSnapshotFile(@Nullable String fsUuid) {
+        final File dir = new File(mContext.getFilesDir(), SNAPSHOT_DIR_NAME);
+        dir.mkdirs();
+        final String volumeName = fsUuid == null ? INTERNAL_VOLUME_NAME : fsUuid;
+        return new AtomicFile(new File(dir, SNAPSHOT_FILE_PREFIX + mUserId + "_" + volumeName));
+    }
+
+    /**
+     * A complete, versioned breakdown of one volume for every user, together with the generation
+     * counters it was computed at.
+     */
+    public static class StorageSnapshot {
+        /** Wall clock time the snapshot was taken at. */
+        public final long timestamp;
+        /**
+         * {@link android.provider.Settings.Global#BOOT_COUNT} the snapshot was taken at, package
+         * sequence numbers are only comparable within the same boot.
+         */
+        public final int bootCount;
+        /**
+         * Sequence numbers from {@link android.content.pm.PackageManager#getChangedPackages}, by
+         * user id. Each user's package changes are only reported to that user.
+         */
+        public final SparseIntArray packageSequences;
+        /** Per-user results, including the MediaStore generation each one was read at. */
+        public final SparseArray<StorageAsyncLoader.StorageResult> results;
+
+        public StorageSnapshot(long timestamp, int bootCount,
+                @NonNull SparseIntArray packageSequences,
+                @NonNull SparseArray<StorageAsyncLoader.StorageResult> results) {
+            this.timestamp = timestamp;
+            this.bootCount = bootCount;
+            this.packageSequences = packageSequences;
+            this.results = results;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(timestamp);
+            out.writeInt(bootCount);
+            out.writeInt(packageSequences.size());
+            for (int i = 0; i < packageSequences.size(); i++) {
+                out.writeInt(packageSequences.keyAt(i));
+                out.writeInt(packageSequences.valueAt(i));
+            }
+            out.writeInt(results.size());
+            for (int i = 0; i < results.size(); i++) {
+                final StorageAsyncLoader.StorageResult result = results.valueAt(i);
+                out.writeInt(results.keyAt(i));
+                out.writeLong(result.mediaGeneration);
+                out.writeLong(result.gamesSize);
+                out.writeLong(result.allAppsExceptGamesSize);
+                out.writeLong(result.audioSize);
+                out.writeLong(result.imagesSize);
+                out.writeLong(result.videosSize);
+                out.writeLong(result.documentsSize);
+                out.writeLong(result.otherSize);
+                out.writeLong(result.trashSize);
+                out.writeLong(result.systemSize);
+                out.writeLong(result.cacheSize);
+                out.writeLong(result.duplicateCodeSize);
+                final StorageStatsSource.ExternalStorageStats external = result.externalStats;
+                out.writeBoolean(external != null);
+                if (external != null) {
+                    out.writeLong(external.totalBytes);
+                    out.writeLong(external.audioBytes);
+                    out.writeLong(external.videoBytes);
+                    out.writeLong(external.imageBytes);
+                    out.writeLong(external.appBytes);
+                }
+            }
+        }
+
+        @Nullable
+        static StorageSnapshot readFrom(DataInputStream in) throws IOException {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                return null;
+            }
+            final long timestamp = in.readLong();
+            final int bootCount = in.readInt();
+            final int sequenceCount = in.readInt();
+            final SparseIntArray packageSequences = new SparseIntArray(sequenceCount);
+            for (int i = 0; i < sequenceCount; i++) {
+                final int userId = in.readInt();
+                packageSequences.put(userId, in.readInt());
+            }
+            final int userCount = in.readInt();
+            final SparseArray<StorageAsyncLoader.StorageResult> results =
+                    new SparseArray<>(userCount);
+            for (int i = 0; i < userCount; i++) {
+                final int userId = in.readInt();
+                final StorageAsyncLoader.StorageResult result =
+                        new StorageAsyncLoader.StorageResult();
+                result.mediaGeneration = in.readLong();
+                result.gamesSize = in.readLong();
+                result.allAppsExceptGamesSize = in.readLong();
+                result.audioSize = in.readLong();
+                result.imagesSize = in.readLong();
+                result.videosSize = in.readLong();
+                result.documentsSize = in.readLong();
+                result.otherSize = in.readLong();
+                result.trashSize = in.readLong();
+                result.systemSize = in.readLong();
+                result.cacheSize = in.readLong();
+                result.duplicateCodeSize = in.readLong();
+                if (in.readBoolean()) {
+                    result.externalStats = new StorageStatsSource.ExternalStorageStats(
+                            in.readLong() /* totalBytes */, in.readLong() /* audioBytes */,
+                            in.readLong() /* videoBytes */, in.readLong() /* imageBytes */,
+                            in.readLong() /* appBytes */);
+                }
+                results.put(userId, result);
+            }
+            return new StorageSnapshot(timestamp, bootCount, packageSequences, results);
+        }
+    }
+
     /**
      *  All the cached data about the file size information.
      */
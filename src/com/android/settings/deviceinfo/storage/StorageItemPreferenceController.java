@@ -37,6 +37,7 @@ import android.util.Log;
 import android.util.SparseArray;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.fragment.app.Fragment;
@@ -478,6 +479,27 @@ public class StorageItemPreferenceController extends AbstractPreferenceControlle
         setPrivateStorageCategoryPreferencesVisibility(true);
     }
 
+    /**
+     * Updates the per-category sizes of {@code userId} while {@link StorageAsyncLoader} is still
+     * loading the other users. System and temporary files sizes depend on every user and are only
+     * updated by {@link #onLoadFinished}.
+     */
+    public void onPartialResult(int userId, @NonNull StorageAsyncLoader.StorageResult result) {
+        if (userId != mUserId || mImagesPreference == null) {
+            return;
+        }
+        mImagesPreference.setStorageSize(result.imagesSize, mTotalSize, false /* animate */);
+        mVideosPreference.setStorageSize(result.videosSize, mTotalSize, false /* animate */);
+        mAudioPreference.setStorageSize(result.audioSize, mTotalSize, false /* animate */);
+        mAppsPreference.setStorageSize(result.allAppsExceptGamesSize, mTotalSize,
+                false /* animate */);
+        mGamesPreference.setStorageSize(result.gamesSize, mTotalSize, false /* animate */);
+        mDocumentsPreference.setStorageSize(result.documentsSize, mTotalSize,
+                false /* animate */);
+        mOtherPreference.setStorageSize(result.otherSize, mTotalSize, false /* animate */);
+        mTrashPreference.setStorageSize(result.trashSize, mTotalSize, false /* animate */);
+    }
+
     private StorageCacheHelper.StorageCache getSizeInfo(
             SparseArray<StorageAsyncLoader.StorageResult> result, int userId) {
         if (result == null) {
@@ -36,6 +36,7 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.android.settings.SettingsApplication;
 import com.android.settings.fuelgauge.BatteryOptimizeHistoricalLogEntry.Action;
 import com.android.settings.fuelgauge.batteryusage.AppOptModeSharedPreferencesUtils;
 import com.android.settings.fuelgauge.batteryusage.AppOptimizationModeEvent;
@@ -93,6 +94,7 @@ public final class BatterySettingsStorage extends ObservableBackupRestoreStorage
      * Returns the {@link BatterySettingsStorage} registered to {@link BackupRestoreStorageManager}.
      */
     public static @NonNull BatterySettingsStorage get(@NonNull Context context) {
+        SettingsApplication.ensureInitialized(context, SettingsApplication.INIT_BACKUP_STORAGES);
         return (BatterySettingsStorage)
                 BackupRestoreStorageManager.getInstance(context).getOrThrow(NAME);
     }
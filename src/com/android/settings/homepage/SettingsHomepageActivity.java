@@ -35,6 +35,7 @@ import android.content.res.Configuration;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Process;
+import android.os.Trace;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.text.TextUtils;
@@ -73,6 +74,7 @@ import com.android.settings.activityembedding.ActivityEmbeddingUtils;
 import com.android.settings.activityembedding.EmbeddedDeepLinkUtils;
 import com.android.settings.core.CategoryMixin;
 import com.android.settings.core.FeatureFlags;
+import com.android.settings.dashboard.CategoryManager;
 import com.android.settings.flags.Flags;
 import com.android.settings.homepage.contextualcards.ContextualCardsFragment;
 import com.android.settings.overlay.FeatureFactory;
@@ -253,30 +255,44 @@ public class SettingsHomepageActivity extends FragmentActivity implements
             return;
         }
 
+        if (!CategoryManager.get(this).isLoaded()) {
+            // Read the tile snapshot in the background while the views are created.
+            TopLevelSnapshot.prefetch(this, TopLevelSettings.getScreenResId());
+        }
+
+        Trace.beginSection(TAG + "#setContentView");
         setupEdgeToEdge();
         setContentView(
                 homepageRevamp()
                         ? R.layout.settings_homepage_container_v2
                         : R.layout.settings_homepage_container);
+        Trace.endSection();
 
         mIsTwoPane = ActivityEmbeddingUtils.isAlreadyEmbedded(this);
 
+        Trace.beginSection(TAG + "#initHomepageContainer");
         updateAppBarMinHeight();
         initHomepageContainer();
         updateHomepageAppBar();
         updateHomepageBackground();
+        Trace.endSection();
         mLoadedListeners = new ArraySet<>();
 
         mUserUtils = UserUtils.Companion.getInstance(getApplicationContext());
 
+        Trace.beginSection(TAG + "#initSearchBarView");
         initSearchBarView();
-        
+        Trace.endSection();
+
+        Trace.beginSection(TAG + "#initAvatarView");
         initAvatarView();
+        Trace.endSection();
 
         getLifecycle().addObserver(new HideNonSystemOverlayMixin(this));
         mCategoryMixin = new CategoryMixin(this);
         getLifecycle().addObserver(mCategoryMixin);
 
+        Trace.beginSection(TAG + "#showFragments");
         final String highlightMenuKey = getHighlightMenuKey();
         // Only allow features on high ram devices.
         if (!getSystemService(ActivityManager.class).isLowRamDevice()) {
@@ -295,6 +311,7 @@ public class SettingsHomepageActivity extends FragmentActivity implements
                     highlightMenuKey);
             return fragment;
         }, R.id.main_content);
+        Trace.endSection();
 
         // Launch the intent from deep link for large screen devices.
         if (shouldLaunchDeepLinkIntentToRight()) {
@@ -308,8 +325,10 @@ public class SettingsHomepageActivity extends FragmentActivity implements
             initSplitPairRules();
         }
 
+        Trace.beginSection(TAG + "#updateLayout");
         updateHomepagePaddings();
         updateSplitLayout();
+        Trace.endSection();
 
         enableTaskLocaleOverride();
     }
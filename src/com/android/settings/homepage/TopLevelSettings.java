@@ -24,8 +24,11 @@ import android.app.settings.SettingsEnums;
 import android.content.Context;
 import android.content.res.Configuration;
 import android.graphics.drawable.Drawable;
+import android.graphics.drawable.Icon;
 import android.os.Bundle;
+import android.os.Trace;
 import android.text.TextUtils;
+import android.util.ArraySet;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.ViewGroup;
@@ -45,7 +48,10 @@ import com.android.settings.Utils;
 import com.android.settings.activityembedding.ActivityEmbeddingRulesController;
 import com.android.settings.activityembedding.ActivityEmbeddingUtils;
 import com.android.settings.core.RoundCornerPreferenceAdapter;
+import com.android.settings.core.CategoryMixin.CategoryHandler;
 import com.android.settings.core.SubSettingLauncher;
+import com.android.settings.dashboard.CategoryManager;
+import com.android.settings.dashboard.DashboardFeatureProvider;
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.flags.Flags;
 import com.android.settings.overlay.FeatureFactory;
@@ -55,8 +61,16 @@ import com.android.settings.widget.HomepagePreference;
 import com.android.settings.widget.HomepagePreferenceLayoutHelper;
 import com.android.settings.widget.HomepagePreferenceLayoutHelper.HomepagePreferenceLayout;
 import com.android.settingslib.core.instrumentation.Instrumentable;
+import com.android.settingslib.drawer.DashboardCategory;
 import com.android.settingslib.drawer.Tile;
 import com.android.settingslib.search.SearchIndexable;
+import com.android.settingslib.utils.ThreadUtils;
+import com.android.settingslib.widget.AdaptiveIcon;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 
 @SearchIndexable(forTarget = MOBILE)
 public class TopLevelSettings extends DashboardFragment implements SplitLayoutListener,
@@ -72,6 +86,9 @@ public class TopLevelSettings extends DashboardFragment implements SplitLayoutLi
     private boolean mScrollNeeded = true;
     private boolean mFirstStarted = true;
     private ActivityEmbeddingController mActivityEmbeddingController;
+    private TopLevelSnapshot mSnapshot;
+    private List<TopLevelSnapshot.Entry> mSnapshotEntries = Collections.emptyList();
+    private boolean mShowingSnapshot;
 
     public TopLevelSettings() {
         final Bundle args = new Bundle();
@@ -89,6 +106,10 @@ public class TopLevelSettings extends DashboardFragment implements SplitLayoutLi
 
     @Override
     protected int getPreferenceScreenResId() {
+        return getScreenResId();
+    }
+
+    static int getScreenResId() {
         return Flags.homepageRevamp() ? R.xml.top_level_settings_v2 : R.xml.top_level_settings;
     }
 
@@ -107,6 +128,7 @@ public class TopLevelSettings extends DashboardFragment implements SplitLayoutLi
         super.onAttach(context);
         HighlightableMenu.fromXml(context, getPreferenceScreenResId());
         use(SupportPreferenceController.class).setActivity(getActivity());
+        mSnapshot = new TopLevelSnapshot(context);
     }
 
     @Override
@@ -196,6 +218,20 @@ public class TopLevelSettings extends DashboardFragment implements SplitLayoutLi
         super.onStart();
     }
 
+    @Override
+    public void onStop() {
+        super.onStop();
+        if (!mShowingSnapshot) {
+            saveSnapshot();
+        }
+    }
+
+    @Override
+    public void onCategoriesChanged(Set<String> categories) {
+        super.onCategoriesChanged(categories);
+        mShowingSnapshot = false;
+    }
+
     private boolean isOnlyOneActivityInTask() {
         final ActivityManager.RunningTaskInfo taskInfo = getSystemService(ActivityManager.class)
                 .getRunningTasks(1).get(0);
@@ -213,6 +249,13 @@ public class TopLevelSettings extends DashboardFragment implements SplitLayoutLi
     @Override
     public void onCreatePreferences(Bundle savedInstanceState, String rootKey) {
         super.onCreatePreferences(savedInstanceState, rootKey);
+        if (!mSnapshotEntries.isEmpty()) {
+            Trace.beginSection(TAG + "#addSnapshotPreferences");
+            addSnapshotPreferences(mSnapshotEntries);
+            Trace.endSection();
+            mSnapshotEntries = Collections.emptyList();
+            mShowingSnapshot = true;
+        }
         if (Flags.homepageRevamp()) {
             iteratePreferences(preference -> {
                 if (Flags.homepageRevamp()) {
@@ -365,6 +408,109 @@ public class TopLevelSettings extends DashboardFragment implements SplitLayoutLi
         return new HomepagePreference(getPrefContext());
     }
 
+    /**
+     * Defers the tiles on a cold start if there is a snapshot of them, so that the first frame
+     * shows the tiles from the snapshot instead of waiting for CategoryManager to load them.
+     */
+    @Override
+    protected boolean shouldDeferDashboardTiles() {
+        if (!(getActivity() instanceof CategoryHandler)
+                || CategoryManager.get(getContext()).isLoaded()) {
+            return false;
+        }
+        Trace.beginSection(TAG + "#takeSnapshot");
+        mSnapshotEntries = TopLevelSnapshot.takePrefetched(getPreferenceScreenResId());
+        Trace.endSection();
+        return !mSnapshotEntries.isEmpty();
+    }
+
+    private void addSnapshotPreferences(List<TopLevelSnapshot.Entry> entries) {
+        final PreferenceScreen screen = getPreferenceScreen();
+        if (screen == null) {
+            return;
+        }
+        final boolean forceRoundedIcon = shouldForceRoundedIcon();
+        for (TopLevelSnapshot.Entry entry : entries) {
+            if (screen.findPreference(entry.mKey) != null) {
+                continue;
+            }
+            final Preference preference = new HomepagePreference(getPrefContext());
+            preference.setKey(entry.mKey);
+            preference.setTitle(entry.mTitle);
+            preference.setSummary(entry.mSummary);
+            preference.setOrder(entry.mOrder);
+            preference.setIcon(loadSnapshotIcon(entry, forceRoundedIcon));
+            // Injected tiles are highlightable by their keys, see CategoryManager.
+            HighlightableMenu.addMenuKey(entry.mKey);
+            final Preference parent = entry.mParentKey == null
+                    ? null : screen.findPreference(entry.mParentKey);
+            addDeferredTilePreference(
+                    parent instanceof PreferenceGroup ? (PreferenceGroup) parent : screen,
+                    preference);
+        }
+    }
+
+    private Drawable loadSnapshotIcon(TopLevelSnapshot.Entry entry, boolean forceRoundedIcon) {
+        if (entry.mIconPackage == null) {
+            return null;
+        }
+        final Drawable icon = Icon.createWithResource(entry.mIconPackage, entry.mIconResId)
+                .loadDrawable(getPrefContext());
+        if (icon == null) {
+            return null;
+        }
+        // Same as the tile icons bound by DashboardFeatureProviderImpl.
+        icon.setTint(Utils.getHomepageIconColor(getPrefContext()));
+        if (forceRoundedIcon
+                && !TextUtils.equals(getContext().getPackageName(), entry.mIconPackage)) {
+            return new AdaptiveIcon(getContext(), icon,
+                    R.dimen.dashboard_tile_foreground_image_inset);
+        }
+        return icon;
+    }
+
+    @VisibleForTesting
+    void saveSnapshot() {
+        final Context context = getContext();
+        final PreferenceScreen screen = getPreferenceScreen();
+        // Don't wait for the tiles to be loaded when leaving the page.
+        if (context == null || screen == null || !CategoryManager.get(context).isLoaded()) {
+            return;
+        }
+        Trace.beginSection(TAG + "#saveSnapshot");
+        final DashboardFeatureProvider dashboardFeatureProvider =
+                FeatureFactory.getFeatureFactory().getDashboardFeatureProvider();
+        final DashboardCategory category =
+                dashboardFeatureProvider.getTilesForCategory(getCategoryKey());
+        final List<TopLevelSnapshot.Entry> entries = new ArrayList<>();
+        final Set<String> tilePackages = new ArraySet<>();
+        if (category != null && category.getTiles() != null) {
+            for (Tile tile : category.getTiles()) {
+                tilePackages.add(tile.getPackageName());
+                final String key = dashboardFeatureProvider.getDashboardKeyForTile(tile);
+                final Preference preference =
+                        TextUtils.isEmpty(key) ? null : screen.findPreference(key);
+                if (preference == null || !preference.isVisible()) {
+                    continue;
+                }
+                final Icon icon = tile.getIcon(context);
+                final boolean hasResourceIcon =
+                        icon != null && icon.getType() == Icon.TYPE_RESOURCE;
+                final PreferenceGroup parent = preference.getParent();
+                entries.add(new TopLevelSnapshot.Entry(key, preference.getTitle(),
+                        preference.getSummary(), preference.getOrder(),
+                        parent == null || parent == screen ? null : parent.getKey(),
+                        hasResourceIcon ? icon.getResPackage() : null,
+                        hasResourceIcon ? icon.getResId() : 0));
+            }
+        }
+        final TopLevelSnapshot snapshot = mSnapshot;
+        final int screenResId = getPreferenceScreenResId();
+        ThreadUtils.postOnBackgroundThread(
+                () -> snapshot.save(screenResId, entries, tilePackages));
+        Trace.endSection();
+    }
+
     void reloadHighlightMenuKey() {
         if (mHighlightMixin != null) {
             mHighlightMixin.reloadHighlightMenuKey(getArguments());
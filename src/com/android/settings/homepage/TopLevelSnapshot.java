@@ -0,0 +1,312 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.os.Trace;
+import android.text.TextUtils;
+import android.util.ArraySet;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.XmlRes;
+
+import com.android.settingslib.utils.ThreadUtils;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A persisted copy of the injected tiles last shown on {@link TopLevelSettings}: their titles,
+ * summaries, icon references, order and parent group.
+ *
+ * <p>On a cold start, {@link TopLevelSettings} shows the tiles from the snapshot in the first frame
+ * instead of waiting for the tiles to be loaded, and binds them to the live tiles once loaded. A
+ * snapshot is only used with the locale, preference screen, Settings version and tile package
+ * versions it was saved with, and is discarded otherwise.
+ *
+ * <p>The snapshot is read on a background thread by {@link #prefetch}, started as early as
+ * possible on a cold start. The main thread waits at most {@link #PREFETCH_TIMEOUT_MS} for it in
+ * {@link #takePrefetched}, and falls back to loading the tiles if it is not ready by then.
+ */
+public class TopLevelSnapshot {
+
+    private static final String TAG = "TopLevelSnapshot";
+
+    @VisibleForTesting
+    static final String SHARED_PREFERENCES_NAME = "top_level_snapshot";
+    private static final String KEY_SNAPSHOT = "snapshot";
+    // The delay accepted on the main thread for a prefetch that has not completed yet.
+    @VisibleForTesting
+    static final long PREFETCH_TIMEOUT_MS = 50;
+
+    private static final String FIELD_LOCALES = "locales";
+    private static final String FIELD_SCREEN = "screen";
+    private static final String FIELD_VERSION = "version";
+    private static final String FIELD_PACKAGES = "packages";
+    private static final String FIELD_ENTRIES = "entries";
+    private static final String FIELD_KEY = "key";
+    private static final String FIELD_TITLE = "title";
+    private static final String FIELD_SUMMARY = "summary";
+    private static final String FIELD_ORDER = "order";
+    private static final String FIELD_PARENT_KEY = "parent";
+    private static final String FIELD_ICON_PACKAGE = "iconPackage";
+    private static final String FIELD_ICON_RES_ID = "iconResId";
+
+    /** An injected tile as it was shown on the homepage. */
+    public static class Entry {
+        final String mKey;
+        @Nullable
+        final String mTitle;
+        @Nullable
+        final String mSummary;
+        final int mOrder;
+        /** The key of the group the tile is in, or null if it is on the screen directly. */
+        @Nullable
+        final String mParentKey;
+        /** The package of the icon resource, or null if the tile has no resource icon. */
+        @Nullable
+        final String mIconPackage;
+        final int mIconResId;
+
+        public Entry(String key, @Nullable CharSequence title, @Nullable CharSequence summary,
+                int order, @Nullable String parentKey, @Nullable String iconPackage,
+                int iconResId) {
+            mKey = key;
+            mTitle = title == null ? null : title.toString();
+            mSummary = summary == null ? null : summary.toString();
+            mOrder = order;
+            mParentKey = parentKey;
+            mIconPackage = iconPackage;
+            mIconResId = iconResId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            final Entry entry = (Entry) o;
+            return mOrder == entry.mOrder
+                    && mIconResId == entry.mIconResId
+                    && TextUtils.equals(mKey, entry.mKey)
+                    && TextUtils.equals(mTitle, entry.mTitle)
+                    && TextUtils.equals(mSummary, entry.mSummary)
+                    && TextUtils.equals(mParentKey, entry.mParentKey)
+                    && TextUtils.equals(mIconPackage, entry.mIconPackage);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mKey, mTitle, mSummary, mOrder, mParentKey, mIconPackage,
+                    mIconResId);
+        }
+    }
+
+    // Accessed on the main thread only.
+    @Nullable
+    private static FutureTask<List<Entry>> sPrefetch;
+    private static int sPrefetchScreenResId;
+
+    private final Context mContext;
+
+    public TopLevelSnapshot(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    /**
+     * Starts reading the snapshot of {@code screenResId} on a background thread, to be taken by
+     * {@link #takePrefetched}. Must be called on the main thread.
+     */
+    public static void prefetch(Context context, @XmlRes int screenResId) {
+        if (sPrefetch != null) {
+            return;
+        }
+        final TopLevelSnapshot snapshot = new TopLevelSnapshot(context);
+        sPrefetch = new FutureTask<>(() -> snapshot.load(screenResId));
+        sPrefetchScreenResId = screenResId;
+        ThreadUtils.postOnBackgroundThread(sPrefetch);
+    }
+
+    /**
+     * Returns the tiles read by {@link #prefetch}, waiting up to {@link #PREFETCH_TIMEOUT_MS} for
+     * them, or an empty list if there was no prefetch of {@code screenResId} or it did not
+     * complete in time. Must be called on the main thread.
+     */
+    public static List<Entry> takePrefetched(@XmlRes int screenResId) {
+        final FutureTask<List<Entry>> prefetch = sPrefetch;
+        sPrefetch = null;
+        if (prefetch == null || sPrefetchScreenResId != screenResId) {
+            return Collections.emptyList();
+        }
+        try {
+            return prefetch.get(PREFETCH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            Log.w(TAG, "Snapshot not available in time", e);
+            prefetch.cancel(false /* mayInterruptIfRunning */);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Returns the saved tiles of {@code screenResId}, or an empty list if there is no snapshot for
+     * the current locales and package versions. Reads from disk, so should not be called on the
+     * main thread.
+     */
+    public List<Entry> load(@XmlRes int screenResId) {
+        Trace.beginSection(TAG + "#load");
+        try {
+            return loadInternal(screenResId);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    private List<Entry> loadInternal(@XmlRes int screenResId) {
+        final String json = getSharedPreferences().getString(KEY_SNAPSHOT, null /* defValue */);
+        if (json == null) {
+            return Collections.emptyList();
+        }
+        try {
+            final JSONObject snapshot = new JSONObject(json);
+            if (snapshot.getInt(FIELD_SCREEN) != screenResId
+                    || !TextUtils.equals(snapshot.getString(FIELD_LOCALES), getLocales())) {
+                Log.d(TAG, "Snapshot is outdated");
+                return Collections.emptyList();
+            }
+            if (!isSavedWithInstalledVersions(snapshot)) {
+                Log.d(TAG, "Snapshot was saved with other package versions, discarding it");
+                getSharedPreferences().edit().remove(KEY_SNAPSHOT).apply();
+                return Collections.emptyList();
+            }
+            final JSONArray array = snapshot.getJSONArray(FIELD_ENTRIES);
+            final List<Entry> entries = new ArrayList<>(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                final JSONObject entry = array.getJSONObject(i);
+                entries.add(new Entry(
+                        entry.getString(FIELD_KEY),
+                        optString(entry, FIELD_TITLE),
+                        optString(entry, FIELD_SUMMARY),
+                        entry.getInt(FIELD_ORDER),
+                        optString(entry, FIELD_PARENT_KEY),
+                        optString(entry, FIELD_ICON_PACKAGE),
+                        entry.optInt(FIELD_ICON_RES_ID)));
+            }
+            return entries;
+        } catch (JSONException e) {
+            Log.w(TAG, "Failed to read snapshot", e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Saves the tiles shown on {@code screenResId}, replacing the previous snapshot. The snapshot
+     * is tied to the current versions of Settings, of {@code tilePackages} and of the icon
+     * packages. Queries the package manager, so should not be called on the main thread.
+     */
+    public void save(@XmlRes int screenResId, List<Entry> entries,
+            Collection<String> tilePackages) {
+        try {
+            final Set<String> packages = new ArraySet<>(tilePackages);
+            final JSONArray array = new JSONArray();
+            for (Entry entry : entries) {
+                if (entry.mIconPackage != null) {
+                    packages.add(entry.mIconPackage);
+                }
+                array.put(new JSONObject()
+                        .put(FIELD_KEY, entry.mKey)
+                        .putOpt(FIELD_TITLE, entry.mTitle)
+                        .putOpt(FIELD_SUMMARY, entry.mSummary)
+                        .put(FIELD_ORDER, entry.mOrder)
+                        .putOpt(FIELD_PARENT_KEY, entry.mParentKey)
+                        .putOpt(FIELD_ICON_PACKAGE, entry.mIconPackage)
+                        .put(FIELD_ICON_RES_ID, entry.mIconResId));
+            }
+            final JSONObject packageVersions = new JSONObject();
+            for (String packageName : packages) {
+                packageVersions.put(packageName, getVersionCode(packageName));
+            }
+            final JSONObject snapshot = new JSONObject()
+                    .put(FIELD_SCREEN, screenResId)
+                    .put(FIELD_LOCALES, getLocales())
+                    .put(FIELD_VERSION, getVersionCode(mContext.getPackageName()))
+                    .put(FIELD_PACKAGES, packageVersions)
+                    .put(FIELD_ENTRIES, array);
+            getSharedPreferences().edit().putString(KEY_SNAPSHOT, snapshot.toString()).apply();
+        } catch (JSONException e) {
+            Log.w(TAG, "Failed to write snapshot", e);
+        }
+    }
+
+    private boolean isSavedWithInstalledVersions(JSONObject snapshot) throws JSONException {
+        if (snapshot.optLong(FIELD_VERSION, -1) != getVersionCode(mContext.getPackageName())) {
+            return false;
+        }
+        final JSONObject packageVersions = snapshot.optJSONObject(FIELD_PACKAGES);
+        if (packageVersions == null) {
+            return false;
+        }
+        final Iterator<String> packages = packageVersions.keys();
+        while (packages.hasNext()) {
+            final String packageName = packages.next();
+            if (packageVersions.getLong(packageName) != getVersionCode(packageName)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the version code of {@code packageName}, or -1 if it is not installed. */
+    private long getVersionCode(String packageName) {
+        try {
+            return mContext.getPackageManager().getPackageInfo(packageName, 0 /* flags */)
+                    .getLongVersionCode();
+        } catch (PackageManager.NameNotFoundException e) {
+            return -1;
+        }
+    }
+
+    private SharedPreferences getSharedPreferences() {
+        return mContext.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    private String getLocales() {
+        return mContext.getResources().getConfiguration().getLocales().toLanguageTags();
+    }
+
+    @Nullable
+    private static String optString(JSONObject object, String name) {
+        return object.isNull(name) ? null : object.optString(name);
+    }
+}
@@ -138,11 +138,14 @@ public class CardContentProvider extends ContentProvider {
                 }
             }
             database.setTransactionSuccessful();
-            getContext().getContentResolver().notifyChange(uri, null /* observer */);
         } finally {
             database.endTransaction();
+            // Cards are read from the helper's copy of the table, drop it before the readers are
+            // told about the change, and also when the transaction failed.
+            DBHelper.invalidateCards();
             StrictMode.setThreadPolicy(oldPolicy);
         }
+        getContext().getContentResolver().notifyChange(uri, null /* observer */);
         return numInserted;
     }
 
@@ -163,14 +166,20 @@ public class CardContentProvider extends ContentProvider {
         try {
             maybeEnableStrictMode();
 
-            final SQLiteQueryBuilder queryBuilder = new SQLiteQueryBuilder();
             final String table = getTableFromMatch(uri);
-            queryBuilder.setTables(table);
             final CardDatabaseHelper DBHelper = CardDatabaseHelper.getInstance(getContext());
-            final SQLiteDatabase database = DBHelper.getReadableDatabase();
-            final Cursor cursor = queryBuilder.query(database,
-                    projection, selection, selectionArgs, null /* groupBy */, null /* having */,
-                    sortOrder);
+            final Cursor cursor;
+            if (selection == null && sortOrder == null) {
+                // The whole table is served from memory.
+                cursor = DBHelper.queryCards(projection, card -> true);
+            } else {
+                final SQLiteQueryBuilder queryBuilder = new SQLiteQueryBuilder();
+                queryBuilder.setTables(table);
+                final SQLiteDatabase database = DBHelper.getReadableDatabase();
+                cursor = queryBuilder.query(database,
+                        projection, selection, selectionArgs, null /* groupBy */,
+                        null /* having */, sortOrder);
+            }
 
             cursor.setNotificationUri(getContext().getContentResolver(), uri);
             return cursor;
@@ -16,13 +16,24 @@
 
 package com.android.settings.homepage.contextualcards;
 
+import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
+import android.database.MatrixCursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
 /**
  * Defines the schema for the Homepage Cards database.
  */
@@ -97,8 +108,45 @@ public class CardDatabaseHelper extends SQLiteOpenHelper {
                     + " INTEGER"
                     + ");";
 
+    /** All the columns of the card table, in table order. */
+    static final String[] CARD_COLUMNS = {
+            CardColumns.NAME,
+            CardColumns.TYPE,
+            CardColumns.SCORE,
+            CardColumns.SLICE_URI,
+            CardColumns.CATEGORY,
+            CardColumns.PACKAGE_NAME,
+            CardColumns.APP_VERSION,
+            CardColumns.DISMISSED_TIMESTAMP,
+    };
+
+    private static final String DISMISS_CARD =
+            "UPDATE " + CARD_TABLE + " SET " + CardColumns.DISMISSED_TIMESTAMP + " = ? WHERE "
+                    + CardColumns.NAME + " = ?";
+
+    private static final String RESET_DISMISSED_TIME =
+            "UPDATE " + CARD_TABLE + " SET " + CardColumns.DISMISSED_TIMESTAMP + " = NULL WHERE "
+                    + CardColumns.DISMISSED_TIMESTAMP + " < ? AND "
+                    + CardColumns.DISMISSED_TIMESTAMP + " IS NOT NULL";
+
+    /** Cards without a score come last. */
+    private static final Comparator<ContentValues> BY_SCORE_DESC = Comparator.comparing(
+            (ContentValues card) -> card.getAsDouble(CardColumns.SCORE),
+            Comparator.nullsFirst(Comparator.<Double>naturalOrder())).reversed();
+
+    /**
+     * Rows of the card table, read without locking. The list and its rows are never modified, a
+     * write replaces the whole list while holding the lock of this helper. Null until the first
+     * read.
+     */
+    private volatile List<ContentValues> mCards;
+    private SQLiteStatement mDismissCardStatement;
+    private SQLiteStatement mResetDismissedTimeStatement;
+
     public CardDatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // Lets the card loader read while a new card list or a dismissal is being written.
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
@@ -115,6 +163,149 @@ public class CardDatabaseHelper extends SQLiteOpenHelper {
         }
     }
 
+    @Override
+    public synchronized void close() {
+        if (mDismissCardStatement != null) {
+            mDismissCardStatement.close();
+            mDismissCardStatement = null;
+        }
+        if (mResetDismissedTimeStatement != null) {
+            mResetDismissedTimeStatement.close();
+            mResetDismissedTimeStatement = null;
+        }
+        mCards = null;
+        super.close();
+    }
+
+    /**
+     * Returns the rows of the card table, by descending score. Only the first call after the
+     * database is opened reads it, the next ones return the in-memory copy.
+     */
+    List<ContentValues> getCards() {
+        final List<ContentValues> cards = mCards;
+        if (cards != null) {
+            return cards;
+        }
+        synchronized (this) {
+            if (mCards == null) {
+                mCards = readCards();
+            }
+            return mCards;
+        }
+    }
+
+    /**
+     * Returns a cursor over the cards matching {@code filter}, by descending score, without
+     * reading the database.
+     *
+     * @param projection the columns to return, all of them if null.
+     */
+    Cursor queryCards(@Nullable String[] projection, Predicate<ContentValues> filter) {
+        final String[] columns = projection != null ? projection : CARD_COLUMNS;
+        final MatrixCursor cursor = new MatrixCursor(columns);
+        for (ContentValues card : getCards()) {
+            if (!filter.test(card)) {
+                continue;
+            }
+            final MatrixCursor.RowBuilder row = cursor.newRow();
+            for (String column : columns) {
+                row.add(card.get(column));
+            }
+        }
+        return cursor;
+    }
+
+    /**
+     * Drops the in-memory copy, so the next read goes to the card table. To be called after the
+     * table is written without the methods of this helper, whether the write succeeded or not.
+     */
+    synchronized void invalidateCards() {
+        mCards = null;
+    }
+
+    /** Sets the dismissal time of a card, returns the number of updated rows. */
+    synchronized int markCardAsDismissed(String cardName, long timestamp) {
+        if (mDismissCardStatement == null) {
+            mDismissCardStatement = getWritableDatabase().compileStatement(DISMISS_CARD);
+        }
+        mDismissCardStatement.bindLong(1, timestamp);
+        mDismissCardStatement.bindString(2, cardName);
+        final int rowsUpdated = mDismissCardStatement.executeUpdateDelete();
+        if (rowsUpdated > 0 && mCards != null) {
+            mCards = replaceCards(mCards, card -> cardName.equals(
+                    card.getAsString(CardColumns.NAME)), timestamp);
+        }
+        return rowsUpdated;
+    }
+
+    /**
+     * Clears the dismissal times older than {@code threshold}, returns the number of updated rows.
+     * The database is not written when no card has such a dismissal time.
+     */
+    synchronized int resetDismissedTime(long threshold) {
+        final Predicate<ContentValues> expired = card -> {
+            final Long dismissedTime = card.getAsLong(CardColumns.DISMISSED_TIMESTAMP);
+            return dismissedTime != null && dismissedTime < threshold;
+        };
+        if (getCards().stream().noneMatch(expired)) {
+            return 0;
+        }
+        if (mResetDismissedTimeStatement == null) {
+            mResetDismissedTimeStatement =
+                    getWritableDatabase().compileStatement(RESET_DISMISSED_TIME);
+        }
+        mResetDismissedTimeStatement.bindLong(1, threshold);
+        final int rowsUpdated = mResetDismissedTimeStatement.executeUpdateDelete();
+        mCards = replaceCards(mCards, expired, null /* dismissedTime */);
+        return rowsUpdated;
+    }
+
+    private List<ContentValues> readCards() {
+        final List<ContentValues> cards = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(CARD_TABLE, CARD_COLUMNS,
+                null /* selection */, null /* selectionArgs */, null /* groupBy */,
+                null /* having */, null /* orderBy */)) {
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                final ContentValues card = new ContentValues();
+                for (int i = 0; i < CARD_COLUMNS.length; i++) {
+                    switch (cursor.getType(i)) {
+                        case Cursor.FIELD_TYPE_INTEGER:
+                            card.put(CARD_COLUMNS[i], cursor.getLong(i));
+                            break;
+                        case Cursor.FIELD_TYPE_FLOAT:
+                            card.put(CARD_COLUMNS[i], cursor.getDouble(i));
+                            break;
+                        case Cursor.FIELD_TYPE_NULL:
+                            card.putNull(CARD_COLUMNS[i]);
+                            break;
+                        default:
+                            card.put(CARD_COLUMNS[i], cursor.getString(i));
+                            break;
+                    }
+                }
+                cards.add(card);
+            }
+        }
+        cards.sort(BY_SCORE_DESC);
+        return Collections.unmodifiableList(cards);
+    }
+
+    /** Copies {@code cards}, with a new dismissal time for the rows matching {@code filter}. */
+    private static List<ContentValues> replaceCards(List<ContentValues> cards,
+            Predicate<ContentValues> filter, @Nullable Long dismissedTime) {
+        final List<ContentValues> newCards = new ArrayList<>(cards.size());
+        for (ContentValues card : cards) {
+            if (filter.test(card)) {
+                final ContentValues newCard = new ContentValues(card);
+                newCard.put(CardColumns.DISMISSED_TIMESTAMP, dismissedTime);
+                newCards.add(newCard);
+            } else {
+                newCards.add(card);
+            }
+        }
+        return Collections.unmodifiableList(newCards);
+    }
+
     @VisibleForTesting
     static CardDatabaseHelper sCardDatabaseHelper;
 
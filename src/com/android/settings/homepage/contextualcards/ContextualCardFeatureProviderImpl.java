@@ -16,12 +16,8 @@
 
 package com.android.settings.homepage.contextualcards;
 
-import static com.android.settings.homepage.contextualcards.CardDatabaseHelper.CARD_TABLE;
-
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
 import android.os.Build;
 import android.text.format.DateUtils;
 import android.util.Log;
@@ -41,41 +37,30 @@ public class ContextualCardFeatureProviderImpl implements ContextualCardFeatureP
 
     @Override
     public Cursor getContextualCards() {
-        final SQLiteDatabase db = CardDatabaseHelper.getInstance(mContext).getReadableDatabase();
         //TODO(b/149542061): Make the dismissal duration configurable.
         final long threshold = System.currentTimeMillis() - DateUtils.DAY_IN_MILLIS;
-        final String selection = CardDatabaseHelper.CardColumns.DISMISSED_TIMESTAMP + " < ? OR "
-                + CardDatabaseHelper.CardColumns.DISMISSED_TIMESTAMP + " IS NULL";
-        final String[] selectionArgs = {String.valueOf(threshold)};
-        final Cursor cursor = db.query(CARD_TABLE, null /* columns */, selection,
-                selectionArgs /* selectionArgs */, null /* groupBy */, null /* having */,
-                CardDatabaseHelper.CardColumns.SCORE + " DESC" /* orderBy */);
+        final Cursor cursor = CardDatabaseHelper.getInstance(mContext).queryCards(
+                null /* projection */, card -> {
+                    final Long dismissedTime =
+                            card.getAsLong(CardDatabaseHelper.CardColumns.DISMISSED_TIMESTAMP);
+                    return dismissedTime == null || dismissedTime < threshold;
+                });
         ThreadUtils.postOnBackgroundThread(() -> resetDismissedTime(threshold));
         return cursor;
     }
 
     @Override
     public int markCardAsDismissed(Context context, String cardName) {
-        final SQLiteDatabase db = CardDatabaseHelper.getInstance(mContext).getWritableDatabase();
-        final ContentValues values = new ContentValues();
-        values.put(CardDatabaseHelper.CardColumns.DISMISSED_TIMESTAMP, System.currentTimeMillis());
-        final String selection = CardDatabaseHelper.CardColumns.NAME + "=?";
-        final String[] selectionArgs = {cardName};
-        final int rowsUpdated = db.update(CARD_TABLE, values, selection, selectionArgs);
+        final int rowsUpdated = CardDatabaseHelper.getInstance(mContext).markCardAsDismissed(
+                cardName, System.currentTimeMillis());
         context.getContentResolver().notifyChange(CardContentProvider.DELETE_CARD_URI, null);
         return rowsUpdated;
     }
 
     @VisibleForTesting
     int resetDismissedTime(long threshold) {
-        final SQLiteDatabase database =
-                CardDatabaseHelper.getInstance(mContext).getWritableDatabase();
-        final ContentValues values = new ContentValues();
-        values.putNull(CardDatabaseHelper.CardColumns.DISMISSED_TIMESTAMP);
-        final String selection = CardDatabaseHelper.CardColumns.DISMISSED_TIMESTAMP + " < ? AND "
-                + CardDatabaseHelper.CardColumns.DISMISSED_TIMESTAMP + " IS NOT NULL";
-        final String[] selectionArgs = {String.valueOf(threshold)};
-        final int rowsUpdated = database.update(CARD_TABLE, values, selection, selectionArgs);
+        final int rowsUpdated =
+                CardDatabaseHelper.getInstance(mContext).resetDismissedTime(threshold);
         if (Build.IS_DEBUGGABLE) {
             Log.d(TAG, "Reset " + rowsUpdated + " records of dismissed time.");
         }
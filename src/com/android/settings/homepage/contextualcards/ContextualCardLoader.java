@@ -26,10 +26,12 @@ import android.database.Cursor;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.provider.Settings;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.R;
@@ -40,10 +42,14 @@ import com.android.settingslib.utils.AsyncLoaderCompat;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>> {
@@ -56,6 +62,12 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
 
     private static final String TAG = "ContextualCardLoader";
     private static final long ELIGIBILITY_CHECKER_TIMEOUT_MS = 400;
+    private static final int ELIGIBILITY_CHECKER_THREADS = 4;
+    private static final long ELIGIBILITY_CHECKER_KEEP_ALIVE_MS = 30_000;
+
+    // Shared by all loads, its threads only live while cards are being loaded.
+    private static final ExecutorService ELIGIBILITY_CHECKER_EXECUTOR =
+            createEligibilityCheckerExecutor();
 
     private final ContentObserver mObserver = new ContentObserver(
             new Handler(Looper.getMainLooper())) {
@@ -187,40 +199,88 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
             return candidates;
         }
 
-        final ExecutorService executor = Executors.newFixedThreadPool(candidates.size());
+        final EligibleCardCache cache = EligibleCardCache.getInstance(mContext);
         final List<ContextualCard> cards = new ArrayList<>();
-        List<Future<ContextualCard>> eligibleCards = new ArrayList<>();
 
         final List<EligibleCardChecker> checkers = candidates.stream()
-                .map(card -> new EligibleCardChecker(mContext, card))
+                .map(card -> createEligibleCardChecker(card, cache))
                 .collect(Collectors.toList());
+        final List<Future<ContextualCard>> futures = new ArrayList<>(checkers.size());
+        for (EligibleCardChecker checker : checkers) {
+            futures.add(ELIGIBILITY_CHECKER_EXECUTOR.submit(checker));
+        }
+        // A check waits in the queue at most as long as if every check ahead of it used up its
+        // whole timeout.
+        final long queueDeadline = SystemClock.elapsedRealtime() + ELIGIBILITY_CHECKER_TIMEOUT_MS
+                * ((checkers.size() + ELIGIBILITY_CHECKER_THREADS - 1)
+                / ELIGIBILITY_CHECKER_THREADS);
+
+        // Collect future and eligible cards
         try {
-            eligibleCards = executor.invokeAll(checkers, ELIGIBILITY_CHECKER_TIMEOUT_MS,
-                    TimeUnit.MILLISECONDS);
+            for (int i = 0; i < futures.size(); i++) {
+                final ContextualCard card = getEligibleCard(checkers.get(i), futures.get(i),
+                        candidates.get(i).getSliceUri(), queueDeadline, cache);
+                if (card != null) {
+                    cards.add(card);
+                }
+            }
         } catch (InterruptedException e) {
             Log.w(TAG, "Failed to get eligible states for all cards", e);
+            futures.forEach(future -> future.cancel(true /* mayInterruptIfRunning */));
+            Thread.currentThread().interrupt();
         }
-        executor.shutdown();
+        return cards;
+    }
 
-        // Collect future and eligible cards
-        for (int i = 0; i < eligibleCards.size(); i++) {
-            final Future<ContextualCard> cardFuture = eligibleCards.get(i);
-            if (cardFuture.isCancelled()) {
-                Log.w(TAG, "Timeout getting eligible state for card: "
-                        + candidates.get(i).getSliceUri());
-                continue;
-            }
+    @VisibleForTesting
+    EligibleCardChecker createEligibleCardChecker(ContextualCard card, EligibleCardCache cache) {
+        return new EligibleCardChecker(mContext, card, cache);
+    }
 
+    /**
+     * Waits for the check of {@code uri}. The check times out {@link
+     * #ELIGIBILITY_CHECKER_TIMEOUT_MS} after it starts running, so the time spent queued behind
+     * other checks does not count. It is given up without starting after {@code queueDeadline}.
+     */
+    @Nullable
+    private static ContextualCard getEligibleCard(EligibleCardChecker checker,
+            Future<ContextualCard> future, Uri uri, long queueDeadline, EligibleCardCache cache)
+            throws InterruptedException {
+        while (true) {
+            final long now = SystemClock.elapsedRealtime();
+            final long startTime = checker.getStartTimeMs();
+            final boolean started = startTime != EligibleCardChecker.NOT_STARTED;
+            // Until it starts, wake up at most one timeout later to learn its start time.
+            final long deadline = started ? startTime + ELIGIBILITY_CHECKER_TIMEOUT_MS
+                    : Math.min(queueDeadline, now + ELIGIBILITY_CHECKER_TIMEOUT_MS);
             try {
-                final ContextualCard card = cardFuture.get();
-                if (card != null) {
-                    cards.add(card);
+                return future.get(Math.max(0, deadline - now), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (started) {
+                    Log.w(TAG, "Timeout getting eligible state for card: " + uri);
+                    future.cancel(true /* mayInterruptIfRunning */);
+                    cache.recordTimeout(uri);
+                    return null;
+                }
+                if (checker.getStartTimeMs() == EligibleCardChecker.NOT_STARTED
+                        && SystemClock.elapsedRealtime() >= queueDeadline) {
+                    Log.w(TAG, "Eligible state of card never checked: " + uri);
+                    future.cancel(true /* mayInterruptIfRunning */);
+                    return null;
                 }
-            } catch (Exception e) {
+            } catch (ExecutionException | CancellationException e) {
                 Log.w(TAG, "Failed to get eligible state for card", e);
+                return null;
             }
         }
-        return cards;
+    }
+
+    private static ExecutorService createEligibilityCheckerExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(ELIGIBILITY_CHECKER_THREADS,
+                ELIGIBILITY_CHECKER_THREADS, ELIGIBILITY_CHECKER_KEEP_ALIVE_MS,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     private boolean isLargeCard(ContextualCard card) {
@@ -21,6 +21,8 @@ import android.view.View;
 import androidx.annotation.LayoutRes;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.List;
+
 /**
  * UI renderer for {@link ContextualCard}.
  */
@@ -39,4 +41,14 @@ public interface ContextualCardRenderer {
      * {@link androidx.recyclerview.widget.RecyclerView.ViewHolder}.
      */
     void bindView(RecyclerView.ViewHolder holder, ContextualCard card);
+
+    /**
+     * Called instead of {@link #bindView(RecyclerView.ViewHolder, ContextualCard)} when the holder
+     * already shows a card with the same name, with the payloads of
+     * {@link ContextualCardsDiffCallback#getChangePayload}. Rebinds the whole view by default.
+     */
+    default void bindView(RecyclerView.ViewHolder holder, ContextualCard card,
+            List<Object> payloads) {
+        bindView(holder, card);
+    }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@
 package com.android.settings.homepage.contextualcards;
 
 import android.content.Context;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -43,6 +44,8 @@ public class ContextualCardsAdapter extends RecyclerView.Adapter<RecyclerView.Vi
     private static final String TAG = "ContextualCardsAdapter";
     private static final int HALF_WIDTH = 1;
     private static final int FULL_WIDTH = 2;
+    @VisibleForTesting
+    static final int PREWARM_VIEW_HOLDER_COUNT = 2;
 
     @VisibleForTesting
     final List<ContextualCard> mContextualCards;
@@ -89,6 +92,19 @@ public class ContextualCardsAdapter extends RecyclerView.Adapter<RecyclerView.Vi
         renderer.bindView(holder, card);
     }
 
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position,
+            List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        final ContextualCard card = mContextualCards.get(position);
+        final ContextualCardRenderer renderer = mControllerRendererPool.getRendererByViewType(
+                mContext, mLifecycleOwner, card.getViewType());
+        renderer.bindView(holder, card, payloads);
+    }
+
     @Override
     public int getItemCount() {
         return mContextualCards.size();
@@ -137,6 +153,24 @@ public class ContextualCardsAdapter extends RecyclerView.Adapter<RecyclerView.Vi
         }
     }
 
+    /**
+     * Creates the views of full width slice cards while the main thread is idle, before the cards
+     * are loaded, so that the first cards are bound to views already inflated.
+     */
+    void prewarmViewHolders(RecyclerView recyclerView) {
+        final int[] remaining = {PREWARM_VIEW_HOLDER_COUNT};
+        Looper.myQueue().addIdleHandler(() -> {
+            // Stops once the cards are shown, they already have their views.
+            if (recyclerView.getAdapter() != this || recyclerView.getChildCount() > 0) {
+                return false;
+            }
+            recyclerView.getRecycledViewPool().putRecycledView(createViewHolder(recyclerView,
+                    SliceContextualCardRenderer.VIEW_TYPE_FULL_WIDTH));
+            remaining[0]--;
+            return remaining[0] > 0;
+        });
+    }
+
     @Override
     public void onSwiped(int position) {
         final ContextualCard card = mContextualCards.get(position).mutate()
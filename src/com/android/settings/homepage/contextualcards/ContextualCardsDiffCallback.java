@@ -22,12 +22,19 @@ import static com.android.settings.intelligence.ContextualCardProto.ContextualCa
 import androidx.recyclerview.widget.DiffUtil;
 
 import java.util.List;
+import java.util.Objects;
 
 /**
  * A DiffCallback to calculate the difference between old and new {@link ContextualCard} List.
  */
 public class ContextualCardsDiffCallback extends DiffUtil.Callback {
 
+    /**
+     * Payload of a changed card whose view can be updated in place, without rebinding the whole
+     * view: the card keeps its layout and its slice.
+     */
+    public static final String PAYLOAD_UPDATE_IN_PLACE = "update_in_place";
+
     private final List<ContextualCard> mOldCards;
     private final List<ContextualCard> mNewCards;
 
@@ -58,11 +65,24 @@ public class ContextualCardsDiffCallback extends DiffUtil.Callback {
         final ContextualCard newCard = mNewCards.get(newCardPosition);
         // Sticky, important, or toggleable slices need to be updated continuously, which means
         // their contents may change. So here we assume the content will always be different to
-        // force view rebinding.
+        // force view rebinding, in place when possible, see getChangePayload().
         if (newCard.getCategory() == STICKY_VALUE || newCard.getCategory() == IMPORTANT_VALUE
                 || newCard.hasInlineAction()) {
             return false;
         }
-        return mOldCards.get(oldCardPosition).equals(newCard);
+        final ContextualCard oldCard = mOldCards.get(oldCardPosition);
+        return oldCard.equals(newCard) && oldCard.getViewType() == newCard.getViewType();
+    }
+
+    @Override
+    public Object getChangePayload(int oldCardPosition, int newCardPosition) {
+        final ContextualCard oldCard = mOldCards.get(oldCardPosition);
+        final ContextualCard newCard = mNewCards.get(newCardPosition);
+        if (oldCard.getViewType() == newCard.getViewType()
+                && oldCard.isLargeCard() == newCard.isLargeCard()
+                && Objects.equals(oldCard.getSliceUri(), newCard.getSliceUri())) {
+            return PAYLOAD_UPDATE_IN_PLACE;
+        }
+        return null;
     }
 }
\ No newline at end of file
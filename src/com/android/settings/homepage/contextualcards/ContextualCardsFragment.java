@@ -30,6 +30,8 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.loader.app.LoaderManager;
 import androidx.recyclerview.widget.GridLayoutManager;
@@ -41,6 +43,9 @@ import com.android.settings.homepage.contextualcards.slices.BluetoothUpdateWorke
 import com.android.settings.homepage.contextualcards.slices.SwipeDismissalDelegate;
 import com.android.settings.overlay.FeatureFactory;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
 public class ContextualCardsFragment extends InstrumentedFragment implements
         FocusRecyclerView.FocusListener {
 
@@ -109,6 +114,9 @@ public class ContextualCardsFragment extends InstrumentedFragment implements
                 mContextualCardManager);
         mCardsContainer.setItemAnimator(null);
         mCardsContainer.setAdapter(mContextualCardsAdapter);
+        if (!context.getResources().getBoolean(R.bool.config_use_legacy_suggestion)) {
+            mContextualCardsAdapter.prewarmViewHolders(mCardsContainer);
+        }
         mContextualCardManager.setListener(mContextualCardsAdapter);
         mCardsContainer.setListener(this);
         mItemTouchHelper = new ItemTouchHelper(new SwipeDismissalDelegate(mContextualCardsAdapter));
@@ -122,6 +130,16 @@ public class ContextualCardsFragment extends InstrumentedFragment implements
         mContextualCardManager.onWindowFocusChanged(hasWindowFocus);
     }
 
+    @Override
+    public void dump(@NonNull String prefix, @Nullable FileDescriptor fd,
+            @NonNull PrintWriter writer, @Nullable String[] args) {
+        super.dump(prefix, fd, writer, args);
+        final Context context = getContext();
+        if (context != null) {
+            EligibleCardCache.getInstance(context).dump(prefix, writer);
+        }
+    }
+
     @Override
     public int getMetricsCategory() {
         return SettingsEnums.SETTINGS_HOMEPAGE;
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.slice.Slice;
+
+import java.io.PrintWriter;
+
+/**
+ * Keeps the result of {@link EligibleCardChecker} for each slice URI for a short time, so that
+ * reloading the contextual cards does not bind every slice again.
+ *
+ * <p>An entry is dropped as soon as its slice provider notifies a change of the slice URI, or
+ * after {@link #MAX_AGE_MS}. It also keeps, per slice URI, how long the eligibility checks took
+ * and how many of them timed out.
+ */
+public class EligibleCardCache {
+
+    @VisibleForTesting
+    static final long MAX_AGE_MS = 10_000;
+
+    private static EligibleCardCache sInstance;
+
+    /** The result of an eligibility check. */
+    static class Entry {
+        /** The bound slice, or null if the card is not eligible. */
+        @Nullable
+        final Slice mSlice;
+        final boolean mHasInlineAction;
+        final long mCheckedTime;
+
+        Entry(@Nullable Slice slice, boolean hasInlineAction, long checkedTime) {
+            mSlice = slice;
+            mHasInlineAction = hasInlineAction;
+            mCheckedTime = checkedTime;
+        }
+    }
+
+    private static class Stats {
+        int mChecks;
+        int mCacheHits;
+        int mTimeouts;
+        long mTotalLatencyMs;
+        long mMaxLatencyMs;
+    }
+
+    private final Context mContext;
+    private final ArrayMap<Uri, Entry> mEntries = new ArrayMap<>();
+    private final ArrayMap<Uri, ContentObserver> mObservers = new ArrayMap<>();
+    private final ArrayMap<Uri, Stats> mStats = new ArrayMap<>();
+
+    /** Returns the cache shared by all contextual card loads. */
+    public static synchronized EligibleCardCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new EligibleCardCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    EligibleCardCache(Context context) {
+        mContext = context;
+    }
+
+    /** Returns the recent result for {@code uri}, or null if it must be checked again. */
+    @Nullable
+    synchronized Entry get(Uri uri) {
+        final Entry entry = mEntries.get(uri);
+        if (entry == null) {
+            return null;
+        }
+        if (SystemClock.elapsedRealtime() - entry.mCheckedTime >= MAX_AGE_MS) {
+            remove(uri);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Keeps the result for {@code uri} until the slice changes or the result expires.
+     *
+     * @param slice the bound slice, or null if the card is not eligible.
+     */
+    synchronized void put(Uri uri, @Nullable Slice slice, boolean hasInlineAction) {
+        mEntries.put(uri, new Entry(slice, hasInlineAction, SystemClock.elapsedRealtime()));
+        if (!mObservers.containsKey(uri)) {
+            final ContentObserver observer = new ContentObserver(null /* handler */) {
+                @Override
+                public void onChange(boolean selfChange) {
+                    invalidate(uri);
+                }
+            };
+            mObservers.put(uri, observer);
+            mContext.getContentResolver().registerContentObserver(uri,
+                    false /* notifyForDescendants */, observer);
+        }
+    }
+
+    /** Drops the result for {@code uri}, e.g. after its slice changed. */
+    synchronized void invalidate(Uri uri) {
+        remove(uri);
+    }
+
+    /** Records an eligibility check of {@code uri} that took {@code latencyMs}. */
+    synchronized void recordCheck(Uri uri, long latencyMs, boolean cacheHit) {
+        final Stats stats = getStats(uri);
+        stats.mChecks++;
+        if (cacheHit) {
+            stats.mCacheHits++;
+        }
+        stats.mTotalLatencyMs += latencyMs;
+        stats.mMaxLatencyMs = Math.max(stats.mMaxLatencyMs, latencyMs);
+    }
+
+    /** Records an eligibility check of {@code uri} that did not finish in time. */
+    synchronized void recordTimeout(Uri uri) {
+        getStats(uri).mTimeouts++;
+    }
+
+    @VisibleForTesting
+    synchronized int getTimeoutCount(Uri uri) {
+        final Stats stats = mStats.get(uri);
+        return stats == null ? 0 : stats.mTimeouts;
+    }
+
+    /** Prints the check statistics of each card. */
+    public synchronized void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Contextual card eligibility checks:");
+        for (int i = 0; i < mStats.size(); i++) {
+            final Uri uri = mStats.keyAt(i);
+            final Stats stats = mStats.valueAt(i);
+            writer.println(prefix + "  " + uri
+                    + " checks=" + stats.mChecks
+                    + " cacheHits=" + stats.mCacheHits
+                    + " timeouts=" + stats.mTimeouts
+                    + " avgMs=" + (stats.mChecks == 0 ? 0 : stats.mTotalLatencyMs / stats.mChecks)
+                    + " maxMs=" + stats.mMaxLatencyMs
+                    + " cached=" + mEntries.containsKey(uri));
+        }
+    }
+
+    private Stats getStats(Uri uri) {
+        Stats stats = mStats.get(uri);
+        if (stats == null) {
+            stats = new Stats();
+            mStats.put(uri, stats);
+        }
+        return stats;
+    }
+
+    private void remove(Uri uri) {
+        mEntries.remove(uri);
+        final ContentObserver observer = mObservers.remove(uri);
+        if (observer != null) {
+            mContext.getContentResolver().unregisterContentObserver(observer);
+        }
+    }
+}
@@ -23,8 +23,10 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.net.Uri;
 import android.os.AsyncTask;
+import android.os.SystemClock;
 import android.util.Log;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.slice.Slice;
 import androidx.slice.SliceMetadata;
@@ -36,24 +38,52 @@ import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class EligibleCardChecker implements Callable<ContextualCard> {
 
     private static final String TAG = "EligibleCardChecker";
 
+    // Slices whose bind has not returned yet. A bind cannot be interrupted once it timed out, so
+    // a slice stuck binding is not bound again until then and holds at most one checker thread.
+    @VisibleForTesting
+    static final Set<Uri> sPendingBinds = ConcurrentHashMap.newKeySet();
+
+    /** Start time of a check that has not started running yet. */
+    static final long NOT_STARTED = -1L;
+
     private final Context mContext;
+    @Nullable
+    private final EligibleCardCache mCache;
+    private boolean mCacheHit;
+    private volatile long mStartTimeMs = NOT_STARTED;
 
     @VisibleForTesting
     ContextualCard mCard;
 
     EligibleCardChecker(Context context, ContextualCard card) {
+        this(context, card, null /* cache */);
+    }
+
+    EligibleCardChecker(Context context, ContextualCard card, @Nullable EligibleCardCache cache) {
         mContext = context;
         mCard = card;
+        mCache = cache;
+    }
+
+    /**
+     * Returns the {@link SystemClock#elapsedRealtime()} at which {@link #call()} started, or
+     * {@link #NOT_STARTED}.
+     */
+    long getStartTimeMs() {
+        return mStartTimeMs;
     }
 
     @Override
     public ContextualCard call() {
+        mStartTimeMs = SystemClock.elapsedRealtime();
         final long startTime = System.currentTimeMillis();
         final MetricsFeatureProvider metricsFeatureProvider =
                 FeatureFactory.getFeatureFactory().getMetricsFeatureProvider();
@@ -73,11 +103,15 @@ public class EligibleCardChecker implements Callable<ContextualCard> {
             result = null;
         }
         // Log individual card loading time
+        final long latencyMs = System.currentTimeMillis() - startTime;
         metricsFeatureProvider.action(SettingsEnums.PAGE_UNKNOWN,
                 SettingsEnums.ACTION_CONTEXTUAL_CARD_LOAD,
                 SettingsEnums.SETTINGS_HOMEPAGE,
                 mCard.getTextSliceUri() /* key */,
-                (int) (System.currentTimeMillis() - startTime) /* value */);
+                (int) latencyMs /* value */);
+        if (mCache != null) {
+            mCache.recordCheck(mCard.getSliceUri(), latencyMs, mCacheHit);
+        }
 
         return result;
     }
@@ -93,18 +127,48 @@ public class EligibleCardChecker implements Callable<ContextualCard> {
             return false;
         }
 
-        final Slice slice = bindSlice(uri);
+        // A slice that has not changed since it was last bound is not bound again.
+        final EligibleCardCache.Entry cached = mCache != null ? mCache.get(uri) : null;
+        mCacheHit = cached != null;
+        if (cached != null) {
+            if (cached.mSlice == null) {
+                return false;
+            }
+            mCard = card.mutate().setSlice(cached.mSlice).build();
+            if (cached.mHasInlineAction) {
+                mCard = card.mutate().setHasInlineAction(true).build();
+            }
+            return true;
+        }
+
+        if (!sPendingBinds.add(uri)) {
+            Log.w(TAG, "Previous bind still pending, not eligible for display " + uri);
+            return false;
+        }
+        final Slice slice;
+        try {
+            slice = bindSlice(uri);
+        } finally {
+            sPendingBinds.remove(uri);
+        }
 
         if (slice == null || slice.hasHint(HINT_ERROR)) {
             Log.w(TAG, "Failed to bind slice, not eligible for display " + uri);
+            if (mCache != null) {
+                mCache.put(uri, null /* slice */, false /* hasInlineAction */);
+            }
             return false;
         }
 
         mCard = card.mutate().setSlice(slice).build();
 
-        if (isSliceToggleable(slice)) {
+        final boolean hasInlineAction = isSliceToggleable(slice);
+        if (hasInlineAction) {
             mCard = card.mutate().setHasInlineAction(true).build();
         }
+        if (mCache != null) {
+            mCache.put(uri, slice, hasInlineAction);
+        }
 
         return true;
     }
@@ -46,10 +46,12 @@ import com.android.settings.R;
 import com.android.settings.homepage.contextualcards.CardContentProvider;
 import com.android.settings.homepage.contextualcards.ContextualCard;
 import com.android.settings.homepage.contextualcards.ContextualCardRenderer;
+import com.android.settings.homepage.contextualcards.ContextualCardsDiffCallback;
 import com.android.settings.homepage.contextualcards.ControllerRendererPool;
 import com.android.settings.homepage.contextualcards.slices.SliceFullCardRendererHelper.SliceViewHolder;
 import com.android.settingslib.utils.ThreadUtils;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -129,6 +131,31 @@ public class SliceContextualCardRenderer implements ContextualCardRenderer, Life
         if (swipeBackground != null) {
             swipeBackground.setVisibility(View.GONE);
         }
+        observeSlice(holder, card, sliceLiveData, swipeBackground);
+        bindDismissal(holder, card);
+    }
+
+    @Override
+    public void bindView(RecyclerView.ViewHolder holder, ContextualCard card,
+            List<Object> payloads) {
+        final LiveData<Slice> sliceLiveData = mSliceLiveDataMap.get(card.getSliceUri());
+        if (!payloads.contains(ContextualCardsDiffCallback.PAYLOAD_UPDATE_IN_PLACE)
+                || sliceLiveData == null || !sliceLiveData.hasObservers()) {
+            bindView(holder, card);
+            return;
+        }
+        // The holder keeps its layout and the slice already rendered into it, so the slice view
+        // and the swipe background are left as they are. The observer still captures the old card
+        // though, so it is registered again for the new one, which also renders the current slice
+        // with it.
+        sliceLiveData.removeObservers(mLifecycleOwner);
+        observeSlice(holder, card, sliceLiveData,
+                holder.itemView.findViewById(R.id.dismissal_swipe_background));
+        bindDismissal(holder, card);
+    }
+
+    private void observeSlice(RecyclerView.ViewHolder holder, ContextualCard card,
+            LiveData<Slice> sliceLiveData, View swipeBackground) {
         sliceLiveData.observe(mLifecycleOwner, slice -> {
             if (slice == null) {
                 // The logic handling this case is in OnErrorListener. Adding this check is to
@@ -152,14 +179,17 @@ public class SliceContextualCardRenderer implements ContextualCardRenderer, Life
                 swipeBackground.setVisibility(View.VISIBLE);
             }
         });
+    }
 
-        if (holder.getItemViewType() != VIEW_TYPE_STICKY) {
-            initDismissalActions(holder, card);
+    private void bindDismissal(RecyclerView.ViewHolder holder, ContextualCard card) {
+        if (holder.getItemViewType() == VIEW_TYPE_STICKY) {
+            return;
+        }
+        initDismissalActions(holder, card);
 
-            if (card.isPendingDismiss()) {
-                showDismissalView(holder);
-                mFlippedCardSet.add(holder);
-            }
+        if (card.isPendingDismiss()) {
+            showDismissalView(holder);
+            mFlippedCardSet.add(holder);
         }
     }
 
@@ -22,6 +22,7 @@ import android.content.SharedPreferences;
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.SettingsApplication;
 import com.android.settingslib.datastore.SharedPreferencesStorage;
 
 import com.google.gson.Gson;
@@ -44,6 +45,8 @@ public class LocaleNotificationDataManager {
      */
     public LocaleNotificationDataManager(Context context) {
         this.mContext = context;
+        // Backs up the changes made through this manager.
+        SettingsApplication.ensureInitialized(context, SettingsApplication.INIT_BACKUP_STORAGES);
     }
 
     /** Returns the underlying {@link SharedPreferences} storage. */
@@ -28,13 +28,27 @@ import android.content.IntentFilter;
 import android.os.PersistableBundle;
 import android.telephony.CarrierConfigManager;
 import android.telephony.SubscriptionManager;
+import android.telephony.TelephonyManager;
+import android.util.AtomicFile;
 import android.util.Log;
+import android.util.SparseIntArray;
 
 import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
 
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -65,6 +79,47 @@ public class CarrierConfigCache {
     @VisibleForTesting
     protected static CarrierConfigManager sCarrierConfigManager;
 
+    /**
+     * Manages mapping data from the subscription ID to the values of the keys asked for through
+     * {@link #getConfigForSubId(int, String...)}.
+     */
+    @VisibleForTesting
+    protected static final Map<Integer, PersistableBundle> sProjectedConfigs =
+            new ConcurrentHashMap<>();
+    /** Every key asked for through {@link #getConfigForSubId(int, String...)}. */
+    @VisibleForTesting
+    protected static final Set<String> sProjectedKeys = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Bumped for a subscription each time its carrier config changes, so that values fetched
+     * before the change are not merged back. Read with {@link #getConfigGenerationLocked}.
+     */
+    @GuardedBy("sProjectedConfigs")
+    private static final SparseIntArray sConfigGenerations = new SparseIntArray();
+    /** Bumped each time the carrier config of every subscription changes. */
+    @GuardedBy("sProjectedConfigs")
+    private static int sAllConfigsGeneration;
+
+    private static final String PROJECTION_FILE_NAME = "carrier_config_projection";
+    private static final String PERSISTED_KEYS = "keys";
+    private static final String PERSISTED_SUB_PREFIX = "sub_";
+    private static final String PERSISTED_CARRIER_PREFIX = "carrier_";
+    private static final String PERSISTED_VERSION_PREFIX = "version_";
+
+    /**
+     * Projected values persisted across process restarts. It maps each carrier ID to its
+     * projected values and to the config version they were read with, each subscription ID to
+     * the carrier ID it was last seen with, and {@link #PERSISTED_KEYS} to the keys to warm up on
+     * carrier config changes.
+     */
+    @VisibleForTesting
+    @GuardedBy("sProjectedConfigs")
+    protected static PersistableBundle sPersistedConfigs;
+    @VisibleForTesting
+    protected static AtomicFile sProjectionFile;
+    @VisibleForTesting
+    protected static TelephonyManager sTelephonyManager;
+
     /**
      * Static method to create a singleton class for Carrier-Configuration cache.
      *
@@ -86,8 +141,12 @@ public class CarrierConfigCache {
             final CarrierConfigChangeReceiver receiver = new CarrierConfigChangeReceiver();
             final Context appContext = context.getApplicationContext();
             sCarrierConfigManager = appContext.getSystemService(CarrierConfigManager.class);
+            sTelephonyManager = appContext.getSystemService(TelephonyManager.class);
+            sProjectionFile = new AtomicFile(
+                    new File(appContext.getFilesDir(), PROJECTION_FILE_NAME));
             appContext.registerReceiver(receiver, new IntentFilter(ACTION_CARRIER_CONFIG_CHANGED),
                     Context.RECEIVER_EXPORTED/*UNAUDITED*/);
+            ThreadUtils.postOnBackgroundThread(CarrierConfigCache::loadPersistedConfigs);
             return sInstance;
         }
     }
@@ -154,6 +213,59 @@ public class CarrierConfigCache {
         }
     }
 
+    /**
+     * Gets only the given keys of the Carrier-Configuration for a particular subscription.
+     *
+     * <p>Prefer this over {@link #getConfigForSubId(int)} when only a few keys are needed. The
+     * values are kept per carrier across process restarts and refreshed in the background when
+     * the carrier config changes, so once a key has been asked for it is normally returned
+     * without a call to telephony. Otherwise only the given keys are fetched. Values persisted by
+     * an earlier process are only served once they were loaded and checked in the background.
+     *
+     * @param subId the subscription ID, normally obtained from {@link SubscriptionManager}.
+     * @param keys the Carrier-Configuration keys to return.
+     * @return A {@link PersistableBundle} containing the given keys, or null if the config could
+     * not be obtained.
+     */
+    @Nullable
+    public PersistableBundle getConfigForSubId(int subId, @NonNull String... keys) {
+        if (sCarrierConfigManager == null) return null;
+
+        Collections.addAll(sProjectedKeys, keys);
+        final PersistableBundle fullConfig = sCarrierConfigs.get(subId);
+        if (fullConfig != null) {
+            return project(fullConfig, keys);
+        }
+        final int generation;
+        synchronized (sProjectedConfigs) {
+            final PersistableBundle projected = sProjectedConfigs.get(subId);
+            if (projected != null && containsAll(projected, keys)) {
+                return project(projected, keys);
+            }
+            generation = getConfigGenerationLocked(subId);
+        }
+
+        final PersistableBundle fetched = sCarrierConfigManager.getConfigForSubId(subId, keys);
+        if (fetched == null) {
+            Log.e(TAG, "Could not get carrier config keys, subId:" + subId);
+            return null;
+        }
+        synchronized (sProjectedConfigs) {
+            if (getConfigGenerationLocked(subId) != generation) {
+                // The carrier config changed while fetching, the values may be stale. They are
+                // still returned to this caller, but neither kept nor persisted.
+                return project(fetched, keys);
+            }
+            final PersistableBundle projected = sProjectedConfigs.get(subId);
+            final PersistableBundle merged =
+                    projected != null ? new PersistableBundle(projected) : new PersistableBundle();
+            merged.putAll(fetched);
+            sProjectedConfigs.put(subId, merged);
+        }
+        ThreadUtils.postOnBackgroundThread(() -> persistProjectedConfig(subId, generation));
+        return project(fetched, keys);
+    }
+
     /**
      * Gets the Carrier-Configuration for the default subscription.
      *
@@ -165,6 +277,225 @@ public class CarrierConfigCache {
         return getConfigForSubId(SubscriptionManager.getDefaultSubscriptionId());
     }
 
+    private static PersistableBundle project(PersistableBundle config, String[] keys) {
+        final PersistableBundle projected = new PersistableBundle(keys.length);
+        for (String key : keys) {
+            if (config.containsKey(key)) {
+                projected.putObject(key, config.get(key));
+            }
+        }
+        return projected;
+    }
+
+    @GuardedBy("sProjectedConfigs")
+    private static int getConfigGenerationLocked(int subId) {
+        return sAllConfigsGeneration + sConfigGenerations.get(subId);
+    }
+
+    private static boolean containsAll(PersistableBundle config, String[] keys) {
+        for (String key : keys) {
+            if (!config.containsKey(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Loads the values persisted by an earlier process and serves those of each subscription
+     * that still has the same carrier ID and carrier config version. The others are dropped.
+     * Runs in the background so that callers never wait on the file.
+     */
+    @VisibleForTesting
+    @WorkerThread
+    static void loadPersistedConfigs() {
+        final PersistableBundle read = readPersistedConfigs();
+        final PersistableBundle persisted;
+        synchronized (sProjectedConfigs) {
+            if (sPersistedConfigs == null) {
+                sPersistedConfigs = read;
+            }
+            persisted = new PersistableBundle(sPersistedConfigs);
+        }
+        boolean dropped = false;
+        for (String subKey : persisted.keySet()) {
+            if (!subKey.startsWith(PERSISTED_SUB_PREFIX)) continue;
+
+            final int subId;
+            try {
+                subId = Integer.parseInt(subKey.substring(PERSISTED_SUB_PREFIX.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            final int carrierId = persisted.getInt(subKey, TelephonyManager.UNKNOWN_CARRIER_ID);
+            final PersistableBundle config =
+                    persisted.getPersistableBundle(PERSISTED_CARRIER_PREFIX + carrierId);
+            // Without a version, a change made while no Settings process was running to receive
+            // ACTION_CARRIER_CONFIG_CHANGED cannot be detected.
+            final String version = persisted.getString(PERSISTED_VERSION_PREFIX + carrierId);
+            final boolean valid = config != null && version != null
+                    && carrierId == getSimCarrierId(subId)
+                    && version.equals(getConfigVersion(subId));
+            synchronized (sProjectedConfigs) {
+                if (sPersistedConfigs.getInt(subKey, TelephonyManager.UNKNOWN_CARRIER_ID)
+                        != carrierId) {
+                    // The carrier config changed while checking.
+                    continue;
+                }
+                if (valid) {
+                    sProjectedConfigs.putIfAbsent(subId, new PersistableBundle(config));
+                } else {
+                    sPersistedConfigs.remove(subKey);
+                    dropped = true;
+                }
+            }
+        }
+        if (dropped) {
+            synchronized (sProjectedConfigs) {
+                writePersistedConfigsLocked();
+            }
+        }
+    }
+
+    @GuardedBy("sProjectedConfigs")
+    private static PersistableBundle readPersistedConfigsLocked() {
+        if (sPersistedConfigs == null) {
+            sPersistedConfigs = readPersistedConfigs();
+        }
+        return sPersistedConfigs;
+    }
+
+    private static PersistableBundle readPersistedConfigs() {
+        if (sProjectionFile == null) {
+            return new PersistableBundle();
+        }
+        try (FileInputStream in = sProjectionFile.openRead()) {
+            final PersistableBundle persisted = PersistableBundle.readFromStream(in);
+            final String[] keys = persisted.getStringArray(PERSISTED_KEYS);
+            if (keys != null) {
+                Collections.addAll(sProjectedKeys, keys);
+            }
+            return persisted;
+        } catch (FileNotFoundException e) {
+            // Nothing persisted yet.
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Failed to read persisted carrier config", e);
+        }
+        return new PersistableBundle();
+    }
+
+    private static int getSimCarrierId(int subId) {
+        if (sTelephonyManager == null) return TelephonyManager.UNKNOWN_CARRIER_ID;
+
+        return sTelephonyManager.createForSubscriptionId(subId).getSimCarrierId();
+    }
+
+    @Nullable
+    private static String getConfigVersion(int subId) {
+        if (sCarrierConfigManager == null) return null;
+
+        final PersistableBundle config = sCarrierConfigManager.getConfigForSubId(subId,
+                CarrierConfigManager.KEY_CARRIER_CONFIG_VERSION_STRING);
+        return config != null
+                ? config.getString(CarrierConfigManager.KEY_CARRIER_CONFIG_VERSION_STRING) : null;
+    }
+
+    @GuardedBy("sProjectedConfigs")
+    private static void writePersistedConfigsLocked() {
+        if (sProjectionFile == null) {
+            return;
+        }
+        FileOutputStream out = null;
+        try {
+            out = sProjectionFile.startWrite();
+            sPersistedConfigs.writeToStream(out);
+            sProjectionFile.finishWrite(out);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to persist carrier config", e);
+            sProjectionFile.failWrite(out);
+        }
+    }
+
+    /**
+     * Drops the projected values of a subscription whose carrier config has changed, or of every
+     * subscription if {@code subId} is invalid. Then fetches every projected key again and
+     * persists the values under the carrier ID.
+     */
+    @VisibleForTesting
+    static void onCarrierConfigChanged(int subId, int carrierId) {
+        final boolean validSubId = SubscriptionManager.isValidSubscriptionId(subId);
+        final int generation;
+        synchronized (sProjectedConfigs) {
+            final PersistableBundle persisted = readPersistedConfigsLocked();
+            if (validSubId) {
+                sConfigGenerations.put(subId, sConfigGenerations.get(subId) + 1);
+                sProjectedConfigs.remove(subId);
+                persisted.remove(PERSISTED_SUB_PREFIX + subId);
+            } else {
+                sAllConfigsGeneration++;
+                sProjectedConfigs.clear();
+                for (String key : persisted.keySet().toArray(new String[0])) {
+                    if (key.startsWith(PERSISTED_SUB_PREFIX)) {
+                        persisted.remove(key);
+                    }
+                }
+            }
+            writePersistedConfigsLocked();
+            generation = getConfigGenerationLocked(subId);
+        }
+        if (!validSubId || sCarrierConfigManager == null || sProjectedKeys.isEmpty()) return;
+
+        final String[] keys = sProjectedKeys.toArray(new String[0]);
+        final PersistableBundle fetched = sCarrierConfigManager.getConfigForSubId(subId, keys);
+        if (fetched == null) {
+            Log.e(TAG, "Could not warm up carrier config, subId:" + subId);
+            return;
+        }
+        final String version = getConfigVersion(subId);
+        synchronized (sProjectedConfigs) {
+            if (getConfigGenerationLocked(subId) != generation) {
+                // Changed again while fetching, the next warm up stores the values.
+                return;
+            }
+            sProjectedConfigs.put(subId, fetched);
+            persistLocked(subId, carrierId, version, fetched);
+        }
+    }
+
+    /**
+     * Persists the projected values of a subscription under its current carrier ID, unless its
+     * carrier config changed since {@code generation}.
+     */
+    private static void persistProjectedConfig(int subId, int generation) {
+        final int carrierId = getSimCarrierId(subId);
+        if (carrierId == TelephonyManager.UNKNOWN_CARRIER_ID) return;
+
+        final String version = getConfigVersion(subId);
+        synchronized (sProjectedConfigs) {
+            if (getConfigGenerationLocked(subId) != generation) {
+                return;
+            }
+            final PersistableBundle projected = sProjectedConfigs.get(subId);
+            if (projected != null) {
+                persistLocked(subId, carrierId, version, projected);
+            }
+        }
+    }
+
+    @GuardedBy("sProjectedConfigs")
+    private static void persistLocked(int subId, int carrierId, @Nullable String version,
+            PersistableBundle config) {
+        if (carrierId == TelephonyManager.UNKNOWN_CARRIER_ID) {
+            return;
+        }
+        final PersistableBundle persisted = readPersistedConfigsLocked();
+        persisted.putStringArray(PERSISTED_KEYS, sProjectedKeys.toArray(new String[0]));
+        persisted.putInt(PERSISTED_SUB_PREFIX + subId, carrierId);
+        persisted.putPersistableBundle(PERSISTED_CARRIER_PREFIX + carrierId, config);
+        persisted.putString(PERSISTED_VERSION_PREFIX + carrierId, version);
+        writePersistedConfigsLocked();
+    }
+
     private static class CarrierConfigChangeReceiver extends BroadcastReceiver {
         @Override
         public void onReceive(Context context, Intent intent) {
@@ -178,6 +509,9 @@ public class CarrierConfigCache {
                     sCarrierConfigs.clear();
                 }
             }
+            final int carrierId = intent.getIntExtra(TelephonyManager.EXTRA_CARRIER_ID,
+                    TelephonyManager.UNKNOWN_CARRIER_ID);
+            ThreadUtils.postOnBackgroundThread(() -> onCarrierConfigChanged(subId, carrierId));
         }
     }
 }
@@ -24,6 +24,7 @@ import android.database.ContentObserver;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.provider.Settings;
 import android.telephony.SubscriptionInfo;
 import android.telephony.SubscriptionManager;
@@ -38,6 +39,7 @@ import android.util.Log;
 
 import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.lifecycle.LifecycleOwner;
 
 import com.android.internal.telephony.flags.Flags;
@@ -58,8 +60,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptionsChangedListener {
@@ -67,7 +72,15 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
     private static final String TAG = "MobileNetworkRepository";
     private static final boolean DEBUG = Log.isLoggable(TAG, Log.DEBUG);
 
-    private static ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+    /**
+     * Subscription changes arriving within this window of the last update are applied together in
+     * the next pass.
+     */
+    @VisibleForTesting
+    static final long SUBSCRIPTIONS_UPDATE_COALESCE_MS = 100;
+
+    private static ScheduledExecutorService sExecutor =
+            Executors.newSingleThreadScheduledExecutor();
     private static Map<Integer, SubscriptionInfoEntity> sCacheSubscriptionInfoEntityMap =
             new ArrayMap<>();
     private static Map<Integer, MobileNetworkInfoEntity> sCacheMobileNetworkInfoEntityMap =
@@ -103,6 +116,16 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
     private Map<Integer, TelephonyManager> mTelephonyManagerMap = new HashMap<>();
     private Map<Integer, PhoneCallStateTelephonyCallback> mTelephonyCallbackMap = new HashMap<>();
 
+    private final AtomicBoolean mSubscriptionsUpdateScheduled = new AtomicBoolean();
+    private volatile long mSubscriptionsUpdateRequestTime;
+    private volatile long mLastSubscriptionsUpdateTime = -SUBSCRIPTIONS_UPDATE_COALESCE_MS;
+    // Update statistics, reported by dump().
+    private final AtomicInteger mCoalescedUpdateCount = new AtomicInteger();
+    private volatile int mSubscriptionsUpdateCount;
+    private volatile int mRowWriteCount;
+    private volatile long mLastUpdateLatencyMs;
+    private volatile long mMaxUpdateLatencyMs;
+
     @NonNull
     public static MobileNetworkRepository getInstance(Context context) {
         synchronized (sInstanceLock) {
@@ -305,9 +328,7 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
     public void updateEntity() {
         // Check the latest state after back to the UI.
         if (sCacheSubscriptionInfoEntityMap != null || !sCacheSubscriptionInfoEntityMap.isEmpty()) {
-            sExecutor.execute(() -> {
-                onSubscriptionsChanged();
-            });
+            onSubscriptionsChanged();
         }
 
         boolean isAirplaneModeOn = isAirplaneModeOn();
@@ -482,50 +503,64 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
                 SettingsEnums.ACTION_MOBILE_NETWORK_DB_NOTIFY_MOBILE_NETWORK_INFO_IS_CHANGED, 0);
     }
 
-    private void insertSubInfo(Context context, SubscriptionInfo info) {
+    /**
+     * Converts a subscription to its entities and queues a write for each one that differs from
+     * the cached copy.
+     */
+    private void collectSubInfoWrites(Context context, SubscriptionInfo info,
+            SubscriptionWriteBatch batch) {
         int subId = info.getSubscriptionId();
         createTelephonyManagerBySubId(subId);
         TelephonyManager telephonyManager = getTelephonyManagerBySubId(context, subId);
         SubscriptionInfoEntity subInfoEntity =
                 convertToSubscriptionInfoEntity(context, info, telephonyManager);
         if (subInfoEntity != null) {
-            if (!sCacheSubscriptionInfoEntityMap.containsKey(subId)
+            if (batch.isDeleted(subId)
+                    || !sCacheSubscriptionInfoEntityMap.containsKey(subId)
                     || (sCacheSubscriptionInfoEntityMap.get(subId) != null
                     && !sCacheSubscriptionInfoEntityMap.get(subId).equals(subInfoEntity))) {
-                sCacheSubscriptionInfoEntityMap.put(subId, subInfoEntity);
                 if (DEBUG) {
                     Log.d(TAG, "Convert subId " + subId + " to SubscriptionInfoEntity: "
                             + subInfoEntity);
                 } else {
                     Log.d(TAG, "insertSubsInfo into SubscriptionInfoEntity");
                 }
-                mMobileNetworkDatabase.insertSubsInfo(subInfoEntity);
-                mMetricsFeatureProvider.action(mContext,
-                        SettingsEnums.ACTION_MOBILE_NETWORK_DB_INSERT_SUB_INFO, subId);
-                insertUiccInfo(subId, telephonyManager);
-                insertMobileNetworkInfo(context, subId, telephonyManager);
+                batch.write(1, () -> mMobileNetworkDatabase.insertSubsInfo(subInfoEntity));
+                batch.onCommit(() -> {
+                    sCacheSubscriptionInfoEntityMap.put(subId, subInfoEntity);
+                    mMetricsFeatureProvider.action(mContext,
+                            SettingsEnums.ACTION_MOBILE_NETWORK_DB_INSERT_SUB_INFO, subId);
+                });
+                collectUiccInfoWrite(subId, telephonyManager, batch);
+                collectMobileNetworkInfoWrite(context, subId, telephonyManager, batch);
             }
         } else if (DEBUG) {
             Log.d(TAG, "Can not insert subInfo, the entity is null");
         }
     }
 
-    private void deleteAllInfoBySubId(String subId) {
+    private void deleteAllInfoBySubId(String subId, SubscriptionWriteBatch batch) {
         Log.d(TAG, "deleteAllInfoBySubId, subId = " + subId);
-        mMobileNetworkDatabase.deleteSubInfoBySubId(subId);
-        mMobileNetworkDatabase.deleteUiccInfoBySubId(subId);
-        mMobileNetworkDatabase.deleteMobileNetworkInfoBySubId(subId);
+        // One row of each table.
+        batch.write(3, () -> {
+            mMobileNetworkDatabase.deleteSubInfoBySubId(subId);
+            mMobileNetworkDatabase.deleteUiccInfoBySubId(subId);
+            mMobileNetworkDatabase.deleteMobileNetworkInfoBySubId(subId);
+        });
         mUiccInfoEntityList.removeIf(info -> info.subId.equals(subId));
         mMobileNetworkInfoEntityList.removeIf(info -> info.subId.equals(subId));
         int id = Integer.parseInt(subId);
         removerRegisterBySubId(id);
         mSubscriptionInfoMap.remove(id);
         mTelephonyManagerMap.remove(id);
-        sCacheSubscriptionInfoEntityMap.remove(id);
-        sCacheUiccInfoEntityMap.remove(id);
-        sCacheMobileNetworkInfoEntityMap.remove(id);
-        mMetricsFeatureProvider.action(mContext,
-                SettingsEnums.ACTION_MOBILE_NETWORK_DB_DELETE_DATA, id);
+        batch.markDeleted(id);
+        batch.onCommit(() -> {
+            sCacheSubscriptionInfoEntityMap.remove(id);
+            sCacheUiccInfoEntityMap.remove(id);
+            sCacheMobileNetworkInfoEntityMap.remove(id);
+            mMetricsFeatureProvider.action(mContext,
+                    SettingsEnums.ACTION_MOBILE_NETWORK_DB_DELETE_DATA, id);
+        });
     }
 
     private SubscriptionInfoEntity convertToSubscriptionInfoEntity(Context context,
@@ -573,22 +608,32 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
         }
     }
 
-    private void insertUiccInfo(int subId, TelephonyManager telephonyManager) {
+    private void collectUiccInfoWrite(int subId, TelephonyManager telephonyManager,
+            SubscriptionWriteBatch batch) {
         UiccInfoEntity uiccInfoEntity = convertToUiccInfoEntity(subId, telephonyManager);
         if (DEBUG) {
             Log.d(TAG, "uiccInfoEntity = " + uiccInfoEntity);
         }
-        if (!sCacheUiccInfoEntityMap.containsKey(subId)
+        if (batch.isDeleted(subId) || !sCacheUiccInfoEntityMap.containsKey(subId)
                 || !sCacheUiccInfoEntityMap.get(subId).equals(uiccInfoEntity)) {
-            sCacheUiccInfoEntityMap.put(subId, uiccInfoEntity);
-            mMobileNetworkDatabase.insertUiccInfo(uiccInfoEntity);
-            mMetricsFeatureProvider.action(mContext,
-                    SettingsEnums.ACTION_MOBILE_NETWORK_DB_INSERT_UICC_INFO, subId);
+            batch.write(1, () -> mMobileNetworkDatabase.insertUiccInfo(uiccInfoEntity));
+            batch.onCommit(() -> {
+                sCacheUiccInfoEntityMap.put(subId, uiccInfoEntity);
+                mMetricsFeatureProvider.action(mContext,
+                        SettingsEnums.ACTION_MOBILE_NETWORK_DB_INSERT_UICC_INFO, subId);
+            });
         }
     }
 
     private void insertMobileNetworkInfo(Context context, int subId,
             TelephonyManager telephonyManager) {
+        final SubscriptionWriteBatch batch = new SubscriptionWriteBatch();
+        collectMobileNetworkInfoWrite(context, subId, telephonyManager, batch);
+        applyWrites(batch);
+    }
+
+    private void collectMobileNetworkInfoWrite(Context context, int subId,
+            TelephonyManager telephonyManager, SubscriptionWriteBatch batch) {
         MobileNetworkInfoEntity mobileNetworkInfoEntity = convertToMobileNetworkInfoEntity(context,
                 subId, telephonyManager);
 
@@ -601,15 +646,22 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
             return;
         }
 
-        if (!sCacheMobileNetworkInfoEntityMap.containsKey(subId)
+        if (batch.isDeleted(subId) || !sCacheMobileNetworkInfoEntityMap.containsKey(subId)
                 || !sCacheMobileNetworkInfoEntityMap.get(subId).equals(mobileNetworkInfoEntity)) {
-            sCacheMobileNetworkInfoEntityMap.put(subId, mobileNetworkInfoEntity);
-            mMobileNetworkDatabase.insertMobileNetworkInfo(mobileNetworkInfoEntity);
-            mMetricsFeatureProvider.action(mContext,
-                    SettingsEnums.ACTION_MOBILE_NETWORK_DB_INSERT_MOBILE_NETWORK_INFO, subId);
+            batch.write(1,
+                    () -> mMobileNetworkDatabase.insertMobileNetworkInfo(mobileNetworkInfoEntity));
+            batch.onCommit(() -> {
+                sCacheMobileNetworkInfoEntityMap.put(subId, mobileNetworkInfoEntity);
+                mMetricsFeatureProvider.action(mContext,
+                        SettingsEnums.ACTION_MOBILE_NETWORK_DB_INSERT_MOBILE_NETWORK_INFO, subId);
+            });
         }
     }
 
+    private void applyWrites(SubscriptionWriteBatch batch) {
+        mRowWriteCount += batch.apply(mMobileNetworkDatabase);
+    }
+
     private MobileNetworkInfoEntity convertToMobileNetworkInfoEntity(Context context, int subId,
             TelephonyManager telephonyManager) {
         boolean isDataEnabled = false;
@@ -661,78 +713,105 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
 
     @Override
     public void onSubscriptionsChanged() {
-        insertAvailableSubInfoToEntity(
-                SubscriptionUtil.getSelectableSubscriptionInfoList(mContext));
+        // Subscription changes come in bursts, e.g. one per SIM while a device with several SIMs
+        // boots, so the list is only read and applied once per window.
+        if (!mSubscriptionsUpdateScheduled.compareAndSet(false, true)) {
+            mCoalescedUpdateCount.incrementAndGet();
+            return;
+        }
+        final long now = SystemClock.elapsedRealtime();
+        mSubscriptionsUpdateRequestTime = now;
+        sExecutor.schedule(() -> {
+            mSubscriptionsUpdateScheduled.set(false);
+            mLastSubscriptionsUpdateTime = SystemClock.elapsedRealtime();
+            insertAvailableSubInfoToEntity(
+                    SubscriptionUtil.getSelectableSubscriptionInfoList(mContext));
+            final long latency = SystemClock.elapsedRealtime() - mSubscriptionsUpdateRequestTime;
+            mLastUpdateLatencyMs = latency;
+            mMaxUpdateLatencyMs = Math.max(mMaxUpdateLatencyMs, latency);
+            mSubscriptionsUpdateCount++;
+        }, getSubscriptionsUpdateDelayMs(now, mLastSubscriptionsUpdateTime),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns how long to wait before applying a subscription change requested at {@code now}.
+     * The first change after a quiet period is applied right away. Changes following an update
+     * within {@link #SUBSCRIPTIONS_UPDATE_COALESCE_MS} wait for the end of that window.
+     */
+    @VisibleForTesting
+    static long getSubscriptionsUpdateDelayMs(long now, long lastUpdateTime) {
+        return Math.max(0, lastUpdateTime + SUBSCRIPTIONS_UPDATE_COALESCE_MS - now);
     }
 
     private void insertAvailableSubInfoToEntity(List<SubscriptionInfo> inputAvailableInfoList) {
-        sExecutor.execute(() -> {
-            SubscriptionInfoEntity[] availableInfoArray = null;
-            int availableEntitySize = 0;
-            synchronized (this) {
-                availableInfoArray = mAvailableSubInfoEntityList.toArray(
-                    new SubscriptionInfoEntity[0]);
-                availableEntitySize = mAvailableSubInfoEntityList.size();
+        final SubscriptionWriteBatch batch = new SubscriptionWriteBatch();
+        SubscriptionInfoEntity[] availableInfoArray = null;
+        int availableEntitySize = 0;
+        synchronized (this) {
+            availableInfoArray = mAvailableSubInfoEntityList.toArray(
+                new SubscriptionInfoEntity[0]);
+            availableEntitySize = mAvailableSubInfoEntityList.size();
+        }
+        if ((inputAvailableInfoList == null || inputAvailableInfoList.size() == 0)
+                && availableEntitySize != 0) {
+            if (DEBUG) {
+                Log.d(TAG, "availableSudInfoList from framework is empty, remove all subs");
             }
-            if ((inputAvailableInfoList == null || inputAvailableInfoList.size() == 0)
-                    && availableEntitySize != 0) {
-                if (DEBUG) {
-                    Log.d(TAG, "availableSudInfoList from framework is empty, remove all subs");
-                }
 
-                for (SubscriptionInfoEntity info : availableInfoArray) {
-                    deleteAllInfoBySubId(info.subId);
-                }
+            for (SubscriptionInfoEntity info : availableInfoArray) {
+                deleteAllInfoBySubId(info.subId, batch);
+            }
 
-            } else if (inputAvailableInfoList != null) {
-                SubscriptionInfo[] inputAvailableInfoArray = inputAvailableInfoList.toArray(
-                        new SubscriptionInfo[0]);
-                // Remove the redundant subInfo
-                if (inputAvailableInfoList.size() <= availableEntitySize) {
-                    for (SubscriptionInfo subInfo : inputAvailableInfoArray) {
-                        int subId = subInfo.getSubscriptionId();
-                        if (mSubscriptionInfoMap.containsKey(subId)) {
-                            mSubscriptionInfoMap.remove(subId);
-                        }
+        } else if (inputAvailableInfoList != null) {
+            SubscriptionInfo[] inputAvailableInfoArray = inputAvailableInfoList.toArray(
+                    new SubscriptionInfo[0]);
+            // Remove the redundant subInfo
+            if (inputAvailableInfoList.size() <= availableEntitySize) {
+                for (SubscriptionInfo subInfo : inputAvailableInfoArray) {
+                    int subId = subInfo.getSubscriptionId();
+                    if (mSubscriptionInfoMap.containsKey(subId)) {
+                        mSubscriptionInfoMap.remove(subId);
                     }
+                }
 
-                    if (!mSubscriptionInfoMap.isEmpty()) {
-                        for (Integer key : mSubscriptionInfoMap.keySet()) {
-                            if (key != null) {
-                                deleteAllInfoBySubId(String.valueOf(key));
-                            }
+                if (!mSubscriptionInfoMap.isEmpty()) {
+                    for (Integer key : mSubscriptionInfoMap.keySet()) {
+                        if (key != null) {
+                            deleteAllInfoBySubId(String.valueOf(key), batch);
                         }
-                    } else if (inputAvailableInfoList.size() < availableEntitySize) {
-                        // Check the subInfo between the new list from framework and old list in
-                        // the database, if the subInfo is not existed in the new list, delete it
-                        // from the database.
-                        for (SubscriptionInfoEntity info : availableInfoArray) {
-                            if (sCacheSubscriptionInfoEntityMap.containsKey(info.getSubId())) {
-                                deleteAllInfoBySubId(info.subId);
-                            }
+                    }
+                } else if (inputAvailableInfoList.size() < availableEntitySize) {
+                    // Check the subInfo between the new list from framework and old list in
+                    // the database, if the subInfo is not existed in the new list, delete it
+                    // from the database.
+                    for (SubscriptionInfoEntity info : availableInfoArray) {
+                        if (sCacheSubscriptionInfoEntityMap.containsKey(info.getSubId())) {
+                            deleteAllInfoBySubId(info.subId, batch);
                         }
                     }
                 }
+            }
 
-                // Insert all new available subInfo to database.
-                for (SubscriptionInfo subInfo : inputAvailableInfoArray) {
+            // Insert all new available subInfo to database.
+            for (SubscriptionInfo subInfo : inputAvailableInfoArray) {
+                if (DEBUG) {
+                    Log.d(TAG, "insert subInfo to subInfoEntity, subInfo = " + subInfo);
+                }
+                if (subInfo.isEmbedded()
+                    && (subInfo.getProfileClass() == PROFILE_CLASS_PROVISIONING
+                        || (Flags.oemEnabledSatelliteFlag()
+                        && subInfo.isOnlyNonTerrestrialNetwork()))) {
                     if (DEBUG) {
-                        Log.d(TAG, "insert subInfo to subInfoEntity, subInfo = " + subInfo);
-                    }
-                    if (subInfo.isEmbedded()
-                        && (subInfo.getProfileClass() == PROFILE_CLASS_PROVISIONING
-                            || (Flags.oemEnabledSatelliteFlag()
-                            && subInfo.isOnlyNonTerrestrialNetwork()))) {
-                        if (DEBUG) {
-                            Log.d(TAG, "Do not insert the provisioning or satellite eSIM");
-                        }
-                        continue;
+                        Log.d(TAG, "Do not insert the provisioning or satellite eSIM");
                     }
-                    mSubscriptionInfoMap.put(subInfo.getSubscriptionId(), subInfo);
-                    insertSubInfo(mContext, subInfo);
+                    continue;
                 }
+                mSubscriptionInfoMap.put(subInfo.getSubscriptionId(), subInfo);
+                collectSubInfoWrites(mContext, subInfo, batch);
             }
-        });
+        }
+        applyWrites(batch);
     }
 
     public boolean isAirplaneModeOn() {
@@ -807,6 +886,11 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
         printwriter.println(" uiccInfoEntityList= " + mUiccInfoEntityList);
         printwriter.println(" CacheSubscriptionInfoEntityMap= " + sCacheSubscriptionInfoEntityMap);
         printwriter.println(" SubscriptionInfoMap= " + mSubscriptionInfoMap);
+        printwriter.println(" subscriptionsUpdates=" + mSubscriptionsUpdateCount
+                + " coalesced=" + mCoalescedUpdateCount.get()
+                + " rowWrites=" + mRowWriteCount
+                + " lastLatencyMs=" + mLastUpdateLatencyMs
+                + " maxLatencyMs=" + mMaxUpdateLatencyMs);
         printwriter.flush();
         printwriter.decreaseIndent();
     }
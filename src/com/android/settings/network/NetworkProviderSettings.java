@@ -105,6 +105,8 @@ import com.google.android.setupcompat.template.FooterButtonStyleUtils;
 import com.google.android.setupcompat.util.WizardManagerHelper;
 import com.google.android.setupdesign.GlifPreferenceLayout;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.List;
 import java.util.Optional;
 
@@ -206,6 +208,35 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
         setProgressBarVisible(false);
     };
 
+    // While a scan is in flight, Wi-Fi entry changes are applied at most once per frame.
+    private boolean mIsScanning;
+    private boolean mWifiEntryUpdatePending;
+    @VisibleForTesting
+    final Runnable mApplyWifiEntryUpdateRunnable = () -> {
+        mWifiEntryUpdatePending = false;
+        updateWifiEntryPreferences();
+    };
+
+    // Scans sooner while the user browses the list.
+    private final RecyclerView.OnScrollListener mScanOnScrollListener =
+            new RecyclerView.OnScrollListener() {
+                @Override
+                public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                    if (newState == RecyclerView.SCROLL_STATE_DRAGGING
+                            && mWifiPickerTrackerHelper != null) {
+                        mWifiPickerTrackerHelper.onUserInteraction();
+                    }
+                }
+            };
+
+    // Counters for how the Wi-Fi entry list was updated, reported by dump().
+    @VisibleForTesting
+    int mWifiEntryPrefsUpdatedInPlace;
+    @VisibleForTesting
+    int mWifiEntryPrefsRecreated;
+    @VisibleForTesting
+    int mWifiEntryUpdatesCoalesced;
+
     protected WifiManager mWifiManager;
     private WifiManager.ActionListener mSaveListener;
 
@@ -505,8 +536,8 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
         super.onActivityCreated(savedInstanceState);
 
         if (hasWifiManager()) {
-            mWifiPickerTrackerHelper =
-                    new WifiPickerTrackerHelper(getSettingsLifecycle(), getContext(), this);
+            mWifiPickerTrackerHelper = new WifiPickerTrackerHelper(getSettingsLifecycle(),
+                    getContext(), this, true /* adaptiveScan */);
             mWifiPickerTracker = mWifiPickerTrackerHelper.getWifiPickerTracker();
         }
         mInternetUpdater = new InternetUpdater(getContext(), getSettingsLifecycle(), this);
@@ -585,6 +616,8 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
         final RecyclerView prefListView = getListView();
         if (prefListView != null) {
             prefListView.setItemAnimator(null);
+            prefListView.removeOnScrollListener(mScanOnScrollListener);
+            prefListView.addOnScrollListener(mScanOnScrollListener);
         }
 
         // Because RestrictedSettingsFragment's onResume potentially requests authorization,
@@ -605,6 +638,9 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
         getView().removeCallbacks(mRemoveLoadingRunnable);
         getView().removeCallbacks(mUpdateWifiEntryPreferencesRunnable);
         getView().removeCallbacks(mHideProgressBarRunnable);
+        getView().removeCallbacks(mApplyWifiEntryUpdateRunnable);
+        mWifiEntryUpdatePending = false;
+        mIsScanning = false;
         mAirplaneModeEnabler.stop();
         mDataStateListener.stop();
         super.onStop();
@@ -946,6 +982,10 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
 
     @Override
     public void onScanRequested() {
+        if (mWifiPickerTrackerHelper != null) {
+            mWifiPickerTrackerHelper.onScanRequested();
+        }
+        mIsScanning = true;
         setProgressBarVisible(true);
     }
 
@@ -980,7 +1020,13 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
 
     @Override
     public void onWifiEntriesChanged(@WifiPickerTracker.WifiEntriesChangedReason int reason) {
-        updateWifiEntryPreferences();
+        if (reason == WifiPickerTracker.WIFI_ENTRIES_CHANGED_REASON_SCAN_RESULTS) {
+            mIsScanning = false;
+            if (mWifiPickerTrackerHelper != null) {
+                mWifiPickerTrackerHelper.onScanResults();
+            }
+        }
+        scheduleWifiEntryPreferencesUpdate();
         if (reason == WifiPickerTracker.WIFI_ENTRIES_CHANGED_REASON_SCAN_RESULTS) {
             setProgressBarVisible(false);
         }
@@ -1020,6 +1066,28 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
         setAdditionalSettingsSummaries();
     }
 
+    /**
+     * Applies Wi-Fi entry changes right away, or on the next frame while a scan is in flight so
+     * that the bursts of changes it produces only update the list once per frame.
+     */
+    private void scheduleWifiEntryPreferencesUpdate() {
+        final View view = getView();
+        if (!mIsScanning || view == null) {
+            if (mWifiEntryUpdatePending && view != null) {
+                view.removeCallbacks(mApplyWifiEntryUpdateRunnable);
+            }
+            mWifiEntryUpdatePending = false;
+            updateWifiEntryPreferences();
+            return;
+        }
+        if (mWifiEntryUpdatePending) {
+            mWifiEntryUpdatesCoalesced++;
+            return;
+        }
+        mWifiEntryUpdatePending = true;
+        view.postOnAnimation(mApplyWifiEntryUpdateRunnable);
+    }
+
     protected void updateWifiEntryPreferences() {
         // bypass the update if the activity and the view are not ready, or it's restricted UI.
         if (getActivity() == null || getView() == null || mIsRestricted) {
@@ -1080,25 +1148,34 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
             LongPressWifiEntryPreference pref =
                     (LongPressWifiEntryPreference) getCachedPreference(key);
             if (pref != null) {
-                if (pref.getWifiEntry() == wifiEntry) {
+                if (pref.getWifiEntry() != wifiEntry) {
+                    if (canUpdateInPlace(pref.getWifiEntry(), wifiEntry)) {
+                        // Same network under the same key, so rebind instead of replacing the
+                        // preference, which would make the list adapter rebuild its items.
+                        pref.setWifiEntry(wifiEntry);
+                        if (wifiEntry.getHelpUriString() != null) {
+                            setHelpButtonListener(pref, wifiEntry);
+                        } else {
+                            pref.setOnButtonClickListener(null);
+                        }
+                        mWifiEntryPrefsUpdatedInPlace++;
+                    } else {
+                        removePreference(key);
+                        pref = null;
+                    }
+                }
+                if (pref != null) {
                     pref.setOrder(index++);
                     continue;
-                } else {
-                    // Create a new preference if the underlying WifiEntry object has changed
-                    removePreference(key);
                 }
+                mWifiEntryPrefsRecreated++;
             }
 
             pref = createLongPressWifiEntryPreference(wifiEntry);
             pref.setKey(wifiEntry.getKey());
             pref.setOrder(index++);
             pref.refresh();
-
-            if (wifiEntry.getHelpUriString() != null) {
-                pref.setOnButtonClickListener(preference -> {
-                    openSubscriptionHelpPage(wifiEntry);
-                });
-            }
+            setHelpButtonListener(pref, wifiEntry);
             mWifiEntryPreferenceCategory.addPreference(pref);
         }
         removeCachedPrefs(mWifiEntryPreferenceCategory);
@@ -1117,6 +1194,37 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
         setAdditionalSettingsSummaries();
     }
 
+    /**
+     * Returns whether a preference showing {@code oldEntry} can be rebound to {@code newEntry}.
+     * Only a change of entry type, or of the admin restriction applied when the preference was
+     * created, needs a new preference.
+     */
+    @VisibleForTesting
+    static boolean canUpdateInPlace(WifiEntry oldEntry, WifiEntry newEntry) {
+        return oldEntry.getClass() == newEntry.getClass()
+                && oldEntry.hasAdminRestrictions() == newEntry.hasAdminRestrictions();
+    }
+
+    private void setHelpButtonListener(LongPressWifiEntryPreference pref, WifiEntry wifiEntry) {
+        if (wifiEntry.getHelpUriString() != null) {
+            pref.setOnButtonClickListener(preference -> {
+                openSubscriptionHelpPage(wifiEntry);
+            });
+        }
+    }
+
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        writer.print(prefix);
+        writer.println("Wi-Fi entry preferences updated in place: "
+                + mWifiEntryPrefsUpdatedInPlace + ", recreated: " + mWifiEntryPrefsRecreated
+                + ", updates coalesced while scanning: " + mWifiEntryUpdatesCoalesced);
+        if (mWifiPickerTrackerHelper != null) {
+            mWifiPickerTrackerHelper.dump(prefix, writer);
+        }
+    }
+
     @VisibleForTesting
     PreferenceCategory getConnectedWifiPreferenceCategory() {
         if (mInternetUpdater.getInternetType() == InternetUpdater.INTERNET_WIFI) {
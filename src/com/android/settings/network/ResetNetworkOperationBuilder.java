@@ -40,6 +40,7 @@ import androidx.annotation.Nullable;
 import com.android.internal.annotations.VisibleForTesting;
 import com.android.settings.R;
 import com.android.settings.ResetNetworkRequest;
+import com.android.settings.datausage.lib.NetworkStatsCache;
 import com.android.settings.network.apn.PreferredApnRepository;
 
 import java.util.ArrayList;
@@ -180,6 +181,7 @@ public class ResetNetworkOperationBuilder {
         attachSystemServiceWork(Context.NETWORK_POLICY_SERVICE,
                 (Consumer<NetworkPolicyManager>) policyManager -> {
                         policyManager.factoryReset(subscriberId.get());
+                        NetworkStatsCache.getInstance().invalidate();
                 });
         return this;
     }
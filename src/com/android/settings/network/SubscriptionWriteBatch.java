@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import android.util.ArraySet;
+
+import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The database writes of one {@link MobileNetworkRepository} update pass, applied in a single
+ * transaction. The in-memory caches mirroring the database and the metrics about the writes are
+ * only updated once that transaction has committed, so a failed transaction leaves them in sync
+ * with the database.
+ */
+class SubscriptionWriteBatch {
+
+    private final List<Runnable> mWrites = new ArrayList<>();
+    private final List<Runnable> mCommitActions = new ArrayList<>();
+    private final Set<Integer> mDeletedSubIds = new ArraySet<>();
+    private int mRowCount;
+
+    /** Queues a database write of {@code rowCount} rows. */
+    void write(int rowCount, @NonNull Runnable write) {
+        mWrites.add(write);
+        mRowCount += rowCount;
+    }
+
+    /** Queues an action to run once the queued writes have committed. */
+    void onCommit(@NonNull Runnable action) {
+        mCommitActions.add(action);
+    }
+
+    /**
+     * Records that the rows of {@code subId} are deleted by this batch, so that the cached copies
+     * still holding them are not compared against.
+     */
+    void markDeleted(int subId) {
+        mDeletedSubIds.add(subId);
+    }
+
+    boolean isDeleted(int subId) {
+        return mDeletedSubIds.contains(subId);
+    }
+
+    /**
+     * Runs the queued writes in one transaction of {@code database}, then the commit actions.
+     *
+     * @return the number of rows written.
+     */
+    int apply(@NonNull RoomDatabase database) {
+        if (!mWrites.isEmpty()) {
+            database.runInTransaction(() -> {
+                for (Runnable write : mWrites) {
+                    write.run();
+                }
+            });
+        }
+        for (Runnable action : mCommitActions) {
+            action.run();
+        }
+        return mRowCount;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network.apn
+
+import android.content.Context
+import android.database.Cursor
+import android.net.Uri
+import android.provider.Telephony
+import android.telephony.data.ApnSetting
+import android.util.Log
+import androidx.lifecycle.LifecycleOwner
+import com.android.settingslib.spa.framework.util.collectLatestWithLifecycle
+import com.android.settingslib.spaprivileged.database.contentChangeFlow
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.conflate
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.flow.transformLatest
+
+/** An APN as listed by [ApnSettings], with only the columns the list displays. */
+data class ApnListItem(
+    val id: String,
+    val name: String?,
+    val apn: String?,
+    val type: String?,
+    val mvnoType: String?,
+    val mvnoMatchData: String?,
+    val edited: Int,
+) {
+    /** Whether this APN can be chosen as the preferred APN. */
+    val isDefaultSelectable: Boolean
+        get() = type == null || type.contains(ApnSetting.TYPE_DEFAULT_STRING)
+}
+
+class ApnListRepository(private val context: Context, private val subId: Int) {
+    private val contentResolver = context.contentResolver
+    private val simApnUri = Uri.withAppendedPath(Telephony.Carriers.SIM_APN_URI, "$subId")
+
+    /** TODO: Move this to UI layer, when UI layer migrated to Kotlin. */
+    fun collectApnList(
+        lifecycleOwner: LifecycleOwner,
+        hideImsApn: Boolean,
+        action: (List<ApnListItem>) -> Unit,
+    ) {
+        apnListFlow(hideImsApn).collectLatestWithLifecycle(lifecycleOwner, action = action)
+    }
+
+    /**
+     * Flow of the APNs of the subscription, queried again whenever the carriers table changes.
+     *
+     * The first query is emitted every [PAGE_SIZE] rows, so the top of a long list shows up
+     * before all rows are read. Later queries are only emitted once complete, so that the list
+     * never shrinks while it is being re-read.
+     */
+    @OptIn(ExperimentalCoroutinesApi::class)
+    fun apnListFlow(hideImsApn: Boolean): Flow<List<ApnListItem>> {
+        var isFirstQuery = true
+        return context
+            .contentChangeFlow(Telephony.Carriers.CONTENT_URI, notifyForDescendants = true)
+            .transformLatest {
+                val cursor = queryApnList(hideImsApn) ?: return@transformLatest
+                val items = mutableListOf<ApnListItem>()
+                cursor.use {
+                    while (cursor.moveToNext()) {
+                        items += cursor.toApnListItem()
+                        if (isFirstQuery && items.size % PAGE_SIZE == 0) emit(items.toList())
+                    }
+                }
+                isFirstQuery = false
+                Log.d(TAG, "[$subId] APN count: ${items.size}")
+                emit(items)
+            }
+            .distinctUntilChanged()
+            .conflate()
+            .flowOn(Dispatchers.Default)
+    }
+
+    private fun queryApnList(hideImsApn: Boolean): Cursor? {
+        val where = StringBuilder(
+            "NOT (type='ia' AND (apn=\"\" OR apn IS NULL)) AND user_visible!=0"
+        )
+        // Remove Emergency type, users should not mess with that
+        where.append(" AND NOT (type='emergency')")
+        if (hideImsApn) {
+            where.append(" AND NOT (type='ims')")
+        }
+        return contentResolver.query(
+            simApnUri,
+            PROJECTION,
+            where.toString(),
+            null,
+            Telephony.Carriers.DEFAULT_SORT_ORDER,
+        )
+    }
+
+    private fun Cursor.toApnListItem() = ApnListItem(
+        id = getString(ID_INDEX),
+        name = getString(NAME_INDEX),
+        apn = getString(APN_INDEX),
+        type = getString(TYPES_INDEX),
+        mvnoType = getString(MVNO_TYPE_INDEX),
+        mvnoMatchData = getString(MVNO_MATCH_DATA_INDEX),
+        edited = getInt(EDITED_INDEX),
+    )
+
+    private companion object {
+        const val TAG = "ApnListRepository"
+
+        const val PAGE_SIZE = 20
+
+        val PROJECTION = arrayOf(
+            Telephony.Carriers._ID,
+            Telephony.Carriers.NAME,
+            Telephony.Carriers.APN,
+            Telephony.Carriers.TYPE,
+            Telephony.Carriers.MVNO_TYPE,
+            Telephony.Carriers.MVNO_MATCH_DATA,
+            Telephony.Carriers.EDITED_STATUS,
+        )
+        const val ID_INDEX = 0
+        const val NAME_INDEX = 1
+        const val APN_INDEX = 2
+        const val TYPES_INDEX = 3
+        const val MVNO_TYPE_INDEX = 4
+        const val MVNO_MATCH_DATA_INDEX = 5
+        const val EDITED_INDEX = 6
+    }
+}
@@ -24,8 +24,6 @@ import android.app.ProgressDialog;
 import android.app.settings.SettingsEnums;
 import android.content.Context;
 import android.content.Intent;
-import android.database.Cursor;
-import android.net.Uri;
 import android.os.Bundle;
 import android.os.PersistableBundle;
 import android.os.UserHandle;
@@ -33,7 +31,6 @@ import android.os.UserManager;
 import android.provider.Telephony;
 import android.telephony.CarrierConfigManager;
 import android.telephony.SubscriptionManager;
-import android.telephony.data.ApnSetting;
 import android.text.TextUtils;
 import android.util.Log;
 import android.view.Menu;
@@ -58,7 +55,9 @@ import com.android.settingslib.RestrictedLockUtils.EnforcedAdmin;
 
 import kotlin.Unit;
 
-import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /** Handle each different apn setting. */
 public class ApnSettings extends RestrictedSettingsFragment
@@ -71,23 +70,8 @@ public class ApnSettings extends RestrictedSettingsFragment
     public static final String MVNO_TYPE = "mvno_type";
     public static final String MVNO_MATCH_DATA = "mvno_match_data";
 
-    private static final String[] CARRIERS_PROJECTION = new String[] {
-            Telephony.Carriers._ID,
-            Telephony.Carriers.NAME,
-            Telephony.Carriers.APN,
-            Telephony.Carriers.TYPE,
-            Telephony.Carriers.MVNO_TYPE,
-            Telephony.Carriers.MVNO_MATCH_DATA,
-            Telephony.Carriers.EDITED_STATUS,
-    };
-
-    private static final int ID_INDEX = 0;
-    private static final int NAME_INDEX = 1;
-    private static final int APN_INDEX = 2;
-    private static final int TYPES_INDEX = 3;
-    private static final int MVNO_TYPE_INDEX = 4;
-    private static final int MVNO_MATCH_DATA_INDEX = 5;
-    private static final int EDITED_INDEX = 6;
+    // Orders the selectable APNs before the others, in the order of the query.
+    private static final int NOT_SELECTABLE_ORDER_OFFSET = 100_000;
 
     private static final int MENU_NEW = Menu.FIRST;
     private static final int MENU_RESTORE = Menu.FIRST + 1;
@@ -99,6 +83,11 @@ public class ApnSettings extends RestrictedSettingsFragment
     private UserManager mUserManager;
     private int mSubId;
     private PreferredApnRepository mPreferredApnRepository;
+    private ApnListRepository mApnListRepository;
+    @Nullable
+    private List<ApnListItem> mApnList;
+    // The APNs currently shown, by preference key.
+    private final Map<String, ApnListItem> mShownApns = new HashMap<>();
     @Nullable
     private String mPreferredApnKey;
     private String mMvnoType;
@@ -126,6 +115,7 @@ public class ApnSettings extends RestrictedSettingsFragment
         mSubId = activity.getIntent().getIntExtra(SUB_ID,
                 SubscriptionManager.INVALID_SUBSCRIPTION_ID);
         mPreferredApnRepository = new PreferredApnRepository(activity, mSubId);
+        mApnListRepository = new ApnListRepository(activity, mSubId);
 
         setIfOnlyAvailableForAdmins(true);
 
@@ -185,18 +175,15 @@ public class ApnSettings extends RestrictedSettingsFragment
             }
             return Unit.INSTANCE;
         });
-    }
-
-    @Override
-    public void onResume() {
-        super.onResume();
 
-        if (mUnavailable) {
-            return;
-        }
-
-        if (!mRestoreDefaultApnMode) {
-            fillList();
+        if (!mUnavailable) {
+            mApnListRepository.collectApnList(viewLifecycleOwner, mHideImsApn, (apnList) -> {
+                mApnList = apnList;
+                if (!mRestoreDefaultApnMode) {
+                    fillList();
+                }
+                return Unit.INSTANCE;
+            });
         }
     }
 
@@ -211,73 +198,69 @@ public class ApnSettings extends RestrictedSettingsFragment
         return null;
     }
 
+    /**
+     * Updates the list to {@link #mApnList}. Only the preferences of added or changed APNs are
+     * created, the others are kept and reordered.
+     */
     private void fillList() {
-        final Uri simApnUri = Uri.withAppendedPath(Telephony.Carriers.SIM_APN_URI,
-                String.valueOf(mSubId));
-        final StringBuilder where =
-                new StringBuilder("NOT (type='ia' AND (apn=\"\" OR apn IS NULL)) AND "
-                + "user_visible!=0");
-        // Remove Emergency type, users should not mess with that
-        where.append(" AND NOT (type='emergency')");
-
-        if (mHideImsApn) {
-            where.append(" AND NOT (type='ims')");
+        final List<ApnListItem> apnList = mApnList;
+        if (apnList == null) {
+            return;
         }
-
-        final Cursor cursor = getContentResolver().query(simApnUri,
-                CARRIERS_PROJECTION, where.toString(), null,
-                Telephony.Carriers.DEFAULT_SORT_ORDER);
-
-        if (cursor != null) {
-            final PreferenceGroup apnPrefList = findPreference(APN_LIST);
-            apnPrefList.removeAll();
-
-            final ArrayList<ApnPreference> apnList = new ArrayList<ApnPreference>();
-            final ArrayList<ApnPreference> mmsApnList = new ArrayList<ApnPreference>();
-
-            cursor.moveToFirst();
-            while (!cursor.isAfterLast()) {
-                final String name = cursor.getString(NAME_INDEX);
-                final String apn = cursor.getString(APN_INDEX);
-                final String key = cursor.getString(ID_INDEX);
-                final String type = cursor.getString(TYPES_INDEX);
-                final int edited = cursor.getInt(EDITED_INDEX);
-                mMvnoType = cursor.getString(MVNO_TYPE_INDEX);
-                mMvnoMatchData = cursor.getString(MVNO_MATCH_DATA_INDEX);
-
-                final ApnPreference pref = new ApnPreference(getPrefContext());
-
-                pref.setKey(key);
-                pref.setTitle(name);
-                pref.setPersistent(false);
-                pref.setOnPreferenceChangeListener(this);
-                pref.setSubId(mSubId);
-                if (mHidePresetApnDetails && edited == Telephony.Carriers.UNEDITED) {
-                    pref.setHideDetails();
-                } else {
-                    pref.setSummary(apn);
-                }
-
-                final boolean defaultSelectable =
-                        ((type == null) || type.contains(ApnSetting.TYPE_DEFAULT_STRING));
-                pref.setDefaultSelectable(defaultSelectable);
-                if (defaultSelectable) {
-                    pref.setIsChecked(key.equals(mPreferredApnKey));
-                    apnList.add(pref);
-                } else {
-                    mmsApnList.add(pref);
-                }
-                cursor.moveToNext();
+        final PreferenceGroup apnPrefList = findPreference(APN_LIST);
+        final Map<String, ApnListItem> previousApns = new HashMap<>(mShownApns);
+        mShownApns.clear();
+
+        for (int i = 0; i < apnList.size(); i++) {
+            final ApnListItem item = apnList.get(i);
+            final String key = item.getId();
+            mMvnoType = item.getMvnoType();
+            mMvnoMatchData = item.getMvnoMatchData();
+
+            ApnPreference pref = apnPrefList.findPreference(key);
+            if (pref != null && !item.equals(previousApns.remove(key))) {
+                apnPrefList.removePreference(pref);
+                pref = null;
             }
-            cursor.close();
-
-            for (Preference preference : apnList) {
-                apnPrefList.addPreference(preference);
+            final boolean isNew = pref == null;
+            if (isNew) {
+                pref = createApnPreference(item);
             }
-            for (Preference preference : mmsApnList) {
-                apnPrefList.addPreference(preference);
+            pref.setOrder(item.isDefaultSelectable() ? i : NOT_SELECTABLE_ORDER_OFFSET + i);
+            if (isNew) {
+                apnPrefList.addPreference(pref);
             }
+            mShownApns.put(key, item);
+        }
+
+        for (String key : previousApns.keySet()) {
+            final Preference pref = apnPrefList.findPreference(key);
+            if (pref != null) {
+                apnPrefList.removePreference(pref);
+            }
+        }
+    }
+
+    private ApnPreference createApnPreference(ApnListItem item) {
+        final ApnPreference pref = new ApnPreference(getPrefContext());
+
+        pref.setKey(item.getId());
+        pref.setTitle(item.getName());
+        pref.setPersistent(false);
+        pref.setOnPreferenceChangeListener(this);
+        pref.setSubId(mSubId);
+        if (mHidePresetApnDetails && item.getEdited() == Telephony.Carriers.UNEDITED) {
+            pref.setHideDetails();
+        } else {
+            pref.setSummary(item.getApn());
+        }
+
+        final boolean defaultSelectable = item.isDefaultSelectable();
+        pref.setDefaultSelectable(defaultSelectable);
+        if (defaultSelectable) {
+            pref.setIsChecked(item.getId().equals(mPreferredApnKey));
         }
+        return pref;
     }
 
     @Override
@@ -22,11 +22,17 @@ import android.telephony.CarrierConfigManager;
 import android.telephony.SubscriptionManager;
 import android.text.TextUtils;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.android.settings.core.BasePreferenceController;
 import com.android.settings.network.CarrierConfigCache;
 
 public class CarrierSettingsVersionPreferenceController extends BasePreferenceController {
 
+    @VisibleForTesting
+    static final String[] CARRIER_CONFIG_KEYS = {
+            CarrierConfigManager.KEY_CARRIER_CONFIG_VERSION_STRING};
+
     private int mSubscriptionId;
     private CarrierConfigCache mCarrierConfigCache;
 
@@ -42,7 +48,8 @@ public class CarrierSettingsVersionPreferenceController extends BasePreferenceCo
 
     @Override
     public CharSequence getSummary() {
-        final PersistableBundle config = mCarrierConfigCache.getConfigForSubId(mSubscriptionId);
+        final PersistableBundle config =
+                mCarrierConfigCache.getConfigForSubId(mSubscriptionId, CARRIER_CONFIG_KEYS);
         if (config == null) {
             return null;
         }
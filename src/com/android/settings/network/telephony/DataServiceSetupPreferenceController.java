@@ -26,6 +26,7 @@ import android.telephony.SubscriptionManager;
 import android.telephony.TelephonyManager;
 import android.text.TextUtils;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.preference.Preference;
 
 import com.android.settings.network.CarrierConfigCache;
@@ -35,6 +36,10 @@ import com.android.settings.network.CarrierConfigCache;
  */
 public class DataServiceSetupPreferenceController extends TelephonyBasePreferenceController {
 
+    @VisibleForTesting
+    static final String[] CARRIER_CONFIG_KEYS = {
+            CarrierConfigManager.KEY_HIDE_CARRIER_NETWORK_SETTINGS_BOOL};
+
     private CarrierConfigCache mCarrierConfigCache;
     private TelephonyManager mTelephonyManager;
     private String mSetupUrl;
@@ -49,7 +54,8 @@ public class DataServiceSetupPreferenceController extends TelephonyBasePreferenc
 
     @Override
     public int getAvailabilityStatus(int subId) {
-        final PersistableBundle carrierConfig = mCarrierConfigCache.getConfigForSubId(subId);
+        final PersistableBundle carrierConfig =
+                mCarrierConfigCache.getConfigForSubId(subId, CARRIER_CONFIG_KEYS);
         return subId != SubscriptionManager.INVALID_SUBSCRIPTION_ID
                 && carrierConfig != null
                 && !carrierConfig.getBoolean(
@@ -53,6 +53,8 @@ open class NetworkOperatorPreference(
 ) : Preference(context) {
     private var cellInfo: CellInfo? = null
     private var cellId: CellIdentity? = null
+    // Resolved once per cell, since both the title and the key of the preference use it.
+    private var networkTitle: String? = null
     private val useNewApi = context.resources.getBoolean(
         com.android.internal.R.bool.config_enableNewAutoSelectNetworkUI
     )
@@ -64,6 +66,7 @@ open class NetworkOperatorPreference(
     fun updateCell(cellInfo: CellInfo?, cellId: CellIdentity? = cellInfo?.cellIdentity) {
         this.cellInfo = cellInfo
         this.cellId = cellId
+        networkTitle = cellId?.getNetworkTitle()
         refresh()
     }
 
@@ -72,6 +75,17 @@ open class NetworkOperatorPreference(
      */
     fun isSameCell(cellInfo: CellInfo): Boolean = cellInfo.cellIdentity == cellId
 
+    /**
+     * Returns true if this preference already shows [cellInfo]: the same cell, signal level and
+     * registration. Unlike [CellInfo.equals], the timestamp each scan batch carries is ignored.
+     */
+    fun isSameCellInfo(cellInfo: CellInfo): Boolean {
+        val shownCellInfo = this.cellInfo ?: return false
+        return cellInfo.cellIdentity == cellId &&
+            cellInfo.cellSignalStrength.level == shownCellInfo.cellSignalStrength.level &&
+            cellInfo.isRegistered == shownCellInfo.isRegistered
+    }
+
     /**
      * Return true when this preference is for forbidden network
      */
@@ -81,7 +95,7 @@ open class NetworkOperatorPreference(
      * Refresh the NetworkOperatorPreference by updating the title and the icon.
      */
     fun refresh() {
-        var networkTitle = cellId?.getNetworkTitle() ?: return
+        var networkTitle = networkTitle ?: return
         if (isForbiddenNetwork()) {
             if (DBG) Log.d(TAG, "refresh forbidden network: $networkTitle")
             networkTitle += " ${context.getString(R.string.forbidden_network)}"
@@ -114,7 +128,7 @@ open class NetworkOperatorPreference(
     /**
      * Operator name of this cell
      */
-    fun getOperatorName(): String? = cellId?.getNetworkTitle()
+    fun getOperatorName(): String? = networkTitle
 
     /**
      * Operator info of this cell
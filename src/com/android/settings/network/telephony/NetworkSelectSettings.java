@@ -48,6 +48,7 @@ import com.android.internal.telephony.flags.Flags;
 import com.android.settings.R;
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.network.telephony.scan.NetworkScanRepository;
+import com.android.settings.network.telephony.scan.NetworkScanRepository.CellInfoScanKey;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 import com.android.settingslib.utils.ThreadUtils;
@@ -60,7 +61,12 @@ import kotlinx.coroutines.Job;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -86,6 +92,9 @@ public class NetworkSelectSettings extends DashboardFragment {
     @VisibleForTesting
     @NonNull
     List<CellInfo> mCellInfoList = ImmutableList.of();
+    // The preferences of mCellInfoList, as long as they are in mPreferenceCategory.
+    @NonNull
+    private Map<CellInfoScanKey, NetworkOperatorPreference> mOperatorPreferences = new HashMap<>();
     private int mSubId = SubscriptionManager.INVALID_SUBSCRIPTION_ID;
     private TelephonyManager mTelephonyManager;
     private SatelliteManager mSatelliteManager;
@@ -395,46 +404,52 @@ public class NetworkSelectSettings extends DashboardFragment {
 
     /**
      * Update the content of network operators list.
+     *
+     * <p>Preferences are matched to the scan results by {@link CellInfoScanKey}, so a network
+     * found again in a later batch keeps its preference, which is only refreshed if the cell
+     * changed.
      */
     private void updateAllPreferenceCategory() {
-        int numberOfPreferences = mPreferenceCategory.getPreferenceCount();
-
-        // remove unused preferences
-        while (numberOfPreferences > mCellInfoList.size()) {
-            numberOfPreferences--;
-            mPreferenceCategory.removePreference(
-                    mPreferenceCategory.getPreference(numberOfPreferences));
-        }
+        final Map<CellInfoScanKey, NetworkOperatorPreference> previousPreferences =
+                mOperatorPreferences;
+        mOperatorPreferences = new HashMap<>();
+        final Set<Preference> keptPreferences =
+                Collections.newSetFromMap(new IdentityHashMap<>());
 
-        // update the content of preference
         for (int index = 0; index < mCellInfoList.size(); index++) {
             final CellInfo cellInfo = mCellInfoList.get(index);
+            final CellInfoScanKey key = new CellInfoScanKey(cellInfo);
 
-            NetworkOperatorPreference pref = null;
-            if (index < numberOfPreferences) {
-                final Preference rawPref = mPreferenceCategory.getPreference(index);
-                if (rawPref instanceof NetworkOperatorPreference) {
-                    // replace existing preference
-                    pref = (NetworkOperatorPreference) rawPref;
-                    pref.updateCell(cellInfo);
-                } else {
-                    mPreferenceCategory.removePreference(rawPref);
-                }
-            }
+            NetworkOperatorPreference pref = previousPreferences.remove(key);
             if (pref == null) {
                 // add new preference
                 pref = createNetworkOperatorPreference(cellInfo);
                 pref.setOrder(index);
                 mPreferenceCategory.addPreference(pref);
+            } else {
+                if (!pref.isSameCellInfo(cellInfo)) {
+                    pref.updateCell(cellInfo);
+                }
+                pref.setOrder(index);
             }
             pref.setKey(pref.getOperatorName());
+            mOperatorPreferences.put(key, pref);
+            keptPreferences.add(pref);
 
-            if (mCellInfoList.get(index).isRegistered()) {
+            if (cellInfo.isRegistered()) {
                 pref.setSummary(R.string.network_connected);
             } else {
                 pref.setSummary(null);
             }
         }
+
+        // remove unused preferences, including the connected network shown before the scan
+        for (int index = mPreferenceCategory.getPreferenceCount() - 1; index >= 0; index--) {
+            final Preference pref = mPreferenceCategory.getPreference(index);
+            if (!keptPreferences.contains(pref)) {
+                mPreferenceCategory.removePreference(pref);
+            }
+        }
     }
 
     /**
@@ -452,6 +467,7 @@ public class NetworkSelectSettings extends DashboardFragment {
     private void forceUpdateConnectedPreferenceCategory(
             NetworkSelectRepository.NetworkRegistrationAndForbiddenInfo info) {
         mPreferenceCategory.removeAll();
+        mOperatorPreferences.clear();
         for (NetworkRegistrationInfo regInfo : info.getNetworkList()) {
             final CellIdentity cellIdentity = regInfo.getCellIdentity();
             if (cellIdentity == null) {
@@ -494,6 +510,7 @@ public class NetworkSelectSettings extends DashboardFragment {
     private void addMessagePreference(int messageId) {
         mStatusMessagePreference.setTitle(messageId);
         mPreferenceCategory.removeAll();
+        mOperatorPreferences.clear();
         mPreferenceCategory.addPreference(mStatusMessagePreference);
     }
 
@@ -67,13 +67,28 @@ class NetworkScanRepository(private val context: Context, subId: Int) {
         )
     }
 
+    /**
+     * Flow of the scan results, merged across the batches reported during the scan.
+     *
+     * A cell found again in a later batch replaces the earlier one in place, so each network is
+     * listed once and keeps its position while the scan goes on.
+     */
     fun networkScanFlow(): Flow<NetworkScanResult> = callbackFlow {
         var state = NetworkScanState.ACTIVE
+        val mergedCellInfos = LinkedHashMap<CellInfoScanKey, CellInfo>()
         var cellInfos: List<CellInfo> = emptyList()
 
         val callback = object : TelephonyScanManager.NetworkScanCallback() {
             override fun onResults(results: List<CellInfo>) {
-                cellInfos = results.distinctBy { CellInfoScanKey(it) }
+                synchronized(mergedCellInfos) {
+                    val batchKeys = HashSet<CellInfoScanKey>()
+                    for (cellInfo in results) {
+                        val key = CellInfoScanKey(cellInfo)
+                        // Within a batch the first cell wins, as duplicates are the same network.
+                        if (batchKeys.add(key)) mergedCellInfos[key] = cellInfo
+                    }
+                    cellInfos = mergedCellInfos.values.toList()
+                }
                 sendResult()
             }
 
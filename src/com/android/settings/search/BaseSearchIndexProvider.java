@@ -35,6 +35,7 @@ import com.android.settings.core.BasePreferenceController;
 import com.android.settings.core.PreferenceControllerListHelper;
 import com.android.settings.core.PreferenceControllerMixin;
 import com.android.settings.core.PreferenceXmlParserUtils;
+import com.android.settings.core.instrumentation.PreferenceControllerTracer;
 import com.android.settingslib.core.AbstractPreferenceController;
 import com.android.settingslib.search.Indexable;
 import com.android.settingslib.search.SearchIndexableRaw;
@@ -134,17 +135,25 @@ public class BaseSearchIndexProvider implements Indexable.SearchIndexProvider {
         final List<AbstractPreferenceController> controllers = getPreferenceControllers(context);
         if (controllers != null && !controllers.isEmpty()) {
             for (AbstractPreferenceController controller : controllers) {
-                if (controller instanceof PreferenceControllerMixin) {
-                    ((PreferenceControllerMixin) controller)
-                            .updateNonIndexableKeys(nonIndexableKeys);
-                } else if (controller instanceof BasePreferenceController) {
-                    ((BasePreferenceController) controller).updateNonIndexableKeys(
-                            nonIndexableKeys);
-                } else {
-                    Log.e(TAG, controller.getClass().getName()
-                            + " must implement " + PreferenceControllerMixin.class.getName()
-                            + " treating the key non-indexable");
-                    nonIndexableKeys.add(controller.getPreferenceKey());
+                final long startTime = PreferenceControllerTracer.begin(controller,
+                        PreferenceControllerTracer.METHOD_UPDATE_NON_INDEXABLE_KEYS);
+                try {
+                    if (controller instanceof PreferenceControllerMixin) {
+                        ((PreferenceControllerMixin) controller)
+                                .updateNonIndexableKeys(nonIndexableKeys);
+                    } else if (controller instanceof BasePreferenceController) {
+                        ((BasePreferenceController) controller).updateNonIndexableKeys(
+                                nonIndexableKeys);
+                    } else {
+                        Log.e(TAG, controller.getClass().getName()
+                                + " must implement " + PreferenceControllerMixin.class.getName()
+                                + " treating the key non-indexable");
+                        nonIndexableKeys.add(controller.getPreferenceKey());
+                    }
+                } finally {
+                    PreferenceControllerTracer.end(controller,
+                            PreferenceControllerTracer.METHOD_UPDATE_NON_INDEXABLE_KEYS,
+                            startTime);
                 }
             }
         }
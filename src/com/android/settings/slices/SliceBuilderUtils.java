@@ -51,6 +51,7 @@ import com.android.settings.core.BasePreferenceController;
 import com.android.settings.core.SliderPreferenceController;
 import com.android.settings.core.SubSettingLauncher;
 import com.android.settings.core.TogglePreferenceController;
+import com.android.settings.core.instrumentation.PreferenceControllerTracer;
 import com.android.settingslib.RestrictedLockUtils;
 import com.android.settingslib.RestrictedLockUtilsInternal;
 import com.android.settingslib.core.AbstractPreferenceController;
@@ -80,12 +81,13 @@ public class SliceBuilderUtils {
         Log.d(TAG, "Creating slice for: " + sliceData.getPreferenceController());
         final BasePreferenceController controller = getPreferenceController(context, sliceData);
 
-        if (!controller.isAvailable()) {
+        if (!PreferenceControllerTracer.isAvailable(controller)) {
             // Cannot guarantee setting page is accessible, let the presenter handle error case.
             return null;
         }
 
-        if (controller.getAvailabilityStatus() == DISABLED_DEPENDENT_SETTING) {
+        if (PreferenceControllerTracer.getAvailabilityStatus(controller)
+                == DISABLED_DEPENDENT_SETTING) {
             return buildUnavailableSlice(context, sliceData);
         }
 
@@ -185,7 +187,7 @@ public class SliceBuilderUtils {
         // summary. Note it doesn't require a valid summary - so we can force some slices to have
         // empty summaries (ex: volume).
         if (controller.useDynamicSliceSummary()) {
-            return controller.getSummary();
+            return PreferenceControllerTracer.getSummary(controller);
         }
 
         // Priority 2: Show summary from slice data.
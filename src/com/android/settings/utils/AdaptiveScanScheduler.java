@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.utils;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Schedules the periodic scans of a picker page.
+ *
+ * <p>The delay between two scans starts at the minimum interval and doubles, up to the maximum
+ * interval, every time a scan returns the same set of results as the previous one. It drops back
+ * to the minimum as soon as the results change or the user interacts with the list, and scans are
+ * paused while the screen is not interactive. Scan count, result churn and radio-on time are kept
+ * for the current session and reported by {@link #dump}.
+ *
+ * <p>All methods must be called on the thread of the handler passed to the constructor.
+ */
+public class AdaptiveScanScheduler {
+
+    /** Starts a scan. */
+    public interface Scanner {
+        /**
+         * Starts a scan, whose results must be reported through {@link #onScanResults}.
+         *
+         * @return whether the scan was started.
+         */
+        boolean startScan();
+    }
+
+    private final String mTag;
+    private final Context mContext;
+    private final Handler mHandler;
+    private final Scanner mScanner;
+    private final long mMinIntervalMillis;
+    private final long mMaxIntervalMillis;
+    private final Runnable mScanRunnable = this::scan;
+
+    private boolean mStarted;
+    private boolean mPaused;
+    private long mIntervalMillis;
+    private long mNextScanUptimeMillis;
+    private long mScanStartElapsedMillis = -1;
+    private Set<String> mLastResults;
+
+    // Statistics of the current, or last, session.
+    private long mSessionStartElapsedMillis;
+    private int mScanCount;
+    private int mUnchangedResultCount;
+    private int mResultChurn;
+    private long mRadioOnMillis;
+
+    @VisibleForTesting
+    final BroadcastReceiver mScreenReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_SCREEN_OFF.equals(intent.getAction())) {
+                pause();
+            } else if (Intent.ACTION_SCREEN_ON.equals(intent.getAction())) {
+                resume();
+            }
+        }
+    };
+
+    public AdaptiveScanScheduler(@NonNull String tag, @NonNull Context context,
+            @NonNull Handler handler, long minIntervalMillis, long maxIntervalMillis,
+            @NonNull Scanner scanner) {
+        mTag = tag;
+        mContext = context;
+        mHandler = handler;
+        mMinIntervalMillis = minIntervalMillis;
+        mMaxIntervalMillis = maxIntervalMillis;
+        mScanner = scanner;
+        mIntervalMillis = minIntervalMillis;
+    }
+
+    /**
+     * Starts a new session. The first scan is expected to be started by the caller, so the
+     * scheduler only scans after the minimum interval if no result has been reported by then.
+     */
+    public void start() {
+        if (mStarted) {
+            return;
+        }
+        mStarted = true;
+        mPaused = false;
+        mIntervalMillis = mMinIntervalMillis;
+        mLastResults = null;
+        mScanStartElapsedMillis = -1;
+        mSessionStartElapsedMillis = SystemClock.elapsedRealtime();
+        mScanCount = 0;
+        mUnchangedResultCount = 0;
+        mResultChurn = 0;
+        mRadioOnMillis = 0;
+        final IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        mContext.registerReceiver(mScreenReceiver, filter, null /* broadcastPermission */,
+                mHandler);
+        scheduleScan(mMinIntervalMillis);
+    }
+
+    /** Ends the session. Its statistics stay available to {@link #dump}. */
+    public void stop() {
+        if (!mStarted) {
+            return;
+        }
+        mStarted = false;
+        mContext.unregisterReceiver(mScreenReceiver);
+        mHandler.removeCallbacks(mScanRunnable);
+        endRadioOn();
+    }
+
+    /**
+     * Records a scan started outside of the scheduler, e.g. by the page itself. Does nothing if a
+     * scan is already in flight.
+     */
+    public void onScanStarted() {
+        if (!mStarted) {
+            return;
+        }
+        if (mScanStartElapsedMillis < 0) {
+            mScanCount++;
+            mScanStartElapsedMillis = SystemClock.elapsedRealtime();
+        }
+        // Results should follow. Scan again anyway if they never come.
+        scheduleScan(mMaxIntervalMillis);
+    }
+
+    /**
+     * Reports the results of the last scan, identified by a stable key per result, and schedules
+     * the next scan accordingly.
+     */
+    public void onScanResults(@NonNull Set<String> results) {
+        if (!mStarted) {
+            return;
+        }
+        endRadioOn();
+        if (mLastResults != null && mLastResults.equals(results)) {
+            mUnchangedResultCount++;
+            mIntervalMillis = Math.min(mIntervalMillis * 2, mMaxIntervalMillis);
+        } else {
+            mResultChurn += churn(mLastResults, results);
+            mIntervalMillis = mMinIntervalMillis;
+        }
+        mLastResults = new HashSet<>(results);
+        if (!mPaused) {
+            scheduleScan(mIntervalMillis);
+        }
+    }
+
+    /** Brings the next scan forward after the user scrolled or otherwise used the list. */
+    public void onUserInteraction() {
+        mIntervalMillis = mMinIntervalMillis;
+        if (!mStarted || mPaused || mScanStartElapsedMillis >= 0) {
+            return;
+        }
+        if (mNextScanUptimeMillis - SystemClock.uptimeMillis() > mMinIntervalMillis) {
+            scheduleScan(mMinIntervalMillis);
+        }
+    }
+
+    /** Returns the delay currently used between two scans. */
+    public long getIntervalMillis() {
+        return mIntervalMillis;
+    }
+
+    @VisibleForTesting
+    int getScanCount() {
+        return mScanCount;
+    }
+
+    @VisibleForTesting
+    int getResultChurn() {
+        return mResultChurn;
+    }
+
+    /** Prints the statistics of the current, or last, session. */
+    public void dump(@NonNull String prefix, @NonNull PrintWriter writer) {
+        final long radioOnMillis = mRadioOnMillis + (mScanStartElapsedMillis >= 0
+                ? SystemClock.elapsedRealtime() - mScanStartElapsedMillis : 0);
+        writer.print(prefix);
+        writer.println(mTag + " scan session: started=" + mStarted + " paused=" + mPaused
+                + " ageMs=" + (SystemClock.elapsedRealtime() - mSessionStartElapsedMillis)
+                + " scans=" + mScanCount
+                + " unchangedResults=" + mUnchangedResultCount
+                + " resultChurn=" + mResultChurn
+                + " radioOnMs=" + radioOnMillis
+                + " intervalMs=" + mIntervalMillis);
+    }
+
+    private void scan() {
+        if (!mStarted || mPaused) {
+            return;
+        }
+        final PowerManager powerManager = mContext.getSystemService(PowerManager.class);
+        if (powerManager != null && !powerManager.isInteractive()) {
+            // The screen went off before the broadcast was delivered.
+            pause();
+            return;
+        }
+        if (mScanner.startScan()) {
+            onScanStarted();
+        } else {
+            scheduleScan(mIntervalMillis);
+        }
+    }
+
+    private void pause() {
+        if (!mStarted || mPaused) {
+            return;
+        }
+        Log.d(mTag, "Pausing scans while the screen is off");
+        mPaused = true;
+        mHandler.removeCallbacks(mScanRunnable);
+    }
+
+    private void resume() {
+        if (!mStarted || !mPaused) {
+            return;
+        }
+        mPaused = false;
+        mIntervalMillis = mMinIntervalMillis;
+        // Results are likely stale after the screen was off.
+        scan();
+    }
+
+    private void scheduleScan(long delayMillis) {
+        mHandler.removeCallbacks(mScanRunnable);
+        mNextScanUptimeMillis = SystemClock.uptimeMillis() + delayMillis;
+        mHandler.postDelayed(mScanRunnable, delayMillis);
+    }
+
+    private void endRadioOn() {
+        if (mScanStartElapsedMillis >= 0) {
+            mRadioOnMillis += SystemClock.elapsedRealtime() - mScanStartElapsedMillis;
+            mScanStartElapsedMillis = -1;
+        }
+    }
+
+    private static int churn(Set<String> previous, Set<String> current) {
+        if (previous == null) {
+            previous = Collections.emptySet();
+        }
+        int churn = 0;
+        for (String key : current) {
+            if (!previous.contains(key)) {
+                churn++;
+            }
+        }
+        for (String key : previous) {
+            if (!current.contains(key)) {
+                churn++;
+            }
+        }
+        return churn;
+    }
+}
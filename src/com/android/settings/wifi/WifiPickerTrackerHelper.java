@@ -37,12 +37,16 @@ import androidx.lifecycle.OnLifecycleEvent;
 import com.android.internal.annotations.VisibleForTesting;
 import com.android.settings.network.CarrierConfigCache;
 import com.android.settings.overlay.FeatureFactory;
+import com.android.settings.utils.AdaptiveScanScheduler;
 import com.android.wifitrackerlib.MergedCarrierEntry;
 import com.android.wifitrackerlib.WifiEntry;
 import com.android.wifitrackerlib.WifiPickerTracker;
 
+import java.io.PrintWriter;
 import java.time.Clock;
 import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Set;
 
 public class WifiPickerTrackerHelper implements LifecycleObserver {
 
@@ -52,6 +56,15 @@ public class WifiPickerTrackerHelper implements LifecycleObserver {
     private static final long MAX_SCAN_AGE_MILLIS = 15_000;
     // Interval between initiating WifiPickerTracker scans
     private static final long SCAN_INTERVAL_MILLIS = 10_000;
+    // Longest interval between scans with adaptive scanning, once the results stopped changing
+    private static final long ADAPTIVE_MAX_SCAN_INTERVAL_MILLIS = 30_000;
+    // Max age of tracked WifiEntries with adaptive scanning, which must outlive the longest
+    // interval between two scans
+    private static final long ADAPTIVE_MAX_SCAN_AGE_MILLIS =
+            ADAPTIVE_MAX_SCAN_INTERVAL_MILLIS + MAX_SCAN_AGE_MILLIS;
+    // Interval of the scans of WifiPickerTracker itself with adaptive scanning, which only act as
+    // a fallback
+    private static final long ADAPTIVE_TRACKER_SCAN_INTERVAL_MILLIS = 300_000;
     // Clock used for evaluating the age of scans
     private static final Clock ELAPSED_REALTIME_CLOCK = new SimpleClock(ZoneOffset.UTC) {
         @Override
@@ -66,9 +79,26 @@ public class WifiPickerTrackerHelper implements LifecycleObserver {
 
     protected final WifiManager mWifiManager;
     protected final CarrierConfigCache mCarrierConfigCache;
+    @Nullable
+    private AdaptiveScanScheduler mScanScheduler;
+    @Nullable
+    private final WifiPickerTracker.WifiPickerTrackerCallback mListener;
 
     public WifiPickerTrackerHelper(@NonNull Lifecycle lifecycle, @NonNull Context context,
             @Nullable WifiPickerTracker.WifiPickerTrackerCallback listener) {
+        this(lifecycle, context, listener, false /* adaptiveScan */);
+    }
+
+    /**
+     * @param adaptiveScan whether to scan less often while the results do not change. The
+     *                     listener must then forward {@code onScanRequested} and the scan result
+     *                     changes to {@link #onScanRequested} and {@link #onScanResults}. The
+     *                     scans started by this helper are reported to {@code onScanRequested}
+     *                     too.
+     */
+    public WifiPickerTrackerHelper(@NonNull Lifecycle lifecycle, @NonNull Context context,
+            @Nullable WifiPickerTracker.WifiPickerTrackerCallback listener,
+            boolean adaptiveScan) {
         if (lifecycle == null) {
             throw new IllegalArgumentException("lifecycle must be non-null.");
         }
@@ -84,12 +114,34 @@ public class WifiPickerTrackerHelper implements LifecycleObserver {
                 new Handler(Looper.getMainLooper()),
                 mWorkerThread.getThreadHandler(),
                 ELAPSED_REALTIME_CLOCK,
-                MAX_SCAN_AGE_MILLIS,
-                SCAN_INTERVAL_MILLIS,
+                adaptiveScan ? ADAPTIVE_MAX_SCAN_AGE_MILLIS : MAX_SCAN_AGE_MILLIS,
+                adaptiveScan ? ADAPTIVE_TRACKER_SCAN_INTERVAL_MILLIS : SCAN_INTERVAL_MILLIS,
                 listener);
 
+        mListener = listener;
         mWifiManager = context.getSystemService(WifiManager.class);
         mCarrierConfigCache = CarrierConfigCache.getInstance(context);
+        if (adaptiveScan) {
+            mScanScheduler = new AdaptiveScanScheduler(TAG, context,
+                    new Handler(Looper.getMainLooper()), SCAN_INTERVAL_MILLIS,
+                    ADAPTIVE_MAX_SCAN_INTERVAL_MILLIS, this::startScan);
+        }
+    }
+
+    /** @OnLifecycleEvent(ON_START) */
+    @OnLifecycleEvent(Lifecycle.Event.ON_START)
+    public void onStart() {
+        if (mScanScheduler != null) {
+            mScanScheduler.start();
+        }
+    }
+
+    /** @OnLifecycleEvent(ON_STOP) */
+    @OnLifecycleEvent(Lifecycle.Event.ON_STOP)
+    public void onStop() {
+        if (mScanScheduler != null) {
+            mScanScheduler.stop();
+        }
     }
 
     /** @OnLifecycleEvent(ON_DESTROY) */
@@ -98,6 +150,54 @@ public class WifiPickerTrackerHelper implements LifecycleObserver {
         mWorkerThread.quit();
     }
 
+    /** Records a scan started by WifiPickerTracker, when scanning adaptively. */
+    public void onScanRequested() {
+        if (mScanScheduler != null) {
+            mScanScheduler.onScanStarted();
+        }
+    }
+
+    /** Reports that WifiPickerTracker updated its entries from scan results. */
+    public void onScanResults() {
+        if (mScanScheduler == null) {
+            return;
+        }
+        final Set<String> keys = new HashSet<>();
+        final WifiEntry connectedWifiEntry = mWifiPickerTracker.getConnectedWifiEntry();
+        if (connectedWifiEntry != null) {
+            keys.add(connectedWifiEntry.getKey());
+        }
+        for (WifiEntry wifiEntry : mWifiPickerTracker.getWifiEntries()) {
+            keys.add(wifiEntry.getKey());
+        }
+        mScanScheduler.onScanResults(keys);
+    }
+
+    /** Scans sooner, e.g. after the user scrolled the list, when scanning adaptively. */
+    public void onUserInteraction() {
+        if (mScanScheduler != null) {
+            mScanScheduler.onUserInteraction();
+        }
+    }
+
+    /** Prints the scan statistics of the current session, when scanning adaptively. */
+    public void dump(@NonNull String prefix, @NonNull PrintWriter writer) {
+        if (mScanScheduler != null) {
+            mScanScheduler.dump(prefix, writer);
+        }
+    }
+
+    private boolean startScan() {
+        if (mWifiManager == null || !mWifiManager.isWifiEnabled()) {
+            return false;
+        }
+        mWifiManager.startScan();
+        if (mListener != null) {
+            mListener.onScanRequested();
+        }
+        return true;
+    }
+
     /** Return the WifiPickerTracker class */
     public @NonNull WifiPickerTracker getWifiPickerTracker() {
         return mWifiPickerTracker;
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.benchmarks.host;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import android.content.Context;
+import android.provider.Settings;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.settings.benchmarks.results.BenchmarkResults;
+import com.android.settings.homepage.SettingsHomepageActivity;
+import com.android.settings.search.SearchFeatureProviderImpl;
+import com.android.settings.testutils.shadow.ShadowUserManager;
+import com.android.settingslib.search.Indexable;
+import com.android.settingslib.search.SearchIndexableData;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Runs on a Linux host the Settings code measured by the device benchmarks, to catch large
+ * regressions without a device. The timings are those of Robolectric on the JVM, so they are only
+ * comparable with those of previous runs on the same host.
+ *
+ * <p>System properties:
+ * <ul>
+ *   <li>{@code settings.benchmark.outputDir}: where the results are written, the temporary
+ *   directory by default.
+ *   <li>{@code settings.benchmark.baselineDir}: a directory with the results of a previous run.
+ *   <li>{@code settings.benchmark.maxRegressionPercent}: the allowed increase of a median, 10 by
+ *   default.
+ * </ul>
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = ShadowUserManager.class)
+public class HostBenchmark {
+
+    private static final int ITERATIONS = 10;
+
+    private static final BenchmarkResults sResults = new BenchmarkResults("SettingsHost");
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        Settings.Global.putInt(mContext.getContentResolver(),
+                Settings.Global.DEVICE_PROVISIONED, 1);
+    }
+
+    @AfterClass
+    public static void reportResults() throws Exception {
+        final File outputDir = new File(System.getProperty("settings.benchmark.outputDir",
+                System.getProperty("java.io.tmpdir")));
+        final String baselineDir = System.getProperty("settings.benchmark.baselineDir");
+        File baselineFile = baselineDir == null
+                ? null : sResults.getOutputFile(new File(baselineDir));
+        if (baselineFile != null && !baselineFile.exists()) {
+            baselineFile = null;
+        }
+        final double maxRegressionPercent = Double.parseDouble(
+                System.getProperty("settings.benchmark.maxRegressionPercent", "10"));
+
+        final List<BenchmarkResults.Regression> regressions =
+                sResults.write(outputDir, baselineFile, maxRegressionPercent);
+        assertWithMessage("Regressions, see " + sResults.getOutputFile(outputDir))
+                .that(regressions).isEmpty();
+    }
+
+    @Test
+    public void homepageStart() {
+        for (int i = 0; i < ITERATIONS; i++) {
+            final long startTime = System.nanoTime();
+            final ActivityController<SettingsHomepageActivity> controller =
+                    Robolectric.buildActivity(SettingsHomepageActivity.class)
+                            .create().start().resume().visible();
+            addSample("homepage_start", startTime);
+            controller.pause().stop().destroy();
+        }
+    }
+
+    @Test
+    public void searchIndex() {
+        final SearchFeatureProviderImpl searchProvider = new SearchFeatureProviderImpl();
+        for (int i = 0; i < ITERATIONS; i++) {
+            final long startTime = System.nanoTime();
+            for (SearchIndexableData bundle :
+                    searchProvider.getSearchIndexableResources().getProviderValues()) {
+                final Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
+                if (provider == null) {
+                    continue;
+                }
+                provider.getXmlResourcesToIndex(mContext, true /* enabled */);
+                provider.getNonIndexableKeys(mContext);
+            }
+            addSample("search_index", startTime);
+        }
+    }
+
+    private static void addSample(String metric, long startTimeNanos) {
+        sResults.addSample(metric, BenchmarkResults.UNIT_MS,
+                (System.nanoTime() - startTimeNanos) / 1_000_000.0);
+    }
+}
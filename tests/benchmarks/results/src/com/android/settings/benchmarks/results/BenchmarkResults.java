@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.benchmarks.results;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The samples of the metrics of a benchmark suite, written as a JSON file that can be compared
+ * with the file of a previous run, the baseline.
+ *
+ * <p>The file has the form:
+ * <pre>
+ * {
+ *   "suite": "SettingsStartup",
+ *   "metrics": {
+ *     "Homepage_cold_start": {
+ *       "unit": "ms", "samples": [...], "min": 0, "median": 0, "p90": 0, "max": 0
+ *     }
+ *   },
+ *   "regressions": [
+ *     {"metric": "Homepage_cold_start", "baselineMedian": 0, "median": 0, "changePercent": 0}
+ *   ]
+ * }
+ * </pre>
+ *
+ * <p>Lower is better for every metric, so a regression is a median higher than the baseline
+ * median by more than the allowed percentage. Metrics missing from either file are not compared.
+ */
+public class BenchmarkResults {
+
+    public static final String UNIT_MS = "ms";
+    public static final String UNIT_PERCENT = "percent";
+
+    private static final String FIELD_SUITE = "suite";
+    private static final String FIELD_METRICS = "metrics";
+    private static final String FIELD_UNIT = "unit";
+    private static final String FIELD_SAMPLES = "samples";
+    private static final String FIELD_MIN = "min";
+    private static final String FIELD_MEDIAN = "median";
+    private static final String FIELD_P90 = "p90";
+    private static final String FIELD_MAX = "max";
+    private static final String FIELD_REGRESSIONS = "regressions";
+    private static final String FIELD_METRIC = "metric";
+    private static final String FIELD_BASELINE_MEDIAN = "baselineMedian";
+    private static final String FIELD_CHANGE_PERCENT = "changePercent";
+
+    /** A metric whose median regressed compared to the baseline. */
+    public static class Regression {
+        public final String metric;
+        public final double baselineMedian;
+        public final double median;
+        public final double changePercent;
+
+        Regression(String metric, double baselineMedian, double median) {
+            this.metric = metric;
+            this.baselineMedian = baselineMedian;
+            this.median = median;
+            this.changePercent = (median - baselineMedian) * 100 / baselineMedian;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: median %.2f, baseline %.2f (%+.1f%%)",
+                    metric, median, baselineMedian, changePercent);
+        }
+    }
+
+    private static class Metric {
+        final String mUnit;
+        final List<Double> mSamples = new ArrayList<>();
+
+        Metric(String unit) {
+            mUnit = unit;
+        }
+
+        double percentile(int percent) {
+            final List<Double> sorted = new ArrayList<>(mSamples);
+            Collections.sort(sorted);
+            final int index = (int) Math.ceil(sorted.size() * percent / 100.0) - 1;
+            return sorted.get(Math.max(index, 0));
+        }
+    }
+
+    private final String mSuite;
+    private final Map<String, Metric> mMetrics = new LinkedHashMap<>();
+
+    public BenchmarkResults(String suite) {
+        mSuite = suite;
+    }
+
+    /** Returns the name of the suite, which is also the name of its file. */
+    public String getSuite() {
+        return mSuite;
+    }
+
+    /** Adds a sample of {@code metric}, all the samples of a metric must have the same unit. */
+    public synchronized void addSample(String metric, String unit, double value) {
+        Metric entry = mMetrics.get(metric);
+        if (entry == null) {
+            entry = new Metric(unit);
+            mMetrics.put(metric, entry);
+        } else if (!entry.mUnit.equals(unit)) {
+            throw new IllegalArgumentException(
+                    "Unit of " + metric + " is " + entry.mUnit + ", not " + unit);
+        }
+        entry.mSamples.add(value);
+    }
+
+    /** Returns the median of {@code metric}, or NaN if it has no samples. */
+    public synchronized double getMedian(String metric) {
+        final Metric entry = mMetrics.get(metric);
+        return entry == null ? Double.NaN : entry.percentile(50);
+    }
+
+    /**
+     * Returns the metrics whose median is higher than the median in {@code baseline} by more
+     * than {@code maxRegressionPercent}.
+     */
+    public synchronized List<Regression> compareWithBaseline(JSONObject baseline,
+            double maxRegressionPercent) throws JSONException {
+        final List<Regression> regressions = new ArrayList<>();
+        final JSONObject baselineMetrics = baseline.getJSONObject(FIELD_METRICS);
+        for (Map.Entry<String, Metric> entry : mMetrics.entrySet()) {
+            final JSONObject baselineMetric = baselineMetrics.optJSONObject(entry.getKey());
+            if (baselineMetric == null
+                    || !entry.getValue().mUnit.equals(baselineMetric.optString(FIELD_UNIT))) {
+                continue;
+            }
+            final double baselineMedian = baselineMetric.getDouble(FIELD_MEDIAN);
+            final double median = entry.getValue().percentile(50);
+            if (baselineMedian > 0
+                    && median > baselineMedian * (1 + maxRegressionPercent / 100)) {
+                regressions.add(new Regression(entry.getKey(), baselineMedian, median));
+            }
+        }
+        return regressions;
+    }
+
+    /** Returns the results as JSON, along with the {@code regressions} found. */
+    public synchronized JSONObject toJson(List<Regression> regressions) throws JSONException {
+        final JSONObject metrics = new JSONObject();
+        for (Map.Entry<String, Metric> entry : mMetrics.entrySet()) {
+            final Metric metric = entry.getValue();
+            metrics.put(entry.getKey(), new JSONObject()
+                    .put(FIELD_UNIT, metric.mUnit)
+                    .put(FIELD_SAMPLES, new JSONArray(metric.mSamples))
+                    .put(FIELD_MIN, metric.percentile(0))
+                    .put(FIELD_MEDIAN, metric.percentile(50))
+                    .put(FIELD_P90, metric.percentile(90))
+                    .put(FIELD_MAX, metric.percentile(100)));
+        }
+        final JSONArray regressionArray = new JSONArray();
+        for (Regression regression : regressions) {
+            regressionArray.put(new JSONObject()
+                    .put(FIELD_METRIC, regression.metric)
+                    .put(FIELD_BASELINE_MEDIAN, regression.baselineMedian)
+                    .put(FIELD_MEDIAN, regression.median)
+                    .put(FIELD_CHANGE_PERCENT, regression.changePercent));
+        }
+        return new JSONObject()
+                .put(FIELD_SUITE, mSuite)
+                .put(FIELD_METRICS, metrics)
+                .put(FIELD_REGRESSIONS, regressionArray);
+    }
+
+    /**
+     * Compares the results with {@code baselineFile} if it is not null, then writes them to
+     * {@code outputDir}/{@link #getSuite()}.json.
+     *
+     * @return the regressions found, also written to the file.
+     */
+    public List<Regression> write(File outputDir, File baselineFile, double maxRegressionPercent)
+            throws IOException, JSONException {
+        final List<Regression> regressions = baselineFile == null
+                ? Collections.emptyList()
+                : compareWithBaseline(readJson(baselineFile), maxRegressionPercent);
+        outputDir.mkdirs();
+        Files.write(getOutputFile(outputDir).toPath(),
+                toJson(regressions).toString(2).getBytes(StandardCharsets.UTF_8));
+        return regressions;
+    }
+
+    /** Returns the file {@link #write} writes to. */
+    public File getOutputFile(File outputDir) {
+        return new File(outputDir, mSuite + ".json");
+    }
+
+    /** Reads a file written by {@link #write}. */
+    public static JSONObject readJson(File file) throws IOException, JSONException {
+        return new JSONObject(
+                new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.benchmarks.results;
+
+import android.app.Instrumentation;
+import android.os.Bundle;
+import android.util.Log;
+
+import org.json.JSONException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes the {@link BenchmarkResults} of an instrumentation run on a device, and reports the path
+ * of the file in the instrumentation status so that it can be pulled from the device.
+ *
+ * <p>Instrumentation arguments:
+ * <ul>
+ *   <li>{@link #ARG_BASELINE_DIR}: a directory on the device with the files of a previous run.
+ *   <li>{@link #ARG_MAX_REGRESSION_PERCENT}: the allowed increase of a median, 10 by default.
+ *   <li>{@link #ARG_FAIL_ON_REGRESSION}: whether to fail when a metric regressed.
+ * </ul>
+ */
+public final class BenchmarkResultsReporter {
+
+    private static final String TAG = "BenchmarkResults";
+
+    public static final String ARG_BASELINE_DIR = "settings-benchmark-baseline-dir";
+    public static final String ARG_MAX_REGRESSION_PERCENT =
+            "settings-benchmark-max-regression-percent";
+    public static final String ARG_FAIL_ON_REGRESSION = "settings-benchmark-fail-on-regression";
+
+    /** Prefix of the status keys holding the path of a results file. */
+    public static final String KEY_RESULTS_FILE_PREFIX = "settings_benchmark_results_";
+
+    private static final double DEFAULT_MAX_REGRESSION_PERCENT = 10;
+
+    private BenchmarkResultsReporter() {}
+
+    /**
+     * Writes {@code results} to the external files directory of the target context and reports
+     * the path.
+     *
+     * @throws AssertionError if a metric regressed and {@link #ARG_FAIL_ON_REGRESSION} is set.
+     */
+    public static void report(Instrumentation instrumentation, Bundle arguments,
+            BenchmarkResults results) throws IOException, JSONException {
+        final File outputDir = instrumentation.getTargetContext().getExternalFilesDir(null);
+        final String baselineDir = arguments.getString(ARG_BASELINE_DIR);
+        File baselineFile = null;
+        if (baselineDir != null) {
+            baselineFile = results.getOutputFile(new File(baselineDir));
+            if (!baselineFile.exists()) {
+                Log.w(TAG, "No baseline " + baselineFile);
+                baselineFile = null;
+            }
+        }
+        final double maxRegressionPercent = Double.parseDouble(arguments.getString(
+                ARG_MAX_REGRESSION_PERCENT, String.valueOf(DEFAULT_MAX_REGRESSION_PERCENT)));
+
+        final List<BenchmarkResults.Regression> regressions =
+                results.write(outputDir, baselineFile, maxRegressionPercent);
+
+        final Bundle status = new Bundle();
+        status.putString(KEY_RESULTS_FILE_PREFIX + results.getSuite(),
+                results.getOutputFile(outputDir).getAbsolutePath());
+        instrumentation.sendStatus(0, status);
+
+        for (BenchmarkResults.Regression regression : regressions) {
+            Log.w(TAG, "Regression " + regression);
+        }
+        if (!regressions.isEmpty()
+                && Boolean.parseBoolean(arguments.getString(ARG_FAIL_ON_REGRESSION))) {
+            throw new AssertionError(results.getSuite() + " regressed: " + regressions);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.benchmarks
+
+import android.app.usage.NetworkStats
+import android.net.NetworkTemplate
+import android.os.Process
+import android.os.UserHandle
+import android.perftests.utils.PerfStatusReporter
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.test.platform.app.InstrumentationRegistry
+import com.android.settings.datausage.lib.AppDataUsageRepository
+import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.Bucket
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Measures the per-UID aggregation behind the app list of the data usage page. */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class AppDataUsageAggregationBenchmark {
+    @get:Rule
+    val perfStatusReporter = PerfStatusReporter()
+
+    private val context = InstrumentationRegistry.getInstrumentation().targetContext
+
+    private val repository = AppDataUsageRepository(
+        context = context,
+        currentUserId = UserHandle.myUserId(),
+        template = NetworkTemplate.Builder(NetworkTemplate.MATCH_WIFI).build(),
+        getPackageName = { null },
+    )
+
+    @Test
+    fun getAppPercent_fewApps() = measure(createBuckets(appCount = 50))
+
+    @Test
+    fun getAppPercent_manyAppsWithSdkSandboxes() = measure(createBuckets(appCount = 1_000))
+
+    private fun measure(buckets: List<Bucket>) {
+        val state = perfStatusReporter.benchmarkState
+        while (state.keepRunning()) {
+            repository.getAppPercent(carrierId = null, buckets = buckets)
+        }
+    }
+
+    /**
+     * Creates the buckets of a summary query: one per app and state, plus its SDK sandbox for
+     * every other app, and a few system UIDs.
+     */
+    private fun createBuckets(appCount: Int): List<Bucket> {
+        val userId = UserHandle.myUserId()
+        val buckets = mutableListOf<Bucket>()
+        for (i in 0 until appCount) {
+            val uid = UserHandle.getUid(userId, Process.FIRST_APPLICATION_UID + i)
+            for (state in STATES) {
+                buckets += bucket(uid, state, bytes = (i + 1) * 1_000L)
+                if (i % 2 == 0) {
+                    buckets += bucket(Process.toSdkSandboxUid(uid), state, bytes = 100L)
+                }
+            }
+        }
+        for (uid in SYSTEM_UIDS) {
+            buckets += bucket(uid, NetworkStats.Bucket.STATE_DEFAULT, bytes = 50_000L)
+        }
+        return buckets
+    }
+
+    private fun bucket(uid: Int, state: Int, bytes: Long) = Bucket(
+        uid = uid,
+        bytes = bytes,
+        state = state,
+        startTimeStamp = 0,
+        endTimeStamp = 1,
+    )
+
+    private companion object {
+        val STATES = intArrayOf(
+            NetworkStats.Bucket.STATE_DEFAULT,
+            NetworkStats.Bucket.STATE_FOREGROUND,
+        )
+        val SYSTEM_UIDS = intArrayOf(
+            Process.SYSTEM_UID,
+            Process.PHONE_UID,
+            NetworkStats.Bucket.UID_REMOVED,
+            NetworkStats.Bucket.UID_TETHERING,
+        )
+    }
+}
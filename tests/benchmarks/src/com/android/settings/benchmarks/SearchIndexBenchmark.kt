@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.benchmarks
+
+import android.net.Uri
+import android.os.SystemClock
+import android.provider.SearchIndexablesContract
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.test.platform.app.InstrumentationRegistry
+import com.android.settings.benchmarks.results.BenchmarkResults
+import com.android.settings.benchmarks.results.BenchmarkResultsReporter
+import com.google.common.truth.Truth.assertThat
+import org.junit.AfterClass
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Measures the queries Settings Intelligence makes to the search indexables provider of Settings
+ * when it builds its search index.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class SearchIndexBenchmark {
+    private val context = InstrumentationRegistry.getInstrumentation().targetContext
+
+    @Test
+    fun buildIndex() {
+        repeat(ITERATIONS) {
+            var totalMs = 0L
+            for ((metric, path) in PATHS) {
+                val uri = Uri.Builder()
+                    .scheme("content")
+                    .authority(context.packageName)
+                    .appendEncodedPath(path)
+                    .build()
+                val startTime = SystemClock.elapsedRealtime()
+                context.contentResolver.query(uri, null, null, null, null).use { cursor ->
+                    assertThat(cursor).isNotNull()
+                    // Reads every row, as the indexer does.
+                    while (cursor!!.moveToNext()) {
+                        cursor.getString(0)
+                    }
+                }
+                val elapsedMs = SystemClock.elapsedRealtime() - startTime
+                results.addSample(metric, BenchmarkResults.UNIT_MS, elapsedMs.toDouble())
+                totalMs += elapsedMs
+            }
+            results.addSample("index_total", BenchmarkResults.UNIT_MS, totalMs.toDouble())
+        }
+    }
+
+    companion object {
+        private const val ITERATIONS = 10
+
+        private val PATHS = listOf(
+            "xml_resources" to SearchIndexablesContract.INDEXABLES_XML_RES_PATH,
+            "raw_data" to SearchIndexablesContract.INDEXABLES_RAW_PATH,
+            "non_indexable_keys" to SearchIndexablesContract.NON_INDEXABLES_KEYS_PATH,
+        )
+
+        private val results = BenchmarkResults("SettingsSearchIndex")
+
+        @JvmStatic
+        @AfterClass
+        fun reportResults() {
+            val instrumentation = InstrumentationRegistry.getInstrumentation()
+            BenchmarkResultsReporter.report(
+                instrumentation, InstrumentationRegistry.getArguments(), results)
+        }
+    }
+}
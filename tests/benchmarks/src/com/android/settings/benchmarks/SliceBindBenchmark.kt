@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.benchmarks
+
+import android.net.Uri
+import android.os.SystemClock
+import androidx.slice.SliceViewManager
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.test.platform.app.InstrumentationRegistry
+import com.android.settings.benchmarks.results.BenchmarkResults
+import com.android.settings.benchmarks.results.BenchmarkResultsReporter
+import com.android.settings.slices.CustomSliceRegistry
+import org.junit.AfterClass
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Measures the latency of binding the slices shown on the contextual homepage and in panels. */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class SliceBindBenchmark {
+    private val context = InstrumentationRegistry.getInstrumentation().targetContext
+
+    @Test
+    fun wifi() = measure("wifi", CustomSliceRegistry.WIFI_SLICE_URI)
+
+    @Test
+    fun bluetoothDevices() =
+        measure("bluetooth_devices", CustomSliceRegistry.BLUETOOTH_DEVICES_SLICE_URI)
+
+    @Test
+    fun location() = measure("location", CustomSliceRegistry.LOCATION_SLICE_URI)
+
+    @Test
+    fun flashlight() = measure("flashlight", CustomSliceRegistry.FLASHLIGHT_SLICE_URI)
+
+    private fun measure(name: String, uri: Uri) {
+        val manager = SliceViewManager.getInstance(context)
+        // The first bind includes pinning the slice, as EligibleCardChecker does.
+        val callback = SliceViewManager.SliceCallback { }
+        var startTime = SystemClock.elapsedRealtime()
+        manager.registerSliceCallback(uri, callback)
+        manager.bindSlice(uri)
+        results.addSample(
+            "${name}_first_bind", BenchmarkResults.UNIT_MS,
+            (SystemClock.elapsedRealtime() - startTime).toDouble())
+        try {
+            repeat(ITERATIONS) {
+                startTime = SystemClock.elapsedRealtime()
+                manager.bindSlice(uri)
+                results.addSample(
+                    "${name}_bind", BenchmarkResults.UNIT_MS,
+                    (SystemClock.elapsedRealtime() - startTime).toDouble())
+            }
+        } finally {
+            manager.unregisterSliceCallback(uri, callback)
+        }
+    }
+
+    companion object {
+        private const val ITERATIONS = 20
+
+        private val results = BenchmarkResults("SettingsSliceBind")
+
+        @JvmStatic
+        @AfterClass
+        fun reportResults() {
+            val instrumentation = InstrumentationRegistry.getInstrumentation()
+            BenchmarkResultsReporter.report(
+                instrumentation, InstrumentationRegistry.getArguments(), results)
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.tests.perf;
+
+import androidx.test.uiautomator.UiDevice;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** Shell commands driving Settings and parsing the timings the platform reports for it. */
+class PerfShell {
+
+    static final String PACKAGE = "com.android.settings";
+
+    private static final Pattern LAUNCH_STATE = Pattern.compile("LaunchState:\\s(\\w+)");
+    private static final Pattern TOTAL_TIME = Pattern.compile("TotalTime:\\s(\\d+)");
+    // e.g. "Fully drawn com.android.settings/.Settings: +1s23ms"
+    private static final Pattern FULLY_DRAWN = Pattern.compile(
+            "Fully drawn " + Pattern.quote(PACKAGE) + "/\\S+: \\+(?:(\\d+)s)?(\\d+)ms");
+    private static final Pattern JANKY_FRAMES =
+            Pattern.compile("Janky frames: \\d+ \\(([\\d.]+)%\\)");
+    private static final Pattern TOTAL_FRAMES = Pattern.compile("Total frames rendered: (\\d+)");
+
+    /** The result of {@code am start -W}. */
+    static class LaunchResult {
+        final String mLaunchState;
+        final int mTotalTimeMs;
+
+        LaunchResult(String launchState, int totalTimeMs) {
+            mLaunchState = launchState;
+            mTotalTimeMs = totalTimeMs;
+        }
+    }
+
+    private final UiDevice mDevice;
+
+    PerfShell(UiDevice device) {
+        mDevice = device;
+    }
+
+    String execute(String command) throws IOException {
+        return mDevice.executeShellCommand(command);
+    }
+
+    void forceStop() throws IOException {
+        execute("am force-stop " + PACKAGE);
+    }
+
+    void clearLogcat() throws IOException {
+        execute("logcat -c");
+    }
+
+    /**
+     * Starts {@code action} and waits for its first frame, or throws if the launch was not
+     * reported.
+     */
+    LaunchResult startActivity(String action) throws IOException {
+        final String output = execute("am start -W -a " + action + " -p " + PACKAGE);
+        final Matcher state = LAUNCH_STATE.matcher(output);
+        final Matcher time = TOTAL_TIME.matcher(output);
+        if (!state.find() || !time.find()) {
+            throw new AssertionError("No launch time for " + action + ":\n" + output);
+        }
+        return new LaunchResult(state.group(1), Integer.parseInt(time.group(1)));
+    }
+
+    /**
+     * Returns the time to full display reported by the last {@code Activity#reportFullyDrawn()}
+     * since {@link #clearLogcat()}, or -1 if there is none.
+     */
+    int getFullyDrawnMs() throws IOException {
+        final Matcher matcher = FULLY_DRAWN.matcher(execute("logcat -d -s ActivityTaskManager:I"));
+        int fullyDrawnMs = -1;
+        while (matcher.find()) {
+            final String seconds = matcher.group(1);
+            fullyDrawnMs = (seconds == null ? 0 : Integer.parseInt(seconds) * 1000)
+                    + Integer.parseInt(matcher.group(2));
+        }
+        return fullyDrawnMs;
+    }
+
+    void resetFrameStats() throws IOException {
+        execute("dumpsys gfxinfo " + PACKAGE + " reset");
+    }
+
+    /** Returns the frame statistics since {@link #resetFrameStats()}. */
+    FrameStats getFrameStats() throws IOException {
+        final String output = execute("dumpsys gfxinfo " + PACKAGE);
+        final FrameStats stats = new FrameStats();
+        final Matcher total = TOTAL_FRAMES.matcher(output);
+        stats.mTotalFrames = total.find() ? Integer.parseInt(total.group(1)) : 0;
+        final Matcher janky = JANKY_FRAMES.matcher(output);
+        stats.mJankyPercent = janky.find() ? Double.parseDouble(janky.group(1)) : 0;
+        stats.mP50Ms = findPercentile(output, 50);
+        stats.mP90Ms = findPercentile(output, 90);
+        stats.mP99Ms = findPercentile(output, 99);
+        return stats;
+    }
+
+    private static int findPercentile(String output, int percentile) {
+        final Matcher matcher =
+                Pattern.compile(percentile + "th percentile: (\\d+)ms").matcher(output);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+
+    /** The frame statistics reported by {@code dumpsys gfxinfo}. */
+    static class FrameStats {
+        int mTotalFrames;
+        double mJankyPercent;
+        int mP50Ms;
+        int mP90Ms;
+        int mP99Ms;
+    }
+}
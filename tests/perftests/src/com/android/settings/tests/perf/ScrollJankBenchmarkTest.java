@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.tests.perf;
+
+import static androidx.test.platform.app.InstrumentationRegistry.getArguments;
+import static androidx.test.platform.app.InstrumentationRegistry.getInstrumentation;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import com.android.settings.benchmarks.results.BenchmarkResults;
+import com.android.settings.benchmarks.results.BenchmarkResultsReporter;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/** Measures the frame timing while flinging through long Settings pages. */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class ScrollJankBenchmarkTest {
+
+    private static final int ITERATIONS = 5;
+    private static final int FLINGS = 5;
+    private static final int TIME_OUT = 5000;
+
+    private static final BenchmarkResults sResults = new BenchmarkResults("SettingsScrollJank");
+
+    private UiDevice mDevice;
+    private PerfShell mShell;
+
+    @Before
+    public void setUp() throws Exception {
+        mDevice = UiDevice.getInstance(getInstrumentation());
+        mShell = new PerfShell(mDevice);
+        mDevice.wakeUp();
+        mDevice.pressHome();
+        mDevice.waitForIdle(TIME_OUT);
+    }
+
+    @AfterClass
+    public static void reportResults() throws Exception {
+        BenchmarkResultsReporter.report(getInstrumentation(), getArguments(), sResults);
+    }
+
+    @Test
+    public void manageApplications() throws Exception {
+        measureScroll("ManageApplications", "android.settings.MANAGE_ALL_APPLICATIONS_SETTINGS");
+    }
+
+    @Test
+    public void developmentSettings() throws Exception {
+        final String enabled =
+                mShell.execute("settings get global development_settings_enabled").trim();
+        mShell.execute("settings put global development_settings_enabled 1");
+        try {
+            measureScroll("DevelopmentSettings",
+                    "android.settings.APPLICATION_DEVELOPMENT_SETTINGS");
+        } finally {
+            mShell.execute("settings put global development_settings_enabled "
+                    + ("1".equals(enabled) ? "1" : "0"));
+        }
+    }
+
+    @Test
+    public void networkProviderSettings() throws Exception {
+        measureScroll("NetworkProviderSettings", "android.settings.WIFI_SETTINGS");
+    }
+
+    private void measureScroll(String page, String action) throws Exception {
+        for (int i = 0; i < ITERATIONS; i++) {
+            mShell.forceStop();
+            mShell.startActivity(action);
+            final UiObject2 list = mDevice.wait(Until.findObject(By.scrollable(true)), TIME_OUT);
+            assertWithMessage("No scrollable list in " + page).that(list).isNotNull();
+            mDevice.waitForIdle(TIME_OUT);
+
+            mShell.resetFrameStats();
+            for (int j = 0; j < FLINGS; j++) {
+                list.fling(Direction.DOWN);
+            }
+            for (int j = 0; j < FLINGS; j++) {
+                list.fling(Direction.UP);
+            }
+            mDevice.waitForIdle(TIME_OUT);
+
+            final PerfShell.FrameStats stats = mShell.getFrameStats();
+            if (stats.mTotalFrames == 0) {
+                continue;
+            }
+            sResults.addSample(page + "_janky_frames", BenchmarkResults.UNIT_PERCENT,
+                    stats.mJankyPercent);
+            sResults.addSample(page + "_frame_p50", BenchmarkResults.UNIT_MS, stats.mP50Ms);
+            sResults.addSample(page + "_frame_p90", BenchmarkResults.UNIT_MS, stats.mP90Ms);
+            sResults.addSample(page + "_frame_p99", BenchmarkResults.UNIT_MS, stats.mP99Ms);
+        }
+        mShell.forceStop();
+    }
+}
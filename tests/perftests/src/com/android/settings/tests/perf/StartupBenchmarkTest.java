@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.tests.perf;
+
+import static androidx.test.platform.app.InstrumentationRegistry.getArguments;
+import static androidx.test.platform.app.InstrumentationRegistry.getInstrumentation;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import androidx.test.uiautomator.UiDevice;
+
+import com.android.settings.benchmarks.results.BenchmarkResults;
+import com.android.settings.benchmarks.results.BenchmarkResultsReporter;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Measures cold, warm and hot starts of Settings pages, and their time to full display as reported
+ * by {@code DashboardFragment} once its tiles are bound.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmarkTest {
+
+    private static final int ITERATIONS = 10;
+    private static final int TIME_OUT = 5000;
+    private static final String[][] PAGES = {
+            {"Homepage", "android.settings.SETTINGS"},
+            {"Wifi", "android.settings.WIFI_SETTINGS"},
+            {"Battery", "android.intent.action.POWER_USAGE_SUMMARY"},
+            {"Storage", "android.settings.INTERNAL_STORAGE_SETTINGS"},
+    };
+
+    private static final BenchmarkResults sResults = new BenchmarkResults("SettingsStartup");
+
+    private UiDevice mDevice;
+    private PerfShell mShell;
+
+    @Before
+    public void setUp() throws Exception {
+        mDevice = UiDevice.getInstance(getInstrumentation());
+        mShell = new PerfShell(mDevice);
+        mDevice.wakeUp();
+        mDevice.pressHome();
+        mDevice.waitForIdle(TIME_OUT);
+    }
+
+    @AfterClass
+    public static void reportResults() throws Exception {
+        BenchmarkResultsReporter.report(getInstrumentation(), getArguments(), sResults);
+    }
+
+    /** The process is not running. */
+    @Test
+    public void coldStart() throws Exception {
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (String[] page : PAGES) {
+                mShell.forceStop();
+                Thread.sleep(1000);
+                measureStart(page[0] + "_cold", page[1], "COLD");
+            }
+        }
+        mShell.forceStop();
+    }
+
+    /** The process is running, but the activity has been destroyed. */
+    @Test
+    public void warmStart() throws Exception {
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (String[] page : PAGES) {
+                mShell.startActivity(page[1]);
+                mDevice.waitForIdle(TIME_OUT);
+                finishSettings();
+                measureStart(page[0] + "_warm", page[1], "WARM");
+            }
+        }
+        finishSettings();
+    }
+
+    /** The activity is only stopped. */
+    @Test
+    public void hotStart() throws Exception {
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (String[] page : PAGES) {
+                mShell.startActivity(page[1]);
+                mDevice.waitForIdle(TIME_OUT);
+                mDevice.pressHome();
+                mDevice.waitForIdle(TIME_OUT);
+                measureStart(page[0] + "_hot", page[1], "HOT");
+            }
+        }
+        finishSettings();
+    }
+
+    private void measureStart(String metric, String action, String expectedLaunchState)
+            throws Exception {
+        mShell.clearLogcat();
+        final PerfShell.LaunchResult result = mShell.startActivity(action);
+        assertWithMessage(metric).that(result.mLaunchState).isEqualTo(expectedLaunchState);
+        sResults.addSample(metric, BenchmarkResults.UNIT_MS, result.mTotalTimeMs);
+        mDevice.waitForIdle(TIME_OUT);
+        // A hot start does not refresh the page, so it does not report full display again.
+        if (!"HOT".equals(expectedLaunchState)) {
+            final int fullyDrawnMs = mShell.getFullyDrawnMs();
+            if (fullyDrawnMs >= 0) {
+                sResults.addSample(metric + "_fully_drawn", BenchmarkResults.UNIT_MS,
+                        fullyDrawnMs);
+            }
+        }
+    }
+
+    /** Finishes the Settings activities, without stopping the process. */
+    private void finishSettings() throws Exception {
+        while (PerfShell.PACKAGE.equals(mDevice.getCurrentPackageName())) {
+            mDevice.pressBack();
+            mDevice.waitForIdle(TIME_OUT);
+        }
+    }
+}
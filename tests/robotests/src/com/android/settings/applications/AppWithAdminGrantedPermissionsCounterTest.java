@@ -39,6 +39,7 @@ import android.os.RemoteException;
 import android.os.UserHandle;
 import android.os.UserManager;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Rule;
@@ -103,6 +104,7 @@ public final class AppWithAdminGrantedPermissionsCounterTest {
     @Before
     public void setUp() {
         when(mContext.getSystemService(Context.USER_SERVICE)).thenReturn(mUserManager);
+        InstalledAppsSnapshot.setInstance(new InstalledAppsSnapshot(mContext, mPackageManager));
 
         mApp1 = buildInfo(APP_1_UID, APP_1, 0 /* flags */, Build.VERSION_CODES.M);
         mApp2 = buildInfo(APP_2_UID, APP_2, 0 /* flags */, Build.VERSION_CODES.M);
@@ -112,6 +114,11 @@ public final class AppWithAdminGrantedPermissionsCounterTest {
         mApp6 = buildInfo(APP_6_UID, APP_6, 0 /* flags */, Build.VERSION_CODES.M);
     }
 
+    @After
+    public void tearDown() {
+        InstalledAppsSnapshot.setInstance(null);
+    }
+
     private void verifyCountInstalledApps(boolean async) throws Exception {
         configureUserManager();
         configurePackageManager();
@@ -49,6 +49,7 @@ import com.android.settings.webview.WebViewUpdateServiceWrapper;
 import com.android.settingslib.testutils.shadow.ShadowDefaultDialerManager;
 import com.android.settingslib.testutils.shadow.ShadowSmsApplication;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Rule;
@@ -127,6 +128,7 @@ public final class ApplicationFeatureProviderImplTest {
         when(mContext.getSystemService(Context.USER_SERVICE)).thenReturn(mUserManager);
         when(mContext.getSystemService(Context.LOCATION_SERVICE)).thenReturn(mLocationManager);
         when(mContext.getSystemService(SystemConfigManager.class)).thenReturn(mSystemConfigManager);
+        InstalledAppsSnapshot.setInstance(new InstalledAppsSnapshot(mContext, mPackageManager));
 
         mProvider = new ApplicationFeatureProviderImpl(mContext, mPackageManager,
                 mPackageManagerService, mDevicePolicyManager, mWebViewUpdateServiceWrapper);
@@ -135,6 +137,11 @@ public final class ApplicationFeatureProviderImplTest {
         ShadowPausedAsyncTask.overrideExecutor(mExecutorService);
     }
 
+    @After
+    public void tearDown() {
+        InstalledAppsSnapshot.setInstance(null);
+    }
+
     private void verifyCalculateNumberOfPolicyInstalledApps(boolean async) {
         setUpUsersAndInstalledApps();
 
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.os.Looper;
+import android.os.Process;
+import android.os.UserHandle;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.settingslib.applications.ApplicationsState;
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+import com.android.settingslib.applications.ApplicationsState.AppFilter;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+
+@RunWith(RobolectricTestRunner.class)
+public class ApplicationsSessionPoolTest {
+
+    private static final Comparator<AppEntry> PACKAGE_COMPARATOR =
+            Comparator.comparing(entry -> entry.info.packageName);
+    private static final AppFilter NOT_HIDDEN = new AppFilter() {
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public boolean filterApp(AppEntry entry) {
+            return !entry.info.packageName.startsWith("hidden");
+        }
+    };
+
+    @Rule
+    public final MockitoRule mMockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private ApplicationsState mApplicationsState;
+
+    private Context mContext;
+    private ApplicationsSessionPool mPool;
+    private ApplicationsSessionPool.ResultKey mKey;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        when(mApplicationsState.getBackgroundLooper()).thenReturn(Looper.getMainLooper());
+        mPool = new ApplicationsSessionPool(mContext, mApplicationsState);
+        mKey = new ApplicationsSessionPool.ResultKey("main", 0 /* sortMode */,
+                UserHandle.myUserId());
+    }
+
+    @Test
+    public void getResult_nothingPooled_returnsNull() {
+        assertThat(mPool.getResult(mKey)).isNull();
+    }
+
+    @Test
+    public void getResult_freshResult_returnsCopy() {
+        final ArrayList<AppEntry> entries = createAppEntries("a", "b");
+        mPool.putResult(mKey, NOT_HIDDEN, PACKAGE_COMPARATOR, entries);
+        entries.clear();
+
+        final ArrayList<AppEntry> result = mPool.getResult(mKey);
+
+        assertThat(result).hasSize(2);
+        result.clear();
+        assertThat(mPool.getResult(mKey)).hasSize(2);
+    }
+
+    @Test
+    public void getResult_differentSortMode_returnsNull() {
+        mPool.putResult(mKey, NOT_HIDDEN, PACKAGE_COMPARATOR, createAppEntries("a"));
+
+        assertThat(mPool.getResult(new ApplicationsSessionPool.ResultKey("main",
+                1 /* sortMode */, UserHandle.myUserId()))).isNull();
+    }
+
+    @Test
+    public void getResult_expired_returnsNull() {
+        mPool.putResult(mKey, NOT_HIDDEN, PACKAGE_COMPARATOR, createAppEntries("a"));
+
+        ShadowSystemClock.advanceBy(
+                Duration.ofMillis(ApplicationsSessionPool.RESULT_TTL_MS + 1));
+
+        assertThat(mPool.getResult(mKey)).isNull();
+    }
+
+    @Test
+    public void onPackageRemoved_removesOnlyMatchingEntry() {
+        mPool.putResult(mKey, NOT_HIDDEN, PACKAGE_COMPARATOR, createAppEntries("a", "b", "c"));
+
+        mPool.onPackageRemoved("b", UserHandle.myUserId());
+
+        assertThat(packageNames(mPool.getResult(mKey))).containsExactly("a", "c").inOrder();
+    }
+
+    @Test
+    public void onPackageRemoved_otherUser_keepsEntry() {
+        mPool.putResult(mKey, NOT_HIDDEN, PACKAGE_COMPARATOR, createAppEntries("a", "b"));
+
+        mPool.onPackageRemoved("b", UserHandle.myUserId() + 10);
+
+        assertThat(packageNames(mPool.getResult(mKey))).containsExactly("a", "b").inOrder();
+    }
+
+    @Test
+    public void onPackageUpdated_insertsInSortedPosition() {
+        mPool.putResult(mKey, NOT_HIDDEN, PACKAGE_COMPARATOR, createAppEntries("a", "c"));
+        final AppEntry added = createAppEntries("b").get(0);
+        when(mApplicationsState.getEntry("b", UserHandle.myUserId())).thenReturn(added);
+
+        mPool.onPackageUpdated("b", UserHandle.myUserId());
+
+        assertThat(packageNames(mPool.getResult(mKey))).containsExactly("a", "b", "c").inOrder();
+    }
+
+    @Test
+    public void onPackageUpdated_filteredOut_removesEntry() {
+        mPool.putResult(mKey, NOT_HIDDEN, PACKAGE_COMPARATOR,
+                createAppEntries("a", "hidden.b"));
+        final AppEntry updated = createAppEntries("hidden.b").get(0);
+        when(mApplicationsState.getEntry("hidden.b", UserHandle.myUserId()))
+                .thenReturn(updated);
+
+        mPool.onPackageUpdated("hidden.b", UserHandle.myUserId());
+
+        assertThat(packageNames(mPool.getResult(mKey))).containsExactly("a");
+    }
+
+    @Test
+    public void onPackageUpdated_oneEntryPerPackage_skipsOtherUserEntry() {
+        final ApplicationsSessionPool.ResultKey allUsersKey = new ApplicationsSessionPool.ResultKey(
+                "main", 0 /* sortMode */, UserHandle.USER_ALL);
+        mPool.putResult(allUsersKey, NOT_HIDDEN, PACKAGE_COMPARATOR, createAppEntries("a", "b"),
+                true /* oneEntryPerPackage */);
+        final AppEntry otherUserEntry = createAppEntries("b").get(0);
+        otherUserEntry.info.uid = UserHandle.getUid(UserHandle.myUserId() + 10,
+                Process.FIRST_APPLICATION_UID);
+        when(mApplicationsState.getEntry("b", UserHandle.myUserId() + 10))
+                .thenReturn(otherUserEntry);
+
+        mPool.onPackageUpdated("b", UserHandle.myUserId() + 10);
+
+        assertThat(packageNames(mPool.getResult(allUsersKey))).containsExactly("a", "b")
+                .inOrder();
+    }
+
+    @Test
+    public void onPackageRemoved_oneEntryPerPackage_dropsResult() {
+        mPool.putResult(mKey, NOT_HIDDEN, PACKAGE_COMPARATOR, createAppEntries("a", "b"),
+                true /* oneEntryPerPackage */);
+
+        mPool.onPackageRemoved("b", UserHandle.myUserId());
+
+        assertThat(mPool.getResult(mKey)).isNull();
+    }
+
+    private ArrayList<AppEntry> createAppEntries(String... packageNames) {
+        final ArrayList<AppEntry> appEntries = new ArrayList<>();
+        for (String packageName : packageNames) {
+            final ApplicationInfo info = new ApplicationInfo();
+            info.packageName = packageName;
+            info.uid = UserHandle.getUid(UserHandle.myUserId(), Process.FIRST_APPLICATION_UID);
+            info.sourceDir = packageName;
+            final AppEntry appEntry = spy(new AppEntry(mContext, info, appEntries.size()));
+            doNothing().when(appEntry).ensureLabel(any(Context.class));
+            appEntries.add(appEntry);
+        }
+        return appEntries;
+    }
+
+    private static ArrayList<String> packageNames(ArrayList<AppEntry> entries) {
+        final ArrayList<String> names = new ArrayList<>();
+        for (AppEntry entry : entries) {
+            names.add(entry.info.packageName);
+        }
+        return names;
+    }
+}
@@ -43,6 +43,7 @@ import android.os.UserHandle;
 import android.os.UserManager;
 import android.platform.test.flag.junit.SetFlagsRule;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Rule;
@@ -106,6 +107,7 @@ public final class InstalledAppCounterTest {
     @Before
     public void setUp() {
         when(mContext.getSystemService(UserManager.class)).thenReturn(mUserManager);
+        InstalledAppsSnapshot.setInstance(new InstalledAppsSnapshot(mContext, mPackageManager));
         mFakeFeatureFlags = new FakeFeatureFlagsImpl();
         mFakeFeatureFlags.setFlag(Flags.FLAG_ARCHIVING, true);
 
@@ -126,6 +128,11 @@ public final class InstalledAppCounterTest {
         mApp7.isArchived = true;
     }
 
+    @After
+    public void tearDown() {
+        InstalledAppsSnapshot.setInstance(null);
+    }
+
     private void expectQueryIntentActivities(int userId, String packageName, boolean launchable) {
         when(mPackageManager.queryIntentActivitiesAsUser(
                 argThat(isLaunchIntentFor(packageName)),
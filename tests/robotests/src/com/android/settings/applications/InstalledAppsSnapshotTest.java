@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.PackageManager.ApplicationInfoFlags;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+
+@RunWith(RobolectricTestRunner.class)
+public class InstalledAppsSnapshotTest {
+
+    private static final int USER_ID = 0;
+    private static final long FLAGS = PackageManager.GET_DISABLED_COMPONENTS;
+
+    @Rule
+    public final MockitoRule mMockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private PackageManager mPackageManager;
+
+    private Context mContext;
+    private InstalledAppsSnapshot mSnapshot;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        when(mPackageManager.getInstalledApplicationsAsUser(any(ApplicationInfoFlags.class),
+                anyInt())).thenReturn(Arrays.asList(new ApplicationInfo()));
+        mSnapshot = new InstalledAppsSnapshot(mContext, mPackageManager);
+    }
+
+    @Test
+    public void getInstalledApplications_sameUserAndFlags_queriesOnce() {
+        mSnapshot.getInstalledApplications(USER_ID, FLAGS);
+        mSnapshot.getInstalledApplications(USER_ID, FLAGS);
+
+        verify(mPackageManager, times(1))
+                .getInstalledApplicationsAsUser(any(ApplicationInfoFlags.class), anyInt());
+    }
+
+    @Test
+    public void getInstalledApplications_otherFlags_queriesAgain() {
+        mSnapshot.getInstalledApplications(USER_ID, FLAGS);
+        mSnapshot.getInstalledApplications(USER_ID,
+                FLAGS | PackageManager.MATCH_ANY_USER);
+
+        verify(mPackageManager, times(2))
+                .getInstalledApplicationsAsUser(any(ApplicationInfoFlags.class), anyInt());
+    }
+
+    @Test
+    public void getInstalledApplications_afterPackageBroadcast_queriesAgain() {
+        mSnapshot.getInstalledApplications(USER_ID, FLAGS);
+
+        mSnapshot.mInvalidationReceiver.onReceive(mContext,
+                new Intent(Intent.ACTION_PACKAGE_ADDED));
+        mSnapshot.getInstalledApplications(USER_ID, FLAGS);
+
+        verify(mPackageManager, times(2))
+                .getInstalledApplicationsAsUser(any(ApplicationInfoFlags.class), anyInt());
+    }
+
+    @Test
+    public void getCount_afterPutCount_returnsCount() {
+        mSnapshot.putCount("key", 3, mSnapshot.getGeneration());
+
+        assertThat(mSnapshot.getCount("key")).isEqualTo(3);
+    }
+
+    @Test
+    public void putCount_invalidatedSinceGeneration_isDropped() {
+        final int generation = mSnapshot.getGeneration();
+        mSnapshot.invalidate();
+
+        mSnapshot.putCount("key", 3, generation);
+
+        assertThat(mSnapshot.getCount("key")).isNull();
+    }
+
+    @Test
+    public void getCount_afterInvalidate_returnsNull() {
+        mSnapshot.putCount("key", 3, mSnapshot.getGeneration());
+
+        mSnapshot.invalidate();
+
+        assertThat(mSnapshot.getCount("key")).isNull();
+    }
+
+    @Test
+    public void getInstance_shouldReturnProcessWideSnapshot() {
+        InstalledAppsSnapshot.setInstance(null);
+
+        final InstalledAppsSnapshot snapshot = InstalledAppsSnapshot.getInstance(mContext);
+
+        assertThat(InstalledAppsSnapshot.getInstance(mContext)).isSameInstanceAs(snapshot);
+        InstalledAppsSnapshot.setInstance(null);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+
+import com.android.internal.app.procstats.ProcessStats;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class ProcStatsDataTest {
+
+    private static final long DURATION = 3 * 60 * 60 * 1000L;
+    private static final long OTHER_DURATION = 6 * 60 * 60 * 1000L;
+    private static final long LOAD_TIME = 1000L;
+
+    private final ProcessStats mStats = mock(ProcessStats.class);
+    private final ProcessStats mOtherStats = mock(ProcessStats.class);
+
+    @After
+    public void tearDown() {
+        synchronized (ProcStatsData.sStatsCache) {
+            ProcStatsData.sStatsCache.clear();
+        }
+    }
+
+    @Test
+    public void getCachedStats_notExpired_shouldReturnStats() {
+        ProcStatsData.cacheStats(DURATION, mStats, LOAD_TIME);
+
+        assertThat(ProcStatsData.getCachedStats(DURATION,
+                LOAD_TIME + ProcStatsData.STATS_CACHE_TTL_MS - 1)).isSameInstanceAs(mStats);
+    }
+
+    @Test
+    public void getCachedStats_expired_shouldReleaseStats() {
+        ProcStatsData.cacheStats(DURATION, mStats, LOAD_TIME);
+
+        assertThat(ProcStatsData.getCachedStats(OTHER_DURATION,
+                LOAD_TIME + ProcStatsData.STATS_CACHE_TTL_MS)).isNull();
+
+        assertThat(ProcStatsData.sStatsCache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void cacheStats_otherDurationExpired_shouldReleaseExpiredStats() {
+        ProcStatsData.cacheStats(DURATION, mStats, LOAD_TIME);
+
+        ProcStatsData.cacheStats(OTHER_DURATION, mOtherStats,
+                LOAD_TIME + ProcStatsData.STATS_CACHE_TTL_MS);
+
+        assertThat(ProcStatsData.sStatsCache.size()).isEqualTo(1);
+        assertThat(ProcStatsData.sStatsCache.get(DURATION)).isNull();
+        assertThat(ProcStatsData.sStatsCache.get(OTHER_DURATION).mStats)
+                .isSameInstanceAs(mOtherStats);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+
+import com.android.settings.testutils.shadow.ShadowThreadUtils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = ShadowThreadUtils.class)
+public class ProcessStatsBaseTest {
+
+    @Rule
+    public final MockitoRule mMockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private ProcStatsData mCurrentStats;
+    @Mock
+    private ProcStatsData mLoadedStats;
+
+    private TestProcessStatsFragment mFragment;
+
+    @Before
+    public void setUp() {
+        when(mCurrentStats.getDuration()).thenReturn(ProcessStatsBase.sDurations[0]);
+        mFragment = new TestProcessStatsFragment();
+        mFragment.mStatsManager = mCurrentStats;
+        mFragment.mNewStats = mLoadedStats;
+    }
+
+    @Test
+    public void hasStats_beforeFirstLoad_shouldReturnFalse() {
+        assertThat(mFragment.hasStats()).isFalse();
+    }
+
+    @Test
+    public void onStatsLoaded_shouldSwapStatsAndRefreshUi() {
+        when(mLoadedStats.getEntries()).thenReturn(new ArrayList<>());
+
+        mFragment.onStatsLoaded(mLoadedStats, new CancellationSignal());
+
+        assertThat(mFragment.mStatsManager).isSameInstanceAs(mLoadedStats);
+        assertThat(mFragment.hasStats()).isTrue();
+        assertThat(mFragment.mRefreshCount).isEqualTo(1);
+    }
+
+    @Test
+    public void onStatsLoaded_loadCanceled_shouldKeepCurrentStats() {
+        final CancellationSignal signal = new CancellationSignal();
+        signal.cancel();
+
+        mFragment.onStatsLoaded(mLoadedStats, signal);
+
+        assertThat(mFragment.mStatsManager).isSameInstanceAs(mCurrentStats);
+        assertThat(mFragment.mRefreshCount).isEqualTo(0);
+    }
+
+    @Test
+    public void onItemSelected_newDuration_shouldLoadFreshStats() {
+        mFragment.onItemSelected(null, null, 1 /* position */, 0 /* id */);
+
+        verify(mLoadedStats).setDuration(ProcessStatsBase.sDurations[1]);
+        verify(mLoadedStats).refreshStats(eq(false), any(CancellationSignal.class));
+        verify(mCurrentStats, never()).refreshStats(anyBoolean(), any());
+    }
+
+    @Test
+    public void onItemSelected_sameDuration_shouldNotLoad() {
+        mFragment.onItemSelected(null, null, 0 /* position */, 0 /* id */);
+
+        verify(mLoadedStats, never()).refreshStats(anyBoolean(), any());
+    }
+
+    @Test
+    public void loadStats_canceled_shouldKeepCurrentStats() {
+        doThrow(new OperationCanceledException()).when(mLoadedStats)
+                .refreshStats(anyBoolean(), any());
+
+        mFragment.loadStats(mLoadedStats);
+
+        assertThat(mFragment.mStatsManager).isSameInstanceAs(mCurrentStats);
+        assertThat(mFragment.mRefreshCount).isEqualTo(0);
+    }
+
+    public static class TestProcessStatsFragment extends ProcessStatsBase {
+        ProcStatsData mNewStats;
+        int mRefreshCount;
+
+        @Override
+        ProcStatsData createStatsData(boolean useXfer) {
+            return mNewStats;
+        }
+
+        @Override
+        public void refreshUi() {
+            mRefreshCount++;
+        }
+
+        @Override
+        public int getMetricsCategory() {
+            return 0;
+        }
+    }
+}
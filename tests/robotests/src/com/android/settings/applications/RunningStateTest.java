@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ComponentName;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.settings.applications.RunningState.MergedItem;
+import com.android.settings.applications.RunningState.ProcessItem;
+import com.android.settings.applications.RunningState.ServiceItem;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+
+@RunWith(RobolectricTestRunner.class)
+public class RunningStateTest {
+
+    private static final int UID = 10001;
+    private static final String PROCESS_NAME = "com.example.app";
+
+    private Context mContext;
+    private ProcessItem mProcess;
+    private ArrayList<ProcessItem> mProcessItems;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mProcess = new ProcessItem(mContext, UID, PROCESS_NAME);
+        mProcess.mPid = 100;
+        addService("MainService");
+        addService("SyncService");
+        mProcessItems = new ArrayList<>();
+        mProcessItems.add(mProcess);
+    }
+
+    @Test
+    public void obtainServiceMergedItem_newServices_shouldBuildMergedItem() {
+        final MergedItem mergedItem =
+                RunningState.obtainServiceMergedItem(mProcess, mProcessItems, 0);
+
+        assertThat(mergedItem.mProcess).isSameInstanceAs(mProcess);
+        assertThat(mergedItem.mServices).containsExactlyElementsIn(mProcess.mServices.values());
+        for (ServiceItem si : mProcess.mServices.values()) {
+            assertThat(si.mMergedItem).isSameInstanceAs(mergedItem);
+        }
+    }
+
+    @Test
+    public void obtainServiceMergedItem_unchangedServices_shouldNotRebuild() {
+        final MergedItem mergedItem =
+                RunningState.obtainServiceMergedItem(mProcess, mProcessItems, 0);
+
+        assertThat(RunningState.obtainServiceMergedItem(mProcess, mProcessItems, 0))
+                .isSameInstanceAs(mergedItem);
+    }
+
+    @Test
+    public void obtainServiceMergedItem_serviceAdded_shouldRebuild() {
+        final MergedItem mergedItem =
+                RunningState.obtainServiceMergedItem(mProcess, mProcessItems, 0);
+        addService("NewService");
+
+        final MergedItem rebuilt =
+                RunningState.obtainServiceMergedItem(mProcess, mProcessItems, 0);
+
+        assertThat(rebuilt).isNotSameInstanceAs(mergedItem);
+        assertThat(rebuilt.mServices).hasSize(3);
+    }
+
+    @Test
+    public void obtainServiceMergedItem_dependentProcessAdded_shouldUpdateOtherProcesses() {
+        final MergedItem mergedItem =
+                RunningState.obtainServiceMergedItem(mProcess, mProcessItems, 0);
+        final ProcessItem dependent = new ProcessItem(mContext, UID, PROCESS_NAME + ":remote");
+        mProcessItems.add(0, dependent);
+
+        final MergedItem updated =
+                RunningState.obtainServiceMergedItem(mProcess, mProcessItems, 0);
+
+        assertThat(updated).isSameInstanceAs(mergedItem);
+        assertThat(updated.mOtherProcesses).containsExactly(dependent);
+    }
+
+    private void addService(String className) {
+        final ServiceItem si = new ServiceItem(mProcess.mUserId);
+        mProcess.mServices.put(new ComponentName(PROCESS_NAME, className), si);
+    }
+}
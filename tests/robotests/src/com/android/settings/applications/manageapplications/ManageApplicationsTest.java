@@ -28,6 +28,7 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -54,6 +55,7 @@ import androidx.fragment.app.FragmentActivity;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.android.settings.R;
+import com.android.settings.applications.ApplicationsSessionPool;
 import com.android.settings.testutils.shadow.ShadowAppUtils;
 import com.android.settings.testutils.shadow.ShadowUserManager;
 import com.android.settings.widget.LoadingViewController;
@@ -314,6 +316,35 @@ public class ManageApplicationsTest {
         verify(adapter).filterSearch(query);
     }
 
+    @Test
+    public void onRebuildComplete_singlePendingRebuild_shouldPoolResult() {
+        final ApplicationsSessionPool sessionPool = mock(ApplicationsSessionPool.class);
+        final ManageApplications.ApplicationsAdapter adapter = createRebuildingAdapter(sessionPool);
+        final ArrayList<ApplicationsState.AppEntry> appList = new ArrayList<>();
+        appList.add(mock(ApplicationsState.AppEntry.class));
+
+        adapter.rebuild();
+        adapter.onRebuildComplete(appList);
+
+        verify(sessionPool).putResult(eq(adapter.buildResultKey()), any(AppFilter.class),
+                any(), eq(appList), eq(false));
+    }
+
+    @Test
+    public void onRebuildComplete_severalPendingRebuilds_shouldNotPoolResult() {
+        final ApplicationsSessionPool sessionPool = mock(ApplicationsSessionPool.class);
+        final ManageApplications.ApplicationsAdapter adapter = createRebuildingAdapter(sessionPool);
+        final ArrayList<ApplicationsState.AppEntry> appList = new ArrayList<>();
+        appList.add(mock(ApplicationsState.AppEntry.class));
+
+        adapter.rebuild();
+        adapter.rebuild();
+        adapter.onRebuildComplete(appList);
+
+        verify(sessionPool, never()).putResult(any(), any(AppFilter.class), any(), any(),
+                anyBoolean());
+    }
+
     @Ignore("b/313583754")
     @Test
     public void notifyItemChange_recyclerViewIdle_shouldNotify() {
@@ -644,4 +675,22 @@ public class ManageApplicationsTest {
         entry.extraInfo = isPowerAllowListed ? Boolean.TRUE : Boolean.FALSE;
         return entry;
     }
+
+    private ManageApplications.ApplicationsAdapter createRebuildingAdapter(
+            ApplicationsSessionPool sessionPool) {
+        ReflectionHelpers.setField(mFragment, "mRecyclerView", mock(RecyclerView.class));
+        ReflectionHelpers.setField(mFragment, "mEmptyView", mock(View.class));
+        ReflectionHelpers.setField(mFragment, "mLoadingContainer", mock(View.class));
+        ReflectionHelpers.setField(
+                mFragment, "mFilterAdapter", mock(ManageApplications.FilterSpinnerAdapter.class));
+        final ManageApplications.ApplicationsAdapter adapter =
+                new ManageApplications.ApplicationsAdapter(mState, mFragment,
+                        AppFilterRegistry.getInstance().get(FILTER_APPS_ALL),
+                        null /* savedInstanceState */);
+        ReflectionHelpers.setField(adapter, "mSessionPool", sessionPool);
+        ReflectionHelpers.setField(adapter, "mLoadingViewController",
+                mock(LoadingViewController.class));
+        ReflectionHelpers.setField(adapter, "mHasReceivedLoadEntries", true);
+        return adapter;
+    }
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.bluetooth;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.bluetooth.BluetoothDevice;
+import android.view.Choreographer;
+
+import com.android.settings.bluetooth.BluetoothDeviceUpdateBatcher.DeviceState;
+import com.android.settingslib.bluetooth.CachedBluetoothDevice;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class BluetoothDeviceUpdateBatcherTest {
+
+    @Rule
+    public final MockitoRule mMockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private BluetoothDeviceUpdater mConnectedUpdater;
+    @Mock
+    private BluetoothDeviceUpdater mSavedUpdater;
+    @Mock
+    private CachedBluetoothDevice mCachedDevice;
+    @Mock
+    private BluetoothDevice mDevice;
+
+    private BluetoothDeviceUpdateBatcher mBatcher;
+
+    @Before
+    public void setUp() {
+        mBatcher = new BluetoothDeviceUpdateBatcher(Choreographer.getInstance());
+        mBatcher.register(mConnectedUpdater);
+        mBatcher.register(mSavedUpdater);
+        when(mCachedDevice.getDevice()).thenReturn(mDevice);
+    }
+
+    @Test
+    public void enqueue_doesNotUpdateBeforeFlush() {
+        mBatcher.enqueue(mConnectedUpdater, mCachedDevice);
+
+        verify(mConnectedUpdater, never()).update(any(), any());
+    }
+
+    @Test
+    public void flush_burstForSameDevice_updatesOncePerUpdater() {
+        for (int i = 0; i < 3; i++) {
+            mBatcher.enqueue(mConnectedUpdater, mCachedDevice);
+            mBatcher.enqueue(mSavedUpdater, mCachedDevice);
+        }
+
+        mBatcher.flush();
+
+        verify(mConnectedUpdater, times(1)).update(eq(mCachedDevice), any());
+        verify(mSavedUpdater, times(1)).update(eq(mCachedDevice), any());
+    }
+
+    @Test
+    public void flush_onlyUpdatesNotifiedUpdaters() {
+        mBatcher.enqueue(mConnectedUpdater, mCachedDevice);
+
+        mBatcher.flush();
+
+        verify(mConnectedUpdater).update(eq(mCachedDevice), any());
+        verify(mSavedUpdater, never()).update(any(), any());
+    }
+
+    @Test
+    public void unregister_dropsPendingUpdates() {
+        mBatcher.enqueue(mConnectedUpdater, mCachedDevice);
+        mBatcher.enqueue(mSavedUpdater, mCachedDevice);
+
+        mBatcher.unregister(mConnectedUpdater);
+        mBatcher.flush();
+
+        verify(mConnectedUpdater, never()).update(any(), any());
+        verify(mSavedUpdater).update(eq(mCachedDevice), any());
+    }
+
+    @Test
+    public void cancel_dropsPendingUpdatesOfDevice() {
+        mBatcher.enqueue(mConnectedUpdater, mCachedDevice);
+
+        mBatcher.cancel(mCachedDevice);
+        mBatcher.flush();
+
+        verify(mConnectedUpdater, never()).update(any(), any());
+    }
+
+    @Test
+    public void flush_evaluatesDeviceOnceForAllUpdaters() {
+        when(mDevice.getBondState()).thenReturn(BluetoothDevice.BOND_BONDED);
+        when(mDevice.isConnected()).thenReturn(true);
+        when(mConnectedUpdater.getCachedDevicesCopy()).thenReturn(List.of(mCachedDevice));
+        mBatcher.enqueue(mConnectedUpdater, mCachedDevice);
+        mBatcher.enqueue(mSavedUpdater, mCachedDevice);
+
+        mBatcher.flush();
+
+        final ArgumentCaptor<DeviceState> connectedState =
+                ArgumentCaptor.forClass(DeviceState.class);
+        final ArgumentCaptor<DeviceState> savedState = ArgumentCaptor.forClass(DeviceState.class);
+        verify(mConnectedUpdater).update(eq(mCachedDevice), connectedState.capture());
+        verify(mSavedUpdater).update(eq(mCachedDevice), savedState.capture());
+        assertThat(savedState.getValue()).isSameInstanceAs(connectedState.getValue());
+        assertThat(connectedState.getValue().mBonded).isTrue();
+        assertThat(connectedState.getValue().mConnected).isTrue();
+        assertThat(connectedState.getValue().mInCachedDevicesList).isTrue();
+        verify(mDevice, times(1)).isConnected();
+        verify(mSavedUpdater, never()).getCachedDevicesCopy();
+    }
+}
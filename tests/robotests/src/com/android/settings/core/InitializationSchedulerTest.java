@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class InitializationSchedulerTest {
+
+    private final InitializationScheduler mScheduler = new InitializationScheduler();
+    private final List<String> mRunTasks = new ArrayList<>();
+
+    @Test
+    public void ensureInitialized_runsDependenciesFirst() {
+        addTask("a");
+        addTask("b", "a");
+        addTask("c", "b");
+
+        mScheduler.ensureInitialized("c");
+
+        assertThat(mRunTasks).containsExactly("a", "b", "c").inOrder();
+    }
+
+    @Test
+    public void ensureInitialized_runsOnlyOnce() {
+        addTask("a");
+        addTask("b", "a");
+
+        mScheduler.ensureInitialized("a");
+        mScheduler.ensureInitialized("b");
+        mScheduler.ensureInitialized("b");
+
+        assertThat(mRunTasks).containsExactly("a", "b").inOrder();
+        assertThat(mScheduler.isInitialized("b")).isTrue();
+    }
+
+    @Test
+    public void ensureInitialized_doesNotRunOtherTasks() {
+        addTask("a");
+        addTask("b");
+
+        mScheduler.ensureInitialized("b");
+
+        assertThat(mRunTasks).containsExactly("b");
+        assertThat(mScheduler.isInitialized("a")).isFalse();
+    }
+
+    @Test
+    public void ensureInitialized_unknownTask_throws() {
+        assertThrows(IllegalArgumentException.class, () -> mScheduler.ensureInitialized("a"));
+    }
+
+    @Test
+    public void ensureInitialized_dependencyCycle_throws() {
+        addTask("a", "b");
+        addTask("b", "a");
+
+        assertThrows(IllegalStateException.class, () -> mScheduler.ensureInitialized("a"));
+    }
+
+    @Test
+    public void add_duplicateTask_throws() {
+        addTask("a");
+
+        assertThrows(IllegalArgumentException.class, () -> addTask("a"));
+    }
+
+    @Test
+    public void runNextPendingTask_runsOneTaskInOrder() {
+        addTask("a");
+        addTask("b");
+
+        assertThat(mScheduler.runNextPendingTask()).isTrue();
+        assertThat(mRunTasks).containsExactly("a");
+
+        assertThat(mScheduler.runNextPendingTask()).isFalse();
+        assertThat(mRunTasks).containsExactly("a", "b").inOrder();
+    }
+
+    @Test
+    public void scheduleOnIdle_runsAllPendingTasks() {
+        addTask("a");
+        addTask("b", "a");
+        addTask("c");
+        mScheduler.ensureInitialized("c");
+
+        mScheduler.scheduleOnIdle();
+        // One task per idle.
+        ShadowLooper.idleMainLooper();
+        ShadowLooper.idleMainLooper();
+
+        assertThat(mRunTasks).containsExactly("c", "a", "b").inOrder();
+    }
+
+    private void addTask(String name, String... dependencies) {
+        mScheduler.add(name, () -> mRunTasks.add(name), dependencies);
+    }
+}
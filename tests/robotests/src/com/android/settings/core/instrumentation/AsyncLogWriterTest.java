@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import android.app.settings.SettingsEnums;
+import android.content.Context;
+
+import com.android.settingslib.core.instrumentation.LogWriter;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class AsyncLogWriterTest {
+
+    @Rule
+    public final MockitoRule mMockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private LogWriter mWriter1;
+    @Mock
+    private LogWriter mWriter2;
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+    }
+
+    @Test
+    public void events_notWrittenUntilDrained() {
+        final AsyncLogWriter writer = new AsyncLogWriter(4, AsyncLogWriter.POLICY_DROP,
+                false /* startDrainer */, mWriter1);
+
+        writer.clicked(SettingsEnums.SETTINGS_HOMEPAGE, "key");
+
+        verify(mWriter1, never()).clicked(anyInt(), any());
+        assertThat(writer.drain()).isEqualTo(1);
+        verify(mWriter1).clicked(SettingsEnums.SETTINGS_HOMEPAGE, "key");
+    }
+
+    @Test
+    public void drain_writesAllEventsInOrderToEachWriter() {
+        final AsyncLogWriter writer = new AsyncLogWriter(8, AsyncLogWriter.POLICY_DROP,
+                false /* startDrainer */, mWriter1, mWriter2);
+
+        writer.visible(mContext, SettingsEnums.PAGE_UNKNOWN, SettingsEnums.SETTINGS_HOMEPAGE, 10);
+        writer.changed(SettingsEnums.SETTINGS_HOMEPAGE, "key", 1);
+        writer.action(mContext, SettingsEnums.ACTION_SETTINGS_TILE_CLICK, true);
+        writer.action(mContext, SettingsEnums.ACTION_SETTINGS_TILE_CLICK, "pkg");
+        writer.action(SettingsEnums.PAGE_UNKNOWN, SettingsEnums.ACTION_SETTINGS_TILE_CLICK,
+                SettingsEnums.SETTINGS_HOMEPAGE, "key", 2);
+        writer.hidden(mContext, SettingsEnums.SETTINGS_HOMEPAGE, 100);
+
+        assertThat(writer.drain()).isEqualTo(6);
+        for (LogWriter logWriter : new LogWriter[] {mWriter1, mWriter2}) {
+            final InOrder inOrder = inOrder(logWriter);
+            inOrder.verify(logWriter).visible(mContext, SettingsEnums.PAGE_UNKNOWN,
+                    SettingsEnums.SETTINGS_HOMEPAGE, 10);
+            inOrder.verify(logWriter).changed(SettingsEnums.SETTINGS_HOMEPAGE, "key", 1);
+            inOrder.verify(logWriter).action(mContext,
+                    SettingsEnums.ACTION_SETTINGS_TILE_CLICK, true);
+            inOrder.verify(logWriter).action(mContext,
+                    SettingsEnums.ACTION_SETTINGS_TILE_CLICK, "pkg");
+            inOrder.verify(logWriter).action(SettingsEnums.PAGE_UNKNOWN,
+                    SettingsEnums.ACTION_SETTINGS_TILE_CLICK, SettingsEnums.SETTINGS_HOMEPAGE,
+                    "key", 2);
+            inOrder.verify(logWriter).hidden(mContext, SettingsEnums.SETTINGS_HOMEPAGE, 100);
+        }
+    }
+
+    @Test
+    public void bufferFull_policyDrop_dropsAndCountsEvents() {
+        final AsyncLogWriter writer = new AsyncLogWriter(2, AsyncLogWriter.POLICY_DROP,
+                false /* startDrainer */, mWriter1);
+
+        writer.action(mContext, SettingsEnums.ACTION_SETTINGS_TILE_CLICK, 1);
+        writer.action(mContext, SettingsEnums.ACTION_SETTINGS_TILE_CLICK, 2);
+        writer.action(mContext, SettingsEnums.ACTION_SETTINGS_TILE_CLICK, 3);
+
+        assertThat(writer.getDroppedCount()).isEqualTo(1);
+        verify(mWriter1, never()).action(mContext, SettingsEnums.ACTION_SETTINGS_TILE_CLICK, 3);
+        assertThat(writer.drain()).isEqualTo(2);
+    }
+
+    @Test
+    public void bufferFull_policyWriteOnCaller_writesOnCaller() {
+        final AsyncLogWriter writer = new AsyncLogWriter(2, AsyncLogWriter.POLICY_WRITE_ON_CALLER,
+                false /* startDrainer */, mWriter1);
+
+        writer.action(mContext, SettingsEnums.ACTION_SETTINGS_TILE_CLICK, 1);
+        writer.action(mContext, SettingsEnums.ACTION_SETTINGS_TILE_CLICK, 2);
+        writer.action(mContext, SettingsEnums.ACTION_SETTINGS_TILE_CLICK, 3);
+
+        verify(mWriter1).action(mContext, SettingsEnums.ACTION_SETTINGS_TILE_CLICK, 3);
+        assertThat(writer.getCallerWrittenCount()).isEqualTo(1);
+        assertThat(writer.getDroppedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void drain_freesSlotsForNewEvents() {
+        final AsyncLogWriter writer = new AsyncLogWriter(2, AsyncLogWriter.POLICY_DROP,
+                false /* startDrainer */, mWriter1);
+
+        for (int i = 0; i < 10; i++) {
+            writer.action(mContext, SettingsEnums.ACTION_SETTINGS_TILE_CLICK, i);
+            writer.drain();
+        }
+
+        assertThat(writer.getDroppedCount()).isEqualTo(0);
+        verify(mWriter1).action(mContext, SettingsEnums.ACTION_SETTINGS_TILE_CLICK, 9);
+    }
+
+    @Test
+    public void drain_writerThrows_otherWritersStillWritten() {
+        final AsyncLogWriter writer = new AsyncLogWriter(2, AsyncLogWriter.POLICY_DROP,
+                false /* startDrainer */, mWriter1, mWriter2);
+        doThrow(new IllegalStateException()).when(mWriter1).clicked(anyInt(),
+                any());
+
+        writer.clicked(SettingsEnums.SETTINGS_HOMEPAGE, "key");
+
+        assertThat(writer.drain()).isEqualTo(1);
+        verify(mWriter2).clicked(SettingsEnums.SETTINGS_HOMEPAGE, "key");
+    }
+
+    @Test
+    public void drainer_writesEventsInBackground() {
+        final AsyncLogWriter writer = new AsyncLogWriter(mWriter1);
+
+        writer.clicked(SettingsEnums.SETTINGS_HOMEPAGE, "key");
+
+        verify(mWriter1, timeout(AsyncLogWriter.BATCH_DELAY_MS * 20))
+                .clicked(SettingsEnums.SETTINGS_HOMEPAGE, "key");
+    }
+}
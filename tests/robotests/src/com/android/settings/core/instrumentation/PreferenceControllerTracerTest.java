@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.preference.Preference;
+
+import com.android.settings.core.BasePreferenceController;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceControllerTracerTest {
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        PreferenceControllerTracer.reset();
+    }
+
+    @After
+    public void tearDown() {
+        PreferenceControllerTracer.setEnabled(false);
+        PreferenceControllerTracer.reset();
+    }
+
+    @Test
+    public void isAvailable_disabled_notRecorded() throws Exception {
+        PreferenceControllerTracer.setEnabled(false);
+
+        assertThat(PreferenceControllerTracer.isAvailable(
+                new FakeController(mContext, 0 /* delayMs */))).isTrue();
+
+        assertThat(PreferenceControllerTracer.dump().getJSONArray("calls").length()).isEqualTo(0);
+    }
+
+    @Test
+    public void isAvailable_enabled_recordsCalls() throws Exception {
+        PreferenceControllerTracer.setEnabled(true);
+        final FakeController controller = new FakeController(mContext, 3 /* delayMs */);
+
+        assertThat(PreferenceControllerTracer.isAvailable(controller)).isTrue();
+        assertThat(PreferenceControllerTracer.isAvailable(controller)).isTrue();
+
+        final JSONArray calls = PreferenceControllerTracer.dump().getJSONArray("calls");
+        assertThat(calls.length()).isEqualTo(1);
+        final JSONObject call = calls.getJSONObject(0);
+        assertThat(call.getString("controller")).isEqualTo(FakeController.class.getName());
+        assertThat(call.getString("method"))
+                .isEqualTo(PreferenceControllerTracer.METHOD_IS_AVAILABLE);
+        assertThat(call.getInt("count")).isEqualTo(2);
+        assertThat(call.getInt("mainThreadCount")).isEqualTo(2);
+        assertThat(call.getDouble("totalMs")).isEqualTo(6.0);
+        assertThat(call.getJSONObject("histogram").getInt("<4ms")).isEqualTo(2);
+        assertThat(call.getBoolean("overBudget")).isFalse();
+    }
+
+    @Test
+    public void updateState_overMainThreadBudget_reportedAsSlow() throws Exception {
+        PreferenceControllerTracer.setEnabled(true);
+        final FakeController controller = new FakeController(mContext, 100 /* delayMs */);
+
+        PreferenceControllerTracer.updateState(controller, new Preference(mContext));
+
+        final JSONObject dump = PreferenceControllerTracer.dump();
+        assertThat(dump.getJSONArray("slowControllers").getString(0)).isEqualTo(
+                FakeController.class.getName() + "#"
+                        + PreferenceControllerTracer.METHOD_UPDATE_STATE);
+        assertThat(dump.getJSONArray("calls").getJSONObject(0).getJSONObject("histogram")
+                .getInt(">=64ms")).isEqualTo(1);
+    }
+
+    @Test
+    public void beginEnd_enabled_recordsMethod() throws Exception {
+        PreferenceControllerTracer.setEnabled(true);
+        final FakeController controller = new FakeController(mContext, 0 /* delayMs */);
+
+        final long startTime = PreferenceControllerTracer.begin(controller, "custom");
+        SystemClock.sleep(1);
+        PreferenceControllerTracer.end(controller, "custom", startTime);
+
+        assertThat(PreferenceControllerTracer.dump().getJSONArray("calls").getJSONObject(0)
+                .getString("method")).isEqualTo("custom");
+    }
+
+    private static class FakeController extends BasePreferenceController {
+        private final long mDelayMs;
+
+        FakeController(Context context, long delayMs) {
+            super(context, "key");
+            mDelayMs = delayMs;
+        }
+
+        @Override
+        public int getAvailabilityStatus() {
+            SystemClock.sleep(mDelayMs);
+            return AVAILABLE;
+        }
+
+        @Override
+        public void updateState(Preference preference) {
+            SystemClock.sleep(mDelayMs);
+        }
+    }
+}
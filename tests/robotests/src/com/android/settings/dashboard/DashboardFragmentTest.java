@@ -24,6 +24,9 @@ import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_SWIT
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -81,6 +84,7 @@ import org.robolectric.util.ReflectionHelpers;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -225,6 +229,58 @@ public class DashboardFragmentTest {
         verify(groupPreference).addPreference(nullable(Preference.class));
     }
 
+    @Test
+    public void displayTilesAsPreference_tilesDeferred_shouldNotLoadTiles() {
+        mTestFragment.mDeferDashboardTiles = true;
+
+        mTestFragment.onCreatePreferences(new Bundle(), "rootKey");
+
+        verify(mFakeFeatureFactory.dashboardFeatureProvider, never())
+                .getTilesForCategory(nullable(String.class));
+        verify(mTestFragment.mScreen, never()).addPreference(nullable(Preference.class));
+    }
+
+    @Test
+    public void onCategoriesChanged_tilesDeferred_shouldBindDeferredTilePreference() {
+        when(mFakeFeatureFactory.dashboardFeatureProvider
+                .getDashboardKeyForTile(any(ActivityTile.class)))
+                .thenReturn("test_key");
+        when(mFakeFeatureFactory.dashboardFeatureProvider
+                .getDashboardKeyForTile(any(ProviderTile.class)))
+                .thenReturn("test_key2");
+        mTestFragment.mDeferDashboardTiles = true;
+        mTestFragment.onCreatePreferences(new Bundle(), "rootKey");
+        final Preference deferredPreference = new Preference(mContext);
+        deferredPreference.setKey("test_key");
+        mTestFragment.addDeferredTilePreference(mTestFragment.mScreen, deferredPreference);
+        when(mTestFragment.mScreen.findPreference("test_key")).thenReturn(deferredPreference);
+
+        mTestFragment.onCategoriesChanged(Collections.emptySet());
+
+        verify(mFakeFeatureFactory.dashboardFeatureProvider).bindPreferenceToTileAndGetObservers(
+                any(), any(), anyBoolean(), eq(deferredPreference), eq(mActivityTile),
+                eq("test_key"), anyInt());
+        // The deferred preference and the new preference of the other tile.
+        verify(mTestFragment.mScreen, times(2)).addPreference(nullable(Preference.class));
+    }
+
+    @Test
+    public void onCategoriesChanged_tilesDeferredAndNoTiles_shouldRemoveDeferredTilePreference() {
+        when(mFakeFeatureFactory.dashboardFeatureProvider
+                .getTilesForCategory(nullable(String.class)))
+                .thenReturn(null);
+        mTestFragment.mDeferDashboardTiles = true;
+        mTestFragment.onCreatePreferences(new Bundle(), "rootKey");
+        final Preference deferredPreference = new Preference(mContext);
+        deferredPreference.setKey("test_key");
+        mTestFragment.addDeferredTilePreference(mTestFragment.mScreen, deferredPreference);
+
+        mTestFragment.onCategoriesChanged(Collections.emptySet());
+
+        verify(mTestFragment.mScreen).removePreferenceRecursively("test_key");
+        assertThat(mTestFragment.mDashboardTilePrefKeys).doesNotContainKey("test_key");
+    }
+
     @Test
     public void displayTilesAsPreference_shouldNotAddTilesWithoutIntent() {
         mTestFragment.onCreatePreferences(new Bundle(), "rootKey");
@@ -543,6 +599,7 @@ public class DashboardFragmentTest {
         private final ContentResolver mContentResolver;
 
         public final PreferenceScreen mScreen;
+        public boolean mDeferDashboardTiles;
 
         public TestFragment(Context context) {
             mContext = context;
@@ -576,6 +633,11 @@ public class DashboardFragmentTest {
             return "TEST_FRAG";
         }
 
+        @Override
+        protected boolean shouldDeferDashboardTiles() {
+            return mDeferDashboardTiles;
+        }
+
         @Override
         protected int getPreferenceScreenResId() {
             return 0;
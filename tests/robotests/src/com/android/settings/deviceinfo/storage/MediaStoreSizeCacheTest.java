@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.deviceinfo.storage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Bundle;
+import android.provider.MediaStore;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class MediaStoreSizeCacheTest {
+
+    private static final String KEY = "0/images";
+    private static final String VERSION = "version";
+    private static final Uri URI = MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
+
+    private MediaStoreSizeCache mCache;
+    private FakeQuerier mQuerier;
+    private Bundle mQueryArgs;
+
+    @Before
+    public void setUp() {
+        mCache = new MediaStoreSizeCache();
+        mQuerier = new FakeQuerier();
+        mQueryArgs = new Bundle();
+        mQueryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, "volume_name='x'");
+    }
+
+    @Test
+    public void getSize_unknownGeneration_alwaysQueriesFullSum() {
+        mQuerier.mFullSum = 100L;
+
+        assertThat(mCache.getSize(mQuerier, KEY, URI, mQueryArgs, VERSION, -1L)).isEqualTo(100L);
+        assertThat(mCache.getSize(mQuerier, KEY, URI, mQueryArgs, VERSION, -1L)).isEqualTo(100L);
+        assertThat(mQuerier.mSelections).hasSize(2);
+    }
+
+    @Test
+    public void getSize_sameGeneration_doesNotQuery() {
+        mQuerier.mFullSum = 100L;
+        mCache.getSize(mQuerier, KEY, URI, mQueryArgs, VERSION, 5L);
+        mQuerier.mSelections.clear();
+
+        assertThat(mCache.getSize(mQuerier, KEY, URI, mQueryArgs, VERSION, 5L)).isEqualTo(100L);
+        assertThat(mQuerier.mSelections).isEmpty();
+    }
+
+    @Test
+    public void getSize_onlyAddedRows_addsDelta() {
+        mQuerier.mFullSum = 100L;
+        mQuerier.mFullCount = 2L;
+        mCache.getSize(mQuerier, KEY, URI, mQueryArgs, VERSION, 5L);
+        mQuerier.mFullCount = 3L;
+        mQuerier.mAddedSum = 20L;
+        mQuerier.mAddedCount = 1L;
+        mQuerier.mFullSum = -1L; // The full sum must not be used.
+
+        assertThat(mCache.getSize(mQuerier, KEY, URI, mQueryArgs, VERSION, 7L)).isEqualTo(120L);
+        assertThat(mQuerier.mSelections).contains(
+                "(volume_name='x') AND generation_added>5");
+    }
+
+    @Test
+    public void getSize_modifiedRows_queriesFullSum() {
+        mQuerier.mFullSum = 100L;
+        mCache.getSize(mQuerier, KEY, URI, mQueryArgs, VERSION, 5L);
+        mQuerier.mModifiedCount = 1L;
+        mQuerier.mFullSum = 90L;
+
+        assertThat(mCache.getSize(mQuerier, KEY, URI, mQueryArgs, VERSION, 7L)).isEqualTo(90L);
+    }
+
+    @Test
+    public void getSize_deletedRows_queriesFullSum() {
+        mQuerier.mFullSum = 100L;
+        mQuerier.mFullCount = 2L;
+        mCache.getSize(mQuerier, KEY, URI, mQueryArgs, VERSION, 5L);
+        mQuerier.mFullCount = 1L;
+        mQuerier.mFullSum = 60L;
+
+        assertThat(mCache.getSize(mQuerier, KEY, URI, mQueryArgs, VERSION, 7L)).isEqualTo(60L);
+    }
+
+    @Test
+    public void getSize_versionChanged_queriesFullSum() {
+        mQuerier.mFullSum = 100L;
+        mCache.getSize(mQuerier, KEY, URI, mQueryArgs, VERSION, 5L);
+        mQuerier.mFullSum = 10L;
+
+        assertThat(mCache.getSize(mQuerier, KEY, URI, mQueryArgs, "other", 1L)).isEqualTo(10L);
+    }
+
+    /** Answers the queries of MediaStoreSizeCache based on their selection. */
+    private static class FakeQuerier implements MediaStoreSizeCache.Querier {
+        long mFullSum;
+        long mFullCount;
+        long mAddedSum;
+        long mAddedCount;
+        long mModifiedCount;
+        final List<String> mSelections = new ArrayList<>();
+
+        @Override
+        public long[] query(Uri uri, String[] projection, Bundle queryArgs) {
+            final String selection =
+                    queryArgs.getString(ContentResolver.QUERY_ARG_SQL_SELECTION);
+            mSelections.add(selection);
+            final boolean sum = projection.length == 2;
+            if (selection.contains("generation_modified")) {
+                return new long[] {mModifiedCount};
+            } else if (selection.contains("generation_added")) {
+                return sum ? new long[] {mAddedSum, mAddedCount} : new long[] {mAddedCount};
+            }
+            return sum ? new long[] {mFullSum, mFullCount} : new long[] {mFullCount};
+        }
+    }
+}
@@ -20,10 +20,14 @@ import static com.google.common.truth.Truth.assertThat;
 
 import android.content.Context;
 import android.os.UserHandle;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
 
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 
+import com.android.settingslib.applications.StorageStatsSource;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -43,6 +47,11 @@ public class StorageCacheHelperTest {
     private static final long FAKE_TOTAL_USED_SIZE = 50000L;
     private static final long FAKE_USED_SIZE = 6500L;
     private static final long FAKE_TEMPORARY_FILES_SIZE = 2500L;
+    private static final long FAKE_DUPLICATE_CODE_SIZE = 300L;
+    private static final long FAKE_MEDIA_GENERATION = 42L;
+    private static final long FAKE_TIMESTAMP = 1700000000000L;
+    private static final int FAKE_BOOT_COUNT = 3;
+    private static final int FAKE_PACKAGE_SEQUENCE = 17;
 
     private Context mContext;
     private StorageCacheHelper mHelper;
@@ -95,6 +104,60 @@ public class StorageCacheHelperTest {
         assertThat(mHelper.retrieveUsedSize()).isEqualTo(FAKE_USED_SIZE);
     }
 
+    @Test
+    public void retrieveSnapshot_noSnapshot_shouldReturnNull() {
+        assertThat(mHelper.retrieveSnapshot(null /* fsUuid */)).isNull();
+    }
+
+    @Test
+    public void cacheSnapshot_shouldRoundTripAllUsers() {
+        final SparseArray<StorageAsyncLoader.StorageResult> results = new SparseArray<>();
+        final StorageAsyncLoader.StorageResult primary = new StorageAsyncLoader.StorageResult();
+        primary.imagesSize = FAKE_IMAGES_SIZE;
+        primary.gamesSize = FAKE_GAMES_SIZE;
+        primary.duplicateCodeSize = FAKE_DUPLICATE_CODE_SIZE;
+        primary.mediaGeneration = FAKE_MEDIA_GENERATION;
+        primary.externalStats = new StorageStatsSource.ExternalStorageStats(
+                FAKE_TOTAL_SIZE, FAKE_AUDIO_SIZE, FAKE_VIDEOS_SIZE, FAKE_IMAGES_SIZE,
+                FAKE_APPS_SIZE);
+        results.put(0, primary);
+        final StorageAsyncLoader.StorageResult secondary = new StorageAsyncLoader.StorageResult();
+        secondary.trashSize = FAKE_TRASH_SIZE;
+        results.put(10, secondary);
+
+        final SparseIntArray packageSequences = new SparseIntArray();
+        packageSequences.put(0, FAKE_PACKAGE_SEQUENCE);
+        packageSequences.put(10, FAKE_PACKAGE_SEQUENCE + 1);
+
+        mHelper.cacheSnapshot(null /* fsUuid */, new StorageCacheHelper.StorageSnapshot(
+                FAKE_TIMESTAMP, FAKE_BOOT_COUNT, packageSequences, results));
+        StorageCacheHelper.StorageSnapshot snapshot = mHelper.retrieveSnapshot(null /* fsUuid */);
+
+        assertThat(snapshot.timestamp).isEqualTo(FAKE_TIMESTAMP);
+        assertThat(snapshot.bootCount).isEqualTo(FAKE_BOOT_COUNT);
+        assertThat(snapshot.packageSequences.size()).isEqualTo(2);
+        assertThat(snapshot.packageSequences.get(0)).isEqualTo(FAKE_PACKAGE_SEQUENCE);
+        assertThat(snapshot.packageSequences.get(10)).isEqualTo(FAKE_PACKAGE_SEQUENCE + 1);
+        assertThat(snapshot.results.size()).isEqualTo(2);
+        assertThat(snapshot.results.get(0).imagesSize).isEqualTo(FAKE_IMAGES_SIZE);
+        assertThat(snapshot.results.get(0).gamesSize).isEqualTo(FAKE_GAMES_SIZE);
+        assertThat(snapshot.results.get(0).duplicateCodeSize)
+                .isEqualTo(FAKE_DUPLICATE_CODE_SIZE);
+        assertThat(snapshot.results.get(0).mediaGeneration).isEqualTo(FAKE_MEDIA_GENERATION);
+        assertThat(snapshot.results.get(0).externalStats.appBytes).isEqualTo(FAKE_APPS_SIZE);
+        assertThat(snapshot.results.get(10).trashSize).isEqualTo(FAKE_TRASH_SIZE);
+        assertThat(snapshot.results.get(10).externalStats).isNull();
+    }
+
+    @Test
+    public void cacheSnapshot_otherVolume_shouldNotBeReturned() {
+        mHelper.cacheSnapshot("1234-5678", new StorageCacheHelper.StorageSnapshot(
+                FAKE_TIMESTAMP, FAKE_BOOT_COUNT, new SparseIntArray(), new SparseArray<>()));
+
+        assertThat(mHelper.retrieveSnapshot(null /* fsUuid */)).isNull();
+        assertThat(mHelper.retrieveSnapshot("1234-5678")).isNotNull();
+    }
+
     private StorageCacheHelper.StorageCache getFakeStorageCache() {
         StorageCacheHelper.StorageCache result = new StorageCacheHelper.StorageCache();
         result.trashSize = FAKE_TRASH_SIZE;
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+
+import com.android.settings.R;
+import com.android.settings.testutils.shadow.ShadowThreadUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowPackageManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = ShadowThreadUtils.class)
+public class TopLevelSnapshotTest {
+
+    private static final int SCREEN_RES_ID = R.xml.top_level_settings;
+    private static final String TILE_PACKAGE = "com.example.tiles";
+    private static final Set<String> TILE_PACKAGES = Collections.singleton(TILE_PACKAGE);
+
+    private static final TopLevelSnapshot.Entry ENTRY = new TopLevelSnapshot.Entry(
+            "top_level_wellbeing", "Digital Wellbeing", "Screen time", 100 /* order */,
+            null /* parentKey */, "com.google.android.apps.wellbeing", 0x7f080001 /* iconResId */);
+    private static final TopLevelSnapshot.Entry ENTRY_WITHOUT_ICON = new TopLevelSnapshot.Entry(
+            "top_level_google", "Google", null /* summary */, 200 /* order */,
+            "top_level_account_category", null /* iconPackage */, 0 /* iconResId */);
+
+    private Context mContext;
+    private TopLevelSnapshot mSnapshot;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mSnapshot = new TopLevelSnapshot(mContext);
+        installPackage(TILE_PACKAGE, 1 /* versionCode */);
+    }
+
+    @After
+    public void tearDown() {
+        TopLevelSnapshot.takePrefetched(SCREEN_RES_ID);
+    }
+
+    @Test
+    public void load_nothingSaved_returnsEmpty() {
+        assertThat(mSnapshot.load(SCREEN_RES_ID)).isEmpty();
+    }
+
+    @Test
+    public void load_afterSave_returnsSavedEntries() {
+        mSnapshot.save(SCREEN_RES_ID, Arrays.asList(ENTRY, ENTRY_WITHOUT_ICON), TILE_PACKAGES);
+
+        final List<TopLevelSnapshot.Entry> entries = mSnapshot.load(SCREEN_RES_ID);
+
+        assertThat(entries).containsExactly(ENTRY, ENTRY_WITHOUT_ICON).inOrder();
+    }
+
+    @Test
+    public void load_tilePackageUpdated_returnsEmptyAndDiscardsSnapshot() {
+        mSnapshot.save(SCREEN_RES_ID, Arrays.asList(ENTRY), TILE_PACKAGES);
+        installPackage(TILE_PACKAGE, 2 /* versionCode */);
+
+        assertThat(mSnapshot.load(SCREEN_RES_ID)).isEmpty();
+        assertThat(mContext.getSharedPreferences(TopLevelSnapshot.SHARED_PREFERENCES_NAME,
+                Context.MODE_PRIVATE).contains("snapshot")).isFalse();
+    }
+
+    @Test
+    public void load_savedWithoutVersions_returnsEmpty() {
+        mContext.getSharedPreferences(TopLevelSnapshot.SHARED_PREFERENCES_NAME,
+                Context.MODE_PRIVATE).edit().putString("snapshot", "{\"screen\":" + SCREEN_RES_ID
+                + ",\"locales\":\"en-US\",\"entries\":[{\"key\":\"top_level_google\","
+                + "\"order\":200}]}").commit();
+
+        assertThat(mSnapshot.load(SCREEN_RES_ID)).isEmpty();
+    }
+
+    @Test
+    public void takePrefetched_afterPrefetch_returnsSavedEntries() {
+        mSnapshot.save(SCREEN_RES_ID, Arrays.asList(ENTRY), TILE_PACKAGES);
+
+        TopLevelSnapshot.prefetch(mContext, SCREEN_RES_ID);
+
+        assertThat(TopLevelSnapshot.takePrefetched(SCREEN_RES_ID)).containsExactly(ENTRY);
+        assertThat(TopLevelSnapshot.takePrefetched(SCREEN_RES_ID)).isEmpty();
+    }
+
+    @Test
+    public void takePrefetched_withoutPrefetch_returnsEmpty() {
+        mSnapshot.save(SCREEN_RES_ID, Arrays.asList(ENTRY), TILE_PACKAGES);
+
+        assertThat(TopLevelSnapshot.takePrefetched(SCREEN_RES_ID)).isEmpty();
+    }
+
+    @Test
+    public void load_otherScreen_returnsEmpty() {
+        mSnapshot.save(SCREEN_RES_ID, Arrays.asList(ENTRY), TILE_PACKAGES);
+
+        assertThat(mSnapshot.load(R.xml.top_level_settings_v2)).isEmpty();
+    }
+
+    @Test
+    @Config(qualifiers = "fr-rFR")
+    public void load_savedWithOtherLocale_returnsEmpty() {
+        mContext.getSharedPreferences(TopLevelSnapshot.SHARED_PREFERENCES_NAME,
+                Context.MODE_PRIVATE).edit().putString("snapshot", "{\"screen\":" + SCREEN_RES_ID
+                + ",\"locales\":\"en-US\",\"entries\":[{\"key\":\"top_level_google\","
+                + "\"order\":200}]}").commit();
+
+        assertThat(mSnapshot.load(SCREEN_RES_ID)).isEmpty();
+    }
+
+    @Test
+    public void load_corruptedSnapshot_returnsEmpty() {
+        mContext.getSharedPreferences(TopLevelSnapshot.SHARED_PREFERENCES_NAME,
+                Context.MODE_PRIVATE).edit().putString("snapshot", "{").commit();
+
+        assertThat(mSnapshot.load(SCREEN_RES_ID)).isEmpty();
+    }
+
+    private void installPackage(String packageName, long versionCode) {
+        final PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = packageName;
+        packageInfo.setLongVersionCode(versionCode);
+        final ShadowPackageManager shadowPackageManager =
+                Shadows.shadowOf(mContext.getPackageManager());
+        shadowPackageManager.removePackage(packageName);
+        shadowPackageManager.installPackage(packageInfo);
+    }
+}
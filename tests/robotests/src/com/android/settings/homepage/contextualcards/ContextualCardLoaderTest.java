@@ -24,6 +24,7 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -151,6 +152,36 @@ public class ContextualCardLoaderTest {
         assertThat(mContextualCardLoader.getCardCount()).isEqualTo(configCount);
     }
 
+    @Test
+    public void filterEligibleCards_checkQueuedBehindSlowChecks_shouldNotTimeOut() {
+        final List<ContextualCard> candidates = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            candidates.add(new ContextualCard.Builder()
+                    .setName("test_card_" + i)
+                    .setCardType(ContextualCard.CardType.SLICE)
+                    .setSliceUri(Uri.parse("content://com.android.settings.test.slices/" + i))
+                    .build());
+        }
+        // The first four checks take every thread for 300 ms, the last one then takes 200 ms.
+        // It completes 500 ms after the load started, but only 200 ms after it started running.
+        doAnswer(invocation -> {
+            final ContextualCard card = invocation.getArgument(0);
+            final EligibleCardChecker checker = spy(new EligibleCardChecker(mContext, card,
+                    invocation.getArgument(1)));
+            final long checkTimeMs = card == candidates.get(4) ? 200 : 300;
+            doAnswer(check -> {
+                Thread.sleep(checkTimeMs);
+                return true;
+            }).when(checker).isCardEligibleToDisplay(any(ContextualCard.class));
+            return checker;
+        }).when(mContextualCardLoader).createEligibleCardChecker(any(ContextualCard.class),
+                any(EligibleCardCache.class));
+
+        final List<ContextualCard> cards = mContextualCardLoader.filterEligibleCards(candidates);
+
+        assertThat(cards).hasSize(5);
+    }
+
     private List<ContextualCard> getContextualCardList() {
         final List<ContextualCard> cards = new ArrayList<>();
         cards.add(new ContextualCard.Builder()
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.slice.Slice;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.time.Duration;
+
+@RunWith(RobolectricTestRunner.class)
+public class EligibleCardCacheTest {
+
+    private static final Uri TEST_SLICE_URI = Uri.parse("content://test/test");
+
+    private Context mContext;
+    private EligibleCardCache mCache;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mCache = new EligibleCardCache(mContext);
+    }
+
+    @Test
+    public void get_recentResult_returnsSlice() {
+        final Slice slice = new Slice.Builder(TEST_SLICE_URI).build();
+        mCache.put(TEST_SLICE_URI, slice, true /* hasInlineAction */);
+
+        final EligibleCardCache.Entry entry = mCache.get(TEST_SLICE_URI);
+
+        assertThat(entry.mSlice).isSameInstanceAs(slice);
+        assertThat(entry.mHasInlineAction).isTrue();
+    }
+
+    @Test
+    public void get_expiredResult_returnsNull() {
+        mCache.put(TEST_SLICE_URI, null /* slice */, false /* hasInlineAction */);
+
+        ShadowSystemClock.advanceBy(Duration.ofMillis(EligibleCardCache.MAX_AGE_MS));
+
+        assertThat(mCache.get(TEST_SLICE_URI)).isNull();
+    }
+
+    @Test
+    public void get_sliceChanged_returnsNull() {
+        mCache.put(TEST_SLICE_URI, null /* slice */, false /* hasInlineAction */);
+
+        mContext.getContentResolver().notifyChange(TEST_SLICE_URI, null /* observer */);
+        ShadowLooper.idleMainLooper();
+
+        assertThat(mCache.get(TEST_SLICE_URI)).isNull();
+    }
+
+    @Test
+    public void recordTimeout_countsPerUri() {
+        mCache.recordTimeout(TEST_SLICE_URI);
+        mCache.recordTimeout(TEST_SLICE_URI);
+
+        assertThat(mCache.getTimeoutCount(TEST_SLICE_URI)).isEqualTo(2);
+        assertThat(mCache.getTimeoutCount(Uri.parse("content://test/other"))).isEqualTo(0);
+    }
+}
@@ -22,7 +22,9 @@ import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 import android.app.Activity;
 import android.app.PendingIntent;
@@ -121,6 +123,27 @@ public class EligibleCardCheckerTest {
                 .isFalse();
     }
 
+    @Test
+    public void isCardEligibleToDisplay_previousBindPending_returnFalseWithoutBinding() {
+        EligibleCardChecker.sPendingBinds.add(TEST_SLICE_URI);
+        try {
+            assertThat(mEligibleCardChecker.isCardEligibleToDisplay(
+                    getContextualCard(TEST_SLICE_URI))).isFalse();
+            verify(mEligibleCardChecker, never()).bindSlice(any(Uri.class));
+        } finally {
+            EligibleCardChecker.sPendingBinds.remove(TEST_SLICE_URI);
+        }
+    }
+
+    @Test
+    public void isCardEligibleToDisplay_bindReturned_shouldNotBePending() {
+        doReturn(buildSlice()).when(mEligibleCardChecker).bindSlice(any(Uri.class));
+
+        mEligibleCardChecker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI));
+
+        assertThat(EligibleCardChecker.sPendingBinds).doesNotContain(TEST_SLICE_URI);
+    }
+
     @Test
     public void isCardEligibleToDisplay_sliceNotNull_cacheSliceToCard() {
         final Slice slice = buildSlice();
@@ -131,6 +154,36 @@ public class EligibleCardCheckerTest {
         assertThat(mEligibleCardChecker.mCard.getSlice()).isNotNull();
     }
 
+    @Test
+    public void isCardEligibleToDisplay_cachedSlice_shouldNotBindAgain() {
+        final EligibleCardCache cache = new EligibleCardCache(mContext);
+        final Slice slice = buildSlice();
+        final EligibleCardChecker firstChecker = spy(
+                new EligibleCardChecker(mContext, getContextualCard(TEST_SLICE_URI), cache));
+        doReturn(slice).when(firstChecker).bindSlice(any(Uri.class));
+        firstChecker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI));
+        final EligibleCardChecker secondChecker = spy(
+                new EligibleCardChecker(mContext, getContextualCard(TEST_SLICE_URI), cache));
+
+        assertThat(secondChecker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI)))
+                .isTrue();
+        verify(secondChecker, never()).bindSlice(any(Uri.class));
+        assertThat(secondChecker.mCard.hasInlineAction()).isTrue();
+    }
+
+    @Test
+    public void isCardEligibleToDisplay_sliceChanged_shouldBindAgain() {
+        final EligibleCardCache cache = new EligibleCardCache(mContext);
+        cache.put(TEST_SLICE_URI, buildSlice(), true /* hasInlineAction */);
+        cache.invalidate(TEST_SLICE_URI);
+        final EligibleCardChecker checker = spy(
+                new EligibleCardChecker(mContext, getContextualCard(TEST_SLICE_URI), cache));
+        doReturn(null).when(checker).bindSlice(any(Uri.class));
+
+        assertThat(checker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI))).isFalse();
+        verify(checker).bindSlice(TEST_SLICE_URI);
+    }
+
     private ContextualCard getContextualCard(Uri sliceUri) {
         return new ContextualCard.Builder()
                 .setName("test_card")
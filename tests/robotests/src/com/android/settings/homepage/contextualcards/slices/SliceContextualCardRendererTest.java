@@ -21,9 +21,12 @@ import static com.android.settings.homepage.contextualcards.slices.SliceContextu
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import android.app.Activity;
 import android.app.PendingIntent;
@@ -46,6 +49,7 @@ import androidx.slice.widget.SliceLiveData;
 
 import com.android.settings.R;
 import com.android.settings.homepage.contextualcards.ContextualCard;
+import com.android.settings.homepage.contextualcards.ContextualCardsDiffCallback;
 import com.android.settings.homepage.contextualcards.ContextualCardsFragment;
 import com.android.settings.homepage.contextualcards.ControllerRendererPool;
 
@@ -59,6 +63,8 @@ import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.android.controller.ActivityController;
 
+import java.util.Collections;
+
 @RunWith(RobolectricTestRunner.class)
 public class SliceContextualCardRendererTest {
 
@@ -149,6 +155,56 @@ public class SliceContextualCardRendererTest {
         verify(mSliceLiveData).removeObservers(mLifecycleOwner);
     }
 
+    @Test
+    public void bindViewWithPayload_sliceObserved_shouldObserveForNewCard() {
+        mRenderer.mSliceLiveDataMap.put(TEST_SLICE_URI, mSliceLiveData);
+        when(mSliceLiveData.hasObservers()).thenReturn(true);
+
+        mRenderer.bindView(getSliceViewHolder(), buildContextualCard(TEST_SLICE_URI),
+                Collections.singletonList(ContextualCardsDiffCallback.PAYLOAD_UPDATE_IN_PLACE));
+
+        verify(mSliceLiveData).removeObservers(mLifecycleOwner);
+        verify(mSliceLiveData).observe(eq(mLifecycleOwner), any());
+    }
+
+    @Test
+    public void bindViewWithPayload_sliceObserved_shouldKeepSwipeBackground() {
+        final RecyclerView.ViewHolder viewHolder = getSliceViewHolder();
+        final View swipeBg = viewHolder.itemView.findViewById(R.id.dismissal_swipe_background);
+        swipeBg.setVisibility(View.VISIBLE);
+        mRenderer.mSliceLiveDataMap.put(TEST_SLICE_URI, mSliceLiveData);
+        when(mSliceLiveData.hasObservers()).thenReturn(true);
+
+        mRenderer.bindView(viewHolder, buildContextualCard(TEST_SLICE_URI),
+                Collections.singletonList(ContextualCardsDiffCallback.PAYLOAD_UPDATE_IN_PLACE));
+
+        assertThat(swipeBg.getVisibility()).isEqualTo(View.VISIBLE);
+    }
+
+    @Test
+    public void bindViewWithPayload_isPendingDismiss_shouldShowDismissalView() {
+        final RecyclerView.ViewHolder viewHolder = getSliceViewHolder();
+        final View dismissalView = viewHolder.itemView.findViewById(R.id.dismissal_view);
+        final ContextualCard card = buildContextualCard(
+                TEST_SLICE_URI).mutate().setIsPendingDismiss(true).build();
+        mRenderer.mSliceLiveDataMap.put(TEST_SLICE_URI, mSliceLiveData);
+        when(mSliceLiveData.hasObservers()).thenReturn(true);
+
+        mRenderer.bindView(viewHolder, card,
+                Collections.singletonList(ContextualCardsDiffCallback.PAYLOAD_UPDATE_IN_PLACE));
+
+        assertThat(dismissalView.getVisibility()).isEqualTo(View.VISIBLE);
+        assertThat(mRenderer.mFlippedCardSet).contains(viewHolder);
+    }
+
+    @Test
+    public void bindViewWithPayload_sliceNotObserved_shouldObserveSliceView() {
+        mRenderer.bindView(getSliceViewHolder(), buildContextualCard(TEST_SLICE_URI),
+                Collections.singletonList(ContextualCardsDiffCallback.PAYLOAD_UPDATE_IN_PLACE));
+
+        assertThat(mRenderer.mSliceLiveDataMap.get(TEST_SLICE_URI).hasObservers()).isTrue();
+    }
+
     @Test
     public void bindView_isPendingDismiss_shouldShowDismissalView() {
         final RecyclerView.ViewHolder viewHolder = getSliceViewHolder();
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import static com.android.settings.network.MobileNetworkRepository.SUBSCRIPTIONS_UPDATE_COALESCE_MS;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class MobileNetworkRepositoryTest {
+
+    @Test
+    public void getSubscriptionsUpdateDelayMs_firstUpdate_shouldNotWait() {
+        assertThat(MobileNetworkRepository.getSubscriptionsUpdateDelayMs(
+                0 /* now */, -SUBSCRIPTIONS_UPDATE_COALESCE_MS)).isEqualTo(0);
+    }
+
+    @Test
+    public void getSubscriptionsUpdateDelayMs_afterQuietPeriod_shouldNotWait() {
+        assertThat(MobileNetworkRepository.getSubscriptionsUpdateDelayMs(
+                1000 + SUBSCRIPTIONS_UPDATE_COALESCE_MS * 2 /* now */, 1000 /* lastUpdateTime */))
+                .isEqualTo(0);
+    }
+
+    @Test
+    public void getSubscriptionsUpdateDelayMs_withinWindow_shouldWaitForWindowEnd() {
+        assertThat(MobileNetworkRepository.getSubscriptionsUpdateDelayMs(
+                1040 /* now */, 1000 /* lastUpdateTime */))
+                .isEqualTo(SUBSCRIPTIONS_UPDATE_COALESCE_MS - 40);
+    }
+}
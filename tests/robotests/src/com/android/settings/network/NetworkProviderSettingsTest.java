@@ -78,6 +78,7 @@ import com.android.settings.wifi.WifiDialog2;
 import com.android.settingslib.utils.StringUtil;
 import com.android.settingslib.widget.FooterPreference;
 import com.android.settingslib.widget.LayoutPreference;
+import com.android.wifitrackerlib.StandardWifiEntry;
 import com.android.wifitrackerlib.WifiEntry;
 import com.android.wifitrackerlib.WifiPickerTracker;
 
@@ -97,6 +98,7 @@ import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
 import org.robolectric.shadows.ShadowToast;
 
+import java.util.Arrays;
 import java.util.List;
 
 @RunWith(RobolectricTestRunner.class)
@@ -108,6 +110,7 @@ public class NetworkProviderSettingsTest {
     private static final int XML_RES = R.xml.wifi_tether_settings;
     private static final int NUM_NETWORKS = 4;
     private static final String FAKE_URI_STRING = "fakeuri";
+    private static final String WIFI_ENTRY_KEY = "wifi_entry_key";
 
     @Rule
     public final MockitoRule mMockitoRule = MockitoJUnit.rule();
@@ -653,6 +656,100 @@ public class NetworkProviderSettingsTest {
         verify(mNetworkProviderSettings.mWifiEntryPreferenceCategory, never()).setVisible(true);
     }
 
+    @Test
+    public void canUpdateInPlace_sameTypeAndRestriction_returnsTrue() {
+        final WifiEntry newEntry = mock(WifiEntry.class);
+
+        assertThat(NetworkProviderSettings.canUpdateInPlace(mWifiEntry, newEntry)).isTrue();
+    }
+
+    @Test
+    public void canUpdateInPlace_adminRestrictionChanged_returnsFalse() {
+        final WifiEntry newEntry = mock(WifiEntry.class);
+        when(newEntry.hasAdminRestrictions()).thenReturn(true);
+
+        assertThat(NetworkProviderSettings.canUpdateInPlace(mWifiEntry, newEntry)).isFalse();
+    }
+
+    @Test
+    public void updateWifiEntryPreferences_sameEntryType_rebindSamePreference() {
+        final PreferenceCategory category = setUpForUpdateWifiEntryPreferences();
+        when(mWifiEntry.getKey()).thenReturn(WIFI_ENTRY_KEY);
+        when(mMockWifiPickerTracker.getWifiEntries()).thenReturn(Arrays.asList(mWifiEntry));
+        mNetworkProviderSettings.updateWifiEntryPreferences();
+        final Preference preference = category.findPreference(WIFI_ENTRY_KEY);
+        final WifiEntry newEntry = mock(WifiEntry.class);
+        when(newEntry.getKey()).thenReturn(WIFI_ENTRY_KEY);
+        when(mMockWifiPickerTracker.getWifiEntries()).thenReturn(Arrays.asList(newEntry));
+
+        mNetworkProviderSettings.updateWifiEntryPreferences();
+
+        final LongPressWifiEntryPreference updated = category.findPreference(WIFI_ENTRY_KEY);
+        assertThat(updated).isSameInstanceAs(preference);
+        assertThat(updated.getWifiEntry()).isSameInstanceAs(newEntry);
+    }
+
+    @Test
+    public void updateWifiEntryPreferences_entryTypeChanged_recreatePreference() {
+        final PreferenceCategory category = setUpForUpdateWifiEntryPreferences();
+        when(mWifiEntry.getKey()).thenReturn(WIFI_ENTRY_KEY);
+        when(mMockWifiPickerTracker.getWifiEntries()).thenReturn(Arrays.asList(mWifiEntry));
+        mNetworkProviderSettings.updateWifiEntryPreferences();
+        final Preference preference = category.findPreference(WIFI_ENTRY_KEY);
+        final WifiEntry newEntry = mock(StandardWifiEntry.class);
+        when(newEntry.getKey()).thenReturn(WIFI_ENTRY_KEY);
+        when(mMockWifiPickerTracker.getWifiEntries()).thenReturn(Arrays.asList(newEntry));
+
+        mNetworkProviderSettings.updateWifiEntryPreferences();
+
+        final LongPressWifiEntryPreference updated = category.findPreference(WIFI_ENTRY_KEY);
+        assertThat(updated).isNotSameInstanceAs(preference);
+        assertThat(updated.getWifiEntry()).isSameInstanceAs(newEntry);
+    }
+
+    @Test
+    public void onWifiEntriesChanged_burstWhileScanning_updateOncePerFrame() {
+        final View fragmentView = mock(View.class);
+        doReturn(fragmentView).when(mNetworkProviderSettings).getView();
+        doNothing().when(mNetworkProviderSettings).setProgressBarVisible(anyBoolean());
+        doNothing().when(mNetworkProviderSettings).updateWifiEntryPreferences();
+        doReturn(false).when(mNetworkProviderSettings).getDataEnabled();
+        mNetworkProviderSettings.onScanRequested();
+
+        mNetworkProviderSettings.onWifiEntriesChanged(
+                WifiPickerTracker.WIFI_ENTRIES_CHANGED_REASON_GENERAL);
+        mNetworkProviderSettings.onWifiEntriesChanged(
+                WifiPickerTracker.WIFI_ENTRIES_CHANGED_REASON_GENERAL);
+        mNetworkProviderSettings.onWifiEntriesChanged(
+                WifiPickerTracker.WIFI_ENTRIES_CHANGED_REASON_GENERAL);
+
+        verify(mNetworkProviderSettings, never()).updateWifiEntryPreferences();
+        verify(fragmentView, times(1))
+                .postOnAnimation(mNetworkProviderSettings.mApplyWifiEntryUpdateRunnable);
+
+        mNetworkProviderSettings.mApplyWifiEntryUpdateRunnable.run();
+
+        verify(mNetworkProviderSettings, times(1)).updateWifiEntryPreferences();
+    }
+
+    /**
+     * Sets up an attached, unrestricted fragment with Wi-Fi on and returns the category the
+     * Wi-Fi entry preferences are added to.
+     */
+    private PreferenceCategory setUpForUpdateWifiEntryPreferences() {
+        doReturn(mock(FragmentActivity.class)).when(mNetworkProviderSettings).getActivity();
+        doReturn(mock(View.class)).when(mNetworkProviderSettings).getView();
+        doNothing().when(mNetworkProviderSettings).setAdditionalSettingsSummaries();
+        when(mMockWifiPickerTracker.getWifiState()).thenReturn(WifiManager.WIFI_STATE_ENABLED);
+        final PreferenceScreen screen =
+                new PreferenceManager(mContext).createPreferenceScreen(mContext);
+        final PreferenceCategory category = new PreferenceCategory(mContext);
+        screen.addPreference(category);
+        doReturn(screen).when(mNetworkProviderSettings).getPreferenceScreen();
+        mNetworkProviderSettings.mWifiEntryPreferenceCategory = category;
+        return category;
+    }
+
     @Test
     public void setWifiScanMessage_wifiOnScanOn_footerIsInvisible() {
         when(mWifiManager.isScanAlwaysAvailable()).thenReturn(true);
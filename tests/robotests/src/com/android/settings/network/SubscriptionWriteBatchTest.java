@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import androidx.room.RoomDatabase;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class SubscriptionWriteBatchTest {
+
+    private static final int SUB_ID = 1;
+
+    @Rule
+    public final MockitoRule mMockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private RoomDatabase mDatabase;
+
+    private final List<String> mEvents = new ArrayList<>();
+    private SubscriptionWriteBatch mBatch;
+
+    @Before
+    public void setUp() {
+        doAnswer(invocation -> {
+            mEvents.add("begin");
+            ((Runnable) invocation.getArgument(0)).run();
+            mEvents.add("commit");
+            return null;
+        }).when(mDatabase).runInTransaction(any(Runnable.class));
+        mBatch = new SubscriptionWriteBatch();
+    }
+
+    @Test
+    public void apply_shouldReturnRowCount() {
+        mBatch.write(1, () -> {});
+        mBatch.write(3, () -> {});
+
+        assertThat(mBatch.apply(mDatabase)).isEqualTo(4);
+    }
+
+    @Test
+    public void apply_shouldRunCommitActionsAfterTransaction() {
+        mBatch.write(1, () -> mEvents.add("write"));
+        mBatch.onCommit(() -> mEvents.add("cache"));
+
+        mBatch.apply(mDatabase);
+
+        assertThat(mEvents).containsExactly("begin", "write", "commit", "cache").inOrder();
+    }
+
+    @Test
+    public void apply_transactionFailed_shouldNotRunCommitActions() {
+        doThrow(new IllegalStateException()).when(mDatabase).runInTransaction(any(Runnable.class));
+        mBatch.write(1, () -> {});
+        mBatch.onCommit(() -> mEvents.add("cache"));
+
+        assertThrows(IllegalStateException.class, () -> mBatch.apply(mDatabase));
+
+        assertThat(mEvents).isEmpty();
+    }
+
+    @Test
+    public void apply_noWrites_shouldNotStartTransaction() {
+        mBatch.onCommit(() -> mEvents.add("cache"));
+
+        assertThat(mBatch.apply(mDatabase)).isEqualTo(0);
+
+        verify(mDatabase, never()).runInTransaction(any(Runnable.class));
+        assertThat(mEvents).containsExactly("cache");
+    }
+
+    @Test
+    public void isDeleted_shouldReturnMarkedSubscriptions() {
+        mBatch.markDeleted(SUB_ID);
+
+        assertThat(mBatch.isDeleted(SUB_ID)).isTrue();
+        assertThat(mBatch.isDeleted(SUB_ID + 1)).isFalse();
+    }
+}
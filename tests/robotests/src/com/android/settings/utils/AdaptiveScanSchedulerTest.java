@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class AdaptiveScanSchedulerTest {
+
+    private static final long MIN_INTERVAL_MILLIS = 1_000;
+    private static final long MAX_INTERVAL_MILLIS = 8_000;
+
+    private Context mContext;
+    private AdaptiveScanScheduler mScheduler;
+    private int mScansStarted;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mScheduler = new AdaptiveScanScheduler("Test", mContext,
+                new Handler(Looper.getMainLooper()), MIN_INTERVAL_MILLIS, MAX_INTERVAL_MILLIS,
+                () -> {
+                    mScansStarted++;
+                    return true;
+                });
+        mScheduler.start();
+    }
+
+    @After
+    public void tearDown() {
+        mScheduler.stop();
+    }
+
+    @Test
+    public void onScanResults_sameResults_backsOffUpToMax() {
+        for (int i = 0; i < 5; i++) {
+            mScheduler.onScanResults(ImmutableSet.of("a", "b"));
+        }
+
+        assertThat(mScheduler.getIntervalMillis()).isEqualTo(MAX_INTERVAL_MILLIS);
+    }
+
+    @Test
+    public void onScanResults_changedResults_resetsIntervalAndCountsChurn() {
+        mScheduler.onScanResults(ImmutableSet.of("a", "b"));
+        mScheduler.onScanResults(ImmutableSet.of("a", "b"));
+
+        mScheduler.onScanResults(ImmutableSet.of("a", "c"));
+
+        assertThat(mScheduler.getIntervalMillis()).isEqualTo(MIN_INTERVAL_MILLIS);
+        // "a" and "b" added, then "b" removed and "c" added.
+        assertThat(mScheduler.getResultChurn()).isEqualTo(4);
+    }
+
+    @Test
+    public void onScanResults_scansAgainAfterInterval() {
+        mScheduler.onScanResults(ImmutableSet.of("a"));
+        mScheduler.onScanResults(ImmutableSet.of("a"));
+
+        ShadowLooper.idleMainLooper(MIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        assertThat(mScansStarted).isEqualTo(0);
+
+        ShadowLooper.idleMainLooper(MIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        assertThat(mScansStarted).isEqualTo(1);
+        assertThat(mScheduler.getScanCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void onUserInteraction_bringsNextScanForward() {
+        for (int i = 0; i < 5; i++) {
+            mScheduler.onScanResults(ImmutableSet.of("a"));
+        }
+
+        mScheduler.onUserInteraction();
+        ShadowLooper.idleMainLooper(MIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+        assertThat(mScansStarted).isEqualTo(1);
+    }
+
+    @Test
+    public void screenOff_pausesScans() {
+        mScheduler.onScanResults(ImmutableSet.of("a"));
+
+        mScheduler.mScreenReceiver.onReceive(mContext, new Intent(Intent.ACTION_SCREEN_OFF));
+        ShadowLooper.idleMainLooper(MAX_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+        assertThat(mScansStarted).isEqualTo(0);
+    }
+
+    @Test
+    public void screenOn_scansRightAway() {
+        mScheduler.mScreenReceiver.onReceive(mContext, new Intent(Intent.ACTION_SCREEN_OFF));
+
+        mScheduler.mScreenReceiver.onReceive(mContext, new Intent(Intent.ACTION_SCREEN_ON));
+
+        assertThat(mScansStarted).isEqualTo(1);
+    }
+
+    @Test
+    public void onScanStarted_scanInFlight_countsOnce() {
+        mScheduler.onScanStarted();
+        mScheduler.onScanStarted();
+
+        assertThat(mScheduler.getScanCount()).isEqualTo(1);
+    }
+}
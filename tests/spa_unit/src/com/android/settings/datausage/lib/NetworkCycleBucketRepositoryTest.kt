@@ -45,7 +45,7 @@ class NetworkCycleBucketRepositoryTest {
     private fun createRepository(buckets: List<Bucket>) = NetworkCycleBucketRepository(
         context = context,
         networkTemplate = template,
-        buckets = buckets,
+        index = NetworkUsageIndex.build(buckets),
         networkCycleDataRepository = mockNetworkCycleDataRepository,
     )
 
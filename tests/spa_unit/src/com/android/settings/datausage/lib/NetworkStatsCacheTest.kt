@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage.lib
+
+import android.net.NetworkTemplate
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.Bucket
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.mock
+
+@RunWith(AndroidJUnit4::class)
+class NetworkStatsCacheTest {
+    private val template = mock<NetworkTemplate>()
+    private var now = 0L
+    private val cache = NetworkStatsCache({ now }, { WALL_TIME })
+
+    @Test
+    fun getDeviceBuckets_fresh_queriesOnce() {
+        var queries = 0
+
+        repeat(3) {
+            cache.getDeviceBuckets(template, queryAll = {
+                queries++
+                listOf(BUCKET_1)
+            }, queryFrom = { error("unexpected tail query") })
+        }
+
+        assertThat(queries).isEqualTo(1)
+    }
+
+    @Test
+    fun getDeviceBuckets_expired_refreshesTailOnly() {
+        cache.getDeviceBuckets(template, queryAll = { listOf(BUCKET_1, BUCKET_2) },
+            queryFrom = { error("unexpected tail query") })
+        now += NetworkStatsCache.MAX_AGE_MILLIS
+        var tailStart: Long? = null
+
+        val buckets = cache.getDeviceBuckets(template,
+            queryAll = { error("unexpected full query") },
+            queryFrom = {
+                tailStart = it
+                listOf(BUCKET_2.copy(bytes = 30), BUCKET_3)
+            })
+
+        assertThat(tailStart).isEqualTo(BUCKET_2.startTimeStamp)
+        assertThat(buckets).containsExactly(BUCKET_1, BUCKET_2.copy(bytes = 30), BUCKET_3)
+            .inOrder()
+    }
+
+    @Test
+    fun getOrQuery_sameKey_queriesOnce() {
+        var queries = 0
+
+        repeat(3) {
+            cache.getOrQuery(template, KEY, PAST_END_TIME) { ++queries }
+        }
+
+        assertThat(queries).isEqualTo(1)
+    }
+
+    @Test
+    fun getOrQuery_expired_queriesAgain() {
+        cache.getOrQuery(template, KEY, PAST_END_TIME) { 1 }
+        now += NetworkStatsCache.MAX_AGE_MILLIS
+
+        val result = cache.getOrQuery(template, KEY, PAST_END_TIME) { 2 }
+
+        assertThat(result).isEqualTo(2)
+    }
+
+    @Test
+    fun getOrQuery_otherTemplate_queriesAgain() {
+        cache.getOrQuery(template, KEY, PAST_END_TIME) { 1 }
+
+        val result = cache.getOrQuery(mock<NetworkTemplate>(), KEY, PAST_END_TIME) { 2 }
+
+        assertThat(result).isEqualTo(2)
+    }
+
+    @Test
+    fun getOrQuery_rangeEndsInFuture_keptBriefly() {
+        cache.getOrQuery(template, KEY, FUTURE_END_TIME) { 1 }
+        now += NetworkStatsCache.OPEN_RANGE_MAX_AGE_MILLIS - 1
+        val fresh = cache.getOrQuery(template, KEY, FUTURE_END_TIME) { 2 }
+        now += 1
+
+        val expired = cache.getOrQuery(template, KEY, FUTURE_END_TIME) { 3 }
+
+        assertThat(fresh).isEqualTo(1)
+        assertThat(expired).isEqualTo(3)
+    }
+
+    @Test
+    fun getOrQuery_queryThrows_nothingCached() {
+        runCatching { cache.getOrQuery<Int>(template, KEY, PAST_END_TIME) { error("failed") } }
+
+        val result = cache.getOrQuery(template, KEY, PAST_END_TIME) { 2 }
+
+        assertThat(result).isEqualTo(2)
+    }
+
+    @Test
+    fun invalidate_queriesAgain() {
+        cache.getOrQuery(template, KEY, PAST_END_TIME) { 1 }
+
+        cache.invalidate()
+        val result = cache.getOrQuery(template, KEY, PAST_END_TIME) { 2 }
+
+        assertThat(result).isEqualTo(2)
+    }
+
+    private companion object {
+        const val KEY = "key"
+        const val WALL_TIME = 1_000_000L
+        const val PAST_END_TIME = WALL_TIME - 1
+        const val FUTURE_END_TIME = WALL_TIME + 1
+
+        val BUCKET_1 = Bucket(uid = 0, bytes = 10, startTimeStamp = 0, endTimeStamp = 10)
+        val BUCKET_2 = Bucket(uid = 0, bytes = 20, startTimeStamp = 10, endTimeStamp = 20)
+        val BUCKET_3 = Bucket(uid = 0, bytes = 5, startTimeStamp = 20, endTimeStamp = 30)
+    }
+}
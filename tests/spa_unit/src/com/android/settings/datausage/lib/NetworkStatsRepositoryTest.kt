@@ -38,6 +38,7 @@ class NetworkStatsRepositoryTest {
     }
 
     private val context: Context = spy(ApplicationProvider.getApplicationContext()) {
+        on { applicationContext } doReturn it
         on { getSystemService(NetworkStatsManager::class.java) } doReturn mockNetworkStatsManager
     }
 
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage.lib
+
+import android.util.Range
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.Bucket
+import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.aggregate
+import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.filterTime
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class NetworkUsageIndexTest {
+
+    @Test
+    fun empty() {
+        val index = NetworkUsageIndex.EMPTY
+
+        assertThat(index.timeRange).isNull()
+        assertThat(index.queryUsage(0, Long.MAX_VALUE)).isEqualTo(0)
+    }
+
+    @Test
+    fun timeRange() {
+        val index = NetworkUsageIndex.build(BUCKETS)
+
+        assertThat(index.timeRange).isEqualTo(Range(0L, 40L))
+    }
+
+    @Test
+    fun queryUsage_sameAsFilterTime() {
+        val index = NetworkUsageIndex.build(BUCKETS.shuffled())
+
+        for (startTime in -5L..45L step 5) {
+            for (endTime in startTime..45L step 5) {
+                assertThat(index.queryUsage(startTime, endTime))
+                    .isEqualTo(BUCKETS.filterTime(startTime, endTime).aggregate()?.usage ?: 0)
+            }
+        }
+    }
+
+    @Test
+    fun queryUsage_range() {
+        val index = NetworkUsageIndex.build(BUCKETS)
+
+        val usage = index.queryUsage(Range(10L, 30L))
+
+        assertThat(usage).isEqualTo(NetworkUsageData(startTime = 10, endTime = 30, usage = 5))
+    }
+
+    @Test
+    fun update_lastBucketGrewAndNewBucket() {
+        val index = NetworkUsageIndex.build(BUCKETS)
+
+        val updated = index.update(
+            BUCKETS.dropLast(1) + BUCKETS.last().copy(bytes = 100) + Bucket(
+                uid = 0,
+                bytes = 7,
+                startTimeStamp = 40,
+                endTimeStamp = 50,
+            )
+        )
+
+        assertThat(updated.size).isEqualTo(5)
+        assertThat(updated.queryUsage(30, 40)).isEqualTo(100)
+        assertThat(updated.queryUsage(0, 50)).isEqualTo(1 + 2 + 3 + 100 + 7)
+    }
+
+    @Test
+    fun update_historyReset_rebuilds() {
+        val index = NetworkUsageIndex.build(BUCKETS)
+
+        val updated = index.update(
+            listOf(Bucket(uid = 0, bytes = 9, startTimeStamp = 20, endTimeStamp = 30))
+        )
+
+        assertThat(updated.size).isEqualTo(1)
+        assertThat(updated.queryUsage(0, 40)).isEqualTo(9)
+    }
+
+    @Test
+    fun update_middleBucketChanged_rebuilds() {
+        val index = NetworkUsageIndex.build(BUCKETS)
+        val newBuckets = BUCKETS.toMutableList().apply { this[1] = this[1].copy(bytes = 20) }
+
+        val updated = index.update(newBuckets)
+
+        assertThat(updated.queryUsage(10, 20)).isEqualTo(20)
+        assertThat(updated.queryUsage(0, 40)).isEqualTo(newBuckets.sumOf { it.bytes })
+    }
+
+    private companion object {
+        val BUCKETS = listOf(
+            Bucket(uid = 0, bytes = 1, startTimeStamp = 0, endTimeStamp = 10),
+            Bucket(uid = 0, bytes = 2, startTimeStamp = 10, endTimeStamp = 20),
+            Bucket(uid = 0, bytes = 3, startTimeStamp = 20, endTimeStamp = 30),
+            Bucket(uid = 0, bytes = 4, startTimeStamp = 30, endTimeStamp = 40),
+        )
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network.apn
+
+import android.content.ContentResolver
+import android.content.Context
+import android.database.MatrixCursor
+import android.net.Uri
+import android.provider.Telephony
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.android.settingslib.spa.testutils.toListWithTimeout
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.runBlocking
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.any
+import org.mockito.kotlin.anyOrNull
+import org.mockito.kotlin.argThat
+import org.mockito.kotlin.doAnswer
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.eq
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.spy
+import org.mockito.kotlin.stub
+
+@RunWith(AndroidJUnit4::class)
+class ApnListRepositoryTest {
+
+    private val contentResolver = mock<ContentResolver>()
+
+    private val context: Context = spy(ApplicationProvider.getApplicationContext()) {
+        on { contentResolver } doReturn contentResolver
+    }
+
+    private val repository = ApnListRepository(context, SUB_ID)
+
+    @Test
+    fun apnListFlow_lastEmissionHasAllRows() = runBlocking {
+        stubQuery(rowCount = 45)
+
+        val lists = repository.apnListFlow(hideImsApn = false).toListWithTimeout()
+
+        assertThat(lists.last().map { it.id }).containsExactlyElementsIn(
+            (0 until 45).map { "$it" }
+        ).inOrder()
+        assertThat(lists.last().first()).isEqualTo(
+            ApnListItem(
+                id = "0",
+                name = "Name 0",
+                apn = "apn0",
+                type = "default,supl",
+                mvnoType = "gid",
+                mvnoMatchData = "ff",
+                edited = Telephony.Carriers.UNEDITED,
+            )
+        )
+    }
+
+    @Test
+    fun apnListFlow_pagesArePrefixesOfLastEmission() = runBlocking {
+        stubQuery(rowCount = 45)
+
+        val lists = repository.apnListFlow(hideImsApn = false).toListWithTimeout()
+
+        for (list in lists) {
+            assertThat(lists.last().subList(0, list.size)).isEqualTo(list)
+        }
+    }
+
+    @Test
+    fun apnListFlow_hideImsApn_excludedInQuery() = runBlocking {
+        contentResolver.stub {
+            on {
+                query(
+                    eq(Uri.parse("content://telephony/carriers/sim_apn_list/2")),
+                    any(),
+                    argThat<String> { contains("NOT (type='ims')") },
+                    anyOrNull(),
+                    anyOrNull(),
+                )
+            } doAnswer { createCursor(rowCount = 1) }
+        }
+
+        val lists = repository.apnListFlow(hideImsApn = true).toListWithTimeout()
+
+        assertThat(lists.last()).hasSize(1)
+    }
+
+    @Test
+    fun isDefaultSelectable() {
+        val item = ApnListItem(
+            id = "1",
+            name = null,
+            apn = null,
+            type = null,
+            mvnoType = null,
+            mvnoMatchData = null,
+            edited = Telephony.Carriers.UNEDITED,
+        )
+
+        assertThat(item.isDefaultSelectable).isTrue()
+        assertThat(item.copy(type = "default,mms").isDefaultSelectable).isTrue()
+        assertThat(item.copy(type = "mms").isDefaultSelectable).isFalse()
+    }
+
+    private fun stubQuery(rowCount: Int) {
+        contentResolver.stub {
+            on {
+                query(
+                    eq(Uri.parse("content://telephony/carriers/sim_apn_list/2")),
+                    any(),
+                    any(),
+                    anyOrNull(),
+                    anyOrNull(),
+                )
+            } doAnswer { createCursor(rowCount) }
+        }
+    }
+
+    private fun createCursor(rowCount: Int) = MatrixCursor(
+        arrayOf(
+            Telephony.Carriers._ID,
+            Telephony.Carriers.NAME,
+            Telephony.Carriers.APN,
+            Telephony.Carriers.TYPE,
+            Telephony.Carriers.MVNO_TYPE,
+            Telephony.Carriers.MVNO_MATCH_DATA,
+            Telephony.Carriers.EDITED_STATUS,
+        )
+    ).apply {
+        for (i in 0 until rowCount) {
+            addRow(
+                arrayOf(
+                    "$i", "Name $i", "apn$i", "default,supl", "gid", "ff",
+                    Telephony.Carriers.UNEDITED,
+                )
+            )
+        }
+    }
+
+    private companion object {
+        const val SUB_ID = 2
+    }
+}
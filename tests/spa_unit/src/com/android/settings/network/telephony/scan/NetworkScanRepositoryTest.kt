@@ -189,6 +189,33 @@ class NetworkScanRepositoryTest {
         )
     }
 
+    @Test
+    fun networkScanFlow_multipleBatches_mergedInPlace(): Unit = runBlocking {
+        val listDeferred = async {
+            repository.networkScanFlow().toListWithTimeout()
+        }
+        delay(100)
+
+        callback?.onResults(
+            listOf(createCellInfoLte("123", false), createCellInfoGsm("456", false))
+        )
+        delay(100)
+        callback?.onResults(
+            listOf(createCellInfoLte("789", false), createCellInfoGsm("456", false))
+        )
+
+        assertThat(listDeferred.await().last()).isEqualTo(
+            NetworkScanRepository.NetworkScanResult(
+                state = NetworkScanRepository.NetworkScanState.ACTIVE,
+                cellInfos = listOf(
+                    createCellInfoLte("123", false),
+                    createCellInfoGsm("456", false),
+                    createCellInfoLte("789", false),
+                ),
+            )
+        )
+    }
+
     @Test
     fun createNetworkScan_deviceHasNrSa_requestNgran(): Unit = runBlocking {
         mockTelephonyManager.stub {
@@ -18,33 +18,43 @@ package com.android.settings.deviceinfo.storage;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
+import android.content.pm.ChangedPackages;
 import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
 import android.content.pm.UserInfo;
 import android.content.res.Resources;
 import android.os.UserHandle;
 import android.os.UserManager;
+import android.provider.MediaStore;
+import android.provider.Settings;
 import android.util.DataUnit;
 import android.util.SparseArray;
+import android.util.SparseIntArray;
 
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.filters.SmallTest;
+import androidx.test.platform.app.InstrumentationRegistry;
 import androidx.test.runner.AndroidJUnit4;
 
 import com.android.settings.R;
 import com.android.settingslib.applications.StorageStatsSource;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -53,6 +63,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 @RunWith(AndroidJUnit4.class)
@@ -64,6 +75,9 @@ public class StorageAsyncLoaderTest {
     private static final String PACKAGE_NAME_2 = "com.blah.test2";
     private static final String PACKAGE_NAME_3 = "com.blah.test3";
     private static final long DEFAULT_QUOTA = DataUnit.MEBIBYTES.toBytes(64);
+    private static final String FS_UUID = "id";
+    private static final int PACKAGE_SEQUENCE = 5;
+    private static final long SNAPSHOT_GAMES_SIZE = 12345L;
 
     @Mock
     private StorageStatsSource mSource;
@@ -71,19 +85,27 @@ public class StorageAsyncLoaderTest {
     @Mock
     private PackageManager mPackageManager;
     @Mock
+    private PackageManager mProfilePackageManager;
+    @Mock
     private UserManager mUserManager;
     private List<ApplicationInfo> mInfo = new ArrayList<>();
     private List<UserInfo> mUsers;
 
     private StorageAsyncLoader mLoader;
-
+    private StorageCacheHelper mCacheHelper;
 
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
         mContext = spy(ApplicationProvider.getApplicationContext());
         mInfo = new ArrayList<>();
-        mLoader = new StorageAsyncLoader(mContext, mUserManager, "id", mSource, mPackageManager);
+        mLoader = spy(new StorageAsyncLoader(mContext, mUserManager, FS_UUID, mSource,
+                mPackageManager, PRIMARY_USER_ID));
+        doReturn(mPackageManager).when(mLoader).getPackageManagerForUser(PRIMARY_USER_ID);
+        doReturn(mProfilePackageManager).when(mLoader)
+                .getPackageManagerForUser(SECONDARY_USER_ID);
+        mCacheHelper = new StorageCacheHelper(mContext, PRIMARY_USER_ID);
+        mCacheHelper.deleteSnapshot(FS_UUID);
         when(mPackageManager.getInstalledApplicationsAsUser(eq(PRIMARY_USER_ID), anyInt()))
                 .thenReturn(mInfo);
         UserInfo info = new UserInfo();
@@ -210,6 +232,140 @@ public class StorageAsyncLoaderTest {
         assertThat(result.get(PRIMARY_USER_ID).allAppsExceptGamesSize).isEqualTo(33L);
     }
 
+    @Test
+    public void testSharedUidQueriesCacheQuotaOnce() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        addPackage(PACKAGE_NAME_2, 0, 100, 1000, ApplicationInfo.CATEGORY_GAME);
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = mLoader.loadInBackground();
+
+        assertThat(result.get(PRIMARY_USER_ID).allAppsExceptGamesSize).isEqualTo(11L);
+        assertThat(result.get(PRIMARY_USER_ID).gamesSize).isEqualTo(1100L);
+        verify(mSource, times(1)).getCacheQuotaBytes(anyString(), anyInt());
+    }
+
+    @Test
+    public void testPartialResultListenerIsNotified() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        final List<Integer> notifiedUsers = new ArrayList<>();
+        mLoader.setPartialResultListener((userId, result) -> notifiedUsers.add(userId));
+
+        mLoader.loadInBackground();
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        assertThat(notifiedUsers).containsExactly(PRIMARY_USER_ID);
+    }
+
+    @After
+    public void tearDown() {
+        mCacheHelper.deleteSnapshot(FS_UUID);
+    }
+
+    @Test
+    public void loadInBackground_nothingChanged_shouldReturnSnapshot() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        cacheSnapshot(getBootCount(), MediaStore.getGeneration(mContext,
+                MediaStore.VOLUME_EXTERNAL_PRIMARY));
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = mLoader.loadInBackground();
+
+        assertThat(result.get(PRIMARY_USER_ID).gamesSize).isEqualTo(SNAPSHOT_GAMES_SIZE);
+        verify(mSource, never()).getStatsForPackage(anyString(), anyString(),
+                any(UserHandle.class));
+    }
+
+    @Test
+    public void loadInBackground_packagesChanged_shouldLoadAndCacheSnapshot() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_GAME);
+        cacheSnapshot(getBootCount(), MediaStore.getGeneration(mContext,
+                MediaStore.VOLUME_EXTERNAL_PRIMARY));
+        when(mPackageManager.getChangedPackages(PACKAGE_SEQUENCE)).thenReturn(
+                new ChangedPackages(PACKAGE_SEQUENCE + 1, Arrays.asList(PACKAGE_NAME_1)));
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = mLoader.loadInBackground();
+
+        assertThat(result.get(PRIMARY_USER_ID).gamesSize).isEqualTo(11L);
+        final StorageCacheHelper.StorageSnapshot snapshot = mCacheHelper.retrieveSnapshot(FS_UUID);
+        assertThat(snapshot.packageSequences.get(PRIMARY_USER_ID))
+                .isEqualTo(PACKAGE_SEQUENCE + 1);
+        assertThat(snapshot.results.get(PRIMARY_USER_ID).gamesSize).isEqualTo(11L);
+    }
+
+    @Test
+    public void loadInBackground_profilePackagesChanged_shouldLoadAndCacheSnapshot()
+            throws Exception {
+        final UserInfo profile = new UserInfo();
+        profile.id = SECONDARY_USER_ID;
+        mUsers.add(profile);
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_GAME);
+        cacheSnapshot(getBootCount(), MediaStore.getGeneration(mContext,
+                MediaStore.VOLUME_EXTERNAL_PRIMARY), SECONDARY_USER_ID);
+        when(mProfilePackageManager.getChangedPackages(PACKAGE_SEQUENCE)).thenReturn(
+                new ChangedPackages(PACKAGE_SEQUENCE + 1, Arrays.asList(PACKAGE_NAME_1)));
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = mLoader.loadInBackground();
+
+        // Only the profile reported a change, the calling user's package manager did not.
+        verify(mPackageManager).getChangedPackages(PACKAGE_SEQUENCE);
+        assertThat(result.get(PRIMARY_USER_ID).gamesSize).isEqualTo(11L);
+        final StorageCacheHelper.StorageSnapshot snapshot = mCacheHelper.retrieveSnapshot(FS_UUID);
+        assertThat(snapshot.packageSequences.get(PRIMARY_USER_ID)).isEqualTo(PACKAGE_SEQUENCE);
+        assertThat(snapshot.packageSequences.get(SECONDARY_USER_ID))
+                .isEqualTo(PACKAGE_SEQUENCE + 1);
+    }
+
+    @Test
+    public void loadInBackground_mediaChanged_shouldNotReturnSnapshot() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_GAME);
+        cacheSnapshot(getBootCount(), MediaStore.getGeneration(mContext,
+                MediaStore.VOLUME_EXTERNAL_PRIMARY) - 1);
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = mLoader.loadInBackground();
+
+        assertThat(result.get(PRIMARY_USER_ID).gamesSize).isEqualTo(11L);
+    }
+
+    @Test
+    public void loadInBackground_snapshotOfPreviousBoot_shouldBeInvalidated() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_GAME);
+        final int bootCount = getBootCount();
+        cacheSnapshot(bootCount - 1, MediaStore.getGeneration(mContext,
+                MediaStore.VOLUME_EXTERNAL_PRIMARY));
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = mLoader.loadInBackground();
+
+        assertThat(result.get(PRIMARY_USER_ID).gamesSize).isEqualTo(11L);
+        // Sequence numbers of the previous boot are meaningless, changes since boot are read.
+        verify(mPackageManager, never()).getChangedPackages(PACKAGE_SEQUENCE);
+        verify(mPackageManager).getChangedPackages(0);
+        assertThat(mCacheHelper.retrieveSnapshot(FS_UUID).bootCount).isEqualTo(bootCount);
+    }
+
+    private int getBootCount() {
+        final int bootCount = Settings.Global.getInt(mContext.getContentResolver(),
+                Settings.Global.BOOT_COUNT, -1);
+        assumeTrue(bootCount > 0);
+        return bootCount;
+    }
+
+    private void cacheSnapshot(int bootCount, long mediaGeneration, int... otherUserIds) {
+        final SparseIntArray packageSequences = new SparseIntArray();
+        final SparseArray<StorageAsyncLoader.StorageResult> results = new SparseArray<>();
+        final int[] userIds = new int[otherUserIds.length + 1];
+        userIds[0] = PRIMARY_USER_ID;
+        System.arraycopy(otherUserIds, 0, userIds, 1, otherUserIds.length);
+        for (int userId : userIds) {
+            final StorageAsyncLoader.StorageResult result =
+                    new StorageAsyncLoader.StorageResult();
+            result.gamesSize = SNAPSHOT_GAMES_SIZE;
+            result.mediaGeneration = mediaGeneration;
+            results.put(userId, result);
+            packageSequences.put(userId, PACKAGE_SEQUENCE);
+        }
+        mCacheHelper.cacheSnapshot(FS_UUID, new StorageCacheHelper.StorageSnapshot(
+                System.currentTimeMillis(), bootCount, packageSequences, results));
+    }
+
     private ApplicationInfo addPackage(String packageName, long cacheSize, long codeSize,
             long dataSize, int category) throws Exception {
         StorageStatsSource.AppStorageStats storageStats =
@@ -18,6 +18,7 @@ package com.android.settings.homepage.contextualcards;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
@@ -30,6 +31,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.List;
+
 @RunWith(AndroidJUnit4.class)
 public class CardDatabaseHelperTest {
 
@@ -70,4 +73,110 @@ public class CardDatabaseHelperTest {
         assertThat(columnNames).isEqualTo(expectedNames);
         cursor.close();
     }
+
+    @Test
+    public void getCards_tableNotWritten_shouldReturnSameCards() {
+        insertCard("card1", 0.5, null /* dismissedTime */);
+
+        final List<ContentValues> cards = mCardDatabaseHelper.getCards();
+
+        assertThat(mCardDatabaseHelper.getCards()).isSameInstanceAs(cards);
+    }
+
+    @Test
+    public void queryCards_shouldFilterAndSortByScore() {
+        insertCard("card1", 0.5, null /* dismissedTime */);
+        insertCard("card2", 0.1, 100L);
+        insertCard("card3", 0.9, null /* dismissedTime */);
+
+        try (Cursor cursor = mCardDatabaseHelper.queryCards(null /* projection */,
+                card -> card.getAsLong(CardDatabaseHelper.CardColumns.DISMISSED_TIMESTAMP)
+                        == null)) {
+            assertThat(cursor.getColumnNames()).isEqualTo(CardDatabaseHelper.CARD_COLUMNS);
+            assertThat(cursor.getCount()).isEqualTo(2);
+            cursor.moveToFirst();
+            assertThat(new ContextualCard(cursor).getName()).isEqualTo("card3");
+            cursor.moveToNext();
+            assertThat(new ContextualCard(cursor).getName()).isEqualTo("card1");
+        }
+    }
+
+    @Test
+    public void markCardAsDismissed_shouldUpdateCardsAndDatabase() {
+        insertCard("card1", 0.5, null /* dismissedTime */);
+        mCardDatabaseHelper.getCards();
+
+        assertThat(mCardDatabaseHelper.markCardAsDismissed("card1", 100L)).isEqualTo(1);
+
+        assertThat(mCardDatabaseHelper.getCards().get(0)
+                .getAsLong(CardDatabaseHelper.CardColumns.DISMISSED_TIMESTAMP)).isEqualTo(100L);
+        assertThat(queryDismissedTime("card1")).isEqualTo(100L);
+    }
+
+    @Test
+    public void resetDismissedTime_durationExpired_shouldResetToNull() {
+        insertCard("card1", 0.5, 100L);
+
+        assertThat(mCardDatabaseHelper.resetDismissedTime(1000L)).isEqualTo(1);
+
+        assertThat(mCardDatabaseHelper.getCards().get(0)
+                .getAsLong(CardDatabaseHelper.CardColumns.DISMISSED_TIMESTAMP)).isNull();
+        assertThat(queryDismissedTime("card1")).isNull();
+    }
+
+    @Test
+    public void resetDismissedTime_durationNotExpired_shouldNotUpdate() {
+        insertCard("card1", 0.5, 1111L);
+
+        assertThat(mCardDatabaseHelper.resetDismissedTime(1000L)).isEqualTo(0);
+
+        assertThat(queryDismissedTime("card1")).isEqualTo(1111L);
+    }
+
+    @Test
+    public void getCards_nullScore_shouldSortLast() {
+        insertCard("card1", null /* score */, null /* dismissedTime */);
+        insertCard("card2", 0.1, null /* dismissedTime */);
+
+        final List<ContentValues> cards = mCardDatabaseHelper.getCards();
+
+        assertThat(cards).hasSize(2);
+        assertThat(cards.get(0).getAsString(CardDatabaseHelper.CardColumns.NAME))
+                .isEqualTo("card2");
+        assertThat(cards.get(1).getAsString(CardDatabaseHelper.CardColumns.NAME))
+                .isEqualTo("card1");
+    }
+
+    @Test
+    public void invalidateCards_shouldReadNewRows() {
+        mCardDatabaseHelper.getCards();
+        insertCard("card1", 0.5, null /* dismissedTime */);
+
+        mCardDatabaseHelper.invalidateCards();
+
+        assertThat(mCardDatabaseHelper.getCards()).hasSize(1);
+    }
+
+    private void insertCard(String name, Double score, Long dismissedTime) {
+        final ContentValues values = new ContentValues();
+        values.put(CardDatabaseHelper.CardColumns.NAME, name);
+        values.put(CardDatabaseHelper.CardColumns.TYPE, ContextualCard.CardType.SLICE);
+        values.put(CardDatabaseHelper.CardColumns.SCORE, score);
+        values.put(CardDatabaseHelper.CardColumns.SLICE_URI, "content://test/" + name);
+        values.put(CardDatabaseHelper.CardColumns.PACKAGE_NAME, mContext.getPackageName());
+        values.put(CardDatabaseHelper.CardColumns.APP_VERSION, 1);
+        values.put(CardDatabaseHelper.CardColumns.DISMISSED_TIMESTAMP, dismissedTime);
+        mCardDatabaseHelper.getWritableDatabase().insert(CardDatabaseHelper.CARD_TABLE,
+                null /* nullColumnHack */, values);
+    }
+
+    private Long queryDismissedTime(String name) {
+        try (Cursor cursor = mDatabase.query(CardDatabaseHelper.CARD_TABLE,
+                new String[] {CardDatabaseHelper.CardColumns.DISMISSED_TIMESTAMP},
+                CardDatabaseHelper.CardColumns.NAME + " = ?", new String[] {name},
+                null /* groupBy */, null /* having */, null /* orderBy */)) {
+            cursor.moveToFirst();
+            return cursor.isNull(0) ? null : cursor.getLong(0);
+        }
+    }
 }
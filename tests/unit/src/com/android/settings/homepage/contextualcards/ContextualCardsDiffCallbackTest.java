@@ -104,6 +104,40 @@ public class ContextualCardsDiffCallbackTest {
         assertThat(mDiffCallback.areContentsTheSame(0, 0)).isFalse();
     }
 
+    @Test
+    public void areContentsTheSame_differentViewType_returnFalse() {
+        final ContextualCard card = getContextualCard("test1").mutate()
+                .setViewType(mOldCards.get(0).getViewType() + 1).build();
+        mNewCards.add(0, card);
+
+        assertThat(mDiffCallback.areContentsTheSame(0, 0)).isFalse();
+    }
+
+    @Test
+    public void getChangePayload_sameSliceAndLayout_returnUpdateInPlace() {
+        assertThat(mDiffCallback.getChangePayload(0, 0))
+                .isEqualTo(ContextualCardsDiffCallback.PAYLOAD_UPDATE_IN_PLACE);
+    }
+
+    @Test
+    public void getChangePayload_largeCardChanged_returnNull() {
+        final ContextualCard card = getContextualCard("test1").mutate()
+                .setIsLargeCard(true).build();
+        mNewCards.add(0, card);
+
+        assertThat(mDiffCallback.getChangePayload(0, 0)).isNull();
+    }
+
+    @Test
+    public void getChangePayload_sliceUriChanged_returnNull() {
+        final ContextualCard card = getContextualCard("test1").mutate()
+                .setSliceUri(Uri.parse("content://test/other"))
+                .build();
+        mNewCards.add(0, card);
+
+        assertThat(mDiffCallback.getChangePayload(0, 0)).isNull();
+    }
+
     private ContextualCard getContextualCard(String name) {
         return new ContextualCard.Builder()
                 .setName(name)
@@ -18,6 +18,7 @@ package com.android.settings.network;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -27,10 +28,13 @@ import android.content.Context;
 import android.os.PersistableBundle;
 import android.os.UserHandle;
 import android.telephony.CarrierConfigManager;
+import android.telephony.TelephonyManager;
+import android.util.AtomicFile;
 
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -39,16 +43,30 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @RunWith(AndroidJUnit4.class)
 public class CarrierConfigCacheTest {
 
     static final int ONCE_SUB_ID = 11;
     static final int TWICE_SUB_ID = 12;
+    static final int PROJECTED_SUB_ID = 13;
+    static final int FULL_THEN_PROJECTED_SUB_ID = 14;
+    static final int CHANGED_SUB_ID = 15;
+    static final int PERSISTED_SUB_ID = 16;
+    static final int INTERLEAVED_SUB_ID = 17;
+    static final int CARRIER_ID = 1839;
+    static final String VERSION = "1";
+    static final String KEY = CarrierConfigManager.KEY_HIDE_CARRIER_NETWORK_SETTINGS_BOOL;
+    static final String OTHER_KEY = CarrierConfigManager.KEY_CARRIER_CONFIG_VERSION_STRING;
 
     @Rule
     public final MockitoRule mMockitoRule = MockitoJUnit.rule();
     @Mock
     CarrierConfigManager mCarrierConfigManager;
+    @Mock
+    TelephonyManager mTelephonyManager;
 
     Context mContext;
     CarrierConfigCache mCarrierConfigCache;
@@ -60,6 +78,21 @@ public class CarrierConfigCacheTest {
 
         mCarrierConfigCache = CarrierConfigCache.getInstance(mContext);
         mCarrierConfigCache.sCarrierConfigManager = mCarrierConfigManager;
+        // Keep projections in memory only.
+        CarrierConfigCache.sProjectionFile = null;
+        CarrierConfigCache.sTelephonyManager = null;
+    }
+
+    @After
+    public void tearDown() {
+        if (CarrierConfigCache.sProjectionFile != null) {
+            CarrierConfigCache.sProjectionFile.delete();
+            CarrierConfigCache.sProjectionFile = null;
+        }
+        synchronized (CarrierConfigCache.sProjectedConfigs) {
+            CarrierConfigCache.sPersistedConfigs = null;
+        }
+        CarrierConfigCache.sTelephonyManager = null;
     }
 
     @Test
@@ -98,4 +131,148 @@ public class CarrierConfigCacheTest {
 
         verify(mCarrierConfigManager, times(1)).getConfigForSubId(TWICE_SUB_ID);
     }
+
+    @Test
+    public void getConfigForSubIdWithKeys_getTwice_onlyGetKeysOnceFromManager() {
+        final PersistableBundle projected = new PersistableBundle();
+        projected.putBoolean(KEY, true);
+        when(mCarrierConfigManager.getConfigForSubId(PROJECTED_SUB_ID, KEY))
+                .thenReturn(projected);
+
+        mCarrierConfigCache.getConfigForSubId(PROJECTED_SUB_ID, KEY);
+        PersistableBundle config = mCarrierConfigCache.getConfigForSubId(PROJECTED_SUB_ID, KEY);
+
+        assertThat(config.getBoolean(KEY)).isTrue();
+        verify(mCarrierConfigManager, times(1)).getConfigForSubId(PROJECTED_SUB_ID, KEY);
+        verify(mCarrierConfigManager, never()).getConfigForSubId(PROJECTED_SUB_ID);
+    }
+
+    @Test
+    public void getConfigForSubIdWithKeys_fullConfigCached_returnOnlyKeysWithoutManager() {
+        final PersistableBundle fullConfig = new PersistableBundle();
+        fullConfig.putBoolean(KEY, true);
+        fullConfig.putString(OTHER_KEY, "version");
+        when(mCarrierConfigManager.getConfigForSubId(FULL_THEN_PROJECTED_SUB_ID))
+                .thenReturn(fullConfig);
+        mCarrierConfigCache.getConfigForSubId(FULL_THEN_PROJECTED_SUB_ID);
+
+        PersistableBundle config =
+                mCarrierConfigCache.getConfigForSubId(FULL_THEN_PROJECTED_SUB_ID, KEY);
+
+        assertThat(config.keySet()).containsExactly(KEY);
+        verify(mCarrierConfigManager, never()).getConfigForSubId(FULL_THEN_PROJECTED_SUB_ID, KEY);
+    }
+
+    @Test
+    public void onCarrierConfigChanged_refetchProjectedKeys() {
+        CarrierConfigCache.sProjectedKeys.clear();
+        final PersistableBundle oldConfig = new PersistableBundle();
+        oldConfig.putBoolean(KEY, false);
+        final PersistableBundle newConfig = new PersistableBundle();
+        newConfig.putBoolean(KEY, true);
+        when(mCarrierConfigManager.getConfigForSubId(CHANGED_SUB_ID, KEY))
+                .thenReturn(oldConfig, newConfig);
+        mCarrierConfigCache.getConfigForSubId(CHANGED_SUB_ID, KEY);
+
+        CarrierConfigCache.onCarrierConfigChanged(CHANGED_SUB_ID,
+                TelephonyManager.UNKNOWN_CARRIER_ID);
+        PersistableBundle config = mCarrierConfigCache.getConfigForSubId(CHANGED_SUB_ID, KEY);
+
+        assertThat(config.getBoolean(KEY)).isTrue();
+        verify(mCarrierConfigManager, times(2)).getConfigForSubId(CHANGED_SUB_ID, KEY);
+    }
+
+    @Test
+    public void getConfigForSubIdWithKeys_configChangedWhileFetching_dropFetchedKeys() {
+        CarrierConfigCache.sProjectedKeys.clear();
+        final PersistableBundle oldConfig = new PersistableBundle();
+        oldConfig.putBoolean(KEY, false);
+        final PersistableBundle newConfig = new PersistableBundle();
+        newConfig.putBoolean(KEY, true);
+        final AtomicInteger fetchCount = new AtomicInteger();
+        when(mCarrierConfigManager.getConfigForSubId(INTERLEAVED_SUB_ID, KEY))
+                .thenAnswer(invocation -> {
+                    if (fetchCount.getAndIncrement() > 0) {
+                        return newConfig;
+                    }
+                    // The carrier config changes while the first fetch is in flight.
+                    CarrierConfigCache.onCarrierConfigChanged(INTERLEAVED_SUB_ID, CARRIER_ID);
+                    return oldConfig;
+                });
+
+        mCarrierConfigCache.getConfigForSubId(INTERLEAVED_SUB_ID, KEY);
+        PersistableBundle config = mCarrierConfigCache.getConfigForSubId(INTERLEAVED_SUB_ID, KEY);
+
+        assertThat(config.getBoolean(KEY)).isTrue();
+        assertThat(CarrierConfigCache.sProjectedConfigs.get(INTERLEAVED_SUB_ID).getBoolean(KEY))
+                .isTrue();
+        verify(mCarrierConfigManager, times(2)).getConfigForSubId(INTERLEAVED_SUB_ID, KEY);
+    }
+
+    @Test
+    public void loadPersistedConfigs_sameCarrierAndVersion_servePersistedKeys() {
+        persistConfig();
+        when(mTelephonyManager.getSimCarrierId()).thenReturn(CARRIER_ID);
+
+        CarrierConfigCache.loadPersistedConfigs();
+        PersistableBundle config = mCarrierConfigCache.getConfigForSubId(PERSISTED_SUB_ID, KEY);
+
+        assertThat(config.getBoolean(KEY)).isTrue();
+        verify(mCarrierConfigManager, times(1)).getConfigForSubId(PERSISTED_SUB_ID, KEY);
+    }
+
+    @Test
+    public void loadPersistedConfigs_otherCarrier_fetchKeysAgain() {
+        persistConfig();
+        when(mTelephonyManager.getSimCarrierId()).thenReturn(CARRIER_ID + 1);
+
+        CarrierConfigCache.loadPersistedConfigs();
+        mCarrierConfigCache.getConfigForSubId(PERSISTED_SUB_ID, KEY);
+
+        verify(mCarrierConfigManager, times(2)).getConfigForSubId(PERSISTED_SUB_ID, KEY);
+    }
+
+    @Test
+    public void loadPersistedConfigs_otherConfigVersion_fetchKeysAgain() {
+        persistConfig();
+        when(mTelephonyManager.getSimCarrierId()).thenReturn(CARRIER_ID);
+        when(mCarrierConfigManager.getConfigForSubId(PERSISTED_SUB_ID, OTHER_KEY))
+                .thenReturn(createVersionConfig("2"));
+
+        CarrierConfigCache.loadPersistedConfigs();
+        mCarrierConfigCache.getConfigForSubId(PERSISTED_SUB_ID, KEY);
+
+        verify(mCarrierConfigManager, times(2)).getConfigForSubId(PERSISTED_SUB_ID, KEY);
+    }
+
+    /**
+     * Persists a projection of {@link #KEY} for {@link #PERSISTED_SUB_ID}, then forgets
+     * everything held in memory as a process restart would.
+     */
+    private void persistConfig() {
+        CarrierConfigCache.sProjectionFile = new AtomicFile(
+                new File(mContext.getCacheDir(), "carrier_config_projection_test"));
+        CarrierConfigCache.sTelephonyManager = mTelephonyManager;
+        when(mTelephonyManager.createForSubscriptionId(PERSISTED_SUB_ID))
+                .thenReturn(mTelephonyManager);
+        CarrierConfigCache.sProjectedKeys.clear();
+        CarrierConfigCache.sProjectedKeys.add(KEY);
+        final PersistableBundle projected = new PersistableBundle();
+        projected.putBoolean(KEY, true);
+        when(mCarrierConfigManager.getConfigForSubId(PERSISTED_SUB_ID, KEY)).thenReturn(projected);
+        when(mCarrierConfigManager.getConfigForSubId(PERSISTED_SUB_ID, OTHER_KEY))
+                .thenReturn(createVersionConfig(VERSION));
+        CarrierConfigCache.onCarrierConfigChanged(PERSISTED_SUB_ID, CARRIER_ID);
+
+        CarrierConfigCache.sProjectedConfigs.clear();
+        synchronized (CarrierConfigCache.sProjectedConfigs) {
+            CarrierConfigCache.sPersistedConfigs = null;
+        }
+    }
+
+    private static PersistableBundle createVersionConfig(String version) {
+        final PersistableBundle config = new PersistableBundle();
+        config.putString(OTHER_KEY, version);
+        return config;
+    }
 }
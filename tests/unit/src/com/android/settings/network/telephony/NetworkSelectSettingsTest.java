@@ -308,6 +308,53 @@ public class NetworkSelectSettingsTest {
         assertThat(mNetworkSelectSettings.filterOutSatellitePlmn(testList)).isEqualTo(expected);
     }
 
+    @Test
+    @UiThreadTest
+    public void isSameCellInfo_onlyTimestampChanged_returnTrue() {
+        final NetworkOperatorPreference pref = createPreference();
+        pref.updateCell(createLteCellInfo(false, 123, "123", "232", "CarrierA"));
+        final CellInfoLte cellInfo = createLteCellInfo(false, 123, "123", "232", "CarrierA");
+        cellInfo.setTimeStamp(44);
+
+        assertThat(pref.isSameCellInfo(cellInfo)).isTrue();
+    }
+
+    @Test
+    @UiThreadTest
+    public void isSameCellInfo_signalLevelChanged_returnFalse() {
+        final NetworkOperatorPreference pref = createPreference();
+        pref.updateCell(createLteCellInfo(false, 123, "123", "232", "CarrierA"));
+        final CellInfoLte cellInfo = createLteCellInfo(false, 123, "123", "232", "CarrierA");
+        cellInfo.setCellSignalStrength(new CellSignalStrengthLte(-60, -80, -7, 200, 15, 0));
+
+        assertThat(pref.isSameCellInfo(cellInfo)).isFalse();
+    }
+
+    @Test
+    @UiThreadTest
+    public void isSameCellInfo_registrationChanged_returnFalse() {
+        final NetworkOperatorPreference pref = createPreference();
+        pref.updateCell(createLteCellInfo(false, 123, "123", "232", "CarrierA"));
+
+        assertThat(pref.isSameCellInfo(createLteCellInfo(true, 123, "123", "232", "CarrierA")))
+                .isFalse();
+    }
+
+    @Test
+    @UiThreadTest
+    public void isSameCellInfo_otherCell_returnFalse() {
+        final NetworkOperatorPreference pref = createPreference();
+        pref.updateCell(createLteCellInfo(false, 123, "123", "232", "CarrierA"));
+
+        assertThat(pref.isSameCellInfo(createLteCellInfo(false, 1234, "123", "232", "CarrierA")))
+                .isFalse();
+    }
+
+    private NetworkOperatorPreference createPreference() {
+        return new NetworkOperatorPreference(mContext, Collections.emptyList(),
+                false /* show4GForLTE */);
+    }
+
     private CellInfoLte createLteCellInfo(boolean registered, int cellId, String mcc, String mnc,
             String plmnName) {
         CellIdentityLte cil = new CellIdentityLte(